@@ -180,21 +180,57 @@ public enum GlobalConfiguration {
   DATE_TIME_FORMAT("arcadedb.dateTimeFormat", SCOPE.DATABASE, "Default date time format using Java SimpleDateFormat syntax",
       String.class, "yyyy-MM-dd HH:mm:ss"),
 
+  RECORD_INDEXED_HEADER_THRESHOLD("arcadedb.recordIndexedHeaderThreshold", SCOPE.DATABASE,
+      "Minimum number of properties to serialize a record with the indexed header, where the properties are sorted by id so a single property is found with a binary search instead of scanning all of them. 0 to always use the sequential header. The records written with the indexed header cannot be read by versions before this setting was introduced",
+      Integer.class, 32),
+
   TX_WAL("arcadedb.txWAL", SCOPE.DATABASE, "Uses the WAL", Boolean.class, true),
 
   TX_WAL_FLUSH("arcadedb.txWalFlush", SCOPE.DATABASE,
       "Flushes the WAL on disk at commit time. It can be 0 = no flush, 1 = flush without metadata and 2 = full flush (fsync)",
       Integer.class, 0),
 
+  TX_WAL_RECOVERY_THREADS("arcadedb.txWalRecoveryThreads", SCOPE.DATABASE,
+      "Number of threads applying the changes from the WAL files during the recovery of the database. 1 = sequential recovery. By default is the number of available cores",
+      Integer.class, Runtime.getRuntime().availableProcessors()),
+
+  TX_WAL_GROUP_COMMIT_WINDOW("arcadedb.txWalGroupCommitWindow", SCOPE.DATABASE,
+      "Maximum time in microseconds a transaction waits at commit time for concurrent transactions to share the same WAL write and flush. 0 = no wait, only the transactions already waiting are written together. Useful only with txWalFlush > 0",
+      Long.class, 0),
+
+  TX_WAL_COMPRESSION("arcadedb.txWalCompression", SCOPE.DATABASE,
+      "Compresses the pages changed by each transaction before writing them in the WAL: 'none', 'lz4' or 'rle' (run-length encoding, very fast and effective with the mostly empty pages). The WAL files with compressed transactions cannot be recovered by versions before this setting was introduced",
+      String.class, "none", Set.of(new String[] { "none", "lz4", "rle" })),
+
   FREE_PAGE_RAM("arcadedb.freePageRAM", SCOPE.DATABASE, "Percentage (0-100) of memory to free when Page RAM is full", Integer.class,
       50),
 
+  PAGE_CACHE_EVICTION_POLICY("arcadedb.pageCacheEvictionPolicy", SCOPE.DATABASE,
+      "Policy to evict pages from the read cache when Page RAM is full between 'clock' and 'lru'. 'clock' (default) evicts incrementally and resists to full scans, 'lru' sorts all the cached pages by last access at every eviction",
+      String.class, "clock", Set.of(new String[] { "clock", "lru" })),
+
+  PAGE_CACHE_OFF_HEAP("arcadedb.pageCacheOffHeap", SCOPE.DATABASE,
+      "Keeps the content of the cached pages off-heap, in direct memory up to the maxPageRAM setting. This reduces GC pauses with large page caches. The JVM setting -XX:MaxDirectMemorySize must be large enough to contain the cache",
+      Boolean.class, false),
+
+  PAGE_READ_MMAP("arcadedb.pageReadMmap", SCOPE.DATABASE,
+      "Reads the pages from the files through memory mapped segments instead of the file channel. This avoids a system call and a copy for every page read and it works better with read-mostly databases that fit in the OS page cache",
+      Boolean.class, false),
+
+  PAGE_READ_MMAP_BYPASS_CACHE("arcadedb.pageReadMmapBypassCache", SCOPE.DATABASE,
+      "With pageReadMmap enabled, the pages read from the files are not kept in the read cache, because the OS page cache already contains them. Modified pages are still cached",
+      Boolean.class, false),
+
   TYPE_DEFAULT_BUCKETS("arcadedb.typeDefaultBuckets", SCOPE.DATABASE, "Default number of buckets to create per type", Integer.class,
       8),
 
   BUCKET_DEFAULT_PAGE_SIZE("arcadedb.bucketDefaultPageSize", SCOPE.DATABASE,
       "Default page size in bytes for buckets. Default is 64KB", Integer.class, 65_536),
 
+  BUCKET_REUSE_FREE_SPACE("arcadedb.bucketReuseFreeSpace", SCOPE.DATABASE,
+      "Reuses the space left by deleted and shrunk records in the bucket pages for the new records, instead of always appending them to the last page",
+      Boolean.class, true),
+
   ASYNC_WORKER_THREADS("arcadedb.asyncWorkerThreads", SCOPE.DATABASE,
       "Number of asynchronous worker threads. 0 (default) = available cores minus 1", Integer.class,
       Runtime.getRuntime().availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() - 1 : 1),
@@ -218,6 +254,10 @@ public enum GlobalConfiguration {
   COMMIT_LOCK_TIMEOUT("arcadedb.commitLockTimeout", SCOPE.DATABASE, "Timeout in ms to lock resources during commit", Long.class,
       5000),
 
+  COMMIT_PAGE_LOCKING("arcadedb.commitPageLocking", SCOPE.DATABASE,
+      "Lock only the modified pages of the buckets during commit, so transactions modifying different pages of the same bucket can commit concurrently. The indexes are always locked as a whole",
+      Boolean.class, true),
+
   TX_RETRIES("arcadedb.txRetries", SCOPE.DATABASE, "Number of retries in case of MVCC exception", Integer.class, 3),
 
   TX_RETRY_DELAY("arcadedb.txRetryDelay", SCOPE.DATABASE,
@@ -251,6 +291,24 @@ public enum GlobalConfiguration {
           + "This setting is intended as a safety measure against excessive resource consumption from a single query (eg. prevent OutOfMemory)",
       Long.class, 500_000),
 
+  QUERY_SPILL_HEAP_ELEMENTS("arcadedb.querySpillHeapElements", SCOPE.DATABASE,
+      "Maximum number of elements (records) kept in heap by ORDER BY, DISTINCT and GROUP BY before spilling to temporary files. ORDER BY spills sorted runs "
+          + "merged when the results are fetched, DISTINCT and GROUP BY spill hash partitions processed one at a time. "
+          + "ORDER BY with a LIMIT up to this size keeps only the top elements in heap. 0 = never spill", Long.class, 200_000),
+
+  QUERY_PARALLEL_SCAN_THREADS("arcadedb.queryParallelScanThreads", SCOPE.DATABASE,
+      "Maximum number of threads scanning the buckets of a type in parallel for a single SQL query, evaluating the WHERE condition and count(*) on the "
+          + "worker threads. 1 = sequential scans (default). Set it to the number of cores to let the scans of large types use all of them",
+      Integer.class, 1),
+
+  QUERY_PARALLEL_SCAN_MORSEL_PAGES("arcadedb.queryParallelScanMorselPages", SCOPE.DATABASE,
+      "Number of pages of a bucket assigned to a worker thread at a time (morsel) by a parallel scan. Types with less than 2 morsels of pages are "
+          + "scanned sequentially", Integer.class, 64),
+
+  QUERY_PROJECTION_PUSHDOWN("arcadedb.queryProjectionPushdown", SCOPE.DATABASE,
+      "Decodes only the properties referenced by a SQL query with projections when the records of a type are scanned, instead of decoding them one by one on access",
+      Boolean.class, true),
+
   // CYPHER
   CYPHER_STATEMENT_CACHE("arcadedb.cypher.statementCache", SCOPE.DATABASE,
       "Max number of entries in the cypher statement cache. Use 0 to disable. Caching statements speeds up execution of the same cypher queries",
@@ -263,9 +321,51 @@ public enum GlobalConfiguration {
   INDEX_COMPACTION_MIN_PAGES_SCHEDULE("arcadedb.indexCompactionMinPagesSchedule", SCOPE.DATABASE,
       "Minimum number of mutable pages for an index to be schedule for automatic compaction. 0 = disabled", Integer.class, 10),
 
+  INDEX_COMPACTION_THREADS("arcadedb.indexCompactionThreads", SCOPE.DATABASE,
+      "Number of threads dedicated to the background compaction of indexes. Compaction does not use the asynchronous executor", Integer.class, 1),
+
+  INDEX_COMPACTION_MAX_PAGES_PER_RUN("arcadedb.indexCompactionMaxPagesPerRun", SCOPE.DATABASE,
+      "Maximum number of mutable pages compacted in a single background run. The remaining pages are compacted by the following runs. 0 = unlimited",
+      Integer.class, 256),
+
+  INDEX_COMPACTION_MAX_PAGES_PER_SECOND("arcadedb.indexCompactionMaxPagesPerSecond", SCOPE.DATABASE,
+      "Maximum number of pages per second written by the background compaction of indexes, to limit the I/O against foreground operations. 0 = unlimited",
+      Integer.class, 0),
+
+  INDEX_BLOOM_FILTER_PAGE_PERCENTAGE("arcadedb.indexBloomFilterPagePercentage", SCOPE.DATABASE,
+      "Percentage of every new LSM-Tree index page reserved to the Bloom filter of its keys, used to skip pages on lookups. 0 = disabled",
+      Integer.class, 3),
+
+  INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE("arcadedb.indexBloomFilterFalsePositiveRate", SCOPE.DATABASE,
+      "Target false positive rate of the Bloom filters of the LSM-Tree index pages, used to compute the number of hash functions. The number of hash functions is capped by the space reserved with 'arcadedb.indexBloomFilterPagePercentage'",
+      Float.class, 0.01F),
+
+  INDEX_BLOOM_FILTER_CACHE_RAM_MB("arcadedb.indexBloomFilterCacheRAM", SCOPE.DATABASE,
+      "Maximum amount of RAM, in MB, used by every index file to keep the Bloom filters of its immutable pages in memory. 0 = disabled",
+      Long.class, 64),
+
   // NETWORK
   NETWORK_SOCKET_TIMEOUT("arcadedb.network.socketTimeout", SCOPE.SERVER, "TCP/IP Socket timeout (in ms)", Integer.class, 30000),
 
+  NETWORK_REMOTE_TRANSPORT("arcadedb.network.remoteTransport", SCOPE.SERVER,
+      "Transport used by the remote database to execute queries, commands and transactions. 'http' uses the HTTP/JSON API, 'binary' uses the binary protocol of the 'binary' server plugin over persistent connections shared by the remote databases",
+      String.class, "http", Set.of(new String[] { "http", "binary" })),
+
+  NETWORK_REMOTE_BINARY_PORT("arcadedb.network.remoteBinaryPort", SCOPE.SERVER,
+      "TCP/IP port of the server binary protocol used by the remote database with the 'binary' transport", Integer.class, 2500),
+
+  NETWORK_REMOTE_HTTP_VERSION("arcadedb.network.remoteHttpVersion", SCOPE.SERVER,
+      "HTTP version of the pooled transport used by the asynchronous API of the remote database. With 'HTTP_2' the requests are multiplexed on the same connection if the server supports it, otherwise they use HTTP/1.1 keep-alive connections",
+      String.class, "HTTP_1_1", Set.of(new String[] { "HTTP_1_1", "HTTP_2" })),
+
+  NETWORK_REMOTE_MAX_CONCURRENT_REQUESTS("arcadedb.network.remoteMaxConcurrentRequests", SCOPE.SERVER,
+      "Maximum number of requests in flight at the same time on the pooled transport used by the asynchronous API of the remote database. With HTTP/1.1 this is also the maximum number of connections opened to the server. When the limit is reached, new requests wait for a free slot",
+      Integer.class, 64),
+
+  NETWORK_REMOTE_ASYNC_THREADS("arcadedb.network.remoteAsyncThreads", SCOPE.SERVER,
+      "Number of threads receiving the responses of the asynchronous API of the remote database. By default is the number of cores",
+      Integer.class, 0, null, (value) -> Runtime.getRuntime().availableProcessors()),
+
   NETWORK_USE_SSL("arcadedb.ssl.enabled", SCOPE.SERVER, "Use SSL for client connections", Boolean.class, false),
 
   NETWORK_SSL_KEYSTORE("arcadedb.ssl.keyStore", SCOPE.SERVER, "Path where the SSL certificates are stored", String.class, null),
@@ -336,6 +436,29 @@ public enum GlobalConfiguration {
       "Timeout in seconds for a HTTP transaction to expire. This timeout is computed from the latest command against the transaction",
       Long.class, 30),
 
+  SERVER_HTTP_CURSOR_EXPIRE_TIMEOUT("arcadedb.server.httpCursorExpireTimeout", SCOPE.SERVER,
+      "Timeout in seconds for a HTTP cursor to expire. This timeout is computed from the latest fetch from the cursor", Long.class, 30),
+
+  SERVER_HTTP_BATCH_COMMIT_EVERY("arcadedb.server.httpBatchCommitEvery", SCOPE.SERVER,
+      "Number of records to commit at a time by the HTTP batch endpoint, when not specified in the request. The records sent in a session with an open transaction are committed with the transaction",
+      Integer.class, 5_000),
+
+  SERVER_HTTP_BATCH_MAX_ERRORS("arcadedb.server.httpBatchMaxErrors", SCOPE.SERVER,
+      "Maximum number of errors reported in detail by the HTTP batch endpoint for each request. The exceeding errors are only counted",
+      Integer.class, 100),
+
+  // SERVER BINARY
+  SERVER_BINARY_INCOMING_HOST("arcadedb.server.binaryIncomingHost", SCOPE.SERVER,
+      "TCP/IP host name used for incoming connections of the binary protocol plugin", String.class, "0.0.0.0"),
+
+  SERVER_BINARY_INCOMING_PORT("arcadedb.server.binaryIncomingPort", SCOPE.SERVER,
+      "TCP/IP port number used for incoming connections of the binary protocol plugin. Specify a single port or a range `<from-<to>`. Default is 2500-2509 to accept a range of ports in case they are occupied.",
+      String.class, "2500-2509"),
+
+  SERVER_BINARY_WORKER_THREADS("arcadedb.server.binaryWorkerThreads", SCOPE.SERVER,
+      "Number of threads executing the requests received with the binary protocol. The requests pipelined on the same connection are executed in parallel. By default is 2 threads per core",
+      Integer.class, 0, null, (value) -> Runtime.getRuntime().availableProcessors() * 2),
+
   // SERVER WS
   SERVER_WS_EVENT_BUS_QUEUE_SIZE("arcadedb.server.eventBusQueueSize", SCOPE.SERVER,
       "Size of the queue used as a buffer for unserviced database change events.", Integer.class, 1000),
@@ -372,6 +495,10 @@ public enum GlobalConfiguration {
 
   HA_QUORUM_TIMEOUT("arcadedb.ha.quorumTimeout", SCOPE.SERVER, "Timeout waiting for the quorum", Long.class, 10000),
 
+  HA_READ_YOUR_WRITES_TIMEOUT("arcadedb.ha.readYourWritesTimeout", SCOPE.SERVER,
+      "Timeout in ms a replica waits to apply the replication position requested by the client before returning an error", Long.class,
+      5000),
+
   HA_REPLICATION_QUEUE_SIZE("arcadedb.ha.replicationQueueSize", SCOPE.SERVER, "Queue size for replicating messages between servers",
       Integer.class, 512),
 
@@ -382,6 +509,26 @@ public enum GlobalConfiguration {
   HA_REPLICATION_CHUNK_MAXSIZE("arcadedb.ha.replicationChunkMaxSize", SCOPE.SERVER,
       "Maximum channel chunk size for replicating messages between servers. Default is 16777216", Integer.class, 16384 * 1024),
 
+  HA_REPLICATION_COMPRESSION("arcadedb.ha.replicationCompression", SCOPE.SERVER,
+      "Compression of the transactions sent to the other servers: 'none', 'lz4' or 'rle' (run-length encoding, faster than lz4 and effective with the mostly empty pages)",
+      String.class, "lz4", Set.of(new String[] { "none", "lz4", "rle" })),
+
+  HA_REPLICATION_BATCH_MAX_SIZE("arcadedb.ha.replicationBatchMaxSize", SCOPE.SERVER,
+      "Maximum number of transactions committed concurrently on the leader sent to the replicas with one message. 1 disables the batching",
+      Integer.class, 64),
+
+  HA_REPLICATION_BATCHES_IN_FLIGHT("arcadedb.ha.replicationBatchesInFlight", SCOPE.SERVER,
+      "Maximum number of batches of transactions sent to the replicas waiting for the quorum. The transactions committed in the meantime are sent with the next batch",
+      Integer.class, 4),
+
+  HA_RESYNC_CHUNK_SIZE("arcadedb.ha.resyncChunkSize", SCOPE.SERVER,
+      "Size in bytes of the chunks of the database files sent to a replica on full resync. It is limited by arcadedb.ha.replicationChunkMaxSize. Default is 4194304",
+      Integer.class, 4 * 1024 * 1024),
+
+  HA_RESYNC_IN_FLIGHT_CHUNKS("arcadedb.ha.resyncInFlightChunks", SCOPE.SERVER,
+      "Maximum number of chunks requested by a replica on full resync without having received them, so the leader reads the next chunks while the previous ones are transferred",
+      Integer.class, 4),
+
   HA_REPLICATION_INCOMING_HOST("arcadedb.ha.replicationIncomingHost", SCOPE.SERVER,
       "TCP/IP host name used for incoming replication connections. By default is 0.0.0.0 (listens to all the configured network interfaces)",
       String.class, "0.0.0.0"),
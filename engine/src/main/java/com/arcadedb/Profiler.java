@@ -67,6 +67,10 @@ public class Profiler {
     long walPagesWritten = 0;
     long walBytesWritten = 0;
     long walTotalFiles = 0;
+    long walGroupCommits = 0;
+    long walGroupCommitTxs = 0;
+    long walSyncs = 0;
+    long walSyncTime = 0;
     long concurrentModificationExceptions = 0;
 
     long txCommits = 0;
@@ -88,6 +92,16 @@ public class Profiler {
     int readCachePages = 0;
     int writeCachePages = 0;
     long indexCompactions = 0;
+    long indexCompactionDebt = 0;
+    long indexLevel0Pages = 0;
+    long indexCompactionPagesRead = 0;
+    long indexCompactionPagesWritten = 0;
+    long indexBloomFilterAvoidedPageReads = 0;
+    long offHeapAllocated = 0;
+    long offHeapUsed = 0;
+    long offHeapFree = 0;
+    long offHeapFragmented = 0;
+    long offHeapOverflows = 0;
 
     for (final DatabaseInternal db : databases) {
       final Map<String, Object> dbStats = db.getStats();
@@ -106,6 +120,11 @@ public class Profiler {
       countType += (long) dbStats.get("countType");
       countBucket += (long) dbStats.get("countBucket");
       indexCompactions += (long) dbStats.get("indexCompactions");
+      indexCompactionDebt += (long) dbStats.get("indexCompactionDebt");
+      indexLevel0Pages += (long) dbStats.get("indexLevel0Pages");
+      indexCompactionPagesRead += (long) dbStats.get("indexCompactionPagesRead");
+      indexCompactionPagesWritten += (long) dbStats.get("indexCompactionPagesWritten");
+      indexBloomFilterAvoidedPageReads += (long) dbStats.get("indexBloomFilterAvoidedPageReads");
 
       final PageManager.PPageManagerStats pStats = db.getPageManager().getStats();
       readCacheUsed += pStats.readCacheRAM;
@@ -122,6 +141,11 @@ public class Profiler {
       evictionRuns += pStats.evictionRuns;
       pagesEvicted += pStats.pagesEvicted;
       readCachePages += pStats.readCachePages;
+      offHeapAllocated += pStats.offHeapAllocated;
+      offHeapUsed += pStats.offHeapUsed;
+      offHeapFree += pStats.offHeapFree;
+      offHeapFragmented += pStats.offHeapAllocated * pStats.offHeapFragmentation / 100;
+      offHeapOverflows += pStats.offHeapOverflows;
 
       final FileManager.FileManagerStats fStats = db.getFileManager().getStats();
       totalOpenFiles += fStats.totalOpenFiles;
@@ -135,6 +159,10 @@ public class Profiler {
       walPagesWritten += (Long) walStats.get("pagesWritten");
       walBytesWritten += (Long) walStats.get("bytesWritten");
       walTotalFiles += (Long) walStats.get("logFiles");
+      walGroupCommits += (Long) walStats.get("groupCommits");
+      walGroupCommitTxs += (Long) walStats.get("groupCommitTransactions");
+      walSyncs += (Long) walStats.get("syncs");
+      walSyncTime += (Long) walStats.get("syncTime");
     }
 
     json.put("readCacheUsed", new JSONObject().put("space", readCacheUsed));
@@ -149,11 +177,16 @@ public class Profiler {
     json.put("asyncParallelLevel", new JSONObject().put("count", asyncParallelLevel));
     json.put("pageCacheHits", new JSONObject().put("count", pageCacheHits));
     json.put("pageCacheMiss", new JSONObject().put("count", pageCacheMiss));
+    json.put("pageCacheHitRatio", new JSONObject().put("value", pageCacheHits + pageCacheMiss > 0 ? pageCacheHits * 100D / (pageCacheHits + pageCacheMiss) : 0D));
     json.put("totalOpenFiles", new JSONObject().put("count", totalOpenFiles));
     json.put("maxOpenFiles", new JSONObject().put("count", maxOpenFiles));
     json.put("walPagesWritten", new JSONObject().put("count", walPagesWritten));
     json.put("walBytesWritten", new JSONObject().put("space", walBytesWritten));
     json.put("walTotalFiles", walTotalFiles);
+    json.put("walGroupCommits", new JSONObject().put("count", walGroupCommits));
+    json.put("walGroupCommitAvgBatchSize", new JSONObject().put("value", walGroupCommits > 0 ? walGroupCommitTxs / (double) walGroupCommits : 0D));
+    json.put("walSyncs", new JSONObject().put("count", walSyncs));
+    json.put("walSyncAvgLatency", new JSONObject().put("value", walSyncs > 0 ? walSyncTime / (double) walSyncs : 0D));
     json.put("concurrentModificationExceptions", new JSONObject().put("count", concurrentModificationExceptions));
 
     json.put("txCommits", new JSONObject().put("count", txCommits));
@@ -173,8 +206,18 @@ public class Profiler {
     json.put("evictionRuns", new JSONObject().put("count", evictionRuns));
     json.put("pagesEvicted", new JSONObject().put("count", pagesEvicted));
     json.put("readCachePages", new JSONObject().put("count", readCachePages));
+    json.put("offHeapAllocated", new JSONObject().put("space", offHeapAllocated));
+    json.put("offHeapUsed", new JSONObject().put("space", offHeapUsed));
+    json.put("offHeapFree", new JSONObject().put("space", offHeapFree));
+    json.put("offHeapFragmentation", new JSONObject().put("value", offHeapAllocated > 0 ? (offHeapFragmented * 100) / offHeapAllocated : 0));
+    json.put("offHeapOverflows", new JSONObject().put("count", offHeapOverflows));
     json.put("writeCachePages", new JSONObject().put("count", writeCachePages));
     json.put("indexCompactions", new JSONObject().put("count", indexCompactions));
+    json.put("indexCompactionDebt", new JSONObject().put("count", indexCompactionDebt));
+    json.put("indexCompactionPagesWritten", new JSONObject().put("count", indexCompactionPagesWritten));
+    json.put("indexBloomFilterAvoidedPageReads", new JSONObject().put("count", indexBloomFilterAvoidedPageReads));
+    json.put("indexWriteAmplification",
+        new JSONObject().put("value", getWriteAmplification(indexLevel0Pages, indexCompactionPagesRead, indexCompactionPagesWritten)));
 
     final long freeSpace = new File(".").getFreeSpace();
     final long totalSpace = new File(".").getTotalSpace();
@@ -256,6 +299,10 @@ public class Profiler {
     long walPagesWritten = 0;
     long walBytesWritten = 0;
     long walTotalFiles = 0;
+    long walGroupCommits = 0;
+    long walGroupCommitTxs = 0;
+    long walSyncs = 0;
+    long walSyncTime = 0;
     long concurrentModificationExceptions = 0;
 
     long txCommits = 0;
@@ -277,6 +324,16 @@ public class Profiler {
     int readCachePages = 0;
     int writeCachePages = 0;
     long indexCompactions = 0;
+    long indexCompactionDebt = 0;
+    long indexLevel0Pages = 0;
+    long indexCompactionPagesRead = 0;
+    long indexCompactionPagesWritten = 0;
+    long indexBloomFilterAvoidedPageReads = 0;
+    long offHeapAllocated = 0;
+    long offHeapUsed = 0;
+    long offHeapFree = 0;
+    long offHeapFragmented = 0;
+    long offHeapOverflows = 0;
 
     try {
       for (final DatabaseInternal db : databases) {
@@ -296,6 +353,11 @@ public class Profiler {
         countType += (long) dbStats.get("countType");
         countBucket += (long) dbStats.get("countBucket");
         indexCompactions += (long) dbStats.get("indexCompactions");
+        indexCompactionDebt += (long) dbStats.get("indexCompactionDebt");
+        indexLevel0Pages += (long) dbStats.get("indexLevel0Pages");
+        indexCompactionPagesRead += (long) dbStats.get("indexCompactionPagesRead");
+        indexCompactionPagesWritten += (long) dbStats.get("indexCompactionPagesWritten");
+        indexBloomFilterAvoidedPageReads += (long) dbStats.get("indexBloomFilterAvoidedPageReads");
 
         final PageManager.PPageManagerStats pStats = db.getPageManager().getStats();
         readCacheUsed += pStats.readCacheRAM;
@@ -312,6 +374,11 @@ public class Profiler {
         evictionRuns += pStats.evictionRuns;
         pagesEvicted += pStats.pagesEvicted;
         readCachePages += pStats.readCachePages;
+        offHeapAllocated += pStats.offHeapAllocated;
+        offHeapUsed += pStats.offHeapUsed;
+        offHeapFree += pStats.offHeapFree;
+        offHeapFragmented += pStats.offHeapAllocated * pStats.offHeapFragmentation / 100;
+        offHeapOverflows += pStats.offHeapOverflows;
 
         final FileManager.FileManagerStats fStats = db.getFileManager().getStats();
         totalOpenFiles += fStats.totalOpenFiles;
@@ -325,6 +392,10 @@ public class Profiler {
         walPagesWritten += (Long) walStats.get("pagesWritten");
         walBytesWritten += (Long) walStats.get("bytesWritten");
         walTotalFiles += (Long) walStats.get("logFiles");
+        walGroupCommits += (Long) walStats.get("groupCommits");
+        walGroupCommitTxs += (Long) walStats.get("groupCommitTransactions");
+        walSyncs += (Long) walStats.get("syncs");
+        walSyncTime += (Long) walStats.get("syncTime");
       }
 
       buffer.append(String.format("ARCADEDB %s Profiler", Constants.getRawVersion()));
@@ -359,6 +430,11 @@ public class Profiler {
           FileUtils.getSizeAsString(readCacheUsed), readCachePages, FileUtils.getSizeAsString(writeCacheUsed), writeCachePages,
           FileUtils.getSizeAsString(cacheMax), pagesRead, FileUtils.getSizeAsString(pagesReadSize), pagesWritten, FileUtils.getSizeAsString(pagesWrittenSize)));
 
+      if (offHeapAllocated > 0)
+        buffer.append(String.format("%n PAGE-CACHE-OFF-HEAP allocated=%s used=%s free=%s fragmentation=%d%% overflows=%d",
+            FileUtils.getSizeAsString(offHeapAllocated), FileUtils.getSizeAsString(offHeapUsed), FileUtils.getSizeAsString(offHeapFree),
+            (offHeapFragmented * 100) / offHeapAllocated, offHeapOverflows));
+
       buffer.append(String.format("%n DB databases=%d asyncParallelLevel=%d asyncQueue=%d txCommits=%d txRollbacks=%d queries=%d commands=%d", databases.size(),
           asyncParallelLevel, asyncQueueLength, txCommits, txRollbacks, queries, commands));
       buffer.append(String.format("%n    createRecord=%d readRecord=%d updateRecord=%d deleteRecord=%d", createRecord, readRecord, updateRecord, deleteRecord));
@@ -366,14 +442,20 @@ public class Profiler {
           String.format("%n    scanType=%d scanBucket=%d iterateType=%d iterateBucket=%d countType=%d countBucket=%d", scanType, scanBucket, iterateType,
               iterateBucket, countType, countBucket));
 
-      buffer.append(String.format("%n INDEXES compactions=%d", indexCompactions));
+      buffer.append(String.format("%n INDEXES compactions=%d compactionDebt=%d compactionPagesWritten=%d writeAmplification=%.2f bloomFilterAvoidedPageReads=%d",
+          indexCompactions, indexCompactionDebt, indexCompactionPagesWritten,
+          getWriteAmplification(indexLevel0Pages, indexCompactionPagesRead, indexCompactionPagesWritten), indexBloomFilterAvoidedPageReads));
 
       buffer.append(
-          String.format("%n PAGE-MANAGER flushQueue=%d cacheHits=%d cacheMiss=%d concModExceptions=%d evictionRuns=%d pagesEvicted=%d", pageFlushQueueLength,
-              pageCacheHits, pageCacheMiss, concurrentModificationExceptions, evictionRuns, pagesEvicted));
+          String.format("%n PAGE-MANAGER flushQueue=%d cacheHits=%d cacheMiss=%d hitRatio=%.2f%% concModExceptions=%d evictionRuns=%d pagesEvicted=%d",
+              pageFlushQueueLength, pageCacheHits, pageCacheMiss,
+              pageCacheHits + pageCacheMiss > 0 ? pageCacheHits * 100D / (pageCacheHits + pageCacheMiss) : 0D, concurrentModificationExceptions,
+              evictionRuns, pagesEvicted));
 
       buffer.append(
-          String.format("%n WAL totalFiles=%d pagesWritten=%d bytesWritten=%s", walTotalFiles, walPagesWritten, FileUtils.getSizeAsString(walBytesWritten)));
+          String.format("%n WAL totalFiles=%d pagesWritten=%d bytesWritten=%s groupCommits=%d avgBatchSize=%.2f syncs=%d avgSyncLatency=%.2fus",
+              walTotalFiles, walPagesWritten, FileUtils.getSizeAsString(walBytesWritten), walGroupCommits,
+              walGroupCommits > 0 ? walGroupCommitTxs / (double) walGroupCommits : 0D, walSyncs, walSyncs > 0 ? walSyncTime / (double) walSyncs : 0D));
 
       buffer.append(String.format("%n FILE-MANAGER FS=%s/%s openFiles=%d maxFilesOpened=%d", FileUtils.getSizeAsString(freeSpaceInMB),
           FileUtils.getSizeAsString(totalSpaceInMB), totalOpenFiles, maxOpenFiles));
@@ -391,4 +473,9 @@ public class Profiler {
     }
     return collectionTime;
   }
+
+  private static double getWriteAmplification(final long level0Pages, final long compactionPagesRead, final long compactionPagesWritten) {
+    final long foregroundPages = level0Pages > 0 ? level0Pages : compactionPagesRead;
+    return foregroundPages > 0 ? (foregroundPages + compactionPagesWritten) / (double) foregroundPages : 1D;
+  }
 }
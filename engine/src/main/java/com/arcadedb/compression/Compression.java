@@ -24,6 +24,16 @@ import com.arcadedb.database.Binary;
  * Base interface for compression.
  */
 public interface Compression {
+  /**
+   * Name of the codec used in the configuration.
+   */
+  String getName();
+
+  /**
+   * Id of the codec stored together with the compressed content, so the content can be decompressed with the same codec.
+   */
+  byte getId();
+
   Binary compress(Binary data);
 
   Binary decompress(Binary requestBytes, int decompressedLength);
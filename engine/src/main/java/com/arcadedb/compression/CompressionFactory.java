@@ -18,13 +18,45 @@
  */
 package com.arcadedb.compression;
 
+import com.arcadedb.exception.ConfigurationException;
+
 /**
  * Compression factory.
  */
 public class CompressionFactory {
+  public static final  String         NONE                  = "none";
   private static final LZ4Compression defaultImplementation = new LZ4Compression();
+  private static final Compression[]  implementations       = { defaultImplementation, new RunLengthCompression() };
 
   public static Compression getDefault() {
     return defaultImplementation;
   }
+
+  /**
+   * Returns the codec by name, or null if the name is "none".
+   */
+  public static Compression getCompression(final String name) {
+    if (name == null || NONE.equalsIgnoreCase(name))
+      return null;
+
+    for (final Compression c : implementations)
+      if (c.getName().equalsIgnoreCase(name))
+        return c;
+
+    throw new ConfigurationException("Compression '" + name + "' not supported");
+  }
+
+  /**
+   * Returns the codec by the id stored with the compressed content, or null if the id is 0 (no compression).
+   */
+  public static Compression getCompression(final byte id) {
+    if (id == 0)
+      return null;
+
+    for (final Compression c : implementations)
+      if (c.getId() == id)
+        return c;
+
+    throw new ConfigurationException("Compression with id " + id + " not supported");
+  }
 }
@@ -27,6 +27,8 @@ import net.jpountz.lz4.LZ4FastDecompressor;
  * Compression implementation that uses the popular LZ4 algorithm.
  */
 public class LZ4Compression implements Compression {
+  public static final  String              NAME         = "lz4";
+  public static final  byte                ID           = 1;
   private static final byte[]              EMPTY_BYTES  = new byte[0];
   private static final Binary              EMPTY_BINARY = new Binary(EMPTY_BYTES);
   private final        LZ4Compressor       compressor;
@@ -38,12 +40,23 @@ public class LZ4Compression implements Compression {
     this.decompressor = factory.fastDecompressor();
   }
 
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
   @Override
   public Binary compress(final Binary data) {
     final int decompressedLength = data.size() - data.position();
     final int maxCompressedLength = compressor.maxCompressedLength(decompressedLength);
     final byte[] compressed = new byte[maxCompressedLength];
-    final int compressedLength = compressor.compress(data.getContent(), data.position(), data.size(), compressed, 0, maxCompressedLength);
+    final int compressedLength = compressor.compress(data.getContent(), data.position(), decompressedLength, compressed, 0,
+        maxCompressedLength);
 
     return new Binary(compressed, compressedLength);
   }
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.compression;
+
+import com.arcadedb.database.Binary;
+
+import java.util.*;
+
+/**
+ * Pure Java compression that encodes the sequences of the same byte as runs. It is much faster than the general purpose codecs and
+ * it is very effective with the page deltas in the WAL, where most of the content is the zeroed space not used yet. The content is a
+ * sequence of tokens, each one starting with a variable length header: an even header is followed by (header / 2) + 1 literal bytes,
+ * an odd header is followed by one byte repeated (header / 2) + MIN_RUN times.
+ */
+public class RunLengthCompression implements Compression {
+  public static final  String NAME         = "rle";
+  public static final  byte   ID           = 2;
+  private static final int    MIN_RUN      = 4;
+  private static final Binary EMPTY_BINARY = new Binary(new byte[0]);
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
+  @Override
+  public Binary compress(final Binary data) {
+    final byte[] source = data.getContent();
+    final int end = data.size();
+
+    byte[] compressed = new byte[Math.max(16, (end - data.position()) / 4)];
+    int out = 0;
+
+    int literalStart = data.position();
+    int i = literalStart;
+    while (i < end) {
+      final byte value = source[i];
+      int runEnd = i + 1;
+      while (runEnd < end && source[runEnd] == value)
+        ++runEnd;
+
+      final int runLength = runEnd - i;
+      if (runLength < MIN_RUN) {
+        // TOO SHORT, KEEP IT IN THE CURRENT LITERAL
+        i = runEnd;
+        continue;
+      }
+
+      final int literalLength = i - literalStart;
+
+      // HEADERS (MAX 5 BYTES EACH) + LITERAL + RUN VALUE
+      compressed = ensureCapacity(compressed, out + 11 + literalLength);
+
+      if (literalLength > 0)
+        out = writeLiteral(compressed, out, source, literalStart, literalLength);
+
+      out = writeHeader(compressed, out, ((runLength - MIN_RUN) << 1) | 1);
+      compressed[out++] = value;
+
+      i = runEnd;
+      literalStart = runEnd;
+    }
+
+    final int literalLength = end - literalStart;
+    if (literalLength > 0) {
+      compressed = ensureCapacity(compressed, out + 5 + literalLength);
+      out = writeLiteral(compressed, out, source, literalStart, literalLength);
+    }
+
+    return new Binary(compressed, out);
+  }
+
+  @Override
+  public Binary decompress(final Binary data, final int decompressedLength) {
+    if (decompressedLength == 0)
+      return EMPTY_BINARY;
+
+    final byte[] source = data.getContent();
+    final int end = data.size();
+    final byte[] decompressed = new byte[decompressedLength];
+
+    int out = 0;
+    int i = data.position();
+    while (i < end) {
+      // READ THE VARIABLE LENGTH HEADER
+      int header = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = source[i++];
+        header |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+
+      if ((header & 1) == 0) {
+        final int length = (header >>> 1) + 1;
+        System.arraycopy(source, i, decompressed, out, length);
+        i += length;
+        out += length;
+      } else {
+        final int length = (header >>> 1) + MIN_RUN;
+        Arrays.fill(decompressed, out, out + length, source[i++]);
+        out += length;
+      }
+    }
+
+    if (out != decompressedLength)
+      throw new IllegalArgumentException("Invalid compressed content: expected " + decompressedLength + " bytes but found " + out);
+
+    return new Binary(decompressed);
+  }
+
+  private static int writeLiteral(final byte[] compressed, int out, final byte[] source, final int from, final int length) {
+    out = writeHeader(compressed, out, (length - 1) << 1);
+    System.arraycopy(source, from, compressed, out, length);
+    return out + length;
+  }
+
+  private static int writeHeader(final byte[] compressed, int out, int header) {
+    while ((header & ~0x7F) != 0) {
+      compressed[out++] = (byte) ((header & 0x7F) | 0x80);
+      header >>>= 7;
+    }
+    compressed[out++] = (byte) header;
+    return out;
+  }
+
+  private static byte[] ensureCapacity(final byte[] buffer, final int required) {
+    if (required <= buffer.length)
+      return buffer;
+    return Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+  }
+}
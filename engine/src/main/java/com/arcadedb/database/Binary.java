@@ -23,12 +23,15 @@ import com.arcadedb.serializer.BinaryComparator;
 import com.arcadedb.serializer.UnsignedBytesComparator;
 
 import java.io.*;
+import java.lang.ref.*;
 import java.nio.*;
 import java.util.*;
 import java.util.logging.*;
 
 /**
- * Binary data type. It is backed by Java Byte Buffers.
+ * Binary data type. It is backed by Java Byte Buffers. A Binary can also be a read-only view over a direct buffer (off-heap page
+ * cache): in this case the owner object, if any, is referenced by the view and all its slices, so the memory behind the buffer is not
+ * reused while the view is reachable.
  * <br>
  * NOTE: This class is not thread safe and must be not used by multiple threads at the same time.
  *
@@ -50,6 +53,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
   protected       int           allocationChunkSize = DEFAULT_ALLOCATION_CHUNK;
   protected       FetchCallback fetchCallback;
   protected final boolean       reusable;
+  protected final Object        owner;
 
   public interface FetchCallback {
     void fetch(Binary newBuffer) throws IOException;
@@ -60,6 +64,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     this.buffer = ByteBuffer.wrap(content);
     this.size = 0;
     this.reusable = false;
+    this.owner = null;
   }
 
   public Binary(final int initialSize, final boolean reusable) {
@@ -67,6 +72,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     this.buffer = ByteBuffer.wrap(content);
     this.size = 0;
     this.reusable = reusable;
+    this.owner = null;
   }
 
   public Binary(final int initialSize) {
@@ -83,18 +89,31 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     this.size = contentSize;
     this.autoResizable = false;
     this.reusable = false;
+    this.owner = null;
   }
 
   public Binary(final ByteBuffer buffer) {
-    this.content = buffer.array();
+    this(buffer, null);
+  }
+
+  /**
+   * Creates a Binary on an existent buffer, also direct.
+   *
+   * @param owner object to keep reachable as long as this object or any of its slices is reachable
+   */
+  public Binary(final ByteBuffer buffer, final Object owner) {
+    this.content = buffer.hasArray() ? buffer.array() : null;
     this.buffer = buffer;
     this.size = buffer.limit();
     this.autoResizable = false;
     this.reusable = false;
+    this.owner = owner;
   }
 
   public Binary copyOfContent() {
-    final Binary copy = new Binary(Arrays.copyOfRange(content, buffer.arrayOffset(), buffer.arrayOffset() + size), size);
+    final Binary copy = new Binary(content != null ?
+        Arrays.copyOfRange(content, buffer.arrayOffset(), buffer.arrayOffset() + size) :
+        readBuffer(0, size), size);
     copy.setAutoResizable(autoResizable);
     return copy;
   }
@@ -103,7 +122,14 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
    * Copy the Binary object without copying the underlying buffer. Use this when the buffer is not modified after the copy.
    */
   public Binary copy() {
-    final Binary copy = new Binary(content, size);
+    final Binary copy;
+    if (content == null) {
+      final ByteBuffer duplicate = buffer.duplicate();
+      duplicate.clear();
+      copy = new Binary(duplicate, owner);
+      copy.size = size;
+    } else
+      copy = new Binary(content, size);
     copy.autoResizable = autoResizable;
     copy.buffer.position(buffer.position());
     copy.buffer.limit(buffer.limit());
@@ -121,7 +147,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
    * is returned saving from an unnecessary and expensive copy.
    */
   public Binary getNotReusable() {
-    return reusable || size != content.length || buffer.arrayOffset() > 0 ? copyOfContent() : this;
+    return reusable || content == null || size != content.length || buffer.arrayOffset() > 0 ? copyOfContent() : this;
   }
 
   /**
@@ -153,7 +179,10 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     final int contentSize = toCopy.size();
     if (contentSize > 0) {
       checkForAllocation(buffer.position(), contentSize);
-      buffer.put(toCopy.content, toCopy.getContentBeginOffset(), contentSize);
+      if (toCopy.content != null)
+        buffer.put(toCopy.content, toCopy.getContentBeginOffset(), contentSize);
+      else
+        buffer.put(toCopy.readBuffer(0, contentSize));
     }
   }
 
@@ -480,6 +509,9 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
 
   @Override
   public byte[] toByteArray() {
+    if (content == null)
+      return readBuffer(0, size);
+
     final byte[] result = new byte[size];
     System.arraycopy(content, buffer.arrayOffset(), result, 0, result.length);
     return result;
@@ -491,6 +523,9 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     if (tot < 1)
       return new byte[0];
 
+    if (content == null)
+      return readBuffer(buffer.position(), tot);
+
     final byte[] result = new byte[tot];
     System.arraycopy(content, buffer.position(), result, 0, result.length);
     return result;
@@ -513,7 +548,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
    */
   public Binary slice() {
     buffer.rewind();
-    return new Binary(buffer.slice());
+    return new Binary(buffer.slice(), owner);
   }
 
   /**
@@ -525,7 +560,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
    */
   public Binary slice(final int position) {
     buffer.position(position);
-    return new Binary(buffer.slice());
+    return new Binary(buffer.slice(), owner);
   }
 
   /**
@@ -542,7 +577,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     result = buffer.slice();
     result.position(length);
     result.flip();
-    return new Binary(result);
+    return new Binary(result, owner);
   }
 
   @Override
@@ -551,7 +586,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
   }
 
   public void size(final int newSize) {
-    if (newSize > content.length)
+    if (newSize > capacity())
       checkForAllocation(0, newSize);
     else
       size = newSize;
@@ -564,12 +599,15 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     System.arraycopy(content, buffer.arrayOffset() + startPosition, content, buffer.arrayOffset() + destPosition, length);
   }
 
+  /**
+   * Returns the underlying array. If the buffer is direct, a copy of the buffer is returned.
+   */
   public byte[] getContent() {
-    return content;
+    return content != null ? content : readBuffer(0, buffer.capacity());
   }
 
   public int getContentBeginOffset() {
-    return buffer.arrayOffset();
+    return content != null ? buffer.arrayOffset() : 0;
   }
 
   public int readFromStream(final InputStream is) throws IOException {
@@ -579,7 +617,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
   }
 
   public int getContentSize() {
-    return content.length;
+    return capacity();
   }
 
   public static int getNumberSpace(final long value) {
@@ -614,7 +652,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
     if (newSizeAsLong > Integer.MAX_VALUE)
       throw new IllegalArgumentException("Binary objects cannot be larger than 2GB");
 
-    if (offset + bytesToWrite > content.length - buffer.arrayOffset()) {
+    if (offset + bytesToWrite > (content != null ? content.length - buffer.arrayOffset() : buffer.capacity())) {
       if (!autoResizable)
         throw new IllegalArgumentException("Cannot resize the buffer (autoResizable=false)");
 
@@ -625,8 +663,12 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
         newSize = allocationChunkSize;
 
       final byte[] newContent = new byte[newSize];
-      if (size > 0)
-        System.arraycopy(content, buffer.arrayOffset(), newContent, 0, size);
+      if (size > 0) {
+        if (content != null)
+          System.arraycopy(content, buffer.arrayOffset(), newContent, 0, size);
+        else
+          buffer.duplicate().position(0).get(newContent, 0, size);
+      }
       this.content = newContent;
 
       final int oldPosition = this.buffer.position();
@@ -639,7 +681,7 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
   }
 
   public int capacity() {
-    return content.length;
+    return content != null ? content.length : buffer.capacity();
   }
 
   public void fill(final byte filler, final int size) {
@@ -665,12 +707,26 @@ public class Binary implements BinaryStructure, Comparable<Binary> {
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(content);
+    return Arrays.hashCode(getContent());
   }
 
   @Override
   public int compareTo(final Binary o) {
-    return UnsignedBytesComparator.BEST_COMPARATOR.compare(content, o.content);
+    return UnsignedBytesComparator.BEST_COMPARATOR.compare(getContent(), o.getContent());
+  }
+
+  private byte[] readBuffer(final int position, final int length) {
+    final byte[] result = new byte[length];
+    final ByteBuffer duplicate = buffer.duplicate();
+    duplicate.clear();
+    duplicate.position(position);
+    try {
+      duplicate.get(result);
+    } finally {
+      // KEEP THE OWNER REACHABLE UNTIL THE COPY IS COMPLETE
+      Reference.reachabilityFence(this);
+    }
+    return result;
   }
 
   private void checkForFetching(final int bytes) {
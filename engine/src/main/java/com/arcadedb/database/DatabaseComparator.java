@@ -105,7 +105,8 @@ public class DatabaseComparator {
               e.toString());
         }
 
-        final boolean sameContent = Arrays.equals(page1.getContent().array(), page2.getContent().array());
+        // COMPARE THE WHOLE BUFFERS, THAT CAN BE DIRECT IF THE PAGE CACHE IS OFF-HEAP
+        final boolean sameContent = page1.getContent().duplicate().clear().equals(page2.getContent().duplicate().clear());
 
         if (page1.getVersion() != page2.getVersion())
           throw new DatabaseAreNotIdentical("Page %s has different versions on databases. DB1 %d <> DB2 %d (sameContent=%s)",
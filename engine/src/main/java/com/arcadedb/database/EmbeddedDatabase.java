@@ -51,10 +51,13 @@ import com.arcadedb.graph.GraphEngine;
 import com.arcadedb.graph.MutableVertex;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.graph.VertexInternal;
+import com.arcadedb.index.Index;
 import com.arcadedb.index.IndexCursor;
 import com.arcadedb.index.IndexInternal;
 import com.arcadedb.index.TypeIndex;
+import com.arcadedb.index.lsm.LSMTreeIndex;
 import com.arcadedb.index.lsm.LSMTreeIndexCompacted;
+import com.arcadedb.index.lsm.LSMTreeIndexCompactionScheduler;
 import com.arcadedb.index.lsm.LSMTreeIndexMutable;
 import com.arcadedb.index.vector.HnswVectorIndex;
 import com.arcadedb.log.LogManager;
@@ -112,6 +115,8 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
   protected            TransactionManager                        transactionManager;
   protected volatile   DatabaseAsyncExecutorImpl                 async                                = null;
   protected final      Lock                                      asyncLock                            = new ReentrantLock();
+  protected volatile   LSMTreeIndexCompactionScheduler           indexCompactionScheduler             = null;
+  protected volatile   ThreadPoolExecutor                        parallelScanExecutor                 = null;
   protected            boolean                                   autoTransaction                      = false;
   protected volatile   boolean                                   open                                 = false;
   private              boolean                                   readYourWrites                       = true;
@@ -239,6 +244,12 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
     if (async != null)
       async.kill();
 
+    if (indexCompactionScheduler != null)
+      indexCompactionScheduler.kill();
+
+    if (parallelScanExecutor != null)
+      parallelScanExecutor.shutdownNow();
+
     if (getTransaction().isActive())
       // ROLLBACK ANY PENDING OPERATION
       getTransaction().kill();
@@ -295,10 +306,74 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
     return async;
   }
 
+  /**
+   * Returns the scheduler of the background index compactions, creating it at the first call.
+   */
+  public LSMTreeIndexCompactionScheduler getIndexCompactionScheduler() {
+    if (indexCompactionScheduler == null) {
+      asyncLock.lock();
+      try {
+        if (indexCompactionScheduler == null)
+          indexCompactionScheduler = new LSMTreeIndexCompactionScheduler(wrappedDatabaseInstance);
+      } finally {
+        asyncLock.unlock();
+      }
+    }
+    return indexCompactionScheduler;
+  }
+
+  /**
+   * Returns the pool of threads used by the parallel scans of the SQL queries, creating it at the first call. The threads are
+   * shared by all the queries running on the database.
+   */
+  public ThreadPoolExecutor getParallelScanExecutor() {
+    if (parallelScanExecutor == null) {
+      asyncLock.lock();
+      try {
+        if (parallelScanExecutor == null) {
+          final int threads = Math.max(1, configuration.getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS));
+          final AtomicInteger threadCounter = new AtomicInteger();
+          final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+              r -> {
+                final Thread t = new Thread(r, "ParallelScan-" + name + "-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              });
+          executor.allowCoreThreadTimeOut(true);
+          parallelScanExecutor = executor;
+        }
+      } finally {
+        asyncLock.unlock();
+      }
+    }
+    return parallelScanExecutor;
+  }
+
   @Override
   public Map<String, Object> getStats() {
     final Map<String, Object> map = stats.toMap();
     map.put("indexCompactions", indexCompactions.get());
+
+    long compactionDebt = 0;
+    long level0Pages = 0;
+    long compactionPagesRead = 0;
+    long compactionPagesWritten = 0;
+    long bloomFilterAvoidedPageReads = 0;
+    if (schema != null)
+      for (final Index index : schema.getIndexes())
+        if (index instanceof LSMTreeIndex && ((LSMTreeIndex) index).isValid()) {
+          final Map<String, Long> indexStats = ((LSMTreeIndex) index).getStats();
+          compactionDebt += indexStats.get("compactionDebt");
+          level0Pages += indexStats.get("level0Pages");
+          compactionPagesRead += indexStats.get("compactionPagesRead");
+          compactionPagesWritten += indexStats.get("compactionPagesWritten");
+          bloomFilterAvoidedPageReads += indexStats.get("bloomFilterAvoidedPageReads");
+        }
+    map.put("indexCompactionDebt", compactionDebt);
+    map.put("indexLevel0Pages", level0Pages);
+    map.put("indexCompactionPagesRead", compactionPagesRead);
+    map.put("indexCompactionPagesWritten", compactionPagesWritten);
+    map.put("indexBloomFilterAvoidedPageReads", bloomFilterAvoidedPageReads);
     return map;
   }
 
@@ -1644,6 +1719,14 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
       }
     }
 
+    if (indexCompactionScheduler != null)
+      // EXECUTE OUTSIDE LOCK: WAIT FOR THE RUNNING COMPACTIONS TO FINISH
+      indexCompactionScheduler.close();
+
+    if (parallelScanExecutor != null)
+      // INTERRUPT THE SCANS STILL RUNNING: NOBODY CAN CONSUME THEIR RESULTS ANYMORE
+      parallelScanExecutor.shutdownNow();
+
     executeInWriteLock(() -> {
       if (!open)
         return null;
@@ -1733,9 +1816,9 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
       if (mode == ComponentFile.MODE.READ_ONLY)
         throw new DatabaseMetadataException("Database needs recovery but has been open in read only mode");
 
-      // RESET THE COUNT OF RECORD IN CASE THE DATABASE WAS NOT CLOSED PROPERLY
+      // RESTART FROM THE PERSISTED COUNT OF RECORDS, THE RECOVERY ADDS THE RECORDS OF THE TRANSACTIONS IN THE WAL FILES
       for (Bucket b : schema.getBuckets())
-        ((EmbeddedBucket) b).setCachedRecordCount(-1);
+        ((EmbeddedBucket) b).setCachedRecordCount(((EmbeddedBucket) b).getPersistedRecordCount());
 
       executeCallbacks(CALLBACK_EVENT.DB_NOT_CLOSED);
 
@@ -1747,13 +1830,17 @@ public class EmbeddedDatabase extends RWLockContext implements DatabaseInternal
       } else
         lockFile = null;
     }
+
+    if (mode == ComponentFile.MODE.READ_WRITE)
+      schema.getEmbedded().onAfterWALRecovery();
   }
 
   private void openInternal() {
     try {
       DatabaseContext.INSTANCE.init(this);
 
-      fileManager = new FileManager(databasePath, mode, SUPPORTED_FILE_EXT);
+      fileManager = new FileManager(databasePath, mode, SUPPORTED_FILE_EXT,
+          configuration.getValueAsBoolean(GlobalConfiguration.PAGE_READ_MMAP));
       transactionManager = new TransactionManager(wrappedDatabaseInstance);
       pageManager = new PageManager(fileManager, transactionManager, configuration, name);
 
@@ -108,6 +108,17 @@ public class ImmutableDocument extends BaseDocument {
     return database.getSerializer().deserializeProperties(database, buffer, new EmbeddedModifierObject(this), type);
   }
 
+  /**
+   * Returns the requested properties only, decoding them in a single pass on the record. The properties not present in the record are not
+   * returned. If `decodedBytes` is not null, the bytes of the values decoded and skipped are added to `decodedBytes[0]` and
+   * `decodedBytes[1]`.
+   */
+  public synchronized Map<String, Object> propertiesAsMap(final String[] propertyNames, final long[] decodedBytes) {
+    checkForLazyLoading();
+    return database.getSerializer()
+        .deserializeProperties(database, buffer, new EmbeddedModifierObject(this), type, decodedBytes, propertyNames);
+  }
+
   @Override
   public synchronized Map<String, Object> toMap() {
     return toMap(true);
@@ -20,6 +20,7 @@ package com.arcadedb.database;
 
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.engine.BasePage;
+import com.arcadedb.engine.Component;
 import com.arcadedb.engine.ComponentFile;
 import com.arcadedb.engine.EmbeddedBucket;
 import com.arcadedb.engine.ImmutablePage;
@@ -28,6 +29,7 @@ import com.arcadedb.engine.PageId;
 import com.arcadedb.engine.PageManager;
 import com.arcadedb.engine.PaginatedComponent;
 import com.arcadedb.engine.PaginatedComponentFile;
+import com.arcadedb.engine.TransactionManager;
 import com.arcadedb.engine.WALFile;
 import com.arcadedb.exception.ConcurrentModificationException;
 import com.arcadedb.exception.DuplicatedKeyException;
@@ -57,6 +59,7 @@ public class TransactionContext implements Transaction {
   private final DatabaseInternal                     database;
   private final Map<Integer, Integer>                newPageCounters       = new HashMap<>();
   private final Map<Integer, AtomicInteger>          bucketRecordDelta     = new HashMap<>();
+  private final Map<PageId, Integer>                 pageFreeSpaceDelta    = new HashMap<>();
   private final Map<RID, Record>                     immutableRecordsCache = new HashMap<>(1024);
   private final Map<RID, Record>                     modifiedRecordsCache  = new HashMap<>(1024);
   private final TransactionIndexContext              indexChanges;
@@ -67,6 +70,7 @@ public class TransactionContext implements Transaction {
   private       boolean                              asyncFlush            = true;
   private       WALFile.FLUSH_TYPE                   walFlush;
   private       List<Integer>                        lockedFiles;
+  private       List<PageId>                         lockedPages;
   private       long                                 txId                  = -1;
   private       STATUS                               status                = STATUS.INACTIVE;
   // KEEPS TRACK OF MODIFIED RECORD IN TX. AT 1ST PHASE COMMIT TIME THE RECORD ARE SERIALIZED AND INDEXES UPDATED. THIS DEFERRING IMPROVES SPEED ESPECIALLY
@@ -413,6 +417,18 @@ public class TransactionContext implements Transaction {
     return result;
   }
 
+  /**
+   * Returns true if the transaction contains changes not visible by the other threads yet.
+   */
+  public boolean hasChanges() {
+    return getModifiedPages() > 0 || !newPageCounters.isEmpty() || !modifiedRecordsCache.isEmpty() || (updatedRecords != null
+        && !updatedRecords.isEmpty()) || indexChanges.getTotalEntries() > 0;
+  }
+
+  public Database.TRANSACTION_ISOLATION_LEVEL getIsolationLevel() {
+    return isolationLevel;
+  }
+
   /**
    * Test only API.
    */
@@ -454,6 +470,18 @@ public class TransactionContext implements Transaction {
       counter.addAndGet(delta);
   }
 
+  /**
+   * Updates the space that can be reused in a bucket page with the space freed (positive delta) or consumed (negative delta) by the
+   * transaction. At transaction commit, the delta is applied to the free space map of the bucket. Use
+   * {@link EmbeddedBucket#FREE_SPACE_UNKNOWN} when the change cannot be computed, so the free space is computed from the page.
+   */
+  public void updatePageFreeSpaceDelta(final PageId pageId, final int delta) {
+    pageFreeSpaceDelta.merge(pageId, delta,
+        (current, increment) -> current == EmbeddedBucket.FREE_SPACE_UNKNOWN || increment == EmbeddedBucket.FREE_SPACE_UNKNOWN ?
+            EmbeddedBucket.FREE_SPACE_UNKNOWN :
+            current + increment);
+  }
+
   /**
    * Executes 1st phase from a replica.
    */
@@ -594,7 +622,7 @@ public class TransactionContext implements Transaction {
       if (useWAL) {
         txId = database.getTransactionManager().getNextTransactionId();
         //LogManager.instance().log(this, Level.FINE, "Creating buffer for TX %d (threadId=%d)", txId, Thread.currentThread().getId());
-        result = database.getTransactionManager().createTransactionBuffer(txId, pages);
+        result = database.getTransactionManager().createTransactionBuffer(txId, pages, getBucketRecordDelta());
       }
 
       return new TransactionPhase1(result, pages);
@@ -624,8 +652,12 @@ public class TransactionContext implements Transaction {
       status = STATUS.COMMIT_2ND_PHASE;
 
       if (changes.result != null)
-        // WRITE TO THE WAL FIRST
-        database.getTransactionManager().writeTransactionToWAL(changes.modifiedPages, walFlush, txId, changes.result);
+        // WRITE TO THE WAL FIRST, WITH THE RECORDS ADDED AND REMOVED IN EVERY BUCKET
+        database.getTransactionManager()
+            .writeTransactionToWAL(changes.modifiedPages, walFlush, txId, changes.result, getBucketRecordDelta());
+      else if (!bucketRecordDelta.isEmpty())
+        // WITHOUT THE WAL THE PERSISTED COUNTS OF THE MODIFIED BUCKETS ARE NOT VALID ANYMORE IF THE DATABASE IS NOT CLOSED PROPERLY
+        database.getSchema().getEmbedded().onBeforeBucketRecordCountChange(bucketRecordDelta.keySet());
 
       // AT THIS POINT, LOCK + VERSION CHECK, THERE IS NO NEED TO MANAGE ROLLBACK BECAUSE THERE CANNOT BE CONCURRENT TX THAT UPDATE THE SAME PAGE CONCURRENTLY
       // UPDATE PAGE COUNTER FIRST
@@ -647,9 +679,24 @@ public class TransactionContext implements Transaction {
       // UPDATE RECORD COUNT
       for (Map.Entry<Integer, AtomicInteger> entry : bucketRecordDelta.entrySet()) {
         final EmbeddedBucket bucket = (EmbeddedBucket) database.getSchema().getBucketById(entry.getKey());
-        if (bucket.getCachedRecordCount() > -1)
-          // UPDATE THE CACHE COUNTER ONLY IF ALREADY COMPUTED
-          bucket.setCachedRecordCount(bucket.getCachedRecordCount() + entry.getValue().get());
+        // UPDATE THE CACHE COUNTER ONLY IF ALREADY COMPUTED
+        bucket.incrementCachedRecordCount(entry.getValue().get());
+      }
+
+      // UPDATE THE FREE SPACE MAP OF THE MODIFIED BUCKET PAGES, SO THE NEXT INSERTS CAN REUSE THE SPACE LEFT BY DELETED RECORDS
+      for (final Map.Entry<PageId, Integer> entry : pageFreeSpaceDelta.entrySet()) {
+        final PageId pageId = entry.getKey();
+        final Component file = database.getSchema().getFileByIdIfExists(pageId.getFileId());
+        if (file instanceof EmbeddedBucket) {
+          if (entry.getValue() == EmbeddedBucket.FREE_SPACE_UNKNOWN) {
+            MutablePage page = modifiedPages != null ? modifiedPages.get(pageId) : null;
+            if (page == null && newPages != null)
+              page = newPages.get(pageId);
+            if (page != null)
+              ((EmbeddedBucket) file).updateFreeSpace(page);
+          } else
+            ((EmbeddedBucket) file).getFreeSpaceMap().add(pageId.getPageNumber(), entry.getValue());
+        }
       }
 
       for (final Record r : modifiedRecordsCache.values())
@@ -690,6 +737,11 @@ public class TransactionContext implements Transaction {
   public void reset() {
     status = STATUS.INACTIVE;
 
+    if (lockedPages != null) {
+      database.getTransactionManager().unlockPages(lockedPages);
+      lockedPages = null;
+    }
+
     if (lockedFiles != null) {
       database.getTransactionManager().unlockFilesInOrder(lockedFiles);
       lockedFiles = null;
@@ -705,6 +757,7 @@ public class TransactionContext implements Transaction {
     immutableRecordsCache.clear();
     immutablePages.clear();
     bucketRecordDelta.clear();
+    pageFreeSpaceDelta.clear();
     txId = -1;
   }
 
@@ -743,6 +796,13 @@ public class TransactionContext implements Transaction {
     this.status = status;
   }
 
+  /**
+   * Locks the files modified in the transaction in order. The files of the indexes and the buckets involved in unique indexes are locked
+   * exclusively, because the index pages to modify are known only when the index changes are committed. With
+   * {@link GlobalConfiguration#COMMIT_PAGE_LOCKING} the other buckets are locked in shared mode and only their modified and new pages are
+   * locked, so the transactions working on different pages of the same bucket commit concurrently. The version of the pages is checked
+   * after the locks, so two transactions creating the same new page cannot both succeed.
+   */
   private List<Integer> lockFilesInOrder() {
     final Set<Integer> modifiedFiles = new HashSet<>();
 
@@ -752,23 +812,53 @@ public class TransactionContext implements Transaction {
       for (final PageId p : newPages.keySet())
         modifiedFiles.add(p.getFileId());
 
-    indexChanges.addFilesToLock(modifiedFiles);
-
     modifiedFiles.addAll(newPageCounters.keySet());
 
+    final Set<Integer> exclusiveFiles = new HashSet<>();
+    indexChanges.addFilesToLock(exclusiveFiles);
+
+    final Set<Integer> sharedFiles = new HashSet<>();
+    final boolean pageLocking = database.getConfiguration().getValueAsBoolean(GlobalConfiguration.COMMIT_PAGE_LOCKING);
+    for (final Integer fileId : modifiedFiles) {
+      if (pageLocking && !exclusiveFiles.contains(fileId) && database.getSchema()
+          .getFileByIdIfExists(fileId) instanceof EmbeddedBucket)
+        sharedFiles.add(fileId);
+      else
+        exclusiveFiles.add(fileId);
+    }
+
+    final TransactionManager transactionManager = database.getTransactionManager();
     final long timeout = database.getConfiguration().getValueAsLong(GlobalConfiguration.COMMIT_LOCK_TIMEOUT);
 
-    final List<Integer> locked = database.getTransactionManager().tryLockFiles(modifiedFiles, timeout);
+    final List<Integer> locked = transactionManager.tryLockFiles(exclusiveFiles, sharedFiles, timeout);
 
     // CHECK IF ALL THE LOCKED FILES STILL EXIST. FILE MISSING CAN HAPPEN IN CASE OF INDEX COMPACTION OR DROP OF A BUCKET OR AN INDEX
     for (Integer f : locked)
       if (!database.getFileManager().existsFile(f)) {
         // ONE FILE HAS BEEN REMOVED
-        database.getTransactionManager().unlockFilesInOrder(locked);
+        transactionManager.unlockFilesInOrder(locked);
         rollback();
         throw new ConcurrentModificationException("File with id '" + f + "' has been removed");
       }
 
+    if (!sharedFiles.isEmpty()) {
+      final List<PageId> pagesToLock = new ArrayList<>();
+      for (final PageId p : modifiedPages.keySet())
+        if (sharedFiles.contains(p.getFileId()))
+          pagesToLock.add(p);
+      if (newPages != null)
+        for (final PageId p : newPages.keySet())
+          if (sharedFiles.contains(p.getFileId()))
+            pagesToLock.add(p);
+
+      try {
+        lockedPages = transactionManager.tryLockPages(pagesToLock, timeout);
+      } catch (final RuntimeException e) {
+        transactionManager.unlockFilesInOrder(locked);
+        throw e;
+      }
+    }
+
     return locked;
   }
 }
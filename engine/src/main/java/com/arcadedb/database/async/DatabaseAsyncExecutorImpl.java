@@ -23,6 +23,7 @@ import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseContext;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.DocumentCallback;
+import com.arcadedb.database.EmbeddedDatabase;
 import com.arcadedb.database.Identifiable;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.RID;
@@ -33,6 +34,7 @@ import com.arcadedb.engine.WALFile;
 import com.arcadedb.exception.DatabaseOperationException;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.index.IndexInternal;
+import com.arcadedb.index.lsm.LSMTreeIndex;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.schema.DocumentType;
 import com.conversantmedia.util.concurrent.PushPullBlockingQueue;
@@ -247,7 +249,10 @@ public class DatabaseAsyncExecutorImpl implements DatabaseAsyncExecutor {
   }
 
   public void compact(final IndexInternal index) {
-    if (index.scheduleCompaction())
+    if (index instanceof LSMTreeIndex)
+      // LSM-TREE INDEXES ARE COMPACTED BY THE DEDICATED SCHEDULER, WITHOUT COMPETING WITH THE ASYNCHRONOUS TASKS
+      ((EmbeddedDatabase) database.getEmbedded()).getIndexCompactionScheduler().schedule((LSMTreeIndex) index);
+    else if (index.scheduleCompaction())
       scheduleTask(getBestSlot(), new DatabaseAsyncIndexCompaction(index), false, backPressurePercentage);
   }
 
@@ -51,6 +51,14 @@ public abstract class BasePage {
     this.version = version;
   }
 
+  protected BasePage(final PageManager manager, final PageId pageId, final int size, final Binary content, final int version) {
+    this.manager = manager;
+    this.pageId = pageId;
+    this.size = size;
+    this.content = content;
+    this.version = version;
+  }
+
   /**
    * Returns an immutable view of the underlying binary object.
    */
@@ -164,6 +172,14 @@ public abstract class BasePage {
     return buffer.slice();
   }
 
+  /**
+   * Returns a view of the content after the header sharing the same underlying buffer. Unlike {@link #slice()}, the view keeps the
+   * off-heap frame of the page pinned as long as it is reachable.
+   */
+  public Binary getView() {
+    return content.slice(PAGE_HEADER_SIZE);
+  }
+
   public int getBufferPosition() {
     return this.content.position() - PAGE_HEADER_SIZE;
   }
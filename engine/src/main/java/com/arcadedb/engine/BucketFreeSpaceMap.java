@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.*;
+
+/**
+ * Free space map of a bucket. The pages are indexed by category from 0 to 15, where every category is 1/16 of the page size, so the
+ * page with enough space for a new record is found by checking at most 16 sets of pages. Only the pages with at least one category
+ * of free space are indexed. The free space in bytes of every page is kept too, so the transactions can update it with the space
+ * they freed and consumed, without scanning the page.
+ * <br><br>
+ * The map is a hint: the free space can be lower than the actual one (for example after the map is loaded from the categories), so
+ * the caller must verify the page before using it and update the map in case the page has less space than expected.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class BucketFreeSpaceMap {
+  public static final int      CATEGORIES = 16;
+  private final       int      categorySize;
+  private final       BitSet[] pagesByCategory = new BitSet[CATEGORIES];
+  private             int[]    freeSpaceByPage = new int[0];
+
+  public BucketFreeSpaceMap(final int pageSize) {
+    this.categorySize = pageSize / CATEGORIES;
+    for (int i = 0; i < CATEGORIES; i++)
+      pagesByCategory[i] = new BitSet();
+  }
+
+  /**
+   * Updates the free space of a page.
+   */
+  public synchronized void update(final int pageNumber, final int freeSpace) {
+    final int newFreeSpace = Math.max(freeSpace, 0);
+    final int category = getCategory(newFreeSpace);
+
+    final int previous = pageNumber < freeSpaceByPage.length ? getCategory(freeSpaceByPage[pageNumber]) : 0;
+    if (previous != category) {
+      if (previous > 0)
+        pagesByCategory[previous].clear(pageNumber);
+      if (category > 0)
+        pagesByCategory[category].set(pageNumber);
+    }
+
+    if (pageNumber >= freeSpaceByPage.length) {
+      if (newFreeSpace == 0)
+        return;
+      freeSpaceByPage = Arrays.copyOf(freeSpaceByPage, Math.max(pageNumber + 1, freeSpaceByPage.length * 2));
+    }
+    freeSpaceByPage[pageNumber] = newFreeSpace;
+  }
+
+  /**
+   * Adds the space freed (positive delta) or consumed (negative delta) in a page to its free space.
+   */
+  public synchronized void add(final int pageNumber, final int delta) {
+    update(pageNumber, getFreeSpace(pageNumber) + delta);
+  }
+
+  /**
+   * Returns the first page lower than `maxPageNumber` with at least `spaceNeeded` bytes free, preferring the pages with the least
+   * free space to keep the emptiest pages for the biggest records. Returns -1 if not found.
+   */
+  public synchronized int findPage(final int spaceNeeded, final int maxPageNumber) {
+    // ROUND UP TO THE NEXT CATEGORY: ALL THE PAGES IN THE CATEGORY ARE GUARANTEED TO HAVE THE SPACE
+    final int minCategory = Math.max(1, (spaceNeeded + categorySize - 1) / categorySize);
+    for (int category = minCategory; category < CATEGORIES; category++) {
+      final int pageNumber = pagesByCategory[category].nextSetBit(0);
+      if (pageNumber > -1 && pageNumber < maxPageNumber)
+        return pageNumber;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the free space in bytes known for a page.
+   */
+  public synchronized int getFreeSpace(final int pageNumber) {
+    return pageNumber < freeSpaceByPage.length ? freeSpaceByPage[pageNumber] : 0;
+  }
+
+  /**
+   * Returns the pages with free space and their category as a flat array of [page, category] pairs.
+   */
+  public synchronized int[] toArray() {
+    final List<Integer> result = new ArrayList<>();
+    for (int pageNumber = 0; pageNumber < freeSpaceByPage.length; pageNumber++) {
+      final int category = getCategory(freeSpaceByPage[pageNumber]);
+      if (category > 0) {
+        result.add(pageNumber);
+        result.add(category);
+      }
+    }
+
+    final int[] array = new int[result.size()];
+    for (int i = 0; i < array.length; i++)
+      array[i] = result.get(i);
+    return array;
+  }
+
+  /**
+   * Loads the pages with free space from a flat array of [page, category] pairs, as returned by {@link #toArray()}.
+   */
+  public synchronized void fromArray(final int[] array) {
+    for (int i = 0; i + 1 < array.length; i += 2)
+      if (array[i] > -1)
+        update(array[i], array[i + 1] * categorySize);
+  }
+
+  public synchronized int getPagesWithFreeSpace() {
+    int total = 0;
+    for (int i = 1; i < CATEGORIES; i++)
+      total += pagesByCategory[i].cardinality();
+    return total;
+  }
+
+  public synchronized void clear() {
+    for (int i = 0; i < CATEGORIES; i++)
+      pagesByCategory[i].clear();
+    freeSpaceByPage = new int[0];
+  }
+
+  private int getCategory(final int freeSpace) {
+    return Math.min(freeSpace / categorySize, CATEGORIES - 1);
+  }
+}
@@ -62,6 +62,22 @@ public class BucketIterator implements Iterator<Record> {
     fetchNext();
   }
 
+  /**
+   * Browses only the pages in the range from `fromPage` (inclusive) to `toPage` (exclusive). Used to split the scan of a bucket in
+   * ranges of pages processed in parallel.
+   */
+  BucketIterator(final EmbeddedBucket bucket, final Database db, final int fromPage, final int toPage) {
+    ((DatabaseInternal) db).checkPermissionsOnFile(bucket.fileId, SecurityDatabaseUser.ACCESS.READ_RECORD);
+
+    this.database = (DatabaseInternal) db;
+    this.bucket = bucket;
+    this.nextPageNumber = fromPage;
+    this.totalPages = toPage - 1;
+
+    limit = database.getResultSetLimit();
+    fetchNext();
+  }
+
   public void setPosition(final RID position) throws IOException {
     prefetchIndex = 0;
     nextBatch[prefetchIndex] = position.getRecord();
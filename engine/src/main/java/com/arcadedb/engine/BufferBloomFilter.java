@@ -20,40 +20,170 @@ package com.arcadedb.engine;
 
 import com.arcadedb.database.Binary;
 
+/**
+ * Bloom filter stored in a {@link Binary} buffer. Every value sets `hashFunctions` bits, computed with double hashing
+ * (h1 + i * h2) from a single 32-bit Murmur hash of the value, so no objects are allocated on {@link #add(int)} and
+ * {@link #mightContain(int)}. The first probe maps to the same bit as the filters written with a single hash function, so
+ * a filter created with 1 hash function reads the filters persisted before the multi-probe support.
+ */
 public class BufferBloomFilter {
-  private final Binary buffer;
-  private final int    hashSeed;
-  private final int    capacity;
+  public static final  int    MAX_HASH_FUNCTIONS = 16;
+  private static final int    MURMUR_M           = 0x5bd1e995;
+  private static final int    MURMUR_R           = 24;
+  private static final double LN2                = Math.log(2);
+  private final        Binary buffer;
+  private final        int    offset;
+  private final        int    hashSeed;
+  private final        int    capacity;
+  private final        int    hashFunctions;
 
   public BufferBloomFilter(final Binary buffer, final int slots, final int hashSeed) {
+    this(buffer, 0, slots, hashSeed, 1);
+  }
+
+  /**
+   * Creates a filter that uses the bytes of the buffer starting from `offset`. This allows to store the filter inside a page.
+   */
+  public BufferBloomFilter(final Binary buffer, final int offset, final int slots, final int hashSeed) {
+    this(buffer, offset, slots, hashSeed, 1);
+  }
+
+  /**
+   * Creates a filter that sets `hashFunctions` bits for every value. Use {@link #getOptimalHashFunctions(int, int, double)} to
+   * compute the number of hash functions from the target false positive rate.
+   */
+  public BufferBloomFilter(final Binary buffer, final int offset, final int slots, final int hashSeed, final int hashFunctions) {
     if (slots % 8 > 0)
       throw new IllegalArgumentException("Slots must be a multiplier of 8");
+    if (hashFunctions < 1 || hashFunctions > MAX_HASH_FUNCTIONS)
+      throw new IllegalArgumentException("Hash functions must be between 1 and " + MAX_HASH_FUNCTIONS);
     this.buffer = buffer;
+    this.offset = offset;
     this.hashSeed = hashSeed;
     this.capacity = slots;
+    this.hashFunctions = hashFunctions;
   }
 
   public void add(final int value) {
-    final int[] result = compute(value);
-    final byte v = buffer.getByte(result[0]);
-    buffer.putByte(result[0], (byte) (v | (1 << result[1])));
+    final int h1 = hash(value);
+    setBit(toSlot(h1));
+    if (hashFunctions > 1) {
+      final int h2 = secondHash(h1);
+      int combined = h1;
+      for (int i = 1; i < hashFunctions; ++i) {
+        combined += h2;
+        setBit(reduce(combined));
+      }
+    }
   }
 
   public boolean mightContain(final int value) {
-    final int[] result = compute(value);
-    final byte v = buffer.getByte(result[0]);
-    return ((v >> result[1]) & 1) == 1;
+    final int h1 = hash(value);
+    if (!isBitSet(toSlot(h1)))
+      return false;
+    if (hashFunctions > 1) {
+      final int h2 = secondHash(h1);
+      int combined = h1;
+      for (int i = 1; i < hashFunctions; ++i) {
+        combined += h2;
+        if (!isBitSet(reduce(combined)))
+          return false;
+      }
+    }
+    return true;
   }
 
-  private int[] compute(final int value) {
-    final byte[] b = new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
-    final int hash = MurmurHash.hash32(b, 4, hashSeed);
-    final int h = hash != Integer.MIN_VALUE ? Math.abs(hash) : Integer.MAX_VALUE;
+  public int getHashFunctions() {
+    return hashFunctions;
+  }
 
-    final int bit2change = h > capacity ? h % capacity : h;
-    final int byte2change = bit2change / 8;
-    final int bitInByte2change = bit2change % 8;
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of hash functions that reaches the target false positive rate with the lowest cost, bounded by the
+   * number of hash functions that minimizes the false positive rate for the expected entries in the available slots. Using more
+   * hash functions than the optimal value fills the filter faster and increases the false positive rate.
+   */
+  public static int getOptimalHashFunctions(final int slots, final int expectedEntries, final double falsePositiveRate) {
+    int k = falsePositiveRate > 0 && falsePositiveRate < 1 ? (int) Math.ceil(-Math.log(falsePositiveRate) / LN2) : 1;
+    if (expectedEntries > 0)
+      k = Math.min(k, (int) Math.round((double) slots / expectedEntries * LN2));
+    return Math.max(1, Math.min(MAX_HASH_FUNCTIONS, k));
+  }
+
+  /**
+   * Returns the number of slots (bits) needed to store the expected entries with the target false positive rate, rounded to a
+   * multiple of 8.
+   */
+  public static int getOptimalSlots(final int expectedEntries, final double falsePositiveRate) {
+    final long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (LN2 * LN2));
+    return (int) Math.min(Integer.MAX_VALUE - 7, (bits + 7) & ~7L);
+  }
+
+  /**
+   * Returns the expected false positive rate of a filter with the given slots and hash functions after the insertion of
+   * `entries` values.
+   */
+  public static double getExpectedFalsePositiveRate(final int slots, final int hashFunctions, final int entries) {
+    return Math.pow(1 - Math.exp(-(double) hashFunctions * entries / slots), hashFunctions);
+  }
+
+  /**
+   * Murmur hash 2.0 of the 4 bytes of the value in big-endian order, the same as
+   * `MurmurHash.hash32(new byte[]{value >>> 24, value >>> 16, value >>> 8, value}, 4, hashSeed)` without the byte array.
+   */
+  private int hash(final int value) {
+    int k = Integer.reverseBytes(value);
+    k *= MURMUR_M;
+    k ^= k >>> MURMUR_R;
+    k *= MURMUR_M;
+
+    int h = (hashSeed ^ 4) * MURMUR_M;
+    h ^= k;
+
+    h ^= h >>> 13;
+    h *= MURMUR_M;
+    h ^= h >>> 15;
+    return h;
+  }
+
+  /**
+   * Derives the second hash of the double hashing from the first one with the finalizer of Murmur hash 3. The result is odd, so
+   * consecutive probes never hash to the same value.
+   */
+  private static int secondHash(int h) {
+    h = Integer.rotateLeft(h, 16) ^ 0x9e3779b9;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h | 1;
+  }
+
+  private void setBit(final int bit) {
+    final int pos = offset + (bit >>> 3);
+    buffer.putByte(pos, (byte) (buffer.getByte(pos) | (1 << (bit & 7))));
+  }
+
+  private boolean isBitSet(final int bit) {
+    return ((buffer.getByte(offset + (bit >>> 3)) >> (bit & 7)) & 1) == 1;
+  }
+
+  /**
+   * Maps the first probe to a bit with the modulo used by the filters with a single hash function.
+   */
+  private int toSlot(final int hash) {
+    final int h = hash != Integer.MIN_VALUE ? Math.abs(hash) : Integer.MAX_VALUE;
+    return h >= capacity ? h % capacity : h;
+  }
 
-    return new int[] { byte2change, bitInByte2change };
+  /**
+   * Maps the next probes to a bit with a multiplication and a shift, cheaper than the modulo.
+   */
+  private int reduce(final int hash) {
+    return (int) (((hash & 0xFFFFFFFFL) * capacity) >>> 32);
   }
 }
@@ -20,50 +20,128 @@ package com.arcadedb.engine;
 
 import com.arcadedb.database.Binary;
 
+import java.lang.ref.*;
 import java.nio.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 /**
- * Contains the page content to be shared across threads.
+ * Contains the page content to be shared across threads. The content is stored in the heap or, if the page manager is configured
+ * with an off-heap arena, in a direct frame of the {@link PageCacheArena}. Off-heap frames are returned to the arena when the page is
+ * released by the cache and the frame is not pinned anymore (reference counting). Immutable views read the frame in place and keep
+ * it pinned until they, and the binaries sliced from them, are garbage collected.
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
 public class CachedPage {
-  private final PageManager pageManager;
-  private final PageId      pageId;
-  private final Binary      content;
-  private final int         size;
-  private       int         version;
-  private       long        lastAccessed = System.currentTimeMillis();
+  private static final Cleaner        VIEW_CLEANER = Cleaner.create();
+  private final    PageManager    pageManager;
+  private final    PageId         pageId;
+  private final    Binary         content;
+  private final    PageCacheArena arena;
+  private final    ByteBuffer     frame;
+  private final    AtomicInteger  references   = new AtomicInteger(1);
+  private final    int            size;
+  private          int            version;
+  private          int            contentSize;
+  private          long           lastAccessed = System.currentTimeMillis();
+  private volatile boolean        referenced;
 
   public CachedPage(final MutablePage page, final boolean copyBuffer) {
+    this(page, copyBuffer, true);
+  }
+
+  /**
+   * @param offHeap if true the content is stored in the off-heap arena of the page manager, if configured. Pages that are not going
+   *                to be cached should stay on heap, so they do not need to be released.
+   */
+  public CachedPage(final MutablePage page, final boolean copyBuffer, final boolean offHeap) {
     this.pageManager = page.manager;
     this.pageId = page.pageId;
-    this.content = copyBuffer ? page.content.copy() : page.content;
     this.size = page.size;
     this.version = page.version;
+    this.contentSize = page.content.size();
+
+    this.arena = offHeap && pageManager != null ? pageManager.getArena() : null;
+    this.frame = arena != null ? arena.allocate(size) : null;
+    if (frame != null) {
+      final Binary source = page.content;
+      frame.duplicate().put(source.getContent(), source.getContentBeginOffset(), size);
+      this.content = null;
+    } else
+      this.content = copyBuffer ? page.content.copy() : page.content;
   }
 
   public CachedPage(final PageManager pageManager, final PageId pageId, final int size) {
+    this(pageManager, pageId, size, true);
+  }
+
+  public CachedPage(final PageManager pageManager, final PageId pageId, final int size, final boolean offHeap) {
     this.pageManager = pageManager;
     this.pageId = pageId;
-    this.content = new Binary(size).setAutoResizable(false);
     this.size = size;
+
+    this.arena = offHeap && pageManager != null ? pageManager.getArena() : null;
+    this.frame = arena != null ? arena.allocate(size) : null;
+    this.content = frame == null ? new Binary(size).setAutoResizable(false) : null;
   }
 
   public void loadMetadata() {
-    version = content.getInt(BasePage.PAGE_VERSION_OFFSET);
-    content.size(content.getInt(BasePage.PAGE_CONTENTSIZE_OFFSET));
+    if (frame != null) {
+      version = frame.getInt(BasePage.PAGE_VERSION_OFFSET);
+      contentSize = frame.getInt(BasePage.PAGE_CONTENTSIZE_OFFSET);
+    } else {
+      version = content.getInt(BasePage.PAGE_VERSION_OFFSET);
+      content.size(content.getInt(BasePage.PAGE_CONTENTSIZE_OFFSET));
+    }
   }
 
+  /**
+   * Returns an immutable view of the page, or null if the page has been released in the meantime and its off-heap frame is not
+   * available anymore. In this case the page must be reloaded.
+   */
   public ImmutablePage useAsImmutable() {
-    return new ImmutablePage(pageManager, pageId, size, content.getContent(), version, content.size());
+    if (frame == null)
+      return new ImmutablePage(pageManager, pageId, size, content.getContent(), version, content.size());
+
+    if (!pin())
+      return null;
+
+    // THE FRAME STAYS PINNED UNTIL THE VIEW AND ALL THE BINARIES SLICED FROM IT ARE UNREACHABLE
+    final Object viewOwner = new Object();
+    VIEW_CLEANER.register(viewOwner, this::release);
+
+    final Binary view = new Binary(frame.duplicate(), viewOwner);
+    view.size(contentSize);
+    return new ImmutablePage(pageManager, pageId, size, view, version);
   }
 
+  /**
+   * Returns a mutable copy of the page, or null if the page has been released in the meantime and its off-heap frame is not
+   * available anymore. In this case the page must be reloaded.
+   */
   public MutablePage useAsMutable() {
-    final byte[] array = this.content.getByteBuffer().array();
-    // COPY THE CONTENT, SO CHANGES DOES NOT AFFECT IMMUTABLE COPY
-    return new MutablePage(pageManager, pageId, size, Arrays.copyOf(array, array.length), version, content.size());
+    if (frame == null) {
+      final byte[] array = this.content.getByteBuffer().array();
+      // COPY THE CONTENT, SO CHANGES DOES NOT AFFECT IMMUTABLE COPY
+      return new MutablePage(pageManager, pageId, size, Arrays.copyOf(array, array.length), version, content.size());
+    }
+
+    final byte[] array = copyFrame();
+    return array != null ? new MutablePage(pageManager, pageId, size, array, version, contentSize) : null;
+  }
+
+  /**
+   * Releases the page from the cache. If the page is off-heap, the frame is returned to the arena as soon as no other thread is
+   * using it.
+   */
+  public void release() {
+    if (frame != null && references.decrementAndGet() == 0)
+      arena.free(frame);
+  }
+
+  public boolean isOffHeap() {
+    return frame != null;
   }
 
   public long getLastAccessed() {
@@ -74,6 +152,14 @@ public class CachedPage {
     lastAccessed = System.currentTimeMillis();
   }
 
+  public boolean isReferenced() {
+    return referenced;
+  }
+
+  public void setReferenced(final boolean referenced) {
+    this.referenced = referenced;
+  }
+
   public PageId getPageId() {
     return pageId;
   }
@@ -83,6 +169,8 @@ public class CachedPage {
   }
 
   public ByteBuffer getByteBuffer() {
+    if (frame != null)
+      return frame.duplicate();
     return content.getByteBuffer();
   }
 
@@ -118,4 +206,31 @@ public class CachedPage {
 //    return pageId.toString() + " v=" + version + " crc=" + crc32.getValue() + " records=" + content.getShort(8);
     return pageId.toString() + " v=" + version;
   }
+
+  /**
+   * Pins the frame to avoid it is reused by another page. Returns false if the frame has been already returned to the arena.
+   */
+  private boolean pin() {
+    int current;
+    do {
+      current = references.get();
+      if (current == 0)
+        return false;
+    } while (!references.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  private byte[] copyFrame() {
+    // PIN THE FRAME TO AVOID IT IS REUSED BY ANOTHER PAGE WHILE COPYING
+    if (!pin())
+      return null;
+
+    try {
+      final byte[] array = new byte[size];
+      frame.duplicate().get(array);
+      return array;
+    } finally {
+      release();
+    }
+  }
 }
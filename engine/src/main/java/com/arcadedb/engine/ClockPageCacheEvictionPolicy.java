@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Sharded CLOCK eviction policy. Every shard is a FIFO ring of page ids: on eviction the hand pops the head of the ring, if the page
+ * has been referenced since the last pass the reference bit is cleared and the page is appended again (second chance), otherwise
+ * the page is evicted. Each evicted page costs amortized O(1) and no global sort of the cache is needed.
+ * <p>
+ * New pages enter the ring without the reference bit, so pages touched only once by a full scan are the first to go and don't
+ * push out the working set (scan resistance). Shards are selected by page id, so concurrent readers rarely contend on the same
+ * ring.
+ */
+public class ClockPageCacheEvictionPolicy implements PageCacheEvictionPolicy {
+  public static final String                          NAME              = "clock";
+  private static final int                            MIN_STALE_TO_PURGE = 4096;
+  private final        Map<PageId, CachedPage>        cache;
+  private final        ConcurrentLinkedQueue<PageId>[] shards;
+  private final        AtomicInteger[]                shardSizes;
+  private final        int                            shardMask;
+  private final        AtomicLong                     staleEntries      = new AtomicLong();
+  private              int                            nextShard;
+
+  public ClockPageCacheEvictionPolicy(final Map<PageId, CachedPage> cache) {
+    this(cache, Runtime.getRuntime().availableProcessors());
+  }
+
+  public ClockPageCacheEvictionPolicy(final Map<PageId, CachedPage> cache, final int concurrency) {
+    this.cache = cache;
+
+    // ROUND TO THE NEXT POWER OF 2
+    int totalShards = 1;
+    while (totalShards < concurrency)
+      totalShards <<= 1;
+
+    shards = new ConcurrentLinkedQueue[totalShards];
+    shardSizes = new AtomicInteger[totalShards];
+    for (int i = 0; i < totalShards; i++) {
+      shards[i] = new ConcurrentLinkedQueue<>();
+      shardSizes[i] = new AtomicInteger();
+    }
+    shardMask = totalShards - 1;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void onPageAdded(final PageId pageId) {
+    final int shardIndex = getShardIndex(pageId);
+    shards[shardIndex].offer(pageId);
+    shardSizes[shardIndex].incrementAndGet();
+  }
+
+  @Override
+  public void onPageAccessed(final CachedPage page) {
+    page.setReferenced(true);
+  }
+
+  @Override
+  public void onPageRemoved(final PageId pageId) {
+    // THE ENTRY IN THE RING IS LEFT THERE AND DISCARDED BY THE HAND. PURGE THE RINGS ONLY IF TOO MANY STALE ENTRIES ACCUMULATED
+    if (staleEntries.incrementAndGet() > Math.max(MIN_STALE_TO_PURGE, cache.size()))
+      purgeStaleEntries();
+  }
+
+  @Override
+  public synchronized long evict(final long ramToFree, final Predicate<CachedPage> evictor) {
+    long freedRAM = 0;
+
+    // BROWSE THE SHARDS IN ROUND-ROBIN. EVERY PAGE IS SEEN AT MOST TWICE PER SHARD PASS: THE FIRST TIME THE REFERENCE BIT IS CLEARED
+    int shardsWithoutVictims = 0;
+    while (freedRAM <= ramToFree && shardsWithoutVictims < shards.length) {
+      final ConcurrentLinkedQueue<PageId> shard = shards[nextShard];
+      final AtomicInteger shardSize = shardSizes[nextShard];
+      nextShard = (nextShard + 1) & shardMask;
+
+      // THE SIZE IS TRACKED BY A COUNTER BECAUSE ConcurrentLinkedQueue.size() IS O(N)
+      boolean evicted = false;
+      for (int step = 0, maxSteps = shardSize.get() * 2; step < maxSteps; ++step) {
+        final PageId pageId = shard.poll();
+        if (pageId == null)
+          break;
+
+        final CachedPage page = cache.get(pageId);
+        if (page == null) {
+          // STALE ENTRY: THE PAGE HAS BEEN ALREADY REMOVED FROM THE CACHE
+          shardSize.decrementAndGet();
+          if (staleEntries.get() > 0)
+            staleEntries.decrementAndGet();
+          continue;
+        }
+
+        if (page.isReferenced()) {
+          // SECOND CHANCE
+          page.setReferenced(false);
+          shard.offer(pageId);
+        } else if (evictor.test(page)) {
+          shardSize.decrementAndGet();
+          freedRAM += page.getPhysicalSize();
+          evicted = true;
+          break;
+        } else
+          // THE PAGE HAS BEEN REPLACED IN THE MEANTIME, KEEP IT
+          shard.offer(pageId);
+      }
+
+      if (evicted)
+        shardsWithoutVictims = 0;
+      else
+        ++shardsWithoutVictims;
+    }
+    return freedRAM;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < shards.length; i++) {
+      shards[i].clear();
+      shardSizes[i].set(0);
+    }
+    staleEntries.set(0);
+  }
+
+  private synchronized void purgeStaleEntries() {
+    if (staleEntries.get() < MIN_STALE_TO_PURGE)
+      // ALREADY PURGED BY ANOTHER THREAD
+      return;
+
+    for (int i = 0; i < shards.length; i++) {
+      final AtomicInteger shardSize = shardSizes[i];
+      shards[i].removeIf(pageId -> {
+        if (cache.containsKey(pageId))
+          return false;
+        shardSize.decrementAndGet();
+        return true;
+      });
+    }
+    staleEntries.set(0);
+  }
+
+  private int getShardIndex(final PageId pageId) {
+    int h = pageId.hashCode();
+    h ^= (h >>> 16);
+    return h & shardMask;
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.engine;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.RID;
@@ -58,21 +59,25 @@ import static com.arcadedb.database.Binary.LONG_SERIALIZED_SIZE;
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
 public class EmbeddedBucket extends PaginatedComponent implements Bucket {
-  public static final    String     BUCKET_EXT                       = "bucket";
-  public static final    int        CURRENT_VERSION                  = 0;
-  public static final    long       RECORD_PLACEHOLDER_POINTER       = -1L;    // USE -1 AS SIZE TO STORE A PLACEHOLDER (THAT POINTS TO A RECORD ON ANOTHER PAGE)
-  public static final    long       FIRST_CHUNK                      = -2L;    // USE -2 TO MARK THE FIRST CHUNK OF A BIG RECORD. FOLLOWS THE CHUNK SIZE AND THE POINTER TO THE NEXT CHUNK
-  public static final    long       NEXT_CHUNK                       = -3L;    // USE -3 TO MARK THE SECOND AND FURTHER CHUNK THAT IS PART OF A BIG RECORD THAT DOES NOT FIT A PAGE. FOLLOWS THE CHUNK SIZE AND THE POINTER TO THE NEXT CHUNK OR 0 IF THE CURRENT CHUNK IS THE LAST (NO FURTHER CHUNKS)
-  protected static final int        PAGE_RECORD_COUNT_IN_PAGE_OFFSET = 0;
-  protected static final int        PAGE_RECORD_TABLE_OFFSET         =
+  public static final    String             BUCKET_EXT                       = "bucket";
+  public static final    int                CURRENT_VERSION                  = 0;
+  public static final    long               RECORD_PLACEHOLDER_POINTER       = -1L;    // USE -1 AS SIZE TO STORE A PLACEHOLDER (THAT POINTS TO A RECORD ON ANOTHER PAGE)
+  public static final    long               FIRST_CHUNK                      = -2L;    // USE -2 TO MARK THE FIRST CHUNK OF A BIG RECORD. FOLLOWS THE CHUNK SIZE AND THE POINTER TO THE NEXT CHUNK
+  public static final    long               NEXT_CHUNK                       = -3L;    // USE -3 TO MARK THE SECOND AND FURTHER CHUNK THAT IS PART OF A BIG RECORD THAT DOES NOT FIT A PAGE. FOLLOWS THE CHUNK SIZE AND THE POINTER TO THE NEXT CHUNK OR 0 IF THE CURRENT CHUNK IS THE LAST (NO FURTHER CHUNKS)
+  protected static final int                PAGE_RECORD_COUNT_IN_PAGE_OFFSET = 0;
+  protected static final int                PAGE_RECORD_TABLE_OFFSET         =
       PAGE_RECORD_COUNT_IN_PAGE_OFFSET + Binary.SHORT_SERIALIZED_SIZE;
-  private static final   int        DEF_MAX_RECORDS_IN_PAGE          = 2048;
-  private static final   int        MINIMUM_RECORD_SIZE              = 5;    // RECORD SIZE CANNOT BE < 5 BYTES IN CASE OF UPDATE AND PLACEHOLDER, 5 BYTES IS THE SPACE REQUIRED TO HOST THE PLACEHOLDER
-  private static final   long       RECORD_PLACEHOLDER_CONTENT       = MINIMUM_RECORD_SIZE * -1L;    // < -5 FOR SURROGATE RECORDS
-  private static final   long       MINIMUM_SPACE_LEFT_IN_PAGE       = 50L;
-  protected final        int        contentHeaderSize;
-  private final          int        maxRecordsInPage                 = DEF_MAX_RECORDS_IN_PAGE;
-  private final          AtomicLong cachedRecordCount                = new AtomicLong(-1);
+  private static final   int                DEF_MAX_RECORDS_IN_PAGE          = 2048;
+  private static final   int                MINIMUM_RECORD_SIZE              = 5;    // RECORD SIZE CANNOT BE < 5 BYTES IN CASE OF UPDATE AND PLACEHOLDER, 5 BYTES IS THE SPACE REQUIRED TO HOST THE PLACEHOLDER
+  private static final   long               RECORD_PLACEHOLDER_CONTENT       = MINIMUM_RECORD_SIZE * -1L;    // < -5 FOR SURROGATE RECORDS
+  private static final   long               MINIMUM_SPACE_LEFT_IN_PAGE       = 50L;
+  private static final   int                MAX_FREE_SPACE_ATTEMPTS          = 3;
+  public static final    int                FREE_SPACE_UNKNOWN               = Integer.MIN_VALUE;    // THE FREE SPACE OF THE PAGE MUST BE COMPUTED FROM ITS CONTENT
+  protected final        int                contentHeaderSize;
+  private final          int                maxRecordsInPage                 = DEF_MAX_RECORDS_IN_PAGE;
+  private final          AtomicLong         cachedRecordCount                = new AtomicLong(-1);
+  private final          AtomicLong         persistedRecordCount             = new AtomicLong(-1);
+  private final          BucketFreeSpaceMap freeSpaceMap;
 
   private static class AvailableSpace {
     public BasePage page              = null;
@@ -96,7 +101,9 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
       final int pageSize, final int version) throws IOException {
     super(database, name, filePath, BUCKET_EXT, mode, pageSize, version);
     contentHeaderSize = PAGE_RECORD_TABLE_OFFSET + (maxRecordsInPage * INT_SERIALIZED_SIZE);
+    freeSpaceMap = new BucketFreeSpaceMap(pageSize);
     cachedRecordCount.set(0);
+    persistedRecordCount.set(0);
   }
 
   /**
@@ -106,6 +113,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
       final ComponentFile.MODE mode, final int pageSize, final int version) throws IOException {
     super(database, name, filePath, id, mode, pageSize, version);
     contentHeaderSize = PAGE_RECORD_TABLE_OFFSET + (maxRecordsInPage * INT_SERIALIZED_SIZE);
+    freeSpaceMap = new BucketFreeSpaceMap(pageSize);
   }
 
   public int getMaxRecordsInPage() {
@@ -263,6 +271,14 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
     return new BucketIterator(this, database);
   }
 
+  /**
+   * Returns an iterator on the records stored in the pages from `fromPage` (inclusive) to `toPage` (exclusive).
+   */
+  public Iterator<Record> iterator(final int fromPage, final int toPage) {
+    database.checkPermissionsOnFile(fileId, SecurityDatabaseUser.ACCESS.READ_RECORD);
+    return new BucketIterator(this, database, fromPage, toPage);
+  }
+
   public int getFileId() {
     return fileId;
   }
@@ -320,7 +336,11 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
         }
       }
 
-      cachedRecordCount.set(total);
+      // THE PAGES OF THE CURRENT TRANSACTION CONTAIN ITS CHANGES: CACHE THE COMMITTED COUNT ONLY. A CONCURRENT COMMIT COULD HAVE
+      // ALREADY COMPUTED IT
+      final long committed = total - transaction.getBucketRecordDelta(fileId);
+      if (cachedRecordCount.compareAndSet(-1, committed))
+        database.getSchema().getEmbedded().onBucketRecordCountComputed(this, committed);
 
     } catch (final IOException e) {
       throw new DatabaseOperationException("Cannot count bucket '" + componentName + "'", e);
@@ -579,6 +599,109 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
     cachedRecordCount.set(count);
   }
 
+  /**
+   * Adds a delta to the cached record count, only if already computed. The update is atomic because transactions working on different
+   * pages of the bucket can commit concurrently.
+   */
+  public void incrementCachedRecordCount(final long delta) {
+    cachedRecordCount.updateAndGet(count -> count > -1 ? count + delta : count);
+  }
+
+  /**
+   * Returns the record count stored in the cached count file, without the records of the transactions in the WAL files not dropped
+   * yet, or -1 if not stored. After a restart the count is restored by adding the records of the transactions left in the WAL files.
+   */
+  public long getPersistedRecordCount() {
+    return persistedRecordCount.get();
+  }
+
+  public void setPersistedRecordCount(final long count) {
+    persistedRecordCount.set(count);
+  }
+
+  /**
+   * Sets the persisted record count only if not already known.
+   */
+  public void initPersistedRecordCount(final long count) {
+    persistedRecordCount.compareAndSet(-1, count);
+  }
+
+  /**
+   * Adds a delta to the persisted record count, only if already known.
+   */
+  public void incrementPersistedRecordCount(final long delta) {
+    persistedRecordCount.updateAndGet(count -> count > -1 ? count + delta : count);
+  }
+
+  public BucketFreeSpaceMap getFreeSpaceMap() {
+    return freeSpaceMap;
+  }
+
+  /**
+   * Updates the free space map with the space that can be reused in a page by scanning its records. Called at commit time for the
+   * pages modified by operations that do not track the space they free, like the update of the multi-page records.
+   */
+  public void updateFreeSpace(final BasePage page) {
+    if (!isReuseFreeSpace())
+      return;
+
+    int freeSpace;
+    try {
+      freeSpace = getFreeSpaceInPage(page);
+    } catch (final Exception e) {
+      // CORRUPTED PAGE: DO NOT REUSE IT
+      LogManager.instance().log(this, Level.FINE, "Error on computing the free space of page %s", e, page.getPageId());
+      freeSpace = 0;
+    }
+    freeSpaceMap.update(page.getPageId().getPageNumber(), freeSpace);
+  }
+
+  /**
+   * Compacts the pages where the space left by deleted and shrunk records is at least `minFreePercentage`% of the page, so the new
+   * records can be stored there without defragmenting the page first. The records do not change their RID. Every page is compacted
+   * in its own transaction, so the bucket can be used during the compaction. The free space map is rebuilt from the scanned pages.
+   *
+   * @return the number of compacted pages
+   */
+  public int compactPages(final int minFreePercentage) {
+    database.checkPermissionsOnFile(fileId, SecurityDatabaseUser.ACCESS.UPDATE_RECORD);
+
+    if (minFreePercentage < 0 || minFreePercentage > 100)
+      throw new IllegalArgumentException("Invalid minimum free space percentage " + minFreePercentage);
+
+    final int minFreeSpace = (pageSize - BasePage.PAGE_HEADER_SIZE) * minFreePercentage / 100;
+    final int totalPages = pageCount.get();
+    final AtomicInteger compactedPages = new AtomicInteger();
+
+    for (int pageNumber = 0; pageNumber < totalPages; ++pageNumber) {
+      final PageId pageId = new PageId(file.getFileId(), pageNumber);
+
+      database.transaction(() -> {
+        try {
+          final BasePage page = database.getTransaction().getPage(pageId, pageSize);
+
+          final int freeSpace = getFreeSpaceInPage(page);
+          final int reclaimableSpace = freeSpace - (page.getMaxContentSize() - getContentEndInPage(page));
+          if (reclaimableSpace > 0 && reclaimableSpace >= minFreeSpace) {
+            compactPage(database.getTransaction().getPageToModify(page));
+            compactedPages.incrementAndGet();
+          }
+
+          freeSpaceMap.update(pageId.getPageNumber(), freeSpace);
+
+        } catch (final IOException e) {
+          throw new DatabaseOperationException("Error on compacting page " + pageId + " of bucket '" + componentName + "'", e);
+        }
+      }, false);
+    }
+
+    LogManager.instance()
+        .log(this, Level.FINE, "Compacted %d pages of bucket '%s' (pagesWithFreeSpace=%d)", compactedPages.get(), componentName,
+            freeSpaceMap.getPagesWithFreeSpace());
+
+    return compactedPages.get();
+  }
+
   private RID createRecordInternal(final Record record, final boolean isPlaceHolder, final boolean discardRecordAfter) {
     final Binary buffer = database.getSerializer().serialize(database, record);
 
@@ -597,8 +720,10 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
       final int txPageCounter = getTotalPages();
 
       if (txPageCounter > 0) {
-        // CHECK IF THERE IS SPACE IN THE LAST PAGE
-        final AvailableSpace availableSpace = checkForSpaceInPage(txPageCounter - 1, isPlaceHolder, bufferSize);
+        // REUSE THE SPACE LEFT BY DELETED AND SHRUNK RECORDS IN THE PREVIOUS PAGES FIRST, OTHERWISE CHECK IF THERE IS SPACE IN THE LAST PAGE
+        AvailableSpace availableSpace = findFreeSpaceInPreviousPages(txPageCounter - 1, isPlaceHolder, bufferSize);
+        if (availableSpace == null)
+          availableSpace = checkForSpaceInPage(txPageCounter - 1, isPlaceHolder, bufferSize);
 
         lastPage = availableSpace.page;
         newPosition = availableSpace.newPosition;
@@ -613,6 +738,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
         selectedPage = database.getTransaction().addPage(new PageId(file.getFileId(), txPageCounter), pageSize);
         newPosition = contentHeaderSize;
         recordCountInPage = 0;
+        updateFreeSpaceDelta(selectedPage.getPageId(), selectedPage.getMaxContentSize() - contentHeaderSize);
       } else
         selectedPage = database.getTransaction().getPageToModify(lastPage);
 
@@ -635,6 +761,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
 
       selectedPage.writeUnsignedInt(PAGE_RECORD_TABLE_OFFSET + recordCountInPage * INT_SERIALIZED_SIZE, newPosition);
       selectedPage.writeShort(PAGE_RECORD_COUNT_IN_PAGE_OFFSET, (short) ++recordCountInPage);
+      updateFreeSpaceDelta(selectedPage.getPageId(), -getCompactedRecordSizeInPage(selectedPage, newPosition));
 
       LogManager.instance()
           .log(this, Level.FINE, "Created record %s (%s records=%d threadId=%d)", rid, selectedPage, recordCountInPage,
@@ -682,6 +809,8 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
         // DELETED
         throw new RecordNotFoundException("Record " + rid + " not found", rid);
 
+      final int previousSpaceInPage = getCompactedRecordSizeInPage(page, recordPositionInPage);
+
 //      LogManager.instance()
 //          .log(this, Level.SEVERE, "UPDATE %s pageV=%d content %s (threadId=%d)", rid, page.getVersion(), record.toJSON(), Thread.currentThread().getId());
 
@@ -815,6 +944,8 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
                 Thread.currentThread().getId());
       }
 
+      updateFreeSpaceDelta(page.getPageId(), previousSpaceInPage - getCompactedRecordSizeInPage(page, recordPositionInPage));
+
       if (!discardRecordAfter)
         ((RecordInternal) record).setBuffer(buffer.getNotReusable());
 
@@ -855,6 +986,8 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
           // ALREADY DELETED
           throw new RecordNotFoundException("Record " + rid + " not found", rid);
 
+        final int previousSpaceInPage = getCompactedRecordSizeInPage(page, recordPositionInPage);
+
         if (recordSize[0] == RECORD_PLACEHOLDER_POINTER) {
           // FOUND PLACEHOLDER POINTER: DELETE THE PLACEHOLDER CONTENT FIRST
           final RID placeHolderContentRID = new RID(database, fileId, page.readLong((int) (recordPositionInPage + recordSize[1])));
@@ -899,10 +1032,12 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
 
         // CONTENT SIZE = 0 MEANS DELETED
         page.writeNumber(recordPositionInPage, 0L);
+        updateFreeSpaceDelta(page.getPageId(), previousSpaceInPage - getCompactedRecordSizeInPage(page, recordPositionInPage));
 
       } else {
         // CORRUPTED RECORD: WRITE ZERO AS POINTER TO RECORD
         page.writeUnsignedInt(PAGE_RECORD_TABLE_OFFSET + positionInPage * INT_SERIALIZED_SIZE, 0L);
+        updateFreeSpaceDelta(page.getPageId(), FREE_SPACE_UNKNOWN);
       }
 
       // TODO: EVALUATE COMPACTING THE PAGE FOR REUSING THE SPACE
@@ -1015,12 +1150,14 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
         newPosition = contentHeaderSize;
         nextPage.writeUnsignedInt(PAGE_RECORD_TABLE_OFFSET, newPosition);
         nextPage.writeShort(PAGE_RECORD_COUNT_IN_PAGE_OFFSET, (short) 1);
+        updateFreeSpaceDelta(nextPage.getPageId(), nextPage.getMaxContentSize() - contentHeaderSize);
       }
 
       // WRITE IN THE PREVIOUS PAGE POINTER THE CURRENT POSITION OF THE NEXT CHUNK
       currentPage.writeLong(nextChunkPointerOffset,
           (long) nextPage.getPageId().getPageNumber() * maxRecordsInPage + recordIdInPage);
 
+      final int chunkPositionInPage = newPosition;
       int spaceAvailableInCurrentPage = nextPage.getMaxContentSize() - newPosition;
 
       byteWritten = nextPage.writeNumber(newPosition, NEXT_CHUNK);
@@ -1044,6 +1181,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
       newPosition += INT_SERIALIZED_SIZE + LONG_SERIALIZED_SIZE;
 
       nextPage.writeByteArray(newPosition, content, contentOffset, chunkSize);
+      updateFreeSpaceDelta(nextPage.getPageId(), -getCompactedRecordSizeInPage(nextPage, chunkPositionInPage));
 
       bufferSize -= chunkSize;
       contentOffset += chunkSize;
@@ -1053,6 +1191,9 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
 
   private void updateMultiPageRecord(final RID originalRID, final Binary buffer, MutablePage currentPage, int newPosition)
       throws IOException {
+    // THE CHUNKS CAN CHANGE SIZE AND BE ALLOCATED IN OTHER PAGES: THE FREE SPACE OF THE PAGES IS COMPUTED AT COMMIT
+    updateFreeSpaceDelta(currentPage.getPageId(), FREE_SPACE_UNKNOWN);
+
     int chunkSize = currentPage.readInt(newPosition);
 
     int bufferSize = buffer.size();
@@ -1157,6 +1298,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
       newPosition += LONG_SERIALIZED_SIZE;
 
       nextPage.writeByteArray(newPosition, content, contentOffset, chunkSize);
+      updateFreeSpaceDelta(nextPage.getPageId(), FREE_SPACE_UNKNOWN);
 
       bufferSize -= chunkSize;
       contentOffset += chunkSize;
@@ -1164,6 +1306,178 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
     }
   }
 
+  /**
+   * Looks up in the free space map a page before the last one with enough space to store the record, defragmenting the page if the
+   * free space is not contiguous. Returns null if not found. The free space map is a hint, so the pages with less space than expected
+   * are updated in the map and the lookup is retried a few times at most.
+   */
+  private AvailableSpace findFreeSpaceInPreviousPages(final int lastPageNumber, final boolean isPlaceHolder, final int bufferSize)
+      throws IOException {
+    if (!isReuseFreeSpace())
+      return null;
+
+    final int spaceNeeded = Binary.getNumberSpace(isPlaceHolder ? (-1L * bufferSize) : bufferSize) + bufferSize;
+
+    for (int attempt = 0; attempt < MAX_FREE_SPACE_ATTEMPTS; ++attempt) {
+      final int pageNumber = freeSpaceMap.findPage(spaceNeeded, lastPageNumber);
+      if (pageNumber < 0)
+        return null;
+
+      final AvailableSpace availableSpace = checkForSpaceInPage(pageNumber, isPlaceHolder, bufferSize);
+      if (availableSpace.recordCountInPage >= maxRecordsInPage) {
+        // NO SLOTS LEFT IN THE PAGE
+        updateFreeSpaceInMap(availableSpace.page, 0);
+        continue;
+      }
+
+      if (!availableSpace.createNewPage && availableSpace.page.getMaxContentSize() - availableSpace.newPosition >= spaceNeeded)
+        // ENOUGH SPACE AT THE END OF THE PAGE
+        return availableSpace;
+
+      final int freeSpace = getFreeSpaceInPage(availableSpace.page);
+      if (freeSpace >= spaceNeeded) {
+        // THE FREE SPACE IS FRAGMENTED BY DELETED AND SHRUNK RECORDS: DEFRAGMENT THE PAGE FIRST
+        final MutablePage page = database.getTransaction().getPageToModify(availableSpace.page);
+        database.getTransaction()
+            .removeImmutableRecordsOfSamePage(new RID(database, fileId, ((long) pageNumber) * maxRecordsInPage));
+
+        availableSpace.page = page;
+        availableSpace.newPosition = compactPage(page);
+        availableSpace.createNewPage = false;
+        return availableSpace;
+      }
+
+      updateFreeSpaceInMap(availableSpace.page, freeSpace);
+    }
+    return null;
+  }
+
+  /**
+   * Corrects the free space map with the space found in a page during a transaction, so the next records of the transaction do not
+   * select the page again. The page could contain changes of the transaction, so its free space is computed again at commit.
+   */
+  private void updateFreeSpaceInMap(final BasePage page, final int freeSpace) {
+    freeSpaceMap.update(page.getPageId().getPageNumber(), freeSpace);
+    updateFreeSpaceDelta(page.getPageId(), FREE_SPACE_UNKNOWN);
+  }
+
+  /**
+   * Returns the space in the page that can be reused for new records: the space after the last record plus the space left by deleted
+   * and shrunk records.
+   */
+  private int getFreeSpaceInPage(final BasePage page) {
+    final int recordCountInPage = page.readShort(PAGE_RECORD_COUNT_IN_PAGE_OFFSET);
+    if (recordCountInPage >= maxRecordsInPage)
+      return 0;
+
+    int occupiedSpace = contentHeaderSize;
+    for (int positionInPage = 0; positionInPage < recordCountInPage; ++positionInPage) {
+      final int recordPositionInPage = (int) page.readUnsignedInt(PAGE_RECORD_TABLE_OFFSET + positionInPage * INT_SERIALIZED_SIZE);
+      if (recordPositionInPage > 0 && recordPositionInPage < page.getMaxContentSize())
+        occupiedSpace += getCompactedRecordSizeInPage(page, recordPositionInPage);
+    }
+
+    return Math.max(page.getMaxContentSize() - occupiedSpace, 0);
+  }
+
+  /**
+   * Returns the first position after the end of the last record in the page.
+   */
+  private int getContentEndInPage(final BasePage page) {
+    final int recordCountInPage = page.readShort(PAGE_RECORD_COUNT_IN_PAGE_OFFSET);
+
+    int contentEnd = contentHeaderSize;
+    for (int positionInPage = 0; positionInPage < recordCountInPage; ++positionInPage) {
+      final int recordPositionInPage = (int) page.readUnsignedInt(PAGE_RECORD_TABLE_OFFSET + positionInPage * INT_SERIALIZED_SIZE);
+      if (recordPositionInPage > 0 && recordPositionInPage < page.getMaxContentSize())
+        contentEnd = Math.max(contentEnd, recordPositionInPage + getRecordSizeInPage(page, recordPositionInPage));
+    }
+    return Math.min(contentEnd, page.getMaxContentSize());
+  }
+
+  /**
+   * Rewrites the records of the page contiguously, removing the space left by deleted and shrunk records. The records keep their
+   * position in the page table, so their RID does not change. Returns the first free position in the page.
+   */
+  private int compactPage(final MutablePage page) {
+    final int recordCountInPage = page.readShort(PAGE_RECORD_COUNT_IN_PAGE_OFFSET);
+    final int contentEnd = getContentEndInPage(page);
+
+    // COPY THE CURRENT CONTENT FIRST BECAUSE THE RECORDS COULD BE OVERWRITTEN WHILE THEY ARE MOVED
+    final byte[] content = new byte[contentEnd - contentHeaderSize];
+    page.readByteArray(contentHeaderSize, content);
+
+    int newPosition = contentHeaderSize;
+    for (int positionInPage = 0; positionInPage < recordCountInPage; ++positionInPage) {
+      final int recordTableOffset = PAGE_RECORD_TABLE_OFFSET + positionInPage * INT_SERIALIZED_SIZE;
+      final int recordPositionInPage = (int) page.readUnsignedInt(recordTableOffset);
+      if (recordPositionInPage == 0)
+        // CLEANED CORRUPTED RECORD
+        continue;
+
+      if (recordPositionInPage >= contentEnd) {
+        // CORRUPTED RECORD: WRITE ZERO AS POINTER TO RECORD
+        page.writeUnsignedInt(recordTableOffset, 0L);
+        continue;
+      }
+
+      final int recordSize = getCompactedRecordSizeInPage(page, recordPositionInPage);
+      final int contentOffset = recordPositionInPage - contentHeaderSize;
+      page.writeByteArray(newPosition, content, contentOffset, Math.min(recordSize, content.length - contentOffset));
+      page.writeUnsignedInt(recordTableOffset, newPosition);
+
+      newPosition += recordSize;
+    }
+
+    return newPosition;
+  }
+
+  /**
+   * Returns the space occupied by a record after the compaction of the page. The deleted records keep only the size (0) and the
+   * records keep at least the space to be replaced by a placeholder pointer in case they grow.
+   */
+  private int getCompactedRecordSizeInPage(final BasePage page, final int recordPositionInPage) {
+    final int recordSize = getRecordSizeInPage(page, recordPositionInPage);
+    if (page.readNumberAndSize(recordPositionInPage)[0] > 0)
+      return Math.max(recordSize, 1 + LONG_SERIALIZED_SIZE);
+    return recordSize;
+  }
+
+  /**
+   * Returns the space occupied by a record in the page, including the size.
+   */
+  private int getRecordSizeInPage(final BasePage page, final int recordPositionInPage) {
+    final long[] recordSize = page.readNumberAndSize(recordPositionInPage);
+
+    if (recordSize[0] > 0)
+      // RECORD PRESENT, CONSIDER THE RECORD SIZE + VARINT SIZE
+      return (int) (recordSize[0] + recordSize[1]);
+    else if (recordSize[0] == RECORD_PLACEHOLDER_POINTER)
+      // PLACEHOLDER, CONSIDER NEXT 9 BYTES
+      return (int) recordSize[1] + LONG_SERIALIZED_SIZE;
+    else if (recordSize[0] == FIRST_CHUNK || recordSize[0] == NEXT_CHUNK) {
+      // CHUNK
+      final int chunkSize = page.readInt((int) (recordPositionInPage + recordSize[1]));
+      return (int) recordSize[1] + INT_SERIALIZED_SIZE + LONG_SERIALIZED_SIZE + chunkSize;
+    }
+
+    // DELETED RECORD OR PLACEHOLDER CONTENT, CONSIDER THE RECORD SIZE (CONVERTED FROM NEGATIVE NUMBER) + VARINT SIZE
+    return (int) (-1 * recordSize[0] + recordSize[1]);
+  }
+
+  /**
+   * Registers in the transaction the space freed (positive delta) or consumed (negative delta) in a page, applied to the free space
+   * map at commit time.
+   */
+  private void updateFreeSpaceDelta(final PageId pageId, final int delta) {
+    if (delta != 0 && isReuseFreeSpace())
+      database.getTransaction().updatePageFreeSpaceDelta(pageId, delta);
+  }
+
+  private boolean isReuseFreeSpace() {
+    return database.getConfiguration().getValueAsBoolean(GlobalConfiguration.BUCKET_REUSE_FREE_SPACE);
+  }
+
   private AvailableSpace checkForSpaceInPage(final int pageNumber, final boolean isPlaceHolder, final int bufferSize)
       throws IOException {
     final AvailableSpace result = new AvailableSpace();
@@ -1182,22 +1496,7 @@ public class EmbeddedBucket extends PaginatedComponent implements Bucket {
         // CLEANED CORRUPTED RECORD
         result.createNewPage = true;
       else {
-        final long[] lastRecordSize = result.page.readNumberAndSize(lastRecordPositionInPage);
-
-        if (lastRecordSize[0] > 0)
-          // RECORD PRESENT, CONSIDER THE RECORD SIZE + VARINT SIZE
-          result.newPosition = lastRecordPositionInPage + (int) lastRecordSize[0] + (int) lastRecordSize[1];
-        else if (lastRecordSize[0] == RECORD_PLACEHOLDER_POINTER)
-          // PLACEHOLDER, CONSIDER NEXT 9 BYTES
-          result.newPosition = lastRecordPositionInPage + LONG_SERIALIZED_SIZE + 1;
-        else if (lastRecordSize[0] == FIRST_CHUNK || lastRecordSize[0] == NEXT_CHUNK) {
-          // CHUNK
-          final int chunkSize = result.page.readInt((int) (lastRecordPositionInPage + lastRecordSize[1]));
-          result.newPosition =
-              lastRecordPositionInPage + (int) lastRecordSize[1] + INT_SERIALIZED_SIZE + LONG_SERIALIZED_SIZE + chunkSize;
-        } else
-          // PLACEHOLDER CONTENT, CONSIDER THE RECORD SIZE (CONVERTED FROM NEGATIVE NUMBER) + VARINT SIZE
-          result.newPosition = lastRecordPositionInPage + (int) (-1 * lastRecordSize[0]) + (int) lastRecordSize[1];
+        result.newPosition = lastRecordPositionInPage + getRecordSizeInPage(result.page, lastRecordPositionInPage);
 
         final long spaceAvailableInCurrentPage = result.page.getMaxContentSize() - result.newPosition;
         final int spaceNeeded = Binary.getNumberSpace(isPlaceHolder ? (-1L * bufferSize) : bufferSize) + bufferSize;
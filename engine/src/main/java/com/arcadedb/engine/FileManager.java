@@ -29,6 +29,7 @@ import java.util.logging.*;
 
 public class FileManager {
   private final        ComponentFile.MODE                        mode;
+  private final        boolean                                   memoryMappedReads;
   private final        List<ComponentFile>                       files           = new ArrayList<>();
   private final        ConcurrentHashMap<String, ComponentFile>  fileNameMap     = new ConcurrentHashMap<>();
   private final        ConcurrentHashMap<Integer, ComponentFile> fileIdMap       = new ConcurrentHashMap<>();
@@ -70,7 +71,16 @@ public class FileManager {
   }
 
   public FileManager(final String path, final ComponentFile.MODE mode, final Set<String> supportedFileExt) {
+    this(path, mode, supportedFileExt, false);
+  }
+
+  /**
+   * @param memoryMappedReads if true, the pages of the paginated files are read through memory mapped segments
+   */
+  public FileManager(final String path, final ComponentFile.MODE mode, final Set<String> supportedFileExt,
+      final boolean memoryMappedReads) {
     this.mode = mode;
+    this.memoryMappedReads = memoryMappedReads;
 
     final File dbDirectory = new File(path);
     if (!dbDirectory.exists()) {
@@ -228,6 +238,9 @@ public class FileManager {
     if (prev != null && prev != RESERVED_SLOT)
       throw new IllegalArgumentException("Cannot register file '" + file + "' at position " + pos + " because already occupied by file '" + prev + "'");
 
+    if (file instanceof PaginatedComponentFile)
+      ((PaginatedComponentFile) file).setMemoryMapped(memoryMappedReads);
+
     files.set(pos, file);
     fileNameMap.put(file.getComponentName(), file);
     fileIdMap.put(pos, file);
@@ -20,7 +20,8 @@ package com.arcadedb.engine;
 
 import com.arcadedb.database.Binary;
 
-import java.util.*;
+import java.lang.ref.*;
+import java.nio.*;
 
 /**
  * Low level immutable (read-only) page implementation of 65536 bytes (2 exp 16 = 65Kb). The first 8 bytes (the header) are reserved
@@ -38,6 +39,13 @@ public class ImmutablePage extends BasePage {
     super(manager, pageId, size, content, version, contentSize);
   }
 
+  /**
+   * Creates a page on an existent content, like a view over an off-heap frame of the page cache.
+   */
+  public ImmutablePage(final PageManager manager, final PageId pageId, final int size, final Binary content, final int version) {
+    super(manager, pageId, size, content, version);
+  }
+
   /**
    * Creates a copy of the ByteBuffer without copying the array[].
    *
@@ -50,8 +58,16 @@ public class ImmutablePage extends BasePage {
 
   @Override
   public MutablePage modify() {
-    final byte[] array = this.content.getByteBuffer().array();
-    // COPY THE CONTENT, SO CHANGES DOES NOT AFFECT IMMUTABLE COPY
-    return new MutablePage(manager, pageId, size, Arrays.copyOf(array, array.length), version, content.size());
+    // COPY THE CONTENT, SO CHANGES DOES NOT AFFECT IMMUTABLE COPY. THE BUFFER COULD BE DIRECT (OFF-HEAP FRAME)
+    final ByteBuffer buffer = this.content.getByteBuffer().duplicate();
+    buffer.clear();
+    final byte[] array = new byte[buffer.capacity()];
+    try {
+      buffer.get(array);
+    } finally {
+      // KEEP THE VIEW REACHABLE UNTIL THE COPY IS COMPLETE, SO THE OFF-HEAP FRAME IS NOT RELEASED IN THE MEANTIME
+      Reference.reachabilityFence(content);
+    }
+    return new MutablePage(manager, pageId, size, array, version, content.size());
   }
 }
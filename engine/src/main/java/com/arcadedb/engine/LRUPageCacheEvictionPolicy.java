@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Evicts the least recently accessed pages by sorting the whole read cache by last access time. The sort is O(n log n) on the
+ * number of cached pages, so this policy is kept only for compatibility with previous versions.
+ */
+public class LRUPageCacheEvictionPolicy implements PageCacheEvictionPolicy {
+  public static final String                     NAME = "lru";
+  private final       Map<PageId, CachedPage> cache;
+
+  public LRUPageCacheEvictionPolicy(final Map<PageId, CachedPage> cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void onPageAdded(final PageId pageId) {
+    // NO ACTIONS
+  }
+
+  @Override
+  public void onPageAccessed(final CachedPage page) {
+    page.updateLastAccesses();
+  }
+
+  @Override
+  public void onPageRemoved(final PageId pageId) {
+    // NO ACTIONS
+  }
+
+  @Override
+  public synchronized long evict(final long ramToFree, final Predicate<CachedPage> evictor) {
+    // ORDER PAGES BY LAST ACCESS + SIZE
+    final TreeSet<CachedPage> pagesOrderedByAge = new TreeSet<>((o1, o2) -> {
+      final int lastAccessed = Long.compare(o1.getLastAccessed(), o2.getLastAccessed());
+      if (lastAccessed != 0)
+        return lastAccessed;
+
+      // SAME TIMESTAMP, CHECK THE PAGE SIZE: LARGER PAGE SHOULD BE REMOVED FIRST THAN OTHERS
+      final int pageSize = -Long.compare(o1.getPhysicalSize(), o2.getPhysicalSize());
+      if (pageSize != 0)
+        return pageSize;
+
+      return o1.getPageId().compareTo(o2.getPageId());
+    });
+
+    pagesOrderedByAge.addAll(cache.values());
+
+    // REMOVE OLDEST PAGES FROM RAM
+    long freedRAM = 0;
+    for (final CachedPage page : pagesOrderedByAge) {
+      if (evictor.test(page)) {
+        freedRAM += page.getPhysicalSize();
+        if (freedRAM > ramToFree)
+          break;
+      }
+    }
+    return freedRAM;
+  }
+
+  @Override
+  public void clear() {
+    // NO ACTIONS
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Off-heap arena of page frames used by the {@link PageManager} when the page cache is configured off-heap. Frames are sliced from
+ * direct chunks of {@link #CHUNK_SIZE} bytes allocated on demand up to the maximum size of the arena. Released frames are kept in a
+ * free-list per page size and reused by the next allocation of the same size, so the frames are never returned to the operating
+ * system until the arena is closed. Since the page content lives outside the Java heap, the size of the cache does not affect the
+ * GC pause times.
+ * <p>
+ * This class is thread safe.
+ */
+public class PageCacheArena {
+  public static final int                                                CHUNK_SIZE    = 16 * 1024 * 1024;
+  private final       long                                               maxSize;
+  private final       ConcurrentMap<Integer, ConcurrentLinkedQueue<ByteBuffer>> freeFrames = new ConcurrentHashMap<>();
+  private final       AtomicLong                                         usedBytes     = new AtomicLong();
+  private final       AtomicLong                                         freeListBytes = new AtomicLong();
+  private final       AtomicLong                                         overflows     = new AtomicLong();
+  private             long                                               allocatedBytes;
+  private             long                                               wastedBytes;
+  private             ByteBuffer                                         currentChunk;
+  private volatile    boolean                                            closed;
+
+  public static class PageCacheArenaStats {
+    public long allocated;
+    public long used;
+    public long free;
+    public long fragmentation;
+    public long overflows;
+  }
+
+  public PageCacheArena(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns a zeroed frame of `size` bytes, or null if the arena is full.
+   */
+  public ByteBuffer allocate(final int size) {
+    if (closed)
+      return null;
+
+    final ConcurrentLinkedQueue<ByteBuffer> frames = freeFrames.get(size);
+    if (frames != null) {
+      final ByteBuffer frame = frames.poll();
+      if (frame != null) {
+        freeListBytes.addAndGet(-size);
+        usedBytes.addAndGet(size);
+
+        // RESET THE PREVIOUS CONTENT
+        int i = 0;
+        for (; i + Long.BYTES <= size; i += Long.BYTES)
+          frame.putLong(i, 0L);
+        for (; i < size; ++i)
+          frame.put(i, (byte) 0);
+        return frame;
+      }
+    }
+
+    final ByteBuffer frame = sliceFrame(size);
+    if (frame == null)
+      overflows.incrementAndGet();
+    else
+      usedBytes.addAndGet(size);
+    return frame;
+  }
+
+  public void free(final ByteBuffer frame) {
+    final int size = frame.capacity();
+    if (closed) {
+      // FRAME PINNED BY A VIEW UNTIL AFTER THE CLOSE: DISCARD IT
+      usedBytes.addAndGet(-size);
+      return;
+    }
+
+    freeFrames.computeIfAbsent(size, k -> new ConcurrentLinkedQueue<>()).offer(frame);
+    usedBytes.addAndGet(-size);
+    freeListBytes.addAndGet(size);
+  }
+
+  /**
+   * Drops the free frames. The frames still pinned by immutable views are discarded when released, so the used bytes are not reset
+   * here.
+   */
+  public synchronized void close() {
+    closed = true;
+    freeFrames.clear();
+    if (currentChunk != null)
+      wastedBytes += currentChunk.remaining();
+    currentChunk = null;
+    allocatedBytes -= freeListBytes.getAndSet(0);
+  }
+
+  /**
+   * Returns the statistics of the arena. The fragmentation is the percentage of allocated memory that can be reused only by pages
+   * of a specific size: frames in the free-lists and the chunk tails too small to contain a page.
+   */
+  public synchronized PageCacheArenaStats getStats() {
+    final PageCacheArenaStats stats = new PageCacheArenaStats();
+    stats.allocated = allocatedBytes;
+    stats.used = usedBytes.get();
+    stats.free = allocatedBytes - stats.used;
+    stats.fragmentation = allocatedBytes > 0 ? (freeListBytes.get() + wastedBytes) * 100 / allocatedBytes : 0;
+    stats.overflows = overflows.get();
+    return stats;
+  }
+
+  private synchronized ByteBuffer sliceFrame(final int size) {
+    if (size > CHUNK_SIZE) {
+      // LARGE PAGE: ALLOCATE A DEDICATED BUFFER
+      if (allocatedBytes + size > maxSize)
+        return null;
+      allocatedBytes += size;
+      return ByteBuffer.allocateDirect(size);
+    }
+
+    if (currentChunk == null || currentChunk.remaining() < size) {
+      if (allocatedBytes + CHUNK_SIZE > maxSize)
+        return null;
+
+      if (currentChunk != null)
+        wastedBytes += currentChunk.remaining();
+
+      currentChunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+      allocatedBytes += CHUNK_SIZE;
+    }
+
+    final int position = currentChunk.position();
+    currentChunk.limit(position + size);
+    final ByteBuffer frame = currentChunk.slice();
+    currentChunk.limit(currentChunk.capacity());
+    currentChunk.position(position + size);
+    return frame;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.function.*;
+
+/**
+ * Eviction policy for the read cache of the {@link PageManager}. Implementations are notified when pages enter, are accessed and
+ * leave the cache, and select the victims to remove once the cache reaches the maximum amount of RAM.
+ */
+public interface PageCacheEvictionPolicy {
+  String getName();
+
+  /**
+   * Called when a page id enters the cache. Replacing the content of a page already in cache does not call this method.
+   */
+  void onPageAdded(PageId pageId);
+
+  void onPageAccessed(CachedPage page);
+
+  void onPageRemoved(PageId pageId);
+
+  /**
+   * Selects the pages to evict until at least `ramToFree` bytes have been released. Each candidate is passed to the `evictor`
+   * callback that returns true if the page was actually removed from the cache.
+   *
+   * @return the amount of RAM freed
+   */
+  long evict(long ramToFree, Predicate<CachedPage> evictor);
+
+  void clear();
+}
@@ -41,6 +41,9 @@ import java.util.logging.*;
 public class PageManager extends LockContext {
   private final    FileManager                       fileManager;
   private final    ConcurrentMap<PageId, CachedPage> readCache;
+  private final    PageCacheEvictionPolicy           evictionPolicy;
+  private final    PageCacheArena                    arena;
+  private final    boolean                           bypassReadCache;
   private final    TransactionManager                txManager;
   // MANAGE CONCURRENT ACCESS TO THE PAGES. THE VALUE IS TRUE FOR WRITE OPERATION AND FALSE FOR READ
   private final    ConcurrentMap<PageId, Boolean>    pendingFlushPages                     = new ConcurrentHashMap<>();
@@ -57,6 +60,7 @@ public class PageManager extends LockContext {
   private final    AtomicLong                        evictionRuns                          = new AtomicLong();
   private final    AtomicLong                        pagesEvicted                          = new AtomicLong();
   private volatile long                              lastCheckForRAM                       = 0;
+  private final    AtomicBoolean                     evictionRunning                       = new AtomicBoolean();
   private final    PageManagerFlushThread            flushThread;
   private final    int                               freePageRAM;
 
@@ -78,7 +82,15 @@ public class PageManager extends LockContext {
     public long concurrentModificationExceptions;
     public long evictionRuns;
     public long pagesEvicted;
-    public int  readCachePages;
+    public int    readCachePages;
+    public String evictionPolicy;
+    public double cacheHitRatio;
+    public boolean offHeap;
+    public long   offHeapAllocated;
+    public long   offHeapUsed;
+    public long   offHeapFree;
+    public long   offHeapFragmentation;
+    public long   offHeapOverflows;
   }
 
   public PageManager(final FileManager fileManager, final TransactionManager txManager, final ContextConfiguration configuration,
@@ -89,10 +101,23 @@ public class PageManager extends LockContext {
     this.freePageRAM = configuration.getValueAsInteger(GlobalConfiguration.FREE_PAGE_RAM);
     this.readCache = new ConcurrentHashMap<>(configuration.getValueAsInteger(GlobalConfiguration.INITIAL_PAGE_CACHE_SIZE));
 
+    final String cfgEvictionPolicy = configuration.getValueAsString(GlobalConfiguration.PAGE_CACHE_EVICTION_POLICY);
+    if (LRUPageCacheEvictionPolicy.NAME.equalsIgnoreCase(cfgEvictionPolicy))
+      this.evictionPolicy = new LRUPageCacheEvictionPolicy(readCache);
+    else if (ClockPageCacheEvictionPolicy.NAME.equalsIgnoreCase(cfgEvictionPolicy))
+      this.evictionPolicy = new ClockPageCacheEvictionPolicy(readCache);
+    else
+      throw new ConfigurationException(
+          GlobalConfiguration.PAGE_CACHE_EVICTION_POLICY.getKey() + " configuration is invalid (" + cfgEvictionPolicy + ")");
+
     maxRAM = configuration.getValueAsLong(GlobalConfiguration.MAX_PAGE_RAM) * 1024 * 1024;
     if (maxRAM < 0)
       throw new ConfigurationException(GlobalConfiguration.MAX_PAGE_RAM.getKey() + " configuration is invalid (" + maxRAM + " MB)");
 
+    this.arena = configuration.getValueAsBoolean(GlobalConfiguration.PAGE_CACHE_OFF_HEAP) ? new PageCacheArena(maxRAM) : null;
+    this.bypassReadCache = configuration.getValueAsBoolean(GlobalConfiguration.PAGE_READ_MMAP) && configuration.getValueAsBoolean(
+        GlobalConfiguration.PAGE_READ_MMAP_BYPASS_CACHE);
+
     flushThread = new PageManagerFlushThread(this, configuration, databaseName);
     flushThread.start();
   }
@@ -106,9 +131,11 @@ public class PageManager extends LockContext {
       }
     }
 
-    readCache.clear();
-    totalReadCacheRAM.set(0);
+    clearReadCache();
     totalWriteCacheRAM.set(0);
+
+    if (arena != null)
+      arena.close();
   }
 
   public void suspendFlushAndExecute(final CallableNoReturn callback) throws IOException, InterruptedException {
@@ -138,14 +165,15 @@ public class PageManager extends LockContext {
       }
     }
 
-    readCache.clear();
-    totalReadCacheRAM.set(0);
+    clearReadCache();
     totalWriteCacheRAM.set(0);
+
+    if (arena != null)
+      arena.close();
   }
 
   public void clear() {
-    readCache.clear();
-    totalReadCacheRAM.set(0);
+    clearReadCache();
   }
 
   public void deleteFile(final int fileId) {
@@ -154,6 +182,8 @@ public class PageManager extends LockContext {
       if (p.getPageId().getFileId() == fileId) {
         totalReadCacheRAM.addAndGet(-1L * p.getPhysicalSize());
         it.remove();
+        evictionPolicy.onPageRemoved(p.getPageId());
+        p.release();
       }
     }
   }
@@ -172,20 +202,55 @@ public class PageManager extends LockContext {
 
   public ImmutablePage getImmutablePage(final PageId pageId, final int pageSize, final boolean isNew,
       final boolean createIfNotExists) throws IOException {
-    final CachedPage page = getCachedPage(pageId, pageSize, isNew, createIfNotExists);
-    if (page != null)
+    while (true) {
+      final CachedPage page = getCachedPage(pageId, pageSize, isNew, createIfNotExists);
+      if (page == null)
+        return null;
+
       // RETURN ALWAYS A VIEW OF THE PAGE. THIS PREVENTS CONCURRENCY ON THE BUFFER POSITION
-      return page.useAsImmutable();
-    return null;
+      final ImmutablePage view = page.useAsImmutable();
+      if (view != null)
+        return view;
+
+      // OFF-HEAP PAGE RELEASED IN THE MEANTIME, RELOAD IT
+    }
+  }
+
+  /**
+   * Returns the most recent version of a page without adding it to the read cache. Used by the full scans of the files, like the
+   * transfer of a database to a replica, that would evict the pages used by the queries. Returns null if the page does not exist.
+   */
+  public ImmutablePage getImmutablePageWithoutCaching(final PageId pageId, final int pageSize) throws IOException {
+    while (true) {
+      CachedPage page = readCache.get(pageId);
+      if (page == null) {
+        page = loadPage(pageId, pageSize, false, false);
+        if (page == null)
+          return null;
+      }
+
+      final ImmutablePage view = page.useAsImmutable();
+      if (view != null)
+        return view;
+
+      // OFF-HEAP PAGE RELEASED IN THE MEANTIME, RELOAD IT
+    }
   }
 
   public MutablePage getMutablePage(final PageId pageId, final int pageSize, final boolean isNew, final boolean createIfNotExists)
       throws IOException {
-    final CachedPage page = getCachedPage(pageId, pageSize, isNew, createIfNotExists);
-    if (page != null)
+    while (true) {
+      final CachedPage page = getCachedPage(pageId, pageSize, isNew, createIfNotExists);
+      if (page == null)
+        return null;
+
       // RETURN ALWAYS A VIEW OF THE PAGE. THIS PREVENT CONCURRENCY ON THE BUFFER POSITION
-      return page.useAsMutable();
-    return null;
+      final MutablePage copy = page.useAsMutable();
+      if (copy != null)
+        return copy;
+
+      // OFF-HEAP PAGE RELEASED IN THE MEANTIME, RELOAD IT
+    }
   }
 
   public void checkPageVersion(final MutablePage page, final boolean isNew) throws IOException {
@@ -251,7 +316,7 @@ public class PageManager extends LockContext {
   }
 
   public void overwritePage(final MutablePage page) throws IOException {
-    readCache.remove(page.pageId);
+    removePageFromCache(page.pageId);
 
     flushPage(page);
 
@@ -259,6 +324,23 @@ public class PageManager extends LockContext {
         Thread.currentThread().getId());
   }
 
+  /**
+   * Returns the off-heap arena of page frames, or null if the page cache is on heap.
+   */
+  public PageCacheArena getArena() {
+    return arena;
+  }
+
+  /**
+   * Returns the percentage (0-100) of the page flush queue currently in use. Background tasks use it as a measure of the
+   * foreground write load.
+   */
+  public int getPageFlushQueueUsage() {
+    final int used = flushThread.queue.size();
+    final int capacity = used + flushThread.queue.remainingCapacity();
+    return capacity > 0 ? used * 100 / capacity : 0;
+  }
+
   public PPageManagerStats getStats() {
     final PPageManagerStats stats = new PPageManagerStats();
     stats.maxRAM = maxRAM;
@@ -275,13 +357,28 @@ public class PageManager extends LockContext {
     stats.concurrentModificationExceptions = totalConcurrentModificationExceptions.get();
     stats.evictionRuns = evictionRuns.get();
     stats.pagesEvicted = pagesEvicted.get();
+    stats.evictionPolicy = evictionPolicy.getName();
+    final long totalAccesses = stats.cacheHits + stats.cacheMiss;
+    stats.cacheHitRatio = totalAccesses > 0 ? stats.cacheHits * 100D / totalAccesses : 0D;
+    if (arena != null) {
+      final PageCacheArena.PageCacheArenaStats arenaStats = arena.getStats();
+      stats.offHeap = true;
+      stats.offHeapAllocated = arenaStats.allocated;
+      stats.offHeapUsed = arenaStats.used;
+      stats.offHeapFree = arenaStats.free;
+      stats.offHeapFragmentation = arenaStats.fragmentation;
+      stats.offHeapOverflows = arenaStats.overflows;
+    }
     return stats;
   }
 
   public void removePageFromCache(final PageId pageId) {
     final CachedPage page = readCache.remove(pageId);
-    if (page != null)
+    if (page != null) {
       totalReadCacheRAM.addAndGet(-1L * page.getPhysicalSize());
+      evictionPolicy.onPageRemoved(pageId);
+      page.release();
+    }
   }
 
   public void writePages(final List<MutablePage> updatedPages, final boolean asyncFlush) throws IOException, InterruptedException {
@@ -330,7 +427,7 @@ public class PageManager extends LockContext {
   private CachedPage loadPage(final PageId pageId, final int size, final boolean createIfNotExists, final boolean cache)
       throws IOException {
     // ASSURE THE PAGE IS NOT IN THE FLUSHING QUEUE
-    CachedPage page = flushThread.getCachedPageFromMutablePageInQueue(pageId);
+    CachedPage page = flushThread.getCachedPageFromMutablePageInQueue(pageId, cache);
     if (page == null) {
       final PaginatedComponentFile file = (PaginatedComponentFile) fileManager.getFile(pageId.getFileId());
 
@@ -341,7 +438,8 @@ public class PageManager extends LockContext {
 
       checkForPageDisposal();
 
-      page = new CachedPage(this, pageId, size);
+      // PAGES NOT CACHED ARE SHORT-LIVED: KEEP THEM ON HEAP
+      page = new CachedPage(this, pageId, size, cache);
 
       if (!isNewPage) {
         // ACQUIRE A LOCK ON THE I/O OPERATION TO AVOID PARTIAL READS/WRITES
@@ -391,74 +489,78 @@ public class PageManager extends LockContext {
 
     final long ramToFree = totalRAM * freePageRAM / 100;
 
-    evictOldestPages(ramToFree, totalRAM);
+    evictPages(ramToFree, totalRAM);
   }
 
-  private synchronized void evictOldestPages(final long ramToFree, final long totalRAM) {
-    evictionRuns.incrementAndGet();
+  private void evictPages(final long ramToFree, final long totalRAM) {
+    if (!evictionRunning.compareAndSet(false, true))
+      // ANOTHER THREAD IS ALREADY FREEING RAM, DON'T BLOCK THE CURRENT ONE
+      return;
 
-    LogManager.instance()
-        .log(this, Level.FINE, "Reached max RAM for page cache. Freeing pages from cache (target=%d current=%d max=%d threadId=%d)",
-            null, ramToFree, totalRAM, maxRAM, Thread.currentThread().getId());
-
-    // GET THE <DISPOSE_PAGES_PER_CYCLE> OLDEST PAGES
-    // ORDER PAGES BY LAST ACCESS + SIZE
-    final TreeSet<CachedPage> pagesOrderedByAge = new TreeSet<>((o1, o2) -> {
-      final int lastAccessed = Long.compare(o1.getLastAccessed(), o2.getLastAccessed());
-      if (lastAccessed != 0)
-        return lastAccessed;
-
-      // SAME TIMESTAMP, CHECK THE PAGE SIZE: LARGER PAGE SHOULD BE REMOVED FIRST THAN OTHERS
-      final int pageSize = -Long.compare(o1.getPhysicalSize(), o2.getPhysicalSize());
-      if (pageSize != 0)
-        return pageSize;
-
-      return o1.getPageId().compareTo(o2.getPageId());
-    });
-
-    pagesOrderedByAge.addAll(readCache.values());
-
-    // REMOVE OLDEST PAGES FROM RAM
-    long freedRAM = 0;
-    for (final CachedPage page : pagesOrderedByAge) {
-      final CachedPage removedPage = readCache.remove(page.getPageId());
-      if (removedPage != null) {
-        freedRAM += page.getPhysicalSize();
-        totalReadCacheRAM.addAndGet(-1L * page.getPhysicalSize());
-        pagesEvicted.incrementAndGet();
-
-        if (freedRAM > ramToFree)
-          break;
-      }
-    }
+    try {
+      evictionRuns.incrementAndGet();
 
-    final long newTotalRAM = totalReadCacheRAM.get();
+      LogManager.instance()
+          .log(this, Level.FINE, "Reached max RAM for page cache. Freeing pages from cache (target=%d current=%d max=%d policy=%s threadId=%d)",
+              null, ramToFree, totalRAM, maxRAM, evictionPolicy.getName(), Thread.currentThread().getId());
+
+      final long freedRAM = evictionPolicy.evict(ramToFree, page -> {
+        if (readCache.remove(page.getPageId(), page)) {
+          totalReadCacheRAM.addAndGet(-1L * page.getPhysicalSize());
+          pagesEvicted.incrementAndGet();
+          page.release();
+          return true;
+        }
+        return false;
+      });
 
-    LogManager.instance()
-        .log(this, Level.FINE, "Freed %s RAM (current=%s max=%s threadId=%d)", null, FileUtils.getSizeAsString(freedRAM),
-            FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM), Thread.currentThread().getId());
+      final long newTotalRAM = totalReadCacheRAM.get();
 
-    if (newTotalRAM > maxRAM)
-      LogManager.instance().log(this, Level.WARNING, "Cannot free pages in RAM (current=%s > max=%s threadId=%d)", null,
-          FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM), Thread.currentThread().getId());
+      LogManager.instance()
+          .log(this, Level.FINE, "Freed %s RAM (current=%s max=%s threadId=%d)", null, FileUtils.getSizeAsString(freedRAM),
+              FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM), Thread.currentThread().getId());
+
+      if (newTotalRAM > maxRAM)
+        LogManager.instance().log(this, Level.WARNING, "Cannot free pages in RAM (current=%s > max=%s threadId=%d)", null,
+            FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM), Thread.currentThread().getId());
 
-    lastCheckForRAM = System.currentTimeMillis();
+      lastCheckForRAM = System.currentTimeMillis();
+    } finally {
+      evictionRunning.set(false);
+    }
   }
 
   private void putPageInReadCache(final CachedPage page) {
-    if (readCache.put(page.getPageId(), page) == null)
+    final CachedPage previous = readCache.put(page.getPageId(), page);
+    if (previous == null) {
       totalReadCacheRAM.addAndGet(page.getPhysicalSize());
+      evictionPolicy.onPageAdded(page.getPageId());
+    } else {
+      if (previous.isReferenced())
+        // KEEP THE HISTORY OF ACCESSES ON THE NEW VERSION OF THE PAGE
+        page.setReferenced(true);
+      previous.release();
+    }
 
     checkForPageDisposal();
   }
 
+  private void clearReadCache() {
+    for (final CachedPage page : readCache.values())
+      page.release();
+    readCache.clear();
+    evictionPolicy.clear();
+    totalReadCacheRAM.set(0);
+  }
+
   private CachedPage getCachedPage(final PageId pageId, final int pageSize, final boolean isNew, final boolean createIfNotExists)
       throws IOException {
     checkForPageDisposal();
 
     CachedPage page = readCache.get(pageId);
     if (page == null) {
-      page = loadPage(pageId, pageSize, createIfNotExists, true);
+      // WITH MEMORY MAPPED READS THE PAGE CAN BE SERVED BY THE OS PAGE CACHE, WITHOUT KEEPING A COPY IN THE READ CACHE
+      page = loadPage(pageId, pageSize, createIfNotExists, !bypassReadCache);
       if (page == null) {
         if (isNew)
           return null;
@@ -469,7 +571,7 @@ public class PageManager extends LockContext {
 
     } else {
       cacheHits.incrementAndGet();
-      page.updateLastAccesses();
+      evictionPolicy.onPageAccessed(page);
     }
 
     if (page == null)
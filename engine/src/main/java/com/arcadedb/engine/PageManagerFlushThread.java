@@ -117,7 +117,7 @@ public class PageManagerFlushThread extends Thread {
     join();
   }
 
-  public CachedPage getCachedPageFromMutablePageInQueue(final PageId pageId) {
+  public CachedPage getCachedPageFromMutablePageInQueue(final PageId pageId, final boolean offHeap) {
     final Object[] content = queue.toArray();
     for (int i = 0; i < content.length; i++) {
       final List<MutablePage> pages = (List<MutablePage>) content[i];
@@ -125,7 +125,7 @@ public class PageManagerFlushThread extends Thread {
         for (int j = 0; j < pages.size(); j++) {
           final MutablePage page = pages.get(j);
           if (page.getPageId().equals(pageId))
-            return new CachedPage(page, true);
+            return new CachedPage(page, true, offHeap);
         }
       }
     }
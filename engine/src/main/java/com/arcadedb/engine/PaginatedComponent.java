@@ -76,9 +76,10 @@ public abstract class PaginatedComponent extends Component {
   }
 
   public void setPageCount(final int value) {
-    if (value <= pageCount.get())
-      throw new ConcurrentModificationException("Unable to update page count for component '" + componentName + "' (" + value + "<=" + pageCount.get() + ")");
-    pageCount.set(value);
+    // ATOMIC CHECK AND SET: TRANSACTIONS LOCKING THE FILE IN SHARED MODE CAN COMMIT CONCURRENTLY
+    final int current = pageCount.getAndAccumulate(value, Math::max);
+    if (value <= current)
+      throw new ConcurrentModificationException("Unable to update page count for component '" + componentName + "' (" + value + "<=" + current + ")");
   }
 
   @Override
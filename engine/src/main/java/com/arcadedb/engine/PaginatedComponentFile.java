@@ -23,14 +23,18 @@ import com.arcadedb.log.LogManager;
 import java.io.*;
 import java.nio.*;
 import java.nio.channels.*;
+import java.util.*;
 import java.util.logging.*;
 import java.util.zip.*;
 
 public class PaginatedComponentFile extends ComponentFile {
+  public static final long MMAP_SEGMENT_SIZE = 64 * 1024 * 1024;
 
-  private RandomAccessFile file;
-  private FileChannel      channel;
-  private int              pageSize;
+  private          RandomAccessFile   file;
+  private          FileChannel        channel;
+  private          int                pageSize;
+  private          boolean            memoryMapped;
+  private volatile MappedByteBuffer[] mappedSegments = new MappedByteBuffer[0];
 
   public PaginatedComponentFile() {
   }
@@ -44,6 +48,9 @@ public class PaginatedComponentFile extends ComponentFile {
     try {
       LogManager.instance().log(this, Level.FINE, "Closing file %s (id=%d)...", null, filePath, fileId);
 
+      // THE MAPPED REGIONS ARE RELEASED BY THE GC
+      mappedSegments = new MappedByteBuffer[0];
+
       if (channel != null) {
         channel.close();
         channel = null;
@@ -144,6 +151,9 @@ public class PaginatedComponentFile extends ComponentFile {
     final ByteBuffer buffer = page.getByteBuffer();
 
     try {
+      if (memoryMapped && readFromMappedSegment(page.getPageId().getPageNumber(), buffer))
+        return;
+
       channel.read(buffer, page.getPhysicalSize() * (long) page.getPageId().getPageNumber());
     } catch (final ClosedChannelException e) {
       LogManager.instance().log(this, Level.SEVERE, "File '%s' was closed on read. Reopen it and retry...", null, fileName);
@@ -156,6 +166,21 @@ public class PaginatedComponentFile extends ComponentFile {
     return pageSize;
   }
 
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * Enables the reading of pages through memory mapped segments of {@link #MMAP_SEGMENT_SIZE} bytes of the file. The page is copied
+   * straight from the OS page cache instead of passing through a read() system call and the temporary direct buffer of the
+   * channel. Writes always pass through the channel, the mapped segments see the changes because they share the same OS pages.
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+    if (!memoryMapped)
+      mappedSegments = new MappedByteBuffer[0];
+  }
+
   @Override
   protected void open(final String filePath, final MODE mode) throws FileNotFoundException {
     this.filePath = filePath;
@@ -197,4 +222,53 @@ public class PaginatedComponentFile extends ComponentFile {
     this.channel = this.file.getChannel();
     this.open = true;
   }
+
+  private boolean readFromMappedSegment(final int pageNumber, final ByteBuffer buffer) throws IOException {
+    final int pagesPerSegment = (int) Math.max(1, MMAP_SEGMENT_SIZE / pageSize);
+    final int segmentIndex = pageNumber / pagesPerSegment;
+    final int offset = (pageNumber % pagesPerSegment) * pageSize;
+
+    final MappedByteBuffer segment = getMappedSegment(segmentIndex, (long) pagesPerSegment * pageSize, offset + pageSize);
+    if (segment == null)
+      // THE PAGE IS NOT ON DISK YET
+      return false;
+
+    // USE A VIEW OF THE SEGMENT, SO CONCURRENT READERS DO NOT SHARE THE POSITION
+    final ByteBuffer source = segment.duplicate();
+    source.position(offset);
+    source.limit(offset + pageSize);
+    buffer.put(source);
+    return true;
+  }
+
+  private MappedByteBuffer getMappedSegment(final int segmentIndex, final long segmentSize, final int requiredSize) throws IOException {
+    MappedByteBuffer[] segments = mappedSegments;
+    if (segmentIndex < segments.length) {
+      final MappedByteBuffer segment = segments[segmentIndex];
+      if (segment != null && segment.capacity() >= requiredSize)
+        return segment;
+    }
+
+    synchronized (this) {
+      segments = mappedSegments;
+      if (segmentIndex < segments.length) {
+        final MappedByteBuffer segment = segments[segmentIndex];
+        if (segment != null && segment.capacity() >= requiredSize)
+          return segment;
+      }
+
+      // MAP THE SEGMENT UP TO THE CURRENT END OF THE FILE. THE LAST SEGMENT IS REMAPPED WHEN THE FILE GROWS
+      final long segmentBegin = segmentIndex * segmentSize;
+      final long mappableSize = Math.min(segmentSize, channel.size() - segmentBegin);
+      if (mappableSize < requiredSize)
+        return null;
+
+      final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentBegin, mappableSize);
+
+      final MappedByteBuffer[] newSegments = segmentIndex < segments.length ? segments.clone() : Arrays.copyOf(segments, segmentIndex + 1);
+      newSegments[segmentIndex] = segment;
+      mappedSegments = newSegments;
+      return segment;
+    }
+  }
 }
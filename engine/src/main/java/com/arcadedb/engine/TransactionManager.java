@@ -18,12 +18,16 @@
  */
 package com.arcadedb.engine;
 
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.compression.Compression;
+import com.arcadedb.compression.CompressionFactory;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.ConcurrentModificationException;
 import com.arcadedb.exception.SchemaException;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.utility.LockException;
 import com.arcadedb.utility.LockManager;
 
 import java.io.*;
@@ -31,26 +35,44 @@ import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import java.util.logging.*;
 import java.util.stream.*;
 
 public class TransactionManager {
-  private static final long MAX_LOG_FILE_SIZE = 64 * 1024 * 1024;
-
-  private final DatabaseInternal             database;
-  private       WALFile[]                    activeWALFilePool;
-  private final List<WALFile>                inactiveWALFilePool = Collections.synchronizedList(new ArrayList<>());
-  private final String                       logContext;
-  private final Timer                        task;
-  private       CountDownLatch               taskExecuting       = new CountDownLatch(0);
-  private final AtomicLong                   transactionIds      = new AtomicLong();
-  private final AtomicLong                   logFileCounter      = new AtomicLong();
-  private final LockManager<Integer, Thread> fileIdsLockManager  = new LockManager<>();
-  private final AtomicLong                   statsPagesWritten   = new AtomicLong();
-  private final AtomicLong                   statsBytesWritten   = new AtomicLong();
+  private static final long                   MAX_LOG_FILE_SIZE          = 64 * 1024 * 1024;
+  private static final int                    RECOVERY_QUEUE_SIZE        = 1024;
+  private static final long                   RECOVERY_PROGRESS_INTERVAL = 5_000;
+  private static final WALFile.WALTransaction END_OF_RECOVERY            = new WALFile.WALTransaction();
+
+  private final DatabaseInternal                                  database;
+  private       WALFile[]                                         activeWALFilePool;
+  private final List<WALFile>                                     inactiveWALFilePool = Collections.synchronizedList(new ArrayList<>());
+  private final String                                            logContext;
+  private final Timer                                             task;
+  private       CountDownLatch                                    taskExecuting       = new CountDownLatch(0);
+  private final AtomicLong                                        transactionIds      = new AtomicLong();
+  private final AtomicLong                                        logFileCounter      = new AtomicLong();
+  // FILE LOCKS: EXCLUSIVE FOR THE FILES MODIFIED AS A WHOLE (INDEXES, DICTIONARY, ETC.), SHARED FOR THE FILES LOCKED BY PAGE
+  private final ConcurrentHashMap<Integer, ReentrantReadWriteLock> fileLocks           = new ConcurrentHashMap<>();
+  private final LockManager<PageId, Thread>                       pageLockManager     = new LockManager<>();
+  private final AtomicLong                                        statsPagesWritten   = new AtomicLong();
+  private final AtomicLong                                        statsBytesWritten   = new AtomicLong();
+  private final AtomicLong                                        statsGroupCommits   = new AtomicLong();
+  private final AtomicLong                                        statsGroupCommitTxs = new AtomicLong();
+  private final AtomicLong                                        statsSyncs          = new AtomicLong();
+  private final AtomicLong                                        statsSyncTime       = new AtomicLong();
+  private final AtomicLong                                        statsCompressedTxs  = new AtomicLong();
+  private final AtomicLong                                        statsCompressionIn  = new AtomicLong();
+  private final AtomicLong                                        statsCompressionOut = new AtomicLong();
+  private final AtomicLong                                        statsCompressTime   = new AtomicLong();
+  private final long                                              groupCommitWindow;
+  private final Compression                                       compression;
 
   public TransactionManager(final DatabaseInternal database) {
     this.database = database;
+    this.groupCommitWindow = database.getConfiguration().getValueAsLong(GlobalConfiguration.TX_WAL_GROUP_COMMIT_WINDOW);
+    this.compression = CompressionFactory.getCompression(database.getConfiguration().getValueAsString(GlobalConfiguration.TX_WAL_COMPRESSION));
 
     this.logContext = LogManager.instance().getContext();
 
@@ -96,7 +118,8 @@ public class TransactionManager {
       // IGNORE IT
     }
 
-    fileIdsLockManager.close();
+    fileLocks.clear();
+    pageLockManager.close();
 
     if (activeWALFilePool != null) {
       // MOVE ALL WAL FILES AS INACTIVE
@@ -137,17 +160,18 @@ public class TransactionManager {
     }
   }
 
-  public Binary createTransactionBuffer(final long txId, final List<MutablePage> pages) {
-    return WALFile.writeTransactionToBuffer(pages, txId);
+  public Binary createTransactionBuffer(final long txId, final List<MutablePage> pages,
+      final Map<Integer, Integer> bucketRecordDelta) {
+    return WALFile.writeTransactionToBuffer(pages, txId, bucketRecordDelta);
   }
 
   public void writeTransactionToWAL(final List<MutablePage> pages, final WALFile.FLUSH_TYPE sync, final long txId,
-      final Binary bufferChanges) {
+      final Binary bufferChanges, final Map<Integer, Integer> bucketRecordDelta) {
     while (true) {
       final WALFile file = activeWALFilePool[(int) (Thread.currentThread().getId() % activeWALFilePool.length)];
 
       if (file != null && file.acquire(() -> {
-        file.writeTransactionToFile(database, pages, sync, file, txId, bufferChanges);
+        file.writeTransactionToFile(database, pages, sync, file, txId, bufferChanges, bucketRecordDelta);
         return null;
       }))
         break;
@@ -161,6 +185,40 @@ public class TransactionManager {
     }
   }
 
+  /**
+   * Returns the records added (or removed if negative) in a bucket by the transactions in the WAL files not dropped yet.
+   */
+  public long getBucketRecordDeltaInWAL(final int bucketId) {
+    long total = 0;
+    if (activeWALFilePool != null)
+      for (final WALFile file : activeWALFilePool)
+        if (file != null)
+          total += file.getBucketRecordDelta().getOrDefault(bucketId, 0L);
+
+    synchronized (inactiveWALFilePool) {
+      for (final WALFile file : inactiveWALFilePool)
+        total += file.getBucketRecordDelta().getOrDefault(bucketId, 0L);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the names of the WAL files not dropped yet.
+   */
+  public List<String> getWALFileNames() {
+    final List<String> names = new ArrayList<>();
+    if (activeWALFilePool != null)
+      for (final WALFile file : activeWALFilePool)
+        if (file != null)
+          names.add(file.getFileName());
+
+    synchronized (inactiveWALFilePool) {
+      for (final WALFile file : inactiveWALFilePool)
+        names.add(file.getFileName());
+    }
+    return names;
+  }
+
   public void notifyPageFlushed(final MutablePage page) {
     final WALFile walFile = page.getWALFile();
     if (walFile != null)
@@ -202,41 +260,30 @@ public class TransactionManager {
 
       if (activeWALFilePool.length > 0) {
         final WALFile.WALTransaction[] walPositions = new WALFile.WALTransaction[activeWALFilePool.length];
+        long totalBytes = 0;
         for (int i = 0; i < activeWALFilePool.length; ++i) {
           final WALFile file = activeWALFilePool[i];
           walPositions[i] = file.getFirstTransaction();
+          totalBytes += file.getSize();
         }
 
-        long lastTxId = -1;
-
-        while (true) {
-          int lowerTx = -1;
-          long lowerTxId = -1;
-
-          for (int i = 0; i < walPositions.length; ++i) {
-            final WALFile.WALTransaction walTx = walPositions[i];
-            if (walTx != null) {
-              if (lowerTxId == -1 || walTx.txId < lowerTxId) {
-                lowerTxId = walTx.txId;
-                lowerTx = i;
-              }
-            }
-          }
-
-          if (lowerTxId == -1)
-            // FINISHED
-            break;
-
-          lastTxId = lowerTxId;
-
-          applyChanges(walPositions[lowerTx], Collections.emptyMap(), true);
-
-          walPositions[lowerTx] = activeWALFilePool[lowerTx].getTransaction(walPositions[lowerTx].endPositionInLog);
-        }
+        final int recoveryThreads = database.getConfiguration().getValueAsInteger(GlobalConfiguration.TX_WAL_RECOVERY_THREADS);
+        final long lastTxId = recoveryThreads > 1 ?
+            replayWALInParallel(walPositions, totalBytes, recoveryThreads) :
+            replayWAL(walPositions, totalBytes);
 
         // CONTINUE FROM LAST TXID
         transactionIds.set(lastTxId + 1);
 
+        // RESTORE THE RECORD COUNT OF THE BUCKETS AND PERSIST IT BEFORE DROPPING THE WAL FILES
+        final List<WALFile> recoveredFiles = new ArrayList<>();
+        for (final WALFile file : activeWALFilePool)
+          if (file != null) {
+            applyBucketRecordDelta(file.getBucketRecordDelta());
+            recoveredFiles.add(file);
+          }
+        database.getSchema().getEmbedded().onBeforeWALFilesDrop(recoveredFiles);
+
         // REMOVE ALL WAL FILES
         for (final WALFile file : activeWALFilePool) {
           try {
@@ -249,25 +296,240 @@ public class TransactionManager {
         createWALFilePool();
         database.getPageManager().clear();
       }
+    } catch (final IOException e) {
+      throw new WALException("Error on recovery of database '" + database.getName() + "'", e);
     } finally {
       LogManager.instance().log(this, Level.WARNING, "Recovery of database '%s' completed", null, database);
     }
   }
 
+  /**
+   * Applies the transactions of the WAL files one by one in the order of transaction id. Returns the last transaction id found.
+   */
+  private long replayWAL(final WALFile.WALTransaction[] walPositions, final long totalBytes) {
+    final RecoveryProgress progress = new RecoveryProgress(totalBytes);
+    long lastTxId = -1;
+
+    WALFile.WALTransaction tx;
+    while ((tx = nextWALTransaction(walPositions)) != null) {
+      lastTxId = tx.txId;
+      applyChanges(tx, Collections.emptyMap(), true);
+      progress.update(tx);
+    }
+    return lastTxId;
+  }
+
+  /**
+   * Applies the transactions of the WAL files with a pipeline: a thread reads the transactions ahead in the order of transaction id,
+   * the current thread dispatches the page changes to the workers partitioned by file id and the workers apply them. All the changes
+   * to the same file are applied by the same worker in the order of transaction id, so the versions of each page are applied in
+   * order. Returns the last transaction id found.
+   */
+  private long replayWALInParallel(final WALFile.WALTransaction[] walPositions, final long totalBytes, final int threads) {
+    final RecoveryProgress progress = new RecoveryProgress(totalBytes);
+    final int dictionaryId = getDictionaryFileId();
+    final AtomicBoolean involveDictionary = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    final BlockingQueue<WALFile.WALTransaction> readAhead = new ArrayBlockingQueue<>(RECOVERY_QUEUE_SIZE);
+    final Thread reader = new Thread(() -> {
+      try {
+        try {
+          WALFile.WALTransaction tx;
+          while ((tx = nextWALTransaction(walPositions)) != null && error.get() == null)
+            readAhead.put(tx);
+        } catch (final InterruptedException e) {
+          throw e;
+        } catch (final Throwable e) {
+          // STOP READING: THE ERROR IS THROWN BY THE DISPATCHER AT THE END OF THE RECOVERY
+          error.compareAndSet(null, e);
+        }
+
+        // THE DISPATCHER KEEPS CONSUMING THE QUEUE UNTIL THE END, SO THE BLOCKING PUT CANNOT HANG
+        readAhead.put(END_OF_RECOVERY);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "ArcadeDB WAL Recovery Reader " + database.getName());
+
+    final List<BlockingQueue<Object[]>> workerQueues = new ArrayList<>(threads);
+    final List<Thread> workers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; ++i) {
+      final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(RECOVERY_QUEUE_SIZE);
+      workerQueues.add(queue);
+      workers.add(new Thread(() -> {
+        try {
+          while (true) {
+            final Object[] task = queue.take();
+            if (task.length == 0)
+              // END OF RECOVERY
+              break;
+
+            if (error.get() != null)
+              // KEEP CONSUMING THE QUEUE TO NOT BLOCK THE DISPATCHER
+              continue;
+
+            final WALFile.WALPage txPage = (WALFile.WALPage) task[1];
+            try {
+              if (applyPageChanges((Long) task[0], txPage, true) && txPage.fileId == dictionaryId)
+                involveDictionary.set(true);
+            } catch (final Throwable e) {
+              error.compareAndSet(null, e);
+            }
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, "ArcadeDB WAL Recovery Worker " + database.getName() + " " + i));
+    }
+
+    reader.start();
+    for (final Thread worker : workers)
+      worker.start();
+
+    long lastTxId = -1;
+    try {
+      while (true) {
+        final WALFile.WALTransaction tx = readAhead.take();
+        if (tx == END_OF_RECOVERY)
+          break;
+
+        lastTxId = tx.txId;
+        for (final WALFile.WALPage txPage : tx.pages)
+          workerQueues.get(txPage.fileId % threads).put(new Object[] { tx.txId, txPage });
+
+        progress.update(tx);
+      }
+
+      for (final BlockingQueue<Object[]> queue : workerQueues)
+        queue.put(new Object[0]);
+
+      for (final Thread worker : workers)
+        worker.join();
+      reader.join();
+
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reader.interrupt();
+      for (final Thread worker : workers)
+        worker.interrupt();
+      throw new WALException("Recovery of database '" + database.getName() + "' interrupted", e);
+    }
+
+    final Throwable e = error.get();
+    if (e instanceof RuntimeException)
+      throw (RuntimeException) e;
+    else if (e instanceof Error)
+      throw (Error) e;
+    else if (e != null)
+      throw new WALException("Error on recovery of database '" + database.getName() + "'", (Exception) e);
+
+    if (involveDictionary.get())
+      reloadDictionary();
+
+    return lastTxId;
+  }
+
+  /**
+   * Returns the transaction with the lowest id between the current transactions of the WAL files, moving forward the file it comes
+   * from. Returns null when all the files have been read.
+   */
+  private WALFile.WALTransaction nextWALTransaction(final WALFile.WALTransaction[] walPositions) {
+    int lowerTx = -1;
+    long lowerTxId = -1;
+
+    for (int i = 0; i < walPositions.length; ++i) {
+      final WALFile.WALTransaction walTx = walPositions[i];
+      if (walTx != null) {
+        if (lowerTxId == -1 || walTx.txId < lowerTxId) {
+          lowerTxId = walTx.txId;
+          lowerTx = i;
+        }
+      }
+    }
+
+    if (lowerTxId == -1)
+      // FINISHED
+      return null;
+
+    final WALFile.WALTransaction tx = walPositions[lowerTx];
+    final WALFile file = activeWALFilePool[lowerTx];
+    walPositions[lowerTx] = file.getTransaction(tx.endPositionInLog);
+
+    if (!database.getSchema().getEmbedded().isWALFileInCachedCount(file.getFileName()))
+      // THE RECORDS OF THE TRANSACTION ARE NOT IN THE PERSISTED COUNT YET
+      file.addBucketRecordDelta(tx.bucketRecordDelta);
+    return tx;
+  }
+
+  private class RecoveryProgress {
+    private final long totalBytes;
+    private       long transactions = 0;
+    private       long bytes        = 0;
+    private       long lastLog      = System.currentTimeMillis();
+
+    private RecoveryProgress(final long totalBytes) {
+      this.totalBytes = totalBytes;
+    }
+
+    private void update(final WALFile.WALTransaction tx) {
+      ++transactions;
+      bytes += tx.endPositionInLog - tx.startPositionInLog;
+
+      final long now = System.currentTimeMillis();
+      if (now - lastLog >= RECOVERY_PROGRESS_INTERVAL) {
+        lastLog = now;
+        LogManager.instance().log(TransactionManager.this, Level.INFO, "- recovery of database '%s': %d transactions read (%d%%)", null,
+            database.getName(), transactions, totalBytes > 0 ? bytes * 100 / totalBytes : 100);
+      }
+    }
+  }
+
   public Map<String, Object> getStats() {
     final Map<String, Object> map = new HashMap<>();
     map.put("logFiles", logFileCounter.get());
 
+    // STATS OF THE DISPOSED FILES + STATS OF THE ACTIVE FILES
+    long pagesWritten = statsPagesWritten.get();
+    long bytesWritten = statsBytesWritten.get();
+    long groupCommits = statsGroupCommits.get();
+    long groupCommitTxs = statsGroupCommitTxs.get();
+    long syncs = statsSyncs.get();
+    long syncTime = statsSyncTime.get();
+    long compressedTxs = statsCompressedTxs.get();
+    long compressionIn = statsCompressionIn.get();
+    long compressionOut = statsCompressionOut.get();
+    long compressionTime = statsCompressTime.get();
+
     for (final WALFile file : activeWALFilePool) {
       if (file != null) {
         final Map<String, Object> stats = file.getStats();
-        statsPagesWritten.addAndGet((Long) stats.get("pagesWritten"));
-        statsBytesWritten.addAndGet((Long) stats.get("bytesWritten"));
+        pagesWritten += (Long) stats.get("pagesWritten");
+        bytesWritten += (Long) stats.get("bytesWritten");
+        groupCommits += (Long) stats.get("groupCommits");
+        groupCommitTxs += (Long) stats.get("groupCommitTransactions");
+        syncs += (Long) stats.get("syncs");
+        syncTime += (Long) stats.get("syncTime");
+        compressedTxs += (Long) stats.get("compressedTransactions");
+        compressionIn += (Long) stats.get("compressionBytesIn");
+        compressionOut += (Long) stats.get("compressionBytesOut");
+        compressionTime += (Long) stats.get("compressionTime");
       }
     }
 
-    map.put("pagesWritten", statsPagesWritten.get());
-    map.put("bytesWritten", statsBytesWritten.get());
+    map.put("pagesWritten", pagesWritten);
+    map.put("bytesWritten", bytesWritten);
+    map.put("groupCommits", groupCommits);
+    map.put("groupCommitTransactions", groupCommitTxs);
+    map.put("groupCommitAvgBatchSize", groupCommits > 0 ? groupCommitTxs / (double) groupCommits : 0D);
+    map.put("syncs", syncs);
+    map.put("syncTime", syncTime);
+    map.put("syncAvgLatency", syncs > 0 ? syncTime / (double) syncs : 0D);
+    map.put("compression", compression != null ? compression.getName() : CompressionFactory.NONE);
+    map.put("compressedTransactions", compressedTxs);
+    map.put("compressionRatio", compressionOut > 0 ? compressionIn / (double) compressionOut : 0D);
+    map.put("compressionTime", compressionTime);
+    map.put("compressionAvgTime", compressedTxs > 0 ? compressionTime / (double) compressedTxs : 0D);
     return map;
   }
 
@@ -276,117 +538,138 @@ public class TransactionManager {
     boolean changed = false;
     boolean involveDictionary = false;
 
-    final int dictionaryId =
-        database.getSchema().getDictionary() != null ? database.getSchema().getDictionary().file.getFileId() : -1;
+    final int dictionaryId = getDictionaryFileId();
 
     LogManager.instance().log(this, Level.FINE, "- applying changes from txId=%d", null, tx.txId);
 
+    if (!bucketRecordDelta.isEmpty())
+      database.getSchema().getEmbedded().onBeforeBucketRecordCountChange(bucketRecordDelta.keySet());
+
     for (final WALFile.WALPage txPage : tx.pages) {
-      final PaginatedComponentFile file;
+      if (applyPageChanges(tx.txId, txPage, ignoreErrors)) {
+        if (txPage.fileId == dictionaryId)
+          involveDictionary = true;
+        changed = true;
+      }
+    }
 
-      final PageId pageId = new PageId(txPage.fileId, txPage.pageNumber);
+    applyBucketRecordDelta(bucketRecordDelta);
 
-      if (!database.getFileManager().existsFile(txPage.fileId)) {
-        LogManager.instance()
-            .log(this, Level.WARNING, "Error on restoring transaction: received operation on deleted file %d", null, txPage.fileId);
-        if (ignoreErrors)
-          continue;
-        throw new ConcurrentModificationException(
-            "Concurrent modification on page " + pageId + ". The file with id " + pageId.getFileId()
-                + " does not exist anymore. Please retry the operation");
-      }
+    if (involveDictionary)
+      reloadDictionary();
 
-      try {
-        file = (PaginatedComponentFile) database.getFileManager().getFile(txPage.fileId);
-      } catch (final Exception e) {
-        LogManager.instance().log(this, Level.SEVERE, "Error on applying tx changes for page %s", e, txPage);
-        throw e;
-      }
+    return changed;
+  }
 
-      try {
-        final ImmutablePage page = database.getPageManager().getImmutablePage(pageId, file.getPageSize(), false, true);
+  private void applyBucketRecordDelta(final Map<Integer, ? extends Number> bucketRecordDelta) {
+    for (Map.Entry<Integer, ? extends Number> entry : bucketRecordDelta.entrySet()) {
+      final Component file = database.getSchema().getFileByIdIfExists(entry.getKey());
+      if (file instanceof EmbeddedBucket)
+        // UPDATE THE CACHE COUNTER ONLY IF ALREADY COMPUTED
+        ((EmbeddedBucket) file).incrementCachedRecordCount(entry.getValue().longValue());
+    }
+  }
 
-        LogManager.instance()
-            .log(this, Level.FINE, "-- checking page %s versionInLog=%d versionInDB=%d", null, pageId, txPage.currentPageVersion,
-                page.getVersion());
-
-        if (txPage.currentPageVersion <= page.getVersion()) {
-          if (ignoreErrors)
-            // SKIP IT
-            continue;
-          throw new ConcurrentModificationException(
-              "Concurrent modification on page " + pageId + " in file '" + database.getFileManager().getFile(pageId.getFileId())
-                  .getFileName() + "' (current v." + txPage.currentPageVersion + " <= database v." + page.getVersion()
-                  + "). Please retry the operation (threadId=" + Thread.currentThread().getId() + ")");
-        }
+  /**
+   * Applies the changes of a page contained in a transaction. Returns true if the page has been updated.
+   */
+  private boolean applyPageChanges(final long txId, final WALFile.WALPage txPage, final boolean ignoreErrors) {
+    final PaginatedComponentFile file;
 
-        if (txPage.currentPageVersion > page.getVersion() + 1) {
-          LogManager.instance().log(this, Level.WARNING,
-              "Cannot apply changes to the database because modified page %s version in WAL (" + txPage.currentPageVersion
-                  + ") does not match with existent version (" + page.getVersion() + ") fileId=" + txPage.fileId, null, pageId);
-          if (ignoreErrors)
-            continue;
-          throw new ConcurrentModificationException(
-              "Cannot apply changes to the database because modified page " + pageId + " version in WAL ("
-                  + txPage.currentPageVersion + ") does not match with existent version (" + page.getVersion() + ") fileId="
-                  + txPage.fileId);
-        }
-//          throw new WALException("Cannot apply changes to the database because modified page version in WAL (" + txPage.currentPageVersion
-//              + ") does not match with existent version (" + page.getVersion() + ") fileId=" + txPage.fileId);
+    final PageId pageId = new PageId(txPage.fileId, txPage.pageNumber);
 
-        LogManager.instance().log(this, Level.FINE, "Updating page %s versionInLog=%d versionInDB=%d (txId=%d)", null, pageId,
-            txPage.currentPageVersion, page.getVersion(), tx.txId);
-
-        // IF VERSION IS THE SAME OR MAJOR, OVERWRITE THE PAGE
-        final MutablePage modifiedPage = page.modify();
-        txPage.currentContent.rewind();
-        modifiedPage.writeByteArray(txPage.changesFrom - BasePage.PAGE_HEADER_SIZE, txPage.currentContent.getContent());
-        modifiedPage.version = txPage.currentPageVersion;
-        modifiedPage.setContentSize(txPage.currentPageSize);
-        modifiedPage.updateMetadata();
-        file.write(modifiedPage);
-
-        database.getPageManager().removePageFromCache(modifiedPage.pageId);
-
-        final PaginatedComponent component = (PaginatedComponent) database.getSchema().getFileById(txPage.fileId);
-        if (component != null) {
-          final int newPageCount = (int) (file.getSize() / file.getPageSize());
-          if (newPageCount > component.pageCount.get())
-            component.setPageCount(newPageCount);
-        }
+    if (!database.getFileManager().existsFile(txPage.fileId)) {
+      LogManager.instance()
+          .log(this, Level.WARNING, "Error on restoring transaction: received operation on deleted file %d", null, txPage.fileId);
+      if (ignoreErrors)
+        return false;
+      throw new ConcurrentModificationException(
+          "Concurrent modification on page " + pageId + ". The file with id " + pageId.getFileId()
+              + " does not exist anymore. Please retry the operation");
+    }
 
-        if (file.getFileId() == dictionaryId)
-          involveDictionary = true;
+    try {
+      file = (PaginatedComponentFile) database.getFileManager().getFile(txPage.fileId);
+    } catch (final Exception e) {
+      LogManager.instance().log(this, Level.SEVERE, "Error on applying tx changes for page %s", e, txPage);
+      throw e;
+    }
 
-        changed = true;
-        LogManager.instance().log(this, Level.FINE, "  - updating page %s v%d", null, pageId, modifiedPage.version);
+    try {
+      final ImmutablePage page = database.getPageManager().getImmutablePage(pageId, file.getPageSize(), false, true);
 
-      } catch (final ClosedByInterruptException e) {
-        // NORMAL EXCEPTION IN CASE THE CONNECTION/THREAD IS CLOSED (=INTERRUPTED)
-        Thread.currentThread().interrupt();
-        throw new WALException("Cannot apply changes to page " + pageId, e);
-      } catch (final IOException e) {
-        LogManager.instance().log(this, Level.SEVERE, "Error on applying changes to page %s", e, pageId);
-        throw new WALException("Cannot apply changes to page " + pageId, e);
+      LogManager.instance()
+          .log(this, Level.FINE, "-- checking page %s versionInLog=%d versionInDB=%d", null, pageId, txPage.currentPageVersion,
+              page.getVersion());
+
+      if (txPage.currentPageVersion <= page.getVersion()) {
+        if (ignoreErrors)
+          // SKIP IT
+          return false;
+        throw new ConcurrentModificationException(
+            "Concurrent modification on page " + pageId + " in file '" + database.getFileManager().getFile(pageId.getFileId())
+                .getFileName() + "' (current v." + txPage.currentPageVersion + " <= database v." + page.getVersion()
+                + "). Please retry the operation (threadId=" + Thread.currentThread().getId() + ")");
       }
-    }
 
-    for (Map.Entry<Integer, Integer> entry : bucketRecordDelta.entrySet()) {
-      final EmbeddedBucket bucket = (EmbeddedBucket) database.getSchema().getBucketById(entry.getKey());
-      if (bucket.getCachedRecordCount() > -1)
-        // UPDATE THE CACHE COUNTER ONLY IF ALREADY COMPUTED
-        bucket.setCachedRecordCount(bucket.getCachedRecordCount() + entry.getValue());
-    }
+      if (txPage.currentPageVersion > page.getVersion() + 1) {
+        LogManager.instance().log(this, Level.WARNING,
+            "Cannot apply changes to the database because modified page %s version in WAL (" + txPage.currentPageVersion
+                + ") does not match with existent version (" + page.getVersion() + ") fileId=" + txPage.fileId, null, pageId);
+        if (ignoreErrors)
+          return false;
+        throw new ConcurrentModificationException(
+            "Cannot apply changes to the database because modified page " + pageId + " version in WAL ("
+                + txPage.currentPageVersion + ") does not match with existent version (" + page.getVersion() + ") fileId="
+                + txPage.fileId);
+      }
+//          throw new WALException("Cannot apply changes to the database because modified page version in WAL (" + txPage.currentPageVersion
+//              + ") does not match with existent version (" + page.getVersion() + ") fileId=" + txPage.fileId);
 
-    if (involveDictionary) {
-      try {
-        database.getSchema().getDictionary().reload();
-      } catch (final IOException e) {
-        throw new SchemaException("Unable to update dictionary after transaction commit", e);
+      LogManager.instance().log(this, Level.FINE, "Updating page %s versionInLog=%d versionInDB=%d (txId=%d)", null, pageId,
+          txPage.currentPageVersion, page.getVersion(), txId);
+
+      // IF VERSION IS THE SAME OR MAJOR, OVERWRITE THE PAGE
+      final MutablePage modifiedPage = page.modify();
+      txPage.currentContent.rewind();
+      modifiedPage.writeByteArray(txPage.changesFrom - BasePage.PAGE_HEADER_SIZE, txPage.currentContent.getContent());
+      modifiedPage.version = txPage.currentPageVersion;
+      modifiedPage.setContentSize(txPage.currentPageSize);
+      modifiedPage.updateMetadata();
+      file.write(modifiedPage);
+
+      database.getPageManager().removePageFromCache(modifiedPage.pageId);
+
+      final PaginatedComponent component = (PaginatedComponent) database.getSchema().getFileById(txPage.fileId);
+      if (component != null) {
+        final int newPageCount = (int) (file.getSize() / file.getPageSize());
+        if (newPageCount > component.pageCount.get())
+          component.setPageCount(newPageCount);
       }
+
+      LogManager.instance().log(this, Level.FINE, "  - updating page %s v%d", null, pageId, modifiedPage.version);
+      return true;
+
+    } catch (final ClosedByInterruptException e) {
+      // NORMAL EXCEPTION IN CASE THE CONNECTION/THREAD IS CLOSED (=INTERRUPTED)
+      Thread.currentThread().interrupt();
+      throw new WALException("Cannot apply changes to page " + pageId, e);
+    } catch (final IOException e) {
+      LogManager.instance().log(this, Level.SEVERE, "Error on applying changes to page %s", e, pageId);
+      throw new WALException("Cannot apply changes to page " + pageId, e);
     }
+  }
 
-    return changed;
+  private int getDictionaryFileId() {
+    return database.getSchema().getDictionary() != null ? database.getSchema().getDictionary().file.getFileId() : -1;
+  }
+
+  private void reloadDictionary() {
+    try {
+      database.getSchema().getDictionary().reload();
+    } catch (final IOException e) {
+      throw new SchemaException("Unable to update dictionary after transaction commit", e);
+    }
   }
 
   public void kill() {
@@ -395,7 +678,8 @@ public class TransactionManager {
       task.purge();
     }
 
-    fileIdsLockManager.close();
+    fileLocks.clear();
+    pageLockManager.close();
 
     try {
       taskExecuting.await();
@@ -439,17 +723,36 @@ public class TransactionManager {
    * the new acquired locks are released.
    */
   public List<Integer> tryLockFiles(final Collection<Integer> fileIds, final long timeout) {
+    return tryLockFiles(fileIds, Collections.emptySet(), timeout);
+  }
+
+  /**
+   * Locks the files in `exclusiveFileIds` exclusively and the files in `sharedFileIds` in shared mode, so multiple transactions can commit
+   * concurrently on different pages of the same file (the pages must be locked with {@link #tryLockPages(Collection, long)}). A file present
+   * in both the collections is locked exclusively. All the files are locked in the same order to avoid deadlocks. Returns the locked files
+   * only, like {@link #tryLockFiles(Collection, long)}.
+   */
+  public List<Integer> tryLockFiles(final Collection<Integer> exclusiveFileIds, final Collection<Integer> sharedFileIds,
+      final long timeout) {
     // ORDER THE FILES TO AVOID DEADLOCK
-    final List<Integer> orderedFilesIds = new ArrayList<>(fileIds);
-    Collections.sort(orderedFilesIds);
+    final TreeMap<Integer, Boolean> orderedFilesIds = new TreeMap<>();
+    for (final Integer fileId : sharedFileIds)
+      orderedFilesIds.put(fileId, false);
+    for (final Integer fileId : exclusiveFileIds)
+      orderedFilesIds.put(fileId, true);
 
     final List<Integer> lockedFiles = new ArrayList<>(orderedFilesIds.size());
 
-    Integer attemptFileId;
-    for (final Integer fileId : orderedFilesIds) {
-      attemptFileId = fileId;
+    for (final Map.Entry<Integer, Boolean> entry : orderedFilesIds.entrySet()) {
+      final Integer fileId = entry.getKey();
 
-      final LockManager.LOCK_STATUS lock = tryLockFile(fileId, timeout);
+      final LockManager.LOCK_STATUS lock;
+      try {
+        lock = tryLockFile(fileId, entry.getValue(), timeout);
+      } catch (final LockException e) {
+        unlockFilesInOrder(lockedFiles);
+        throw e;
+      }
 
       if (lock == LockManager.LOCK_STATUS.YES)
         lockedFiles.add(fileId);
@@ -457,12 +760,9 @@ public class TransactionManager {
         // ERROR: UNLOCK LOCKED FILES
         unlockFilesInOrder(lockedFiles);
 
-        if (attemptFileId != null)
-          throw new TimeoutException(
-              "Timeout on locking file " + attemptFileId + " (" + database.getFileManager().getFile(attemptFileId).getFileName()
-                  + ") during commit (fileIds=" + orderedFilesIds + ")");
-
-        throw new TimeoutException("Timeout on locking files during commit (fileIds=" + orderedFilesIds + ")");
+        throw new TimeoutException(
+            "Timeout on locking file " + fileId + " (" + database.getFileManager().getFile(fileId).getFileName()
+                + ") during commit (fileIds=" + orderedFilesIds.keySet() + ")");
       }
     }
 
@@ -484,11 +784,96 @@ public class TransactionManager {
   }
 
   public LockManager.LOCK_STATUS tryLockFile(final Integer fileId, final long timeout) {
-    return fileIdsLockManager.tryLock(fileId, Thread.currentThread(), timeout);
+    return tryLockFile(fileId, true, timeout);
+  }
+
+  /**
+   * Locks a file in exclusive or shared mode. A timeout of 0 waits forever. A shared lock cannot be upgraded to exclusive by the same thread.
+   */
+  public LockManager.LOCK_STATUS tryLockFile(final Integer fileId, final boolean exclusive, final long timeout) {
+    if (fileId == null)
+      throw new IllegalArgumentException("File to lock is null");
+
+    final ReentrantReadWriteLock fileLock = fileLocks.computeIfAbsent(fileId, k -> new ReentrantReadWriteLock(true));
+
+    if (fileLock.isWriteLockedByCurrentThread() || (!exclusive && fileLock.getReadHoldCount() > 0))
+      return LockManager.LOCK_STATUS.ALREADY_ACQUIRED;
+
+    if (exclusive && fileLock.getReadHoldCount() > 0)
+      throw new LockException("Cannot lock file " + fileId + " exclusively because the current thread holds a shared lock on it");
+
+    final Lock lock = exclusive ? fileLock.writeLock() : fileLock.readLock();
+    try {
+      if (timeout > 0)
+        return lock.tryLock(timeout, TimeUnit.MILLISECONDS) ? LockManager.LOCK_STATUS.YES : LockManager.LOCK_STATUS.NO;
+
+      lock.lockInterruptibly();
+      return LockManager.LOCK_STATUS.YES;
+
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return LockManager.LOCK_STATUS.NO;
+    }
   }
 
+  /**
+   * Releases the lock on the file held by the current thread, in exclusive or shared mode.
+   */
   public void unlockFile(final Integer fileId) {
-    fileIdsLockManager.unlock(fileId, Thread.currentThread());
+    if (fileId == null)
+      throw new IllegalArgumentException("File to unlock is null");
+
+    final ReentrantReadWriteLock fileLock = fileLocks.get(fileId);
+    if (fileLock == null)
+      return;
+
+    if (fileLock.isWriteLockedByCurrentThread())
+      fileLock.writeLock().unlock();
+    else if (fileLock.getReadHoldCount() > 0)
+      fileLock.readLock().unlock();
+    else if (fileLock.isWriteLocked())
+      throw new LockException("Cannot unlock file " + fileId + " because it is locked by another thread");
+  }
+
+  /**
+   * Locks the pages exclusively in order. The files of the pages must be already locked in shared mode. Returns the locked pages only: in
+   * case the current thread already locked a page, no error is thrown but the lock is not returned.
+   */
+  public List<PageId> tryLockPages(final Collection<PageId> pageIds, final long timeout) {
+    // ORDER THE PAGES TO AVOID DEADLOCK
+    final List<PageId> orderedPageIds = new ArrayList<>(pageIds);
+    Collections.sort(orderedPageIds);
+
+    final List<PageId> lockedPages = new ArrayList<>(orderedPageIds.size());
+
+    for (final PageId pageId : orderedPageIds) {
+      final LockManager.LOCK_STATUS lock = pageLockManager.tryLock(pageId, Thread.currentThread(), timeout);
+
+      if (lock == LockManager.LOCK_STATUS.YES)
+        lockedPages.add(pageId);
+      else if (lock == LockManager.LOCK_STATUS.NO) {
+        // ERROR: UNLOCK LOCKED PAGES
+        unlockPages(lockedPages);
+
+        throw new TimeoutException(
+            "Timeout on locking page " + pageId + " (" + database.getFileManager().getFile(pageId.getFileId()).getFileName()
+                + ") during commit");
+      }
+    }
+
+    LogManager.instance()
+        .log(this, Level.FINE, "Locked pages %s (threadId=%d)", null, orderedPageIds, Thread.currentThread().getId());
+    return lockedPages;
+  }
+
+  public void unlockPages(final List<PageId> lockedPageIds) {
+    if (lockedPageIds != null && !lockedPageIds.isEmpty()) {
+      for (final PageId pageId : lockedPageIds)
+        pageLockManager.unlock(pageId, Thread.currentThread());
+
+      LogManager.instance()
+          .log(this, Level.FINE, "Unlocked pages %s (threadId=%d)", null, lockedPageIds, Thread.currentThread().getId());
+    }
   }
 
   private void createWALFilePool() {
@@ -496,7 +881,7 @@ public class TransactionManager {
     for (int i = 0; i < activeWALFilePool.length; ++i) {
       final long counter = logFileCounter.getAndIncrement();
       try {
-        activeWALFilePool[i] = database.getWALFileFactory().newInstance(database.getDatabasePath() + "/txlog_" + counter + ".wal");
+        activeWALFilePool[i] = newWALFile(counter);
       } catch (final FileNotFoundException e) {
         LogManager.instance().log(this, Level.SEVERE, "Error on WAL file management for file '%s'", e,
             database.getDatabasePath() + "/txlog_" + counter + ".wal");
@@ -504,6 +889,13 @@ public class TransactionManager {
     }
   }
 
+  private WALFile newWALFile(final long counter) throws FileNotFoundException {
+    final WALFile file = database.getWALFileFactory().newInstance(database.getDatabasePath() + "/txlog_" + counter + ".wal");
+    file.setGroupCommitWindow(groupCommitWindow);
+    file.setCompression(compression);
+    return file;
+  }
+
   private void checkWALFiles() {
     if (activeWALFilePool != null)
       for (int i = 0; i < activeWALFilePool.length; ++i) {
@@ -513,8 +905,7 @@ public class TransactionManager {
             LogManager.instance().log(this, Level.FINE,
                 "WAL file '%s' reached maximum size (%d), set it as inactive, waiting for the drop (page2flush=%d)", null, file,
                 MAX_LOG_FILE_SIZE, file.getPendingPagesToFlush());
-            activeWALFilePool[i] = database.getWALFileFactory()
-                .newInstance(database.getDatabasePath() + "/txlog_" + logFileCounter.getAndIncrement() + ".wal");
+            activeWALFilePool[i] = newWALFile(logFileCounter.getAndIncrement());
 
             // SET THE FILE AS INACTIVE READY TO BE DISPOSED
             file.setActive(false);
@@ -527,15 +918,36 @@ public class TransactionManager {
   }
 
   private boolean cleanWALFiles(final boolean dropFiles, final boolean force) {
+    final List<WALFile> toRemove = new ArrayList<>();
+    for (final WALFile file : inactiveWALFilePool)
+      if (force || !dropFiles || file.getPendingPagesToFlush() == 0)
+        toRemove.add(file);
+
+    if (toRemove.isEmpty())
+      return inactiveWALFilePool.isEmpty();
+
+    if (dropFiles && database.isOpen())
+      // THE RECORDS OF THE TRANSACTIONS IN THE FILES MUST BE IN THE PERSISTED COUNT BEFORE DROPPING THEM. AT CLOSING THE SCHEMA HAS
+      // ALREADY PERSISTED THE COUNT WITH ALL THE FILES
+      database.getSchema().getEmbedded().onBeforeWALFilesDrop(toRemove);
+
     for (final Iterator<WALFile> it = inactiveWALFilePool.iterator(); it.hasNext(); ) {
       final WALFile file = it.next();
 
-      if (force || !dropFiles || file.getPendingPagesToFlush() == 0) {
+      if (toRemove.contains(file)) {
         // ALL PAGES FLUSHED, REMOVE THE FILE
         try {
           final Map<String, Object> fileStats = file.getStats();
           statsPagesWritten.addAndGet((Long) fileStats.get("pagesWritten"));
           statsBytesWritten.addAndGet((Long) fileStats.get("bytesWritten"));
+          statsGroupCommits.addAndGet((Long) fileStats.get("groupCommits"));
+          statsGroupCommitTxs.addAndGet((Long) fileStats.get("groupCommitTransactions"));
+          statsSyncs.addAndGet((Long) fileStats.get("syncs"));
+          statsSyncTime.addAndGet((Long) fileStats.get("syncTime"));
+          statsCompressedTxs.addAndGet((Long) fileStats.get("compressedTransactions"));
+          statsCompressionIn.addAndGet((Long) fileStats.get("compressionBytesIn"));
+          statsCompressionOut.addAndGet((Long) fileStats.get("compressionBytesOut"));
+          statsCompressTime.addAndGet((Long) fileStats.get("compressionTime"));
 
           if (dropFiles)
             file.drop();
@@ -18,6 +18,8 @@
  */
 package com.arcadedb.engine;
 
+import com.arcadedb.compression.Compression;
+import com.arcadedb.compression.CompressionFactory;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.ConfigurationException;
@@ -32,6 +34,7 @@ import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import java.util.logging.*;
 
 public class WALFile extends LockContext {
@@ -43,6 +46,10 @@ public class WALFile extends LockContext {
   private static final int TX_HEADER_SIZE = Binary.LONG_SERIALIZED_SIZE + Binary.LONG_SERIALIZED_SIZE + Binary.INT_SERIALIZED_SIZE + Binary.INT_SERIALIZED_SIZE;
   // SEGMENT_SIZE (int) + MAGIC_NUMBER (long)
   private static final int TX_FOOTER_SIZE = Binary.INT_SERIALIZED_SIZE + Binary.LONG_SERIALIZED_SIZE;
+  // COMPRESSED TRANSACTIONS ONLY, AFTER THE HEADER WITH A NEGATIVE SEGMENT_SIZE: CODEC_ID (byte) + UNCOMPRESSED_SEGMENT_SIZE (int)
+  private static final int TX_COMPRESSION_HEADER_SIZE = Binary.BYTE_SERIALIZED_SIZE + Binary.INT_SERIALIZED_SIZE;
+
+  // OPTIONAL TAIL OF THE SEGMENT, AFTER THE PAGES: BUCKETS (int) + BUCKETS * (BUCKET_ID (int) + RECORD_DELTA (int))
 
   // FILE_ID (int) + PAGE_NUMBER (int) + DELTA_FROM (int) + DELTA_TO (int) + CURR_PAGE_VERSION (int)+ CURR_PAGE_SIZE (int)
   private static final int PAGE_HEADER_SIZE =
@@ -51,24 +58,41 @@ public class WALFile extends LockContext {
 
   public static final long MAGIC_NUMBER = 9371515385058702L;
 
-  private final    RandomAccessFile file;
-  private final    String           filePath;
-  private final    FileChannel      channel;
-  private volatile boolean          active            = true;
-  private volatile boolean          open;
-  private final    AtomicInteger    pagesToFlush      = new AtomicInteger();
-  private          long             statsPagesWritten = 0;
-  private          long             statsBytesWritten = 0;
+  private final    RandomAccessFile   file;
+  private final    String             filePath;
+  private final    FileChannel        channel;
+  private volatile boolean            active              = true;
+  private volatile boolean            open;
+  private final    AtomicInteger      pagesToFlush        = new AtomicInteger();
+  private          int                writers             = 0;
+  private final    AtomicLong         statsPagesWritten   = new AtomicLong();
+  private final    AtomicLong         statsBytesWritten   = new AtomicLong();
+  private final    AtomicLong         statsGroupCommits   = new AtomicLong();
+  private final    AtomicLong         statsGroupCommitTxs = new AtomicLong();
+  private final    AtomicLong         statsSyncs          = new AtomicLong();
+  private final    AtomicLong         statsSyncTime       = new AtomicLong();
+  private final    AtomicLong         statsCompressedTxs  = new AtomicLong();
+  private final    AtomicLong         statsCompressionIn  = new AtomicLong();
+  private final    AtomicLong         statsCompressionOut = new AtomicLong();
+  private final    AtomicLong         statsCompressTime   = new AtomicLong();
+  // GROUP COMMIT: TRANSACTIONS WAITING FOR THE LEADER THREAD TO WRITE AND FLUSH THEM ALL TOGETHER
+  private final    List<PendingWrite> pendingWrites       = new ArrayList<>();
+  private          boolean            groupCommitRunning  = false;
+  private volatile long               groupCommitWindow   = 0;
+  private volatile Compression        compression;
+  // RECORDS ADDED (OR REMOVED IF NEGATIVE) BY THE TRANSACTIONS IN THE FILE, BY BUCKET ID
+  private final    Map<Integer, Long> bucketRecordDelta   = new ConcurrentHashMap<>();
   // STATIC BUFFERS USED FOR RECOVERY
-  private final    ByteBuffer       bufferLong        = ByteBuffer.allocate(Binary.LONG_SERIALIZED_SIZE);
-  private final    ByteBuffer       bufferInt         = ByteBuffer.allocate(Binary.INT_SERIALIZED_SIZE);
+  private final    ByteBuffer         bufferLong          = ByteBuffer.allocate(Binary.LONG_SERIALIZED_SIZE);
+  private final    ByteBuffer         bufferInt           = ByteBuffer.allocate(Binary.INT_SERIALIZED_SIZE);
 
   public static class WALTransaction {
-    public long      txId;
-    public long      timestamp;
-    public WALPage[] pages;
-    public long      startPositionInLog;
-    public long      endPositionInLog;
+    public long                  txId;
+    public long                  timestamp;
+    public WALPage[]             pages;
+    public Map<Integer, Integer> bucketRecordDelta = Collections.emptyMap();
+    public long                  startPositionInLog;
+    public long                  endPositionInLog;
   }
 
   public static class WALPage {
@@ -86,6 +110,18 @@ public class WALFile extends LockContext {
     }
   }
 
+  private static class PendingWrite {
+    private final ByteBuffer  buffer;
+    private final FLUSH_TYPE  sync;
+    private       boolean     done;
+    private       IOException error;
+
+    private PendingWrite(final ByteBuffer buffer, final FLUSH_TYPE sync) {
+      this.buffer = buffer;
+      this.sync = sync;
+    }
+  }
+
   public WALFile(final String filePath) throws FileNotFoundException {
     this.filePath = filePath;
     this.file = new RandomAccessFile(filePath, "rw");
@@ -95,6 +131,8 @@ public class WALFile extends LockContext {
 
   public synchronized void close() throws IOException {
     this.open = false;
+    waitForWriters();
+
     if (channel != null)
       channel.close();
 
@@ -124,23 +162,54 @@ public class WALFile extends LockContext {
    *
    * @return true if acquired, otherwise false
    */
-  public synchronized boolean acquire(final Callable<Object> callable) {
-    if (!active || !open)
-      return false;
+  public boolean acquire(final Callable<Object> callable) {
+    synchronized (this) {
+      if (!active || !open)
+        return false;
+      ++writers;
+    }
 
+    // THE CALLBACK IS EXECUTED OUTSIDE THE LOCK, SO CONCURRENT TRANSACTIONS CAN JOIN THE SAME GROUP COMMIT
     try {
       callable.call();
     } catch (final RuntimeException e) {
       throw e;
     } catch (final Exception e) {
       throw new WALException("Error on writing to WAL file " + filePath, e);
+    } finally {
+      synchronized (this) {
+        if (--writers == 0)
+          notifyAll();
+      }
     }
 
     return true;
   }
 
+  /**
+   * Once set as inactive, the WAL file does not accept new transactions. This method waits for the transactions that are still
+   * writing to the file.
+   */
   public synchronized void setActive(final boolean active) {
     this.active = active;
+    if (!active)
+      waitForWriters();
+  }
+
+  /**
+   * Sets the maximum time in microseconds the leader of a group commit waits for other transactions before writing and flushing
+   * the batch. With 0 only the transactions already waiting are written together.
+   */
+  public void setGroupCommitWindow(final long groupCommitWindow) {
+    this.groupCommitWindow = groupCommitWindow;
+  }
+
+  /**
+   * Sets the codec to compress the transactions written in the file, null to write them uncompressed. The transactions already in the
+   * file are read with the codec they were written with.
+   */
+  public void setCompression(final Compression compression) {
+    this.compression = compression;
   }
 
   public WALTransaction getTransaction(long pos) {
@@ -165,10 +234,15 @@ public class WALFile extends LockContext {
       final int segmentSize = readInt(pos);
       pos += Binary.INT_SERIALIZED_SIZE;
 
+      if (segmentSize < 0)
+        return readCompressedTransaction(tx, pages, -segmentSize, pos);
+
       if (pos + segmentSize + Binary.LONG_SERIALIZED_SIZE > getSize())
         // TRUNCATED FILE
         return null;
 
+      final long segmentEnd = pos + segmentSize;
+
       tx.pages = new WALPage[pages];
 
       for (int i = 0; i < pages; ++i) {
@@ -206,6 +280,18 @@ public class WALFile extends LockContext {
         pos += deltaSize;
       }
 
+      if (pos < segmentEnd) {
+        // BUCKET RECORD DELTAS
+        final int buckets = readInt(pos);
+        pos += Binary.INT_SERIALIZED_SIZE;
+
+        tx.bucketRecordDelta = new HashMap<>(buckets);
+        for (int i = 0; i < buckets; ++i) {
+          tx.bucketRecordDelta.put(readInt(pos), readInt(pos + Binary.INT_SERIALIZED_SIZE));
+          pos += Binary.INT_SERIALIZED_SIZE * 2;
+        }
+      }
+
       final long mn = readLong(pos + Binary.INT_SERIALIZED_SIZE);
       if (mn != MAGIC_NUMBER)
         // INVALID
@@ -219,7 +305,133 @@ public class WALFile extends LockContext {
     }
   }
 
-  public static Binary writeTransactionToBuffer(final List<MutablePage> pages, final long txId) {
+  private WALTransaction readCompressedTransaction(final WALTransaction tx, final int pages, final int compressedSize, long pos)
+      throws IOException {
+    if (pos + TX_COMPRESSION_HEADER_SIZE + compressedSize + TX_FOOTER_SIZE > getSize())
+      // TRUNCATED FILE
+      return null;
+
+    final ByteBuffer header = ByteBuffer.allocate(TX_COMPRESSION_HEADER_SIZE);
+    channel.read(header, pos);
+    pos += TX_COMPRESSION_HEADER_SIZE;
+
+    final Compression codec;
+    try {
+      codec = CompressionFactory.getCompression(header.get(0));
+    } catch (final ConfigurationException e) {
+      LogManager.instance()
+          .log(this, Level.SEVERE, "Transaction %d in WAL file %s is compressed with an unknown codec (id=%d)", null, tx.txId, filePath,
+              header.get(0));
+      return null;
+    }
+
+    final int segmentSize = header.getInt(Binary.BYTE_SERIALIZED_SIZE);
+
+    final ByteBuffer compressed = ByteBuffer.allocate(compressedSize);
+    channel.read(compressed, pos);
+    pos += compressedSize;
+
+    final Binary segment = codec.decompress(new Binary(compressed.array()), segmentSize);
+
+    tx.pages = new WALPage[pages];
+
+    int segmentPos = 0;
+    for (int i = 0; i < pages; ++i) {
+      if (segmentPos + PAGE_HEADER_SIZE > segmentSize)
+        // INVALID
+        return null;
+
+      final WALPage page = new WALPage();
+      tx.pages[i] = page;
+
+      page.fileId = segment.getInt(segmentPos);
+      page.pageNumber = segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE);
+      page.changesFrom = segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE * 2);
+      page.changesTo = segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE * 3);
+      page.currentPageVersion = segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE * 4);
+      page.currentPageSize = segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE * 5);
+      segmentPos += PAGE_HEADER_SIZE;
+
+      final int deltaSize = page.changesTo - page.changesFrom + 1;
+      final byte[] content = new byte[deltaSize];
+      segment.getByteArray(segmentPos, content, 0, deltaSize);
+      page.currentContent = new Binary(content);
+
+      segmentPos += deltaSize;
+    }
+
+    if (segmentPos < segmentSize) {
+      // BUCKET RECORD DELTAS
+      final int buckets = segment.getInt(segmentPos);
+      segmentPos += Binary.INT_SERIALIZED_SIZE;
+
+      tx.bucketRecordDelta = new HashMap<>(buckets);
+      for (int i = 0; i < buckets; ++i) {
+        tx.bucketRecordDelta.put(segment.getInt(segmentPos), segment.getInt(segmentPos + Binary.INT_SERIALIZED_SIZE));
+        segmentPos += Binary.INT_SERIALIZED_SIZE * 2;
+      }
+    }
+
+    final long mn = readLong(pos + Binary.INT_SERIALIZED_SIZE);
+    if (mn != MAGIC_NUMBER)
+      // INVALID
+      return null;
+
+    tx.endPositionInLog = pos + Binary.INT_SERIALIZED_SIZE + Binary.LONG_SERIALIZED_SIZE;
+
+    return tx;
+  }
+
+  /**
+   * Compresses the segment with the pages of the transaction. The header keeps the transaction id, the timestamp and the number of
+   * pages, while the segment size is negative to mark the compressed format and is followed by the codec id and the uncompressed
+   * segment size. If the compression does not save space the transaction is written as it is.
+   */
+  private Binary compressTransaction(final Compression codec, final Binary buffer) {
+    final int segmentSize = buffer.getInt(TX_HEADER_SIZE - Binary.INT_SERIALIZED_SIZE);
+    if (segmentSize == 0)
+      return buffer;
+
+    final long beginTime = System.nanoTime();
+
+    final Binary segment = new Binary(buffer.getContent(), TX_HEADER_SIZE + segmentSize);
+    segment.position(TX_HEADER_SIZE);
+    final Binary compressed = codec.compress(segment);
+    final int compressedSize = compressed.size();
+
+    statsCompressTime.addAndGet(System.nanoTime() - beginTime);
+
+    if (compressedSize == 0 || TX_COMPRESSION_HEADER_SIZE + compressedSize >= segmentSize)
+      // NOT WORTH IT
+      return buffer;
+
+    final Binary result = new Binary(TX_HEADER_SIZE + TX_COMPRESSION_HEADER_SIZE + compressedSize + TX_FOOTER_SIZE);
+    result.setAutoResizable(false);
+
+    result.putLong(buffer.getLong(0));
+    result.putLong(buffer.getLong(Binary.LONG_SERIALIZED_SIZE));
+    result.putInt(buffer.getInt(Binary.LONG_SERIALIZED_SIZE * 2));
+    result.putInt(-compressedSize);
+    result.putByte(codec.getId());
+    result.putInt(segmentSize);
+    result.putByteArray(compressed.getContent(), 0, compressedSize);
+    result.putInt(-compressedSize);
+    result.putLong(MAGIC_NUMBER);
+
+    statsCompressedTxs.incrementAndGet();
+    statsCompressionIn.addAndGet(segmentSize);
+    statsCompressionOut.addAndGet(TX_COMPRESSION_HEADER_SIZE + compressedSize);
+
+    return result;
+  }
+
+  /**
+   * Writes the transaction in a buffer with the changes of the pages, followed by the records added or removed in every bucket, so
+   * the record count of the buckets can be restored without scanning them after a crash. Nothing is written after the pages if no
+   * records were added or removed.
+   */
+  public static Binary writeTransactionToBuffer(final List<MutablePage> pages, final long txId,
+      final Map<Integer, Integer> bucketRecordDelta) {
     // COMPUTE TOTAL TXLOG SEGMENT SIZE
     int segmentSize = 0;
     for (final MutablePage newPage : pages) {
@@ -234,6 +446,9 @@ public class WALFile extends LockContext {
       segmentSize += PAGE_HEADER_SIZE + deltaSize;
     }
 
+    if (!bucketRecordDelta.isEmpty())
+      segmentSize += Binary.INT_SERIALIZED_SIZE + bucketRecordDelta.size() * Binary.INT_SERIALIZED_SIZE * 2;
+
     final Binary bufferChanges = new Binary(TX_HEADER_SIZE + TX_FOOTER_SIZE + segmentSize);
     bufferChanges.setAutoResizable(false);
 
@@ -273,6 +488,15 @@ public class WALFile extends LockContext {
       bufferChanges.position(bufferChanges.position() + deltaSize);
     }
 
+    if (!bucketRecordDelta.isEmpty()) {
+      // WRITE THE BUCKET RECORD DELTAS
+      bufferChanges.putInt(bucketRecordDelta.size());
+      for (final Map.Entry<Integer, Integer> entry : bucketRecordDelta.entrySet()) {
+        bufferChanges.putInt(entry.getKey());
+        bufferChanges.putInt(entry.getValue());
+      }
+    }
+
     // WRITE TX FOOTER (MAGIC NUMBER)
     bufferChanges.putInt(segmentSize);
     bufferChanges.putLong(MAGIC_NUMBER);
@@ -281,12 +505,16 @@ public class WALFile extends LockContext {
   }
 
   public void writeTransactionToFile(final DatabaseInternal database, final List<MutablePage> pages, final FLUSH_TYPE sync, final WALFile file, final long txId,
-      final Binary buffer) throws IOException {
+      final Binary buffer, final Map<Integer, Integer> bucketRecordDelta) throws IOException {
 
     LogManager.instance()
         .log(this, Level.FINE, "Appending WAL for txId=%d (size=%d file=%s threadId=%d)", null, txId, buffer.size(), filePath, Thread.currentThread().getId());
 
-    file.append(buffer.getByteBuffer());
+    final Compression codec = compression;
+    final Binary toWrite = codec != null ? compressTransaction(codec, buffer) : buffer;
+
+    // WAIT UNTIL THE TRANSACTION HAS BEEN WRITTEN (AND FLUSHED IF REQUESTED), POSSIBLY TOGETHER WITH OTHER CONCURRENT TRANSACTIONS
+    groupCommit(new PendingWrite(toWrite.getByteBuffer(), sync));
 
     // WRITE ALL PAGES SEGMENTS
     for (final MutablePage newPage : pages) {
@@ -294,19 +522,31 @@ public class WALFile extends LockContext {
       newPage.setWALFile(file);
 
       pagesToFlush.incrementAndGet();
-      statsPagesWritten++;
+      statsPagesWritten.incrementAndGet();
     }
 
-    statsBytesWritten += buffer.size();
+    statsBytesWritten.addAndGet(toWrite.size());
 
-    if (sync == FLUSH_TYPE.YES_NOMETADATA)
-      channel.force(false);
-    else if (sync == FLUSH_TYPE.YES_FULL)
-      channel.force(true);
+    addBucketRecordDelta(bucketRecordDelta);
 
     database.executeCallbacks(DatabaseInternal.CALLBACK_EVENT.TX_AFTER_WAL_WRITE);
   }
 
+  /**
+   * Adds the records added or removed by a transaction written in the file to the total of the file.
+   */
+  public void addBucketRecordDelta(final Map<Integer, Integer> delta) {
+    for (final Map.Entry<Integer, Integer> entry : delta.entrySet())
+      bucketRecordDelta.merge(entry.getKey(), entry.getValue().longValue(), Long::sum);
+  }
+
+  /**
+   * Returns the records added (or removed if negative) in every bucket by the transactions written in the file.
+   */
+  public Map<Integer, Long> getBucketRecordDelta() {
+    return bucketRecordDelta;
+  }
+
   public void notifyPageFlushed() {
     pagesToFlush.decrementAndGet();
   }
@@ -315,6 +555,10 @@ public class WALFile extends LockContext {
     return channel.size();
   }
 
+  public String getFileName() {
+    return new File(filePath).getName();
+  }
+
   @Override
   public String toString() {
     return filePath;
@@ -322,8 +566,16 @@ public class WALFile extends LockContext {
 
   public Map<String, Object> getStats() {
     final Map<String, Object> map = new HashMap<>();
-    map.put("pagesWritten", statsPagesWritten);
-    map.put("bytesWritten", statsBytesWritten);
+    map.put("pagesWritten", statsPagesWritten.get());
+    map.put("bytesWritten", statsBytesWritten.get());
+    map.put("groupCommits", statsGroupCommits.get());
+    map.put("groupCommitTransactions", statsGroupCommitTxs.get());
+    map.put("syncs", statsSyncs.get());
+    map.put("syncTime", statsSyncTime.get() / 1000); // IN MICROSECONDS
+    map.put("compressedTransactions", statsCompressedTxs.get());
+    map.put("compressionBytesIn", statsCompressionIn.get());
+    map.put("compressionBytesOut", statsCompressionOut.get());
+    map.put("compressionTime", statsCompressTime.get() / 1000); // IN MICROSECONDS
     return map;
   }
 
@@ -356,4 +608,120 @@ public class WALFile extends LockContext {
     buffer.rewind();
     channel.write(buffer, channel.size());
   }
+
+  /**
+   * Writes all the buffers with one sequential write at the end of the file.
+   */
+  protected void append(final ByteBuffer[] buffers) throws IOException {
+    long toWrite = 0;
+    for (final ByteBuffer buffer : buffers) {
+      buffer.rewind();
+      toWrite += buffer.remaining();
+    }
+
+    channel.position(channel.size());
+    while (toWrite > 0)
+      toWrite -= channel.write(buffers);
+  }
+
+  /**
+   * The first thread that finds no group commit running becomes the leader: it writes the transactions of all the threads waiting
+   * with a single write and a single flush, then wakes them up. The other threads wait for the leader to complete.
+   */
+  private void groupCommit(final PendingWrite write) throws IOException {
+    boolean interrupted = false;
+    try {
+      synchronized (pendingWrites) {
+        pendingWrites.add(write);
+
+        while (groupCommitRunning && !write.done) {
+          try {
+            pendingWrites.wait();
+          } catch (final InterruptedException e) {
+            // THE TRANSACTION CANNOT BE ABORTED ONCE QUEUED, OTHERWISE IT COULD BE IN THE WAL WITHOUT BEING COMMITTED
+            interrupted = true;
+          }
+        }
+
+        if (write.done) {
+          if (write.error != null)
+            throw write.error;
+          return;
+        }
+
+        groupCommitRunning = true;
+      }
+
+      final long window = groupCommitWindow;
+      if (window > 0 && write.sync != FLUSH_TYPE.NO)
+        // GIVE THE CHANCE TO OTHER TRANSACTIONS TO JOIN THE BATCH
+        LockSupport.parkNanos(window * 1000);
+
+      List<PendingWrite> batch = Collections.emptyList();
+      IOException error = null;
+      try {
+        synchronized (pendingWrites) {
+          batch = new ArrayList<>(pendingWrites);
+          pendingWrites.clear();
+        }
+
+        writeBatch(batch);
+      } catch (final IOException e) {
+        error = e;
+      } finally {
+        synchronized (pendingWrites) {
+          for (final PendingWrite w : batch) {
+            w.error = error;
+            w.done = true;
+          }
+          groupCommitRunning = false;
+          pendingWrites.notifyAll();
+        }
+      }
+
+      if (error != null)
+        throw error;
+
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  private void writeBatch(final List<PendingWrite> batch) throws IOException {
+    FLUSH_TYPE sync = FLUSH_TYPE.NO;
+    final ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+    for (int i = 0; i < buffers.length; ++i) {
+      final PendingWrite w = batch.get(i);
+      buffers[i] = w.buffer;
+      if (w.sync.ordinal() > sync.ordinal())
+        sync = w.sync;
+    }
+
+    if (buffers.length == 1)
+      append(buffers[0]);
+    else
+      append(buffers);
+
+    statsGroupCommits.incrementAndGet();
+    statsGroupCommitTxs.addAndGet(buffers.length);
+
+    if (sync != FLUSH_TYPE.NO) {
+      final long beginTime = System.nanoTime();
+      channel.force(sync == FLUSH_TYPE.YES_FULL);
+      statsSyncTime.addAndGet(System.nanoTime() - beginTime);
+      statsSyncs.incrementAndGet();
+    }
+  }
+
+  private void waitForWriters() {
+    while (writers > 0) {
+      try {
+        wait();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+  }
 }
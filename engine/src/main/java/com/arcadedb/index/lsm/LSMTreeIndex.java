@@ -54,6 +54,7 @@ import com.arcadedb.utility.LockManager;
 import com.arcadedb.utility.RWLockContext;
 
 import java.io.*;
+import java.lang.ref.*;
 import java.nio.*;
 import java.util.*;
 import java.util.concurrent.atomic.*;
@@ -63,16 +64,24 @@ import java.util.logging.*;
  * LSM-Tree index implementation. It relies on a mutable index and its underlying immutable, compacted index.
  */
 public class LSMTreeIndex implements RangeIndex, IndexInternal {
-  private static final IndexCursor                   EMPTY_CURSOR       = new EmptyIndexCursor();
+  private static final IndexCursor                   EMPTY_CURSOR                        = new EmptyIndexCursor();
   private final        String                        name;
-  private final        RWLockContext                 lock               = new RWLockContext();
+  private final        RWLockContext                 lock                                = new RWLockContext();
   private              TypeIndex                     typeIndex;
-  private              int                           associatedBucketId = -1;
+  private              int                           associatedBucketId                  = -1;
   private              String                        typeName;
   protected            List<String>                  propertyNames;
   protected            LSMTreeIndexMutable           mutable;
-  protected final      AtomicReference<INDEX_STATUS> status             = new AtomicReference<>(INDEX_STATUS.AVAILABLE);
-  private              boolean                       valid              = true;
+  protected final      AtomicReference<INDEX_STATUS> status                              = new AtomicReference<>(INDEX_STATUS.AVAILABLE);
+  private              boolean                       valid                               = true;
+  // COMPACTION STATISTICS SINCE THE DATABASE WAS OPENED, USED TO COMPUTE THE WRITE AMPLIFICATION
+  final                AtomicLong                    statsLevel0Pages                    = new AtomicLong();
+  final                AtomicLong                    statsCompactionRuns                 = new AtomicLong();
+  final                AtomicLong                    statsCompactionPagesRead            = new AtomicLong();
+  final                AtomicLong                    statsCompactionPagesWritten         = new AtomicLong();
+  // PAGES SKIPPED THANKS TO THE BLOOM FILTERS, WITHOUT LOADING THEM OR AFTER LOADING THEM BUT WITHOUT SEARCHING INTO THEM
+  final                AtomicLong                    statsBloomFilterAvoidedPageReads    = new AtomicLong();
+  final                AtomicLong                    statsBloomFilterAvoidedPageSearches = new AtomicLong();
 
   public static class IndexFactoryHandler implements com.arcadedb.index.IndexFactoryHandler {
     @Override
@@ -216,6 +225,13 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
 
   @Override
   public boolean compact() throws IOException, InterruptedException {
+    return compact(0, null);
+  }
+
+  /**
+   * Compacts up to `maxPages` mutable pages (0 = all of them). If a scheduler is passed, the compaction is throttled by it.
+   */
+  public boolean compact(final int maxPages, final LSMTreeIndexCompactionScheduler scheduler) throws IOException, InterruptedException {
     checkIsValid();
     if (getDatabase().getMode() == ComponentFile.MODE.READ_ONLY)
       throw new DatabaseIsReadOnlyException("Cannot update the index '" + getName() + "'");
@@ -229,7 +245,7 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
       return false;
 
     try {
-      return new LSMTreeIndexCompactor().compact(this);
+      return new LSMTreeIndexCompactor().setMaxPages(maxPages).setScheduler(scheduler).compact(this);
     } catch (final TimeoutException e) {
       // IGNORE IT, WILL RETRY LATER
       return false;
@@ -456,7 +472,35 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
 
   @Override
   public Map<String, Long> getStats() {
-    return mutable.getStats();
+    final Map<String, Long> stats = mutable.getStats();
+    stats.put("compactionRuns", statsCompactionRuns.get());
+    stats.put("compactionPagesRead", statsCompactionPagesRead.get());
+    stats.put("compactionPagesWritten", statsCompactionPagesWritten.get());
+    stats.put("compactionDebt", (long) getCompactionDebt());
+    stats.put("level0Pages", statsLevel0Pages.get());
+    stats.put("bloomFilterAvoidedPageReads", statsBloomFilterAvoidedPageReads.get());
+    stats.put("bloomFilterAvoidedPageSearches", statsBloomFilterAvoidedPageSearches.get());
+    return stats;
+  }
+
+  /**
+   * Returns the number of mutable pages waiting for compaction.
+   */
+  public int getCompactionDebt() {
+    return mutable.getCompactionDebt();
+  }
+
+  /**
+   * Returns the write amplification of the index since the database was opened: the pages written by the foreground operations
+   * plus the pages written by the compaction, divided by the pages written by the foreground operations.
+   */
+  public double getWriteAmplification() {
+    final long level0Pages = statsLevel0Pages.get();
+    // AFTER A RESTART THE PAGES TO COMPACT COULD HAVE BEEN WRITTEN BEFORE: USE THE COMPACTED PAGES AS FOREGROUND PAGES
+    final long foregroundPages = level0Pages > 0 ? level0Pages : statsCompactionPagesRead.get();
+    if (foregroundPages == 0)
+      return 1D;
+    return (foregroundPages + statsCompactionPagesWritten.get()) / (double) foregroundPages;
   }
 
   @Override
@@ -506,6 +550,48 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
     return name;
   }
 
+  /**
+   * Used by the incremental compaction: publishes the new series of the compacted index and marks the first `compactedPages` pages of
+   * the mutable index as compacted. Unlike {@link #splitIndex(int, LSMTreeIndexCompacted)}, the pages left are not copied.
+   */
+  protected void setCompactedPages(final int compactedPages, final LSMTreeIndexCompacted compactedIndex) {
+    checkIsValid();
+    final DatabaseInternal database = getDatabase();
+    if (database.isTransactionActive())
+      throw new IllegalStateException("Cannot update compacted index because a transaction is active");
+
+    final int fileId = mutable.getFileId();
+
+    final LockManager.LOCK_STATUS locked = database.getTransactionManager().tryLockFile(fileId, 0);
+    if (locked == LockManager.LOCK_STATUS.NO)
+      throw new IllegalStateException("Cannot update compacted index because cannot lock index file " + fileId);
+
+    try {
+      lock.executeInWriteLock(() -> {
+        final boolean newSubIndex = mutable.getSubIndex() != compactedIndex;
+
+        final List<MutablePage> modifiedPages = new ArrayList<>(2);
+
+        final MutablePage subIndexMainPage = compactedIndex.setCompactedTotalPages();
+        modifiedPages.add(database.getPageManager().updatePageVersion(subIndexMainPage, false));
+
+        final MutablePage mainPage = mutable.setCompactedPages(compactedPages, compactedIndex);
+        modifiedPages.add(database.getPageManager().updatePageVersion(mainPage, false));
+
+        database.getPageManager().writePages(modifiedPages, false);
+
+        if (newSubIndex) {
+          compactedIndex.removeTempSuffix();
+          database.getSchema().getEmbedded().saveConfiguration();
+        }
+        return null;
+      });
+    } finally {
+      if (locked == LockManager.LOCK_STATUS.YES)
+        database.getTransactionManager().unlockFile(fileId);
+    }
+  }
+
   protected LSMTreeIndexMutable splitIndex(final int startingFromPage, final LSMTreeIndexCompacted compactedIndex) {
     checkIsValid();
     final DatabaseInternal database = getDatabase();
@@ -554,6 +640,8 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
           final ByteBuffer pageContent = currentPage.getContent();
           pageContent.rewind();
           newPage.getContent().put(pageContent);
+          // THE CURRENT PAGE CAN BE A VIEW OVER AN OFF-HEAP FRAME: KEEP IT REACHABLE UNTIL THE COPY IS COMPLETE
+          Reference.reachabilityFence(currentPage);
 
           modifiedPages.add(database.getPageManager().updatePageVersion(newPage, true));
           newMutableIndex.setPageCount(i + 2);
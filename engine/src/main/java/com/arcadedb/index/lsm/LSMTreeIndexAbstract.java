@@ -18,12 +18,16 @@
  */
 package com.arcadedb.index.lsm;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseFactory;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.RID;
 import com.arcadedb.engine.BasePage;
+import com.arcadedb.engine.BufferBloomFilter;
 import com.arcadedb.engine.ComponentFile;
+import com.arcadedb.engine.ImmutablePage;
+import com.arcadedb.engine.MurmurHash;
 import com.arcadedb.engine.MutablePage;
 import com.arcadedb.engine.PaginatedComponent;
 import com.arcadedb.index.IndexCursorEntry;
@@ -36,6 +40,8 @@ import com.arcadedb.serializer.BinaryTypes;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 import static com.arcadedb.database.Binary.BYTE_SERIALIZED_SIZE;
@@ -51,6 +57,9 @@ import static com.arcadedb.database.Binary.INT_SERIALIZED_SIZE;
  * HEADER ROOT PAGE (1st) = [offsetFreeKeyValueContent(int:4),numberOfEntries(int:4),mutable(boolean:1),compactedPageNumberOfSeries(int:4),subIndexFileId(int:4),numberOfKeys(byte:1),keyType(byte:1)*]
  * <br>
  * HEADER Nst PAGE        = [offsetFreeKeyValueContent(int:4),numberOfEntries(int:4),mutable(boolean:1),compactedPageNumberOfSeries(int:4)]
+ * <br>
+ * The "mutable" byte is a set of flags: bit 0 = mutable, bit 1 = the page has a Bloom filter of its keys. The Bloom filter is stored at the tail of the
+ * page as [bloomFilter(byte:bloomFilterSize),hashFunctions(byte:1),bloomFilterSize(int:4)], so the key/value pairs start before it.
  * <p>
  * <p>
  * The page content size and available space API are not valid in the index pages, because the whole page is used from start to end.
@@ -62,17 +71,28 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   public final           RID    REMOVED_ENTRY_RID;
   protected static final String TEMP_EXT      = "temp_";
 
-  protected static final LSMTreeIndexCompacted.LookupResult LOWER     = new LSMTreeIndexCompacted.LookupResult(false, true, 0, null);
-  protected static final LSMTreeIndexCompacted.LookupResult HIGHER    = new LSMTreeIndexCompacted.LookupResult(false, true, 0, null);
-  protected static final byte                               valueType = BinaryTypes.TYPE_COMPRESSED_RID;
-
-  protected       LSMTreeIndex     mainIndex;
-  protected final BinaryComparator comparator;
-  protected final BinarySerializer serializer;
-  protected final boolean          unique;
-  protected       Type[]           keyTypes;
-  protected       byte[]           binaryKeyTypes;
-  protected       NULL_STRATEGY    nullStrategy = NULL_STRATEGY.SKIP;
+  protected static final LSMTreeIndexCompacted.LookupResult LOWER                         = new LSMTreeIndexCompacted.LookupResult(false, true, 0, null);
+  protected static final LSMTreeIndexCompacted.LookupResult HIGHER                        = new LSMTreeIndexCompacted.LookupResult(false, true, 0, null);
+  protected static final byte                               valueType                     = BinaryTypes.TYPE_COMPRESSED_RID;
+  protected static final byte                               MUTABLE_PAGE_FLAG             = 1;
+  protected static final byte                               BLOOM_FILTER_PAGE_FLAG        = 2;
+  private static final   int                                BLOOM_FILTER_SEED             = 23;
+  private static final   int                                MIN_BLOOM_FILTER_SIZE         = 64;
+  private static final   int                                ESTIMATED_ENTRY_SIZE          = 16;
+
+  protected        LSMTreeIndex                    mainIndex;
+  protected final  BinaryComparator                comparator;
+  protected final  BinarySerializer                serializer;
+  protected final  boolean                         unique;
+  protected        Type[]                          keyTypes;
+  protected        byte[]                          binaryKeyTypes;
+  protected        NULL_STRATEGY                   nullStrategy        = NULL_STRATEGY.SKIP;
+  protected        int                             bloomFilterSize;
+  private          float                           bloomFilterFalsePositiveRate;
+  private volatile int                             bloomFilterPageEntries;
+  private          long                            bloomFilterCacheMaxRAM;
+  private final    AtomicLong                      bloomFilterCacheRAM = new AtomicLong();
+  private final    Map<Integer, BufferBloomFilter> bloomFilterCache    = new ConcurrentHashMap<>();
 
   protected static class LookupResult {
     public final boolean found;
@@ -111,6 +131,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
 
     this.nullStrategy = nullStrategy;
     REMOVED_ENTRY_RID = new RID(database, -1, -1L);
+    initBloomFilterSettings();
   }
 
   /**
@@ -126,6 +147,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     this.keyTypes = keyTypes;
     this.binaryKeyTypes = binaryKeyTypes;
     REMOVED_ENTRY_RID = new RID(database, -1, -1L);
+    initBloomFilterSettings();
   }
 
   /**
@@ -139,6 +161,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     this.comparator = serializer.getComparator();
     this.unique = unique;
     REMOVED_ENTRY_RID = new RID(database, -1, -1L);
+    initBloomFilterSettings();
   }
 
   /**
@@ -349,7 +372,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   }
 
   protected Object[] getPageKeyRange(final BasePage currentPage) {
-    final Binary currentPageBuffer = new Binary(currentPage.slice());
+    final Binary currentPageBuffer = currentPage.getView();
     final Object[] min = getKeyInPagePosition(currentPage.getPageId().getPageNumber(), currentPageBuffer, 0);
 
     final int count = getCount(currentPage);
@@ -493,11 +516,136 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   }
 
   protected boolean isMutable(final BasePage currentPage) {
-    return currentPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE) == 1;
+    return (currentPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE) & MUTABLE_PAGE_FLAG) != 0;
   }
 
   protected void setMutable(final MutablePage currentPage, final boolean mutable) {
-    currentPage.writeByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE, (byte) (mutable ? 1 : 0));
+    final byte flags = currentPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE);
+    currentPage.writeByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE, (byte) (mutable ? flags | MUTABLE_PAGE_FLAG : flags & ~MUTABLE_PAGE_FLAG));
+  }
+
+  protected boolean hasBloomFilter(final BasePage currentPage) {
+    return (currentPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE) & BLOOM_FILTER_PAGE_FLAG) != 0;
+  }
+
+  /**
+   * Reserves the Bloom filter at the tail of a new page, if enabled. Returns the page flags to write in the header. The offset of the free key/value content
+   * must be read after this call. The number of hash functions is computed from the target false positive rate and the number of entries of the last
+   * filled page.
+   */
+  protected byte reserveBloomFilter(final MutablePage currentPage, final boolean mutable) {
+    final int maxContentSize = currentPage.getMaxContentSize();
+    if (bloomFilterSize == 0) {
+      setValuesFreePosition(currentPage, maxContentSize);
+      return mutable ? MUTABLE_PAGE_FLAG : 0;
+    }
+
+    final int expectedEntries = bloomFilterPageEntries > 0 ? bloomFilterPageEntries : (maxContentSize - bloomFilterSize) / ESTIMATED_ENTRY_SIZE;
+    final int hashFunctions = BufferBloomFilter.getOptimalHashFunctions(bloomFilterSize * 8, expectedEntries, bloomFilterFalsePositiveRate);
+
+    currentPage.writeInt(maxContentSize - INT_SERIALIZED_SIZE, bloomFilterSize);
+    currentPage.writeByte(maxContentSize - INT_SERIALIZED_SIZE - BYTE_SERIALIZED_SIZE, (byte) hashFunctions);
+    setValuesFreePosition(currentPage, maxContentSize - INT_SERIALIZED_SIZE - BYTE_SERIALIZED_SIZE - bloomFilterSize);
+    return (byte) (mutable ? MUTABLE_PAGE_FLAG | BLOOM_FILTER_PAGE_FLAG : BLOOM_FILTER_PAGE_FLAG);
+  }
+
+  protected BufferBloomFilter getBloomFilter(final BasePage currentPage, final Binary currentPageBuffer) {
+    final byte flags = currentPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE);
+    if ((flags & BLOOM_FILTER_PAGE_FLAG) == 0)
+      return null;
+
+    final int maxContentSize = currentPage.getMaxContentSize();
+    final int size = currentPage.readInt(maxContentSize - INT_SERIALIZED_SIZE);
+    return new BufferBloomFilter(currentPageBuffer, getBloomFilterOffset(maxContentSize, size), size * 8, BLOOM_FILTER_SEED,
+        getBloomFilterHashFunctions(currentPage));
+  }
+
+  protected void addToBloomFilter(final BasePage currentPage, final Binary currentPageBuffer, final Object[] convertedKeys) {
+    final BufferBloomFilter filter = getBloomFilter(currentPage, currentPageBuffer);
+    if (filter != null) {
+      filter.add(hashKeys(convertedKeys));
+
+      // KEEP THE NUMBER OF ENTRIES OF THE FULLEST PAGE TO SIZE THE FILTERS OF THE NEXT PAGES
+      final int entries = getCount(currentPage) + 1;
+      if (entries > bloomFilterPageEntries)
+        bloomFilterPageEntries = entries;
+    }
+  }
+
+  /**
+   * Hashes the serialized form of the keys. The keys must be already converted.
+   */
+  protected int hashKeys(final Object[] convertedKeys) {
+    final Binary buffer = database.getContext().getTemporaryBuffer2();
+    buffer.clear();
+    writeKeys(buffer, convertedKeys);
+    return MurmurHash.hash32(buffer.getContent(), buffer.size(), BLOOM_FILTER_SEED);
+  }
+
+  /**
+   * Returns true if the Bloom filter of the page kept in RAM excludes the key, so the page does not need to be loaded.
+   */
+  protected boolean isExcludedByCachedBloomFilter(final int pageNum, final int keyHash) {
+    final BufferBloomFilter filter = bloomFilterCache.get(pageNum);
+    if (filter == null || filter.mightContain(keyHash))
+      return false;
+
+    if (mainIndex != null)
+      mainIndex.statsBloomFilterAvoidedPageReads.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Returns true if the Bloom filter stored in the page excludes the key, so the page does not need to be searched. The filters of the immutable pages
+   * are kept in RAM to avoid loading the page the next time.
+   */
+  protected boolean isExcludedByBloomFilter(final BasePage currentPage, final Binary currentPageBuffer, final int keyHash) {
+    final BufferBloomFilter filter = getBloomFilter(currentPage, currentPageBuffer);
+    if (filter == null)
+      return false;
+
+    if (currentPage instanceof ImmutablePage && !isMutable(currentPage))
+      // THE PAGE CANNOT CHANGE ANYMORE: CACHE ITS FILTER
+      cacheBloomFilter(currentPage);
+
+    if (filter.mightContain(keyHash))
+      return false;
+
+    if (mainIndex != null)
+      mainIndex.statsBloomFilterAvoidedPageSearches.incrementAndGet();
+    return true;
+  }
+
+  private void cacheBloomFilter(final BasePage currentPage) {
+    final int pageNum = currentPage.getPageId().getPageNumber();
+    if (bloomFilterCache.containsKey(pageNum))
+      return;
+
+    final int maxContentSize = currentPage.getMaxContentSize();
+    final int size = currentPage.readInt(maxContentSize - INT_SERIALIZED_SIZE);
+    if (bloomFilterCacheRAM.get() + size > bloomFilterCacheMaxRAM)
+      return;
+
+    final byte[] content = new byte[size];
+    currentPage.readByteArray(getBloomFilterOffset(maxContentSize, size), content);
+    if (bloomFilterCache.putIfAbsent(pageNum,
+        new BufferBloomFilter(new Binary(content), 0, size * 8, BLOOM_FILTER_SEED, getBloomFilterHashFunctions(currentPage))) == null)
+      bloomFilterCacheRAM.addAndGet(size);
+  }
+
+  private int getBloomFilterHashFunctions(final BasePage currentPage) {
+    return currentPage.readByte(currentPage.getMaxContentSize() - INT_SERIALIZED_SIZE - BYTE_SERIALIZED_SIZE);
+  }
+
+  private static int getBloomFilterOffset(final int maxContentSize, final int size) {
+    return maxContentSize - INT_SERIALIZED_SIZE - BYTE_SERIALIZED_SIZE - size;
+  }
+
+  private void initBloomFilterSettings() {
+    final int size = (int) ((long) pageSize * database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_BLOOM_FILTER_PAGE_PERCENTAGE) / 100);
+    bloomFilterSize = size >= MIN_BLOOM_FILTER_SIZE ? size : 0;
+    bloomFilterFalsePositiveRate = database.getConfiguration().getValueAsFloat(GlobalConfiguration.INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE);
+    bloomFilterCacheMaxRAM = database.getConfiguration().getValueAsLong(GlobalConfiguration.INDEX_BLOOM_FILTER_CACHE_RAM_MB) * 1024 * 1024;
   }
 
   protected void checkForNulls(final Object[] keys) {
@@ -116,7 +116,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       pageBuffer = currentPage.getTrackable();
       pageNum = currentPage.getPageId().getPageNumber();
       count = 0;
-      keyValueFreePosition = currentPage.getMaxContentSize();
+      keyValueFreePosition = getValuesFreePosition(currentPage);
     }
 
     keyValueFreePosition -= keyValueContent.size();
@@ -129,6 +129,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
 
     setCount(currentPage, count + 1);
     setValuesFreePosition(currentPage, keyValueFreePosition);
+    addToBloomFilter(currentPage, pageBuffer, convertedKeys);
 
     return currentPage;
   }
@@ -174,7 +175,8 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
     currentPage.writeInt(pos, 0); // ENTRIES COUNT
     pos += INT_SERIALIZED_SIZE;
 
-    currentPage.writeByte(pos, (byte) 0); // IMMUTABLE PAGE
+    // ROOT PAGES (SERIES NUMBER = 0) DO NOT HAVE THE BLOOM FILTER TO KEEP ALL THE SPACE FOR THE POINTERS TO THE PAGES
+    currentPage.writeByte(pos, compactedPageNumberOfSeries > 0 ? reserveBloomFilter(currentPage, false) : 0); // IMMUTABLE PAGE
     pos += BYTE_SERIALIZED_SIZE;
 
     currentPage.writeInt(pos, compactedPageNumberOfSeries); // COMPACTED PAGE NUMBER OF SERIES
@@ -247,7 +249,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       final int lastPageNumber = rootPageNumber + (ascendingOrder ? rootPageCount : 1);
 
       if (fromKeys != null) {
-        final Binary rootPageBuffer = new Binary(rootPage.slice());
+        final Binary rootPageBuffer = rootPage.getView();
 
         LookupResult resultInRootPage = lookupInPage(rootPageNumber, rootPageCount + 1, rootPageBuffer, fromKeys, 1);
         iterator = searchInCurrentPage(ascendingOrder, fromKeys, rootPageNumber, rootPageCount, rootPage, lastPageNumber, resultInRootPage);
@@ -286,7 +288,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       final int firstPageNumber = rootPageNumber + 1 + pageInSeries;
 
       final BasePage firstPage = database.getTransaction().getPage(new PageId(rootPage.getPageId().getFileId(), firstPageNumber), pageSize);
-      final Binary firstPageBuffer = new Binary(firstPage.slice());
+      final Binary firstPageBuffer = firstPage.getView();
 
       final LookupResult result = lookupInPage(firstPageNumber, getCount(firstPage), firstPageBuffer, convertedFromKeys, ascendingOrder ? 2 : 3);
 
@@ -332,6 +334,10 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       return;
     }
 
+    // BLOOM FILTERS CAN BE USED ONLY WITH THE COMPLETE KEY
+    final boolean useBloomFilter = convertedKeys.length == binaryKeyTypes.length;
+    final int keyHash = useBloomFilter ? hashKeys(convertedKeys) : 0;
+
     for (int pageNumber = mainPageCount - 1; pageNumber > 0; ) {
       final BasePage lastPage = database.getTransaction().getPage(new PageId(file.getFileId(), pageNumber), pageSize);
 
@@ -357,7 +363,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
         }
       }
 
-      final Binary rootPageBuffer = new Binary(rootPage.slice());
+      final Binary rootPageBuffer = rootPage.getView();
       final LookupResult resultInRootPage = lookupInPage(rootPage.getPageId().getPageNumber(), rootPageCount + 1, rootPageBuffer, convertedKeys, 0);
 
       if (!resultInRootPage.outside) {
@@ -373,10 +379,21 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
           --pageInSeries;
 
         final int pageNum = rootPage.getPageId().getPageNumber() + 1 + pageInSeries;
+
+        if (useBloomFilter && isExcludedByCachedBloomFilter(pageNum, keyHash)) {
+          --pageNumber;
+          continue;
+        }
+
         final BasePage currentPage = database.getTransaction().getPage(new PageId(file.getFileId(), pageNum), pageSize);
-        final Binary currentPageBuffer = new Binary(currentPage.slice());
+        final Binary currentPageBuffer = currentPage.getView();
         final int count = getCount(currentPage);
 
+        if (useBloomFilter && isExcludedByBloomFilter(currentPage, currentPageBuffer, keyHash)) {
+          --pageNumber;
+          continue;
+        }
+
         if (!lookupInPageAndAddInResultset(currentPage, currentPageBuffer, count, originalKeys, convertedKeys, limit, set, removedRIDs))
           return;
       }
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.DatabaseContext;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.EmbeddedDatabase;
+import com.arcadedb.index.IndexException;
+import com.arcadedb.index.IndexInternal;
+import com.arcadedb.log.LogManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+
+/**
+ * Background scheduler of LSM-Tree index compactions. It runs on its own bounded pool of threads, so compactions do not compete
+ * with the tasks of the asynchronous executor. Every run compacts at most `arcadedb.indexCompactionMaxPagesPerRun` pages: if the
+ * index still has enough pages to compact at the end of the run, the index is scheduled again. The I/O of the compaction is
+ * throttled by a maximum rate of pages per second and by backing off while the page flush queue is busy with foreground writes.
+ */
+public class LSMTreeIndexCompactionScheduler {
+  private static final int                FLUSH_QUEUE_BUSY_PERCENTAGE = 50;
+  private static final long               BACKOFF_STEP_MS             = 10;
+  private static final long               MAX_BACKOFF_MS              = 1_000;
+  private final        DatabaseInternal   database;
+  private final        ThreadPoolExecutor executor;
+  private final        int                maxPagesPerRun;
+  private final        int                maxPagesPerSecond;
+  private final        AtomicLong         runs                        = new AtomicLong();
+  private final        AtomicLong         throttledTime               = new AtomicLong();
+  private              long               nextWriteAllowedAt          = 0L;
+  private volatile     boolean            shutdown                    = false;
+
+  public LSMTreeIndexCompactionScheduler(final DatabaseInternal database) {
+    this.database = database;
+    this.maxPagesPerRun = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_MAX_PAGES_PER_RUN);
+    this.maxPagesPerSecond = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_MAX_PAGES_PER_SECOND);
+
+    final int threads = Math.max(1, database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_THREADS));
+    final AtomicInteger threadCounter = new AtomicInteger();
+
+    // THE QUEUE CANNOT CONTAIN MORE TASKS THAN THE INDEXES BECAUSE AN INDEX IS SCHEDULED ONLY WHEN IT IS AVAILABLE
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      final Thread t = new Thread(r, "IndexCompaction-" + database.getName() + "-" + threadCounter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Schedules the compaction of the index. Returns false if the index is already scheduled or under compaction.
+   */
+  public boolean schedule(final LSMTreeIndex index) {
+    if (shutdown || !index.scheduleCompaction())
+      return false;
+
+    try {
+      executor.execute(() -> compact(index));
+      return true;
+    } catch (final RejectedExecutionException e) {
+      index.setStatus(new IndexInternal.INDEX_STATUS[] { IndexInternal.INDEX_STATUS.COMPACTION_SCHEDULED }, IndexInternal.INDEX_STATUS.AVAILABLE);
+      return false;
+    }
+  }
+
+  /**
+   * Called by the compactor every time a page has been written. It blocks the compaction thread if the maximum rate of pages per
+   * second has been reached or if the foreground load is high.
+   */
+  public void onPageWritten() throws InterruptedException {
+    final long begin = System.nanoTime();
+
+    // BACK OFF WHILE THE FOREGROUND OPERATIONS ARE FILLING THE FLUSH QUEUE
+    for (long waited = 0; !shutdown && waited < MAX_BACKOFF_MS
+        && database.getPageManager().getPageFlushQueueUsage() > FLUSH_QUEUE_BUSY_PERCENTAGE; waited += BACKOFF_STEP_MS)
+      Thread.sleep(BACKOFF_STEP_MS);
+
+    if (maxPagesPerSecond > 0 && !shutdown) {
+      final long waitNanos;
+      synchronized (this) {
+        final long now = System.nanoTime();
+        if (nextWriteAllowedAt < now)
+          nextWriteAllowedAt = now;
+        waitNanos = nextWriteAllowedAt - now;
+        nextWriteAllowedAt += 1_000_000_000L / maxPagesPerSecond;
+      }
+      if (waitNanos > 0)
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    final long elapsed = System.nanoTime() - begin;
+    if (elapsed > 1_000_000)
+      throttledTime.addAndGet(elapsed / 1_000_000);
+  }
+
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  public int getMaxPagesPerRun() {
+    return maxPagesPerRun;
+  }
+
+  public boolean isProcessing() {
+    return executor.getActiveCount() > 0 || !executor.getQueue().isEmpty();
+  }
+
+  public Map<String, Object> getStats() {
+    final Map<String, Object> map = new HashMap<>();
+    map.put("indexCompactionRuns", runs.get());
+    map.put("indexCompactionQueue", (long) executor.getQueue().size());
+    map.put("indexCompactionThrottledTime", throttledTime.get());
+    return map;
+  }
+
+  /**
+   * Stops accepting new compactions and waits for the running ones to finish. Compactions are bounded in size, so the wait is
+   * bounded too.
+   */
+  public void close() {
+    shutdown = true;
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(5, TimeUnit.SECONDS))
+        LogManager.instance()
+            .log(this, Level.INFO, "Waiting for the running index compactions to finish on database '%s'...", null, database.getName());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Test only API. Interrupts the running compactions without waiting for them.
+   */
+  public void kill() {
+    shutdown = true;
+    executor.shutdownNow();
+  }
+
+  private void compact(final LSMTreeIndex index) {
+    DatabaseContext.INSTANCE.init(database);
+    try {
+      runs.incrementAndGet();
+      ((EmbeddedDatabase) database.getEmbedded()).indexCompactions.incrementAndGet();
+      index.compact(maxPagesPerRun, this);
+    } catch (final Exception e) {
+      if (e instanceof IllegalArgumentException && e.getMessage() != null && e.getMessage().contains("File with id ") && e.getMessage()
+          .contains("was not found"))
+        LogManager.instance().log(this, Level.SEVERE, "Error on executing compaction of index '%s' (%s)", index.getName(), e.getMessage());
+      else if (e instanceof IndexException && e.getMessage() != null && e.getMessage().contains("not valid"))
+        LogManager.instance().log(this, Level.SEVERE, "Error on executing compaction of index '%s' (%s)", index.getName(), e.getMessage());
+      else
+        LogManager.instance().log(this, Level.SEVERE, "Error on executing compaction of index '%s'", e, index.getName());
+      return;
+    } finally {
+      DatabaseContext.INSTANCE.removeContext(database.getDatabasePath());
+    }
+
+    // INCREMENTAL COMPACTION: RESCHEDULE IF THE INDEX STILL HAS ENOUGH PAGES TO COMPACT
+    if (!shutdown && index.isValid() && index.getMutableIndex().isCompactionNeeded())
+      schedule(index);
+  }
+}
@@ -36,13 +36,31 @@ import java.util.*;
 import java.util.logging.*;
 
 public class LSMTreeIndexCompactor {
-  private boolean debug = false;
+  private boolean                         debug     = false;
+  private int                             maxPages  = 0;
+  private LSMTreeIndexCompactionScheduler scheduler = null;
 
   public LSMTreeIndexCompactor setDebug(final boolean debug) {
     this.debug = debug;
     return this;
   }
 
+  /**
+   * Limits the number of mutable pages compacted by a single run. The pages left are compacted by the next runs. 0 = unlimited.
+   */
+  public LSMTreeIndexCompactor setMaxPages(final int maxPages) {
+    this.maxPages = maxPages;
+    return this;
+  }
+
+  /**
+   * Sets the scheduler that throttles the pages written by the compaction. Null means no throttling.
+   */
+  public LSMTreeIndexCompactor setScheduler(final LSMTreeIndexCompactionScheduler scheduler) {
+    this.scheduler = scheduler;
+    return this;
+  }
+
   public boolean compact(final LSMTreeIndex mainIndex) throws IOException, InterruptedException {
     final LSMTreeIndexMutable mutableIndex = mainIndex.getMutableIndex();
 
@@ -53,7 +71,10 @@ public class LSMTreeIndexCompactor {
         .log(mainIndex, Level.INFO, "Compacting index '%s' (pages=%d pageSize=%d threadId=%d)...", null, mutableIndex, totalPages, mutableIndex.getPageSize(),
             Thread.currentThread().getId());
 
-    if (totalPages < 2)
+    // THE FIRST PAGES COULD BE ALREADY COMPACTED BY A PREVIOUS INCREMENTAL RUN
+    final int firstPage = mutableIndex.getCompactedPages();
+
+    if (totalPages - firstPage < 2)
       return false;
 
     final long startTime = System.currentTimeMillis();
@@ -90,6 +111,7 @@ public class LSMTreeIndexCompactor {
 
     int pagesToCompact;
     int compactedPages = 0;
+    long writtenPages = 0;
 
     if (debug) {
       System.out.println("BEFORE COMPACTING:");
@@ -98,7 +120,7 @@ public class LSMTreeIndexCompactor {
 
     // FIND LAST IMMUTABLE PAGE TO COMPACT
     int lastImmutablePage = totalPages - 1;
-    for (int pageIndex = totalPages - 1; pageIndex > -1; --pageIndex) {
+    for (int pageIndex = totalPages - 1; pageIndex >= firstPage; --pageIndex) {
       final ImmutablePage page = database.getPageManager().getImmutablePage(new PageId(mutableIndex.getFileId(), pageIndex), mutableIndex.getPageSize(), false, true);
       if (!mutableIndex.isMutable(page)) {
         lastImmutablePage = pageIndex;
@@ -106,10 +128,16 @@ public class LSMTreeIndexCompactor {
       }
     }
 
-    LogManager.instance().log(mainIndex, Level.WARNING, "- Compacting pages 0-%d (threadId=%d)", null, lastImmutablePage, Thread.currentThread().getId());
+    int lastPageToCompact = lastImmutablePage;
+    if (maxPages > 0 && lastImmutablePage - firstPage >= maxPages)
+      // INCREMENTAL COMPACTION: THE REMAINING PAGES WILL BE COMPACTED BY THE NEXT RUN
+      lastPageToCompact = firstPage + maxPages - 1;
 
-    for (int pageIndex = 0; pageIndex <= lastImmutablePage; ) {
-      final long totalRAMNeeded = (lastImmutablePage - pageIndex + 1L) * mutableIndex.getPageSize();
+    LogManager.instance()
+        .log(mainIndex, Level.WARNING, "- Compacting pages %d-%d (threadId=%d)", null, firstPage, lastPageToCompact, Thread.currentThread().getId());
+
+    for (int pageIndex = firstPage; pageIndex <= lastPageToCompact; ) {
+      final long totalRAMNeeded = (lastPageToCompact - pageIndex + 1L) * mutableIndex.getPageSize();
 
       if (totalRAMNeeded > indexCompactionRAM) {
         pagesToCompact = (int) (indexCompactionRAM / mutableIndex.getPageSize());
@@ -117,7 +145,7 @@ public class LSMTreeIndexCompactor {
             .log(mainIndex, Level.WARNING, "- Creating partial index with %d pages by using %s (totalRAMNeeded=%s, threadId=%d)", null, pagesToCompact,
                 FileUtils.getSizeAsString(indexCompactionRAM), FileUtils.getSizeAsString(totalRAMNeeded), Thread.currentThread().getId());
       } else
-        pagesToCompact = lastImmutablePage - pageIndex + 1;
+        pagesToCompact = lastPageToCompact - pageIndex + 1;
 
       // CREATE ROOT PAGE
       final MutablePage rootPage = compactedIndex.createNewPage(0);
@@ -236,6 +264,10 @@ public class LSMTreeIndexCompactor {
 
           if (newPage != lastPage) {
             ++compactedPageNumberInSeries;
+            ++writtenPages;
+
+            if (scheduler != null)
+              scheduler.onPageWritten();
 
             if (rootPage != null) {
               // NEW PAGE: STORE THE MIN KEY IN THE ROOT PAGE
@@ -298,11 +330,14 @@ public class LSMTreeIndexCompactor {
 
       database.getPageManager().writePages(modifiedPages, false);
 
+      // ROOT PAGE
+      ++writtenPages;
+
       compactedPages += pagesToCompact;
 
       LogManager.instance().log(mainIndex, Level.WARNING,
           "- compacted %d pages, remaining %d pages (totalKeys=%d totalValues=%d totalMergedKeys=%d totalMergedValues=%d, threadId=%d)", null, compactedPages,
-          (lastImmutablePage - compactedPages + 1), totalKeys, totalValues, totalMergedKeys, totalMergedValues, Thread.currentThread().getId());
+          (lastPageToCompact - firstPage - compactedPages + 1), totalKeys, totalValues, totalMergedKeys, totalMergedValues, Thread.currentThread().getId());
 
       pageIndex += pagesToCompact;
     }
@@ -310,11 +345,24 @@ public class LSMTreeIndexCompactor {
     final String oldMutableFileName = mutableIndex.getName();
     final int oldMutableFileId = mutableIndex.getFileId();
 
-    final LSMTreeIndexMutable newIndex = mainIndex.splitIndex(lastImmutablePage + 1, compactedIndex);
+    if (lastPageToCompact < lastImmutablePage)
+      // INCREMENTAL COMPACTION: THE PAGES LEFT STAY IN THE CURRENT MUTABLE INDEX WITHOUT BEING COPIED, THE NEXT RUN STARTS FROM THERE
+      mainIndex.setCompactedPages(lastPageToCompact + 1, compactedIndex);
+    else {
+      final LSMTreeIndexMutable newIndex = mainIndex.splitIndex(lastImmutablePage + 1, compactedIndex);
+
+      // ONLY THE PAGES STILL MUTABLE ARE COPIED IN THE NEW MUTABLE INDEX
+      writtenPages += newIndex.getTotalPages();
+    }
+
+    mainIndex.statsCompactionRuns.incrementAndGet();
+    mainIndex.statsCompactionPagesRead.addAndGet(compactedPages);
+    mainIndex.statsCompactionPagesWritten.addAndGet(writtenPages);
 
     LogManager.instance().log(mainIndex, Level.WARNING, String.format(
         "Index '%s' compacted in %dms (keys=%d values=%d mutablePages=%d immutablePages=%d iterations=%d oldLevel0File=%s(%d) newLevel0File=%s(%d) newLevel1File=%s(%d) threadId=%d)",
-        mainIndex.getName(), (System.currentTimeMillis() - startTime), totalKeys, totalValues, newIndex.getTotalPages(), compactedIndex.getTotalPages(),
+        mainIndex.getName(), (System.currentTimeMillis() - startTime), totalKeys, totalValues, mainIndex.getMutableIndex().getTotalPages(),
+        compactedIndex.getTotalPages(),
         iterations, oldMutableFileName, oldMutableFileId, mainIndex.getMutableIndex().getName(), mainIndex.getMutableIndex().getFileId(),
         compactedIndex.getName(), compactedIndex.getFileId(), Thread.currentThread().getId()));
 
@@ -79,6 +79,8 @@ public class LSMTreeIndexCursor implements IndexCursor {
     final BinarySerializer serializer = index.getDatabase().getSerializer();
     this.comparator = serializer.getComparator();
 
+    // THE FIRST PAGES COULD BE ALREADY COMPACTED IN THE SUB-INDEX. READ IT BEFORE THE SUB-INDEX, SO A CONCURRENT COMPACTION CANNOT HIDE ANY PAGE
+    final int compactedPages = index.getCompactedPages();
     final LSMTreeIndexCompacted compacted = index.getSubIndex();
 
     final List<LSMTreeIndexUnderlyingCompactedSeriesCursor> compactedSeriesIterators;
@@ -113,14 +115,14 @@ public class LSMTreeIndexCursor implements IndexCursor {
     }
 
     int pageCounter = 0;
-    for (int pageId = totalPages - 1; pageId > -1; --pageId) {
+    for (int pageId = totalPages - 1; pageId >= compactedPages; --pageId) {
       final int cursorIdx = pageCounter;
 
       if (serializedFromKeys != null) {
         // SEEK FOR THE FROM RANGE
         final BasePage currentPage = index.getDatabase().getTransaction()
             .getPage(new PageId(index.getFileId(), pageId), index.getPageSize());
-        final Binary currentPageBuffer = new Binary(currentPage.slice());
+        final Binary currentPageBuffer = currentPage.getView();
         final int count = index.getCount(currentPage);
 
         if (count > 0) {
@@ -21,10 +21,10 @@ package com.arcadedb.index.lsm;
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.EmbeddedDatabase;
 import com.arcadedb.database.Identifiable;
 import com.arcadedb.database.RID;
 import com.arcadedb.database.TrackableBinary;
-import com.arcadedb.database.async.DatabaseAsyncExecutorImpl;
 import com.arcadedb.engine.BasePage;
 import com.arcadedb.engine.ComponentFile;
 import com.arcadedb.engine.MutablePage;
@@ -50,10 +50,11 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
   public static final int                   CURRENT_VERSION     = 1;
   public static final String                UNIQUE_INDEX_EXT    = "umtidx";
   public static final String                NOTUNIQUE_INDEX_EXT = "numtidx";
-  private             LSMTreeIndexCompacted subIndex            = null;
+  private volatile    LSMTreeIndexCompacted subIndex            = null;
   private final       AtomicLong            statsAdjacentSteps  = new AtomicLong();
   private             int                   minPagesToScheduleACompaction;
   private             int                   currentMutablePages = 0;
+  private volatile    int                   compactedPages      = 0;
 
   /**
    * Called at creation time.
@@ -105,7 +106,10 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
     try {
       final BasePage currentPage = this.database.getTransaction().getPage(new PageId(file.getFileId(), 0), pageSize);
 
-      int pos = INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE + BYTE_SERIALIZED_SIZE + INT_SERIALIZED_SIZE;
+      int pos = INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE + BYTE_SERIALIZED_SIZE;
+
+      compactedPages = currentPage.readInt(pos);
+      pos += INT_SERIALIZED_SIZE;
 
       // TODO: COUNT THE MUTABLE PAGES FROM THE TAIL BACK TO THE HEAD
       currentMutablePages = 1;
@@ -146,10 +150,46 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
       LogManager.instance()
           .log(this, Level.FINE, "Scheduled compaction of index '%s' (currentMutablePages=%d totalPages=%d)", null, componentName,
               currentMutablePages, getTotalPages());
-      ((DatabaseAsyncExecutorImpl) database.async()).compact(mainIndex);
+      ((EmbeddedDatabase) database.getEmbedded()).getIndexCompactionScheduler().schedule(mainIndex);
     }
   }
 
+  /**
+   * Returns the number of pages waiting to be compacted. The last page is excluded because it is still receiving new entries.
+   */
+  public int getCompactionDebt() {
+    return Math.max(0, getTotalPages() - 1 - compactedPages);
+  }
+
+  /**
+   * Returns the number of pages, starting from the first one, whose entries are already in the sub-index. Those pages are skipped by
+   * lookups and cursors and they are dropped at the next split of the index.
+   */
+  public int getCompactedPages() {
+    return compactedPages;
+  }
+
+  /**
+   * Marks the first `compactedPages` pages as compacted into the sub-index without copying the pages left. The returned main page
+   * must be written by the caller in the same exclusive lock of the swap of the compacted index.
+   */
+  protected MutablePage setCompactedPages(final int compactedPages, final LSMTreeIndexCompacted compactedIndex) throws IOException {
+    final MutablePage mainPage = database.getPageManager().getMutablePage(new PageId(file.getFileId(), 0), pageSize, false, true);
+    int pos = INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE + BYTE_SERIALIZED_SIZE;
+    mainPage.writeInt(pos, compactedPages);
+    pos += INT_SERIALIZED_SIZE;
+    mainPage.writeInt(pos, compactedIndex.getFileId());
+
+    this.subIndex = compactedIndex;
+    this.compactedPages = compactedPages;
+    this.currentMutablePages = getCompactionDebt();
+    return mainPage;
+  }
+
+  public boolean isCompactionNeeded() {
+    return minPagesToScheduleACompaction > 0 && getCompactionDebt() >= minPagesToScheduleACompaction;
+  }
+
   public void put(final Object[] keys, final RID[] rids) {
     if (rids == null)
       throw new IllegalArgumentException("RIDs is null");
@@ -378,7 +418,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
     currentPage.writeInt(pos, 0); // ENTRIES COUNT
     pos += INT_SERIALIZED_SIZE;
 
-    currentPage.writeByte(pos, (byte) 1); // MUTABLE PAGE
+    currentPage.writeByte(pos, reserveBloomFilter(currentPage, true)); // MUTABLE PAGE
     pos += BYTE_SERIALIZED_SIZE;
 
     currentPage.writeInt(pos, 0); // COMPACTED PAGES
@@ -400,22 +440,34 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
 
   private void searchInNonCompactedIndex(final Object[] originalKeys, final Object[] convertedKeys, final int limit,
       final Set<IndexCursorEntry> set, final Set<RID> removedRIDs) throws IOException {
-    // SEARCH FROM THE LAST PAGE BACK
+    // SEARCH FROM THE LAST PAGE BACK. THE FIRST PAGES COULD BE ALREADY COMPACTED IN THE SUB-INDEX
+    final int firstPage = compactedPages;
     final int totalPages = getTotalPages();
 
-    for (int p = totalPages - 1; p > -1; --p) {
+    // BLOOM FILTERS CAN BE USED ONLY WITH THE COMPLETE KEY
+    final boolean useBloomFilter = convertedKeys.length == binaryKeyTypes.length;
+    final int keyHash = useBloomFilter ? hashKeys(convertedKeys) : 0;
+
+    for (int p = totalPages - 1; p >= firstPage; --p) {
+      if (useBloomFilter && isExcludedByCachedBloomFilter(p, keyHash))
+        continue;
+
       final BasePage currentPage = database.getTransaction().getPage(new PageId(file.getFileId(), p), pageSize);
-      final Binary currentPageBuffer = new Binary(currentPage.slice());
+      final Binary currentPageBuffer = currentPage.getView();
       final int count = getCount(currentPage);
 
       if (count < 1)
         continue;
 
+      if (useBloomFilter && isExcludedByBloomFilter(currentPage, currentPageBuffer, keyHash))
+        continue;
+
       if (!lookupInPageAndAddInResultset(currentPage, currentPageBuffer, count, originalKeys, convertedKeys, limit, set,
           removedRIDs))
         return;
     }
 
+    final LSMTreeIndexCompacted subIndex = this.subIndex;
     if (subIndex != null)
       // CONTINUE ON THE SUB-INDEX
       subIndex.searchInCompactedIndex(originalKeys, convertedKeys, limit, set, removedRIDs);
@@ -476,6 +528,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         newPage = true;
 
         currentPage = createNewPage();
+        mainIndex.statsLevel0Pages.incrementAndGet();
 
         assert isMutable(currentPage);
 
@@ -483,7 +536,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         pageNum = currentPage.getPageId().getPageNumber();
         count = 0;
         keyIndex = 0;
-        keyValueFreePosition = currentPage.getMaxContentSize();
+        keyValueFreePosition = getValuesFreePosition(currentPage);
       }
 
       keyValueFreePosition -= keyValueContent.size();
@@ -500,6 +553,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
 
       setCount(currentPage, count + 1);
       setValuesFreePosition(currentPage, keyValueFreePosition);
+      addToBloomFilter(currentPage, currentPageBuffer, convertedKeys);
 
       if (LogManager.instance().isDebugEnabled())
         LogManager.instance().log(this, Level.FINE, "Put entry %s=%s in index '%s' (page=%s countInPage=%d newPage=%s thread=%d)",
@@ -600,6 +654,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         newPage = true;
 
         currentPage = createNewPage();
+        mainIndex.statsLevel0Pages.incrementAndGet();
 
         assert isMutable(currentPage);
 
@@ -607,7 +662,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         pageNum = currentPage.getPageId().getPageNumber();
         count = 0;
         keyIndex = 0;
-        keyValueFreePosition = currentPage.getMaxContentSize();
+        keyValueFreePosition = getValuesFreePosition(currentPage);
       }
 
       keyValueFreePosition -= keyValueContent.size();
@@ -624,6 +679,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
 
       setCount(currentPage, count + 1);
       setValuesFreePosition(currentPage, keyValueFreePosition);
+      addToBloomFilter(currentPage, currentPageBuffer, convertedKeys);
 
       if (LogManager.instance().isDebugEnabled())
         LogManager.instance()
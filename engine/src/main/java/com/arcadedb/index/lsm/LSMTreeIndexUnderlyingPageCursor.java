@@ -43,7 +43,7 @@ public class LSMTreeIndexUnderlyingPageCursor extends LSMTreeIndexUnderlyingAbst
 
     this.keyStartPosition = keyStartPosition;
     this.pageId = page.getPageId();
-    this.buffer = new Binary(page.slice());
+    this.buffer = page.getView();
     this.currentEntryIndex = currentEntryInPage;
   }
 
@@ -18,6 +18,8 @@
  */
 package com.arcadedb.query.sql.executor;
 
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.query.sql.parser.Expression;
 import com.arcadedb.query.sql.parser.GroupBy;
 import com.arcadedb.query.sql.parser.Projection;
@@ -27,6 +29,10 @@ import java.util.*;
 
 /**
  * Created by luigidellaquila on 12/07/16.
+ * <br>
+ * Groups are kept in a hash map. When the map reaches `arcadedb.querySpillHeapElements` groups, the rows of the groups not in heap
+ * are spilled to hash partitions on disk by GROUP BY key, and every partition is aggregated on its own when the groups in heap
+ * have been returned (grace hash). Only the groups of one partition are in heap at the same time.
  */
 public class AggregateProjectionCalculationStep extends ProjectionCalculationStep {
 
@@ -35,8 +41,17 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
   private final long    limit;
 
   //the key is the GROUP BY key, the value is the (partially) aggregated value
-  private final Map<List, ResultInternal> aggregateResults = new LinkedHashMap<>();
-  private       List<ResultInternal>      finalResults     = null;
+  private final Map<List, ResultInternal>   aggregateResults  = new LinkedHashMap<>();
+  private       List<ResultInternal>        finalResults      = null;
+  private final DatabaseInternal            database;
+  private final long                        spillHeapElements;
+  private final boolean                     spillEnabled;
+  private       ResultHashPartitions        partitions        = null;
+  private final Deque<ResultHashPartitions> pendingPartitions = new ArrayDeque<>();
+  private       int                         currentLevel      = 0;
+  private       long                        timeoutBegin;
+  private       long                        peakHeapElements  = 0;
+  private       long                        spilledElements   = 0;
 
   private int nextItem = 0;
 
@@ -46,6 +61,12 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     this.groupBy = groupBy;
     this.timeoutMillis = timeoutMillis;
     this.limit = limit;
+    this.database = context == null ? null : context.getDatabase();
+    this.spillHeapElements = database == null ?
+        GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.getValueAsLong() :
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS);
+    // WITH A LIMIT THE NUMBER OF GROUPS IS ALREADY BOUNDED
+    this.spillEnabled = database != null && spillHeapElements > 0 && groupBy != null && limit <= 0;
   }
 
   @Override
@@ -59,12 +80,15 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
       @Override
       public boolean hasNext() {
+        while (nextItem >= finalResults.size() && aggregateNextPartition(context)) {
+          // THE GROUPS OF THE NEXT SPILLED PARTITION ARE READY
+        }
         return localNext <= nRecords && nextItem < finalResults.size();
       }
 
       @Override
       public Result next() {
-        if (localNext > nRecords || nextItem >= finalResults.size()) {
+        if (!hasNext()) {
           throw new NoSuchElementException();
         }
         final Result result = finalResults.get(nextItem);
@@ -75,26 +99,63 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     };
   }
 
+  @Override
+  public void close() {
+    if (partitions != null)
+      partitions.close();
+    for (final ResultHashPartitions p : pendingPartitions)
+      p.close();
+    pendingPartitions.clear();
+    super.close();
+  }
+
   private void executeAggregation(final CommandContext context, final int nRecords) {
-    final long timeoutBegin = System.currentTimeMillis();
+    timeoutBegin = System.currentTimeMillis();
 
     final ExecutionStepInternal prevStep = checkForPrevious("Cannot execute an aggregation or a GROUP BY without a previous result");
     ResultSet lastRs = prevStep.syncPull(context, nRecords);
     while (lastRs.hasNext()) {
-      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
-        sendTimeout();
-      }
+      checkTimeout();
       aggregate(lastRs.next(), context);
       if (!lastRs.hasNext()) {
         lastRs = prevStep.syncPull(context, nRecords);
       }
     }
+    completePass();
+  }
+
+  /**
+   * Aggregates the rows of the next spilled partition. Returns false if there are no more partitions.
+   */
+  private boolean aggregateNextPartition(final CommandContext context) {
+    while (!pendingPartitions.isEmpty()) {
+      final ResultHashPartitions next = pendingPartitions.peek();
+      final Iterator<Result> partition = next.nextPartition();
+      if (partition == null) {
+        pendingPartitions.poll().close();
+        continue;
+      }
+
+      currentLevel = next.getLevel() + 1;
+      while (partition.hasNext()) {
+        checkTimeout();
+        aggregate(partition.next(), context);
+      }
+      completePass();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Finalizes the groups in heap, that become the next results to return.
+   */
+  private void completePass() {
     finalResults = new ArrayList<>(aggregateResults.values());
+    nextItem = 0;
     aggregateResults.clear();
     for (final ResultInternal item : finalResults) {
-      if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
-        sendTimeout();
-      }
+      checkTimeout();
       for (final String name : item.getTemporaryProperties()) {
         final Object prevVal = item.getTemporaryProperty(name);
         if (prevVal instanceof AggregationContext) {
@@ -102,6 +163,17 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
         }
       }
     }
+
+    if (partitions != null) {
+      pendingPartitions.push(partitions);
+      partitions = null;
+    }
+  }
+
+  private void checkTimeout() {
+    if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
+      sendTimeout();
+    }
   }
 
   private void aggregate(final Result next, final CommandContext context) {
@@ -119,6 +191,14 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
         if (limit > 0 && aggregateResults.size() > limit) {
           return;
         }
+
+        if (partitions != null) {
+          // THE GROUP IS NOT IN HEAP: AGGREGATE THE ROW LATER WITH THE OTHER ROWS OF THE SAME PARTITION
+          partitions.add(next, key.hashCode());
+          ++spilledElements;
+          return;
+        }
+
         preAggr = new ResultInternal();
 
         for (final ProjectionItem proj : this.projection.getItems()) {
@@ -128,6 +208,14 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
           }
         }
         aggregateResults.put(key, preAggr);
+
+        if (aggregateResults.size() > peakHeapElements)
+          peakHeapElements = aggregateResults.size();
+
+        if (spillEnabled && partitions == null && aggregateResults.size() >= spillHeapElements
+            && currentLevel <= ResultHashPartitions.MAX_LEVEL)
+          // FROM NOW ON THE ROWS OF THE NEW GROUPS GO TO DISK
+          partitions = new ResultHashPartitions(database, currentLevel);
       }
 
       for (final ProjectionItem proj : this.projection.getItems()) {
@@ -156,6 +244,8 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
       result += " (" + getCostFormatted() + ")";
     }
     result += "\n" + spaces + "      " + projection.toString() + "" + (groupBy == null ? "" : (spaces + "\n  " + groupBy));
+    if (profilingEnabled)
+      result += "\n" + spaces + "  (peak heap elements: " + peakHeapElements + ", spilled elements: " + spilledElements + ")";
     return result;
   }
 
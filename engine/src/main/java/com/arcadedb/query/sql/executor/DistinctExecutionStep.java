@@ -19,7 +19,7 @@
 package com.arcadedb.query.sql.executor;
 
 import com.arcadedb.GlobalConfiguration;
-import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.RID;
 import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.exception.TimeoutException;
@@ -28,20 +28,38 @@ import java.util.*;
 
 /**
  * Created by luigidellaquila on 08/07/16.
+ * <br>
+ * Records are deduplicated by RID. The other results are kept in a hash set: when the set reaches `arcadedb.querySpillHeapElements`
+ * elements, the new results not in the set are spilled to hash partitions on disk, and every partition is deduplicated on its own
+ * once the previous step is exhausted (grace hash).
  */
 public class DistinctExecutionStep extends AbstractExecutionStep {
   final Set<Result> pastItems = new HashSet<>();
   final RidSet      pastRids  = new RidSet();
   ResultSet lastResult = null;
   Result    nextValue;
-  private final long maxElementsAllowed;
+  private final long                        maxElementsAllowed;
+  private final long                        spillHeapElements;
+  private final DatabaseInternal            database;
+  private final boolean                     spillEnabled;
+  private       ResultHashPartitions        partitions         = null;
+  private final Deque<ResultHashPartitions> pendingPartitions  = new ArrayDeque<>();
+  private       Iterator<Result>            currentPartition   = null;
+  private       int                         currentLevel       = 0;
+  private       boolean                     prevExhausted      = false;
+  private       long                        peakHeapElements   = 0;
+  private       long                        spilledElements    = 0;
 
   public DistinctExecutionStep(final CommandContext context, final boolean profilingEnabled) {
     super(context, profilingEnabled);
-    final Database db = context == null ? null : context.getDatabase();
-    maxElementsAllowed = db == null ?
+    database = context == null ? null : context.getDatabase();
+    maxElementsAllowed = database == null ?
         GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong() :
-        db.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+    spillHeapElements = database == null ?
+        GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.getValueAsLong() :
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS);
+    spillEnabled = database != null && spillHeapElements > 0;
   }
 
   @Override
@@ -87,19 +105,14 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
       if (nextValue != null) {
         return;
       }
-      if (lastResult == null || !lastResult.hasNext()) {
-        lastResult = getPrev().syncPull(context, nRecords);
-      }
-      if (lastResult == null || !lastResult.hasNext()) {
+      final Result next = fetchNextInput(nRecords);
+      if (next == null) {
         return;
       }
       final long begin = profilingEnabled ? System.nanoTime() : 0;
       try {
-        nextValue = lastResult.next();
-        if (alreadyVisited(nextValue)) {
-          nextValue = null;
-        } else {
-          markAsVisited(nextValue);
+        if (!alreadyVisited(next) && markAsVisited(next)) {
+          nextValue = next;
         }
       } finally {
         if (profilingEnabled) {
@@ -109,23 +122,94 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     }
   }
 
-  private void markAsVisited(final Result nextValue) {
+  /**
+   * Returns the next result of the previous step. Once the previous step is exhausted, returns the results of the spilled
+   * partitions, one partition at a time.
+   */
+  private Result fetchNextInput(final int nRecords) {
+    if (!prevExhausted) {
+      if (lastResult == null || !lastResult.hasNext()) {
+        lastResult = getPrev().syncPull(context, nRecords);
+      }
+      if (lastResult != null && lastResult.hasNext()) {
+        return lastResult.next();
+      }
+      prevExhausted = true;
+      completePass();
+    }
+
+    while (true) {
+      if (currentPartition != null && currentPartition.hasNext()) {
+        return currentPartition.next();
+      }
+
+      if (currentPartition != null) {
+        currentPartition = null;
+        completePass();
+      }
+
+      final ResultHashPartitions next = pendingPartitions.peek();
+      if (next == null) {
+        return null;
+      }
+
+      currentPartition = next.nextPartition();
+      if (currentPartition == null) {
+        pendingPartitions.poll().close();
+        continue;
+      }
+      currentLevel = next.getLevel() + 1;
+    }
+  }
+
+  /**
+   * Called when all the results of the previous step or of a partition have been processed: the items in heap are not needed
+   * anymore, because the spilled results are not among them.
+   */
+  private void completePass() {
+    pastItems.clear();
+    if (partitions != null) {
+      pendingPartitions.push(partitions);
+      partitions = null;
+    }
+  }
+
+  /**
+   * Returns true if the result is new and must be returned, false if it has been spilled to disk to be checked later.
+   */
+  private boolean markAsVisited(final Result nextValue) {
     if (nextValue.isElement()) {
       final RID identity = nextValue.getElement().get().getIdentity();
       final int bucket = identity.getBucketId();
       final long pos = identity.getPosition();
       if (bucket >= 0 && pos >= 0) {
         pastRids.add(identity);
-        return;
+        return true;
       }
     }
+
+    if (partitions != null) {
+      partitions.add(nextValue, nextValue.hashCode());
+      ++spilledElements;
+      return false;
+    }
+
     pastItems.add(nextValue);
+    if (pastItems.size() > peakHeapElements)
+      peakHeapElements = pastItems.size();
+
     if (maxElementsAllowed > 0 && maxElementsAllowed < pastItems.size()) {
       this.pastItems.clear();
       throw new CommandExecutionException(
           "Limit of allowed elements for in-heap DISTINCT in a single query exceeded (" + maxElementsAllowed + ") . You can set "
               + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
     }
+
+    if (spillEnabled && partitions == null && pastItems.size() >= spillHeapElements && currentLevel <= ResultHashPartitions.MAX_LEVEL)
+      // FROM NOW ON THE NEW RESULTS NOT IN HEAP GO TO DISK
+      partitions = new ResultHashPartitions(database, currentLevel);
+
+    return true;
   }
 
   private boolean alreadyVisited(final Result nextValue) {
@@ -147,6 +231,12 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
 
   @Override
   public void close() {
+    if (partitions != null)
+      partitions.close();
+    for (final ResultHashPartitions p : pendingPartitions)
+      p.close();
+    pendingPartitions.clear();
+
     if (prev != null)
       prev.close();
   }
@@ -156,6 +246,8 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     String result = ExecutionStepInternal.getIndent(depth, indent) + "+ DISTINCT";
     if (profilingEnabled) {
       result += " (" + getCostFormatted() + ")";
+      result += "\n" + ExecutionStepInternal.getIndent(depth, indent) + "  (peak heap elements: " + peakHeapElements + ", spilled elements: "
+          + spilledElements + ")";
     }
     return result;
   }
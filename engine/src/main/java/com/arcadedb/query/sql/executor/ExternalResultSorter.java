@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.log.LogManager;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+
+/**
+ * Sorts a stream of results of unknown size keeping at most `maxHeapElements` results in heap. When the buffer is full, it is
+ * sorted and written as a run to a temporary {@link ResultSpillFile}. At the end, the runs and the remaining buffer are merged
+ * with a k-way merge. The sort is stable: results considered equal by the comparator are returned in the order they were added.
+ * <br>
+ * If a result cannot be written to disk, the spilling is disabled and the remaining results are kept in heap.
+ */
+public class ExternalResultSorter implements Closeable {
+  private static final int                   MAX_MERGE_FAN_IN = 64;
+  private final        DatabaseInternal      database;
+  private final        Comparator<Result>    comparator;
+  private final        long                  maxHeapElements;
+  private              List<Result>          buffer           = new ArrayList<>();
+  private              List<ResultSpillFile> runs             = new ArrayList<>();
+  private              boolean               spillEnabled;
+  private              long                  spilledElements  = 0;
+  private              int                   spilledRuns      = 0;
+  private              long                  peakHeapElements = 0;
+
+  /**
+   * @param maxHeapElements maximum number of results kept in heap before spilling a sorted run to disk. 0 = never spill
+   */
+  public ExternalResultSorter(final DatabaseInternal database, final Comparator<Result> comparator, final long maxHeapElements) {
+    this.database = database;
+    this.comparator = comparator;
+    this.maxHeapElements = maxHeapElements;
+    this.spillEnabled = database != null && maxHeapElements > 0;
+  }
+
+  public void add(final Result result) {
+    buffer.add(result);
+    if (buffer.size() > peakHeapElements)
+      peakHeapElements = buffer.size();
+    if (spillEnabled && buffer.size() >= maxHeapElements)
+      spill();
+  }
+
+  /**
+   * Returns the number of results currently kept in heap.
+   */
+  public int getHeapElements() {
+    return buffer.size();
+  }
+
+  /**
+   * Returns the maximum number of results kept in heap at the same time.
+   */
+  public long getPeakHeapElements() {
+    return peakHeapElements;
+  }
+
+  public long getSpilledElements() {
+    return spilledElements;
+  }
+
+  public int getSpilledRuns() {
+    return spilledRuns;
+  }
+
+  /**
+   * Sorts the results added so far and returns them in order. After this call no more results can be added.
+   */
+  public Iterator<Result> sort() {
+    // LIST.SORT() IS STABLE
+    buffer.sort(comparator);
+    if (runs.isEmpty())
+      return buffer.iterator();
+
+    try {
+      // REDUCE THE NUMBER OF RUNS TO MERGE AT THE SAME TIME, THE LAST SOURCE IS THE BUFFER
+      while (runs.size() + 1 > MAX_MERGE_FAN_IN) {
+        final List<ResultSpillFile> merged = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+          final List<ResultSpillFile> group = runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size()));
+          if (group.size() == 1) {
+            merged.add(group.get(0));
+            continue;
+          }
+
+          final List<Iterator<Result>> sources = new ArrayList<>(group.size());
+          for (final ResultSpillFile run : group)
+            sources.add(run.read());
+
+          final ResultSpillFile target = new ResultSpillFile(database);
+          merged.add(target);
+          for (final Iterator<Result> it = new MergeIterator(sources); it.hasNext(); )
+            target.write(it.next());
+          target.flush();
+
+          for (final ResultSpillFile run : group)
+            run.close();
+        }
+        runs = merged;
+      }
+
+      final List<Iterator<Result>> sources = new ArrayList<>(runs.size() + 1);
+      for (final ResultSpillFile run : runs)
+        sources.add(run.read());
+      sources.add(buffer.iterator());
+      return new MergeIterator(sources);
+
+    } catch (final IOException e) {
+      close();
+      throw new CommandExecutionException("Error on merging the sorted results from temporary files", e);
+    }
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  @Override
+  public void close() {
+    for (final ResultSpillFile run : runs)
+      run.close();
+    runs.clear();
+  }
+
+  private void spill() {
+    buffer.sort(comparator);
+
+    ResultSpillFile run = null;
+    try {
+      run = new ResultSpillFile(database);
+      for (final Result result : buffer)
+        run.write(result);
+      run.flush();
+    } catch (final ResultSpillFile.NotSpillableException e) {
+      run.close();
+      spillEnabled = false;
+      LogManager.instance().log(this, Level.FINE, "Cannot spill sorted results to disk, the sort continues in heap (%s)", null, e.getMessage());
+      return;
+    } catch (final IOException e) {
+      if (run != null)
+        run.close();
+      throw new CommandExecutionException("Error on spilling sorted results to temporary file", e);
+    }
+
+    runs.add(run);
+    spilledElements += buffer.size();
+    ++spilledRuns;
+    buffer = new ArrayList<>();
+  }
+
+  /**
+   * K-way merge of sorted sources. Equal results are returned in the order of their sources, so the merge is stable.
+   */
+  private class MergeIterator implements Iterator<Result> {
+    private final PriorityQueue<Source> queue;
+
+    private MergeIterator(final List<Iterator<Result>> sources) {
+      queue = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+        final int cmp = comparator.compare(a.current, b.current);
+        return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+      });
+
+      for (int i = 0; i < sources.size(); i++) {
+        final Iterator<Result> it = sources.get(i);
+        if (it.hasNext())
+          queue.add(new Source(it, i));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public Result next() {
+      final Source source = queue.poll();
+      if (source == null)
+        throw new NoSuchElementException();
+
+      final Result result = source.current;
+      if (source.iterator.hasNext()) {
+        source.current = source.iterator.next();
+        queue.add(source);
+      }
+      return result;
+    }
+  }
+
+  private static class Source {
+    private final Iterator<Result> iterator;
+    private final int              index;
+    private       Result           current;
+
+    private Source(final Iterator<Result> iterator, final int index) {
+      this.iterator = iterator;
+      this.index = index;
+      this.current = iterator.next();
+    }
+  }
+}
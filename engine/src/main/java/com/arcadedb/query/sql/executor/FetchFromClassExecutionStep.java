@@ -38,6 +38,7 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
   private boolean             orderByRidAsc  = false;
   private boolean             orderByRidDesc = false;
   private List<ExecutionStep> subSteps       = new ArrayList<>();
+  private ProjectionPushdown  projectionPushdown;
 
   ResultSet currentResultSet;
   int       currentStep = 0;
@@ -221,6 +222,8 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     if (profilingEnabled) {
       builder.append(" (").append(getCostFormatted()).append(")");
     }
+    if (projectionPushdown != null)
+      builder.append("\n").append(projectionPushdown.prettyPrint(ind, profilingEnabled));
     builder.append("\n");
     for (int i = 0; i < getSubSteps().size(); i++) {
       final ExecutionStepInternal step = (ExecutionStepInternal) getSubSteps().get(i);
@@ -232,6 +235,33 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     return builder.toString();
   }
 
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns true if the records are returned ordered by RID.
+   */
+  public boolean isOrdered() {
+    return orderByRidAsc || orderByRidDesc;
+  }
+
+  /**
+   * Decodes only the properties referenced by the query from the records of all the buckets.
+   */
+  public void setProjectionPushdown(final ProjectionPushdown projectionPushdown) {
+    this.projectionPushdown = projectionPushdown;
+    for (final ExecutionStep step : subSteps)
+      ((FetchFromClusterExecutionStep) step).setProjectionPushdown(projectionPushdown);
+  }
+
+  /**
+   * Returns the ids of the buckets to scan.
+   */
+  public int[] getBucketIds() {
+    return subSteps.stream().mapToInt(x -> ((FetchFromClusterExecutionStep) x).getBucketId()).toArray();
+  }
+
   @Override
   public long getCost() {
     return subSteps.stream().map(ExecutionStep::getCost).reduce((a, b) -> a > 0 && b > 0 ? a + b : a > 0 ? a : b > 0 ? b : -1L)
@@ -255,6 +285,8 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
     result.orderByRidAsc = this.orderByRidAsc;
     result.orderByRidDesc = this.orderByRidDesc;
     result.subSteps = this.subSteps.stream().map(x -> ((ExecutionStepInternal) x).copy(context)).collect(Collectors.toList());
+    if (projectionPushdown != null)
+      result.setProjectionPushdown(projectionPushdown.copy());
     return result;
   }
 }
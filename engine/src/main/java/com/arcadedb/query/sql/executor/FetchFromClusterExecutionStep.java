@@ -28,12 +28,13 @@ import java.util.*;
  */
 public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
 
-  public static final Object            ORDER_ASC    = "ASC";
-  public static final Object            ORDER_DESC   = "DESC";
-  private final       QueryPlanningInfo queryPlanning;
-  private final       int               bucketId;
-  private             Object            order;
-  private             long              totalFetched = 0L;
+  public static final Object             ORDER_ASC    = "ASC";
+  public static final Object             ORDER_DESC   = "DESC";
+  private final       QueryPlanningInfo  queryPlanning;
+  private final       int                bucketId;
+  private             Object             order;
+  private             long               totalFetched = 0L;
+  private             ProjectionPushdown projectionPushdown;
 
   private Iterator<Record> iterator;
 
@@ -111,7 +112,7 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
             ++nFetched;
             ++totalFetched;
 
-            final ResultInternal result = new ResultInternal(record);
+            final ResultInternal result = projectionPushdown != null ? projectionPushdown.newResult(record) : new ResultInternal(record);
             context.setVariable("current", result);
 
             return result;
@@ -204,6 +205,17 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
     this.order = order;
   }
 
+  public int getBucketId() {
+    return bucketId;
+  }
+
+  /**
+   * Sets the properties to decode from the fetched records. The instance can be shared with the other steps of the same type scan.
+   */
+  public void setProjectionPushdown(final ProjectionPushdown projectionPushdown) {
+    this.projectionPushdown = projectionPushdown;
+  }
+
   @Override
   public boolean canBeCached() {
     return true;
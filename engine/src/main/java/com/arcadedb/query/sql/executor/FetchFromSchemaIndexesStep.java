@@ -21,6 +21,7 @@ package com.arcadedb.query.sql.executor;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.index.Index;
 import com.arcadedb.index.IndexInternal;
+import com.arcadedb.index.lsm.LSMTreeIndex;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.schema.Schema;
 import com.arcadedb.schema.Type;
@@ -77,6 +78,10 @@ public class FetchFromSchemaIndexesStep extends AbstractExecutionStep {
             r.setProperty("unique", index.isUnique());
             r.setProperty("automatic", index.isAutomatic());
             r.setProperty("compacting", ((IndexInternal) index).isCompacting());
+            if (index instanceof LSMTreeIndex) {
+              r.setProperty("compactionDebt", ((LSMTreeIndex) index).getCompactionDebt());
+              r.setProperty("writeAmplification", ((LSMTreeIndex) index).getWriteAmplification());
+            }
 
             if (fileId > -1) {
               r.setProperty("fileId", fileId);
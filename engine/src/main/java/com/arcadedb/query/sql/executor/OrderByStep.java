@@ -19,22 +19,28 @@
 package com.arcadedb.query.sql.executor;
 
 import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.query.sql.parser.OrderBy;
 
 import java.util.*;
+import java.util.function.*;
 
 /**
  * Created by luigidellaquila on 11/07/16.
+ * <br>
+ * When the maximum number of results is known (LIMIT), only the best `maxResults` results are kept in a bounded heap. Otherwise,
+ * the results are sorted by an {@link ExternalResultSorter} that spills sorted runs to temporary files once more than
+ * `arcadedb.querySpillHeapElements` results are in heap.
  */
 public class OrderByStep extends AbstractExecutionStep {
-  private final OrderBy orderBy;
-  private       Integer maxResults;
-  private final long    timeoutMillis;
-
-  List<Result> cachedResult = null;
-  int          nextElement  = 0;
+  private final OrderBy              orderBy;
+  private       Integer              maxResults;
+  private final long                 timeoutMillis;
+  private       Iterator<Result>     sortedResults = null;
+  private       ExternalResultSorter sorter        = null;
+  private       long                 peakHeapElements;
 
   public OrderByStep(final OrderBy orderBy, final CommandContext context, final long timeoutMillis, final boolean profilingEnabled) {
     this(orderBy, null, context, timeoutMillis, profilingEnabled);
@@ -52,22 +58,22 @@ public class OrderByStep extends AbstractExecutionStep {
 
   @Override
   public ResultSet syncPull(final CommandContext context, final int nRecords) throws TimeoutException {
-    if (cachedResult == null) {
-      cachedResult = new ArrayList<>();
+    if (sortedResults == null) {
       if (prev != null)
         init(prev, context);
+      else
+        sortedResults = Collections.emptyIterator();
     }
 
     return new ResultSet() {
       private int currentBatchReturned = 0;
-      private final int offset = nextElement;
 
       @Override
       public boolean hasNext() {
         if (currentBatchReturned >= nRecords) {
           return false;
         }
-        return cachedResult.size() > nextElement;
+        return sortedResults.hasNext();
       }
 
       @Override
@@ -77,11 +83,10 @@ public class OrderByStep extends AbstractExecutionStep {
           if (currentBatchReturned >= nRecords) {
             throw new NoSuchElementException();
           }
-          if (cachedResult.size() <= nextElement) {
+          if (!sortedResults.hasNext()) {
             throw new NoSuchElementException();
           }
-          final Result result = cachedResult.get(offset + currentBatchReturned);
-          nextElement++;
+          final Result result = sortedResults.next();
           currentBatchReturned++;
           return result;
         } finally {
@@ -99,10 +104,100 @@ public class OrderByStep extends AbstractExecutionStep {
     };
   }
 
+  @Override
+  public void close() {
+    if (sorter != null)
+      sorter.close();
+    super.close();
+  }
+
   private void init(final ExecutionStepInternal p, final CommandContext context) {
+    final DatabaseInternal database = context.getDatabase();
+    final long maxElementsAllowed = database != null ?
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP) :
+        GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
+    final long spillHeapElements = database != null ?
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS) :
+        GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.getValueAsLong();
+
+    final Comparator<Result> comparator = (a, b) -> orderBy.compare(a, b, context);
+
+    if (maxResults != null && (spillHeapElements <= 0 || maxResults <= spillHeapElements))
+      sortTopResults(p, context, comparator, maxElementsAllowed);
+    else
+      sortAllResults(p, context, comparator, maxElementsAllowed, database, spillHeapElements);
+  }
+
+  /**
+   * Keeps only the best `maxResults` results in a heap where the head is the worst result. Results that compare equal are ordered
+   * by arrival, like a stable sort.
+   */
+  private void sortTopResults(final ExecutionStepInternal p, final CommandContext context, final Comparator<Result> comparator,
+      final long maxElementsAllowed) {
+    final Comparator<RankedResult> ranking = (a, b) -> {
+      final int cmp = comparator.compare(a.result, b.result);
+      return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+    };
+    final PriorityQueue<RankedResult> heap = new PriorityQueue<>(Math.max(1, Math.min(maxResults, 1024)) + 1, ranking.reversed());
+
+    final long[] sequence = { 0 };
+    pullAll(p, context, item -> {
+      if (maxResults == 0)
+        return;
+      if (heap.size() < maxResults) {
+        heap.add(new RankedResult(item, sequence[0]++));
+        peakHeapElements = heap.size();
+        if (maxElementsAllowed >= 0 && heap.size() > maxElementsAllowed)
+          throw new CommandExecutionException(
+              "Limit of allowed elements for in-heap ORDER BY in a single query exceeded (" + maxElementsAllowed + ") . You can set "
+                  + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
+      } else if (comparator.compare(item, heap.peek().result) < 0) {
+        // THE NEW RESULT IS BETTER THAN THE WORST ONE: REPLACE IT
+        heap.poll();
+        heap.add(new RankedResult(item, sequence[0]++));
+      }
+    });
+
+    final long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      final RankedResult[] ranked = heap.toArray(new RankedResult[0]);
+      Arrays.sort(ranked, ranking);
+      final List<Result> result = new ArrayList<>(ranked.length);
+      for (final RankedResult r : ranked)
+        result.add(r.result);
+      sortedResults = result.iterator();
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private void sortAllResults(final ExecutionStepInternal p, final CommandContext context, final Comparator<Result> comparator,
+      final long maxElementsAllowed, final DatabaseInternal database, final long spillHeapElements) {
+    sorter = new ExternalResultSorter(database, comparator, spillHeapElements);
+    pullAll(p, context, item -> {
+      sorter.add(item);
+      if (maxElementsAllowed >= 0 && sorter.getHeapElements() > maxElementsAllowed) {
+        sorter.close();
+        throw new CommandExecutionException(
+            "Limit of allowed elements for in-heap ORDER BY in a single query exceeded (" + maxElementsAllowed + ") . You can set "
+                + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
+      }
+    });
+
+    final long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      sortedResults = sorter.sort();
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private void pullAll(final ExecutionStepInternal p, final CommandContext context, final Consumer<Result> consumer) {
     final long timeoutBegin = System.currentTimeMillis();
-    final long maxElementsAllowed = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
-    boolean sorted = true;
     do {
       final ResultSet lastBatch = p.syncPull(context, DEFAULT_FETCH_RECORDS_PER_PULL);
       if (!lastBatch.hasNext())
@@ -118,23 +213,7 @@ public class OrderByStep extends AbstractExecutionStep {
         final Result item = lastBatch.next();
         final long begin = profilingEnabled ? System.nanoTime() : 0;
         try {
-          cachedResult.add(item);
-          if (maxElementsAllowed >= 0 && cachedResult.size() > maxElementsAllowed) {
-            this.cachedResult.clear();
-            throw new CommandExecutionException(
-                "Limit of allowed elements for in-heap ORDER BY in a single query exceeded (" + maxElementsAllowed + ") . You can set "
-                    + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
-          }
-          sorted = false;
-          // compact, only at twice as the buffer, to avoid to do it at each add
-          if (this.maxResults != null) {
-            final long compactThreshold = 2L * maxResults;
-            if (compactThreshold < cachedResult.size()) {
-              cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-              cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
-              sorted = true;
-            }
-          }
+          consumer.accept(item);
         } finally {
           if (profilingEnabled) {
             cost += (System.nanoTime() - begin);
@@ -144,30 +223,7 @@ public class OrderByStep extends AbstractExecutionStep {
       if (timedOut) {
         break;
       }
-      final long begin = profilingEnabled ? System.nanoTime() : 0;
-      try {
-        // compact at each batch, if needed
-        if (!sorted && this.maxResults != null && maxResults < cachedResult.size()) {
-          cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-          cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
-          sorted = true;
-        }
-      } finally {
-        if (profilingEnabled) {
-          cost += (System.nanoTime() - begin);
-        }
-      }
     } while (true);
-    final long begin = profilingEnabled ? System.nanoTime() : 0;
-    try {
-      if (!sorted) {
-        cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-      }
-    } finally {
-      if (profilingEnabled) {
-        cost += (System.nanoTime() - begin);
-      }
-    }
   }
 
   @Override
@@ -177,7 +233,21 @@ public class OrderByStep extends AbstractExecutionStep {
       result += " (" + getCostFormatted() + ")";
     }
     result += (maxResults != null ? "\n  (buffer size: " + maxResults + ")" : "");
+    if (profilingEnabled)
+      result += "\n  (peak heap elements: " + (sorter != null ? sorter.getPeakHeapElements() : peakHeapElements) + ", spilled elements: " + (
+          sorter != null ? sorter.getSpilledElements() : 0) + ")";
+    if (sorter != null && sorter.getSpilledRuns() > 0)
+      result += "\n  (spilled runs: " + sorter.getSpilledRuns() + ")";
     return result;
   }
 
+  private static class RankedResult {
+    private final Result result;
+    private final long   sequence;
+
+    private RankedResult(final Result result, final long sequence) {
+      this.result = result;
+      this.sequence = sequence;
+    }
+  }
 }
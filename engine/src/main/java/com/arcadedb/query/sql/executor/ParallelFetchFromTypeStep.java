@@ -0,0 +1,487 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseContext;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.EmbeddedDatabase;
+import com.arcadedb.database.Record;
+import com.arcadedb.database.TransactionContext;
+import com.arcadedb.engine.EmbeddedBucket;
+import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.exception.TimeoutException;
+import com.arcadedb.query.sql.parser.Limit;
+import com.arcadedb.query.sql.parser.Skip;
+import com.arcadedb.query.sql.parser.WhereClause;
+import com.arcadedb.security.SecurityDatabaseUser;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Scans the buckets of a type with multiple threads (morsel-driven parallelism). The pages of the buckets are split in ranges of
+ * `arcadedb.queryParallelScanMorselPages` pages (morsels) and every worker thread takes the next morsel to scan until all the
+ * morsels have been processed. The workers evaluate the WHERE condition and send the matching records to the query thread in
+ * batches through a bounded queue, so the workers wait when the query thread is slower. In count mode the workers only count the
+ * matching records and a single result with the total is returned.
+ * <br>
+ * The order of the results is not deterministic. If the transaction of the current thread contains changes, the morsels are scanned
+ * by the current thread, because the worker threads could not see the changes.
+ */
+public class ParallelFetchFromTypeStep extends AbstractExecutionStep {
+  private static final int          BATCH_SIZE  = 256;
+  private static final List<Result> END_OF_SCAN = Collections.emptyList();
+  private final        String       typeName;
+  private final        int[]        bucketIds;
+  private final        WhereClause  whereClause;
+  private final        String       countAlias;
+  private final        Skip         skip;
+  private final        Limit        limit;
+  private final        long         timeoutMillis;
+
+  private          List<int[]>                 morsels;
+  private          boolean                     started         = false;
+  private          boolean                     parallel        = false;
+  private          int                         threads         = 0;
+  private          long                        maxResults      = -1;
+  private          long                        deadline        = 0;
+  private          BlockingQueue<List<Result>> queue;
+  private final    AtomicInteger               nextMorsel      = new AtomicInteger();
+  private final    AtomicInteger               runningWorkers  = new AtomicInteger();
+  private final    AtomicLong                  sentResults     = new AtomicLong();
+  private final    AtomicLong                  scannedRecords  = new AtomicLong();
+  private final    AtomicLong                  matchingRecords = new AtomicLong();
+  private volatile boolean                     stopScan        = false;
+  private volatile boolean                     closed          = false;
+  private volatile Throwable                   error;
+  private          boolean                     finished        = false;
+  private          Iterator<Result>            currentBatch;
+  private          Iterator<Record>            currentMorsel;
+  private          ProjectionPushdown          projectionPushdown;
+  private          boolean                     countReturned   = false;
+
+  /**
+   * @param typeName         the name of the type to scan
+   * @param bucketIds        the buckets to scan
+   * @param whereClause      the condition to evaluate on the records, or null to return all the records
+   * @param countAlias       if not null, only the number of the matching records is returned in a property with this name
+   * @param skip             the SKIP of the query, if the records are returned as they are
+   * @param limit            the LIMIT of the query, if the records are returned as they are. The scan stops once SKIP + LIMIT
+   *                         records have been found
+   * @param timeoutMillis    the timeout of the query in ms, or -1 for no timeout
+   * @param context          the query context
+   * @param profilingEnabled true to enable the profiling of the execution (for SQL PROFILE)
+   */
+  public ParallelFetchFromTypeStep(final String typeName, final int[] bucketIds, final WhereClause whereClause,
+      final String countAlias, final Skip skip, final Limit limit, final long timeoutMillis, final CommandContext context,
+      final boolean profilingEnabled) {
+    super(context, profilingEnabled);
+    this.typeName = typeName;
+    this.bucketIds = bucketIds;
+    this.whereClause = whereClause;
+    this.countAlias = countAlias;
+    this.skip = skip;
+    this.limit = limit;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public ResultSet syncPull(final CommandContext context, final int nRecords) throws TimeoutException {
+    pullPrevious(context, nRecords);
+
+    if (!started)
+      start(context);
+
+    return new ResultSet() {
+      int fetched = 0;
+
+      @Override
+      public boolean hasNext() {
+        if (fetched >= nRecords)
+          return false;
+
+        final long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          if (countAlias != null)
+            return !countReturned;
+          return fetchNext(context);
+        } finally {
+          if (profilingEnabled)
+            cost += (System.nanoTime() - begin);
+        }
+      }
+
+      @Override
+      public Result next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        final long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          ++fetched;
+          if (countAlias != null) {
+            countReturned = true;
+            final ResultInternal result = new ResultInternal();
+            result.setProperty(countAlias, count(context));
+            return result;
+          }
+
+          final Result result = currentBatch.next();
+          context.setVariable("current", result);
+          return result;
+        } finally {
+          if (profilingEnabled)
+            cost += (System.nanoTime() - begin);
+        }
+      }
+
+      @Override
+      public void close() {
+        ParallelFetchFromTypeStep.this.close();
+      }
+    };
+  }
+
+  private void start(final CommandContext context) {
+    started = true;
+
+    final DatabaseInternal database = context.getDatabase();
+    final int morselPages = Math.max(1,
+        database.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_SCAN_MORSEL_PAGES));
+
+    morsels = new ArrayList<>();
+    for (final int bucketId : bucketIds) {
+      final EmbeddedBucket bucket = (EmbeddedBucket) database.getSchema().getBucketById(bucketId);
+      final int totalPages = bucket.getTotalPages();
+      for (int fromPage = 0; fromPage < totalPages; fromPage += morselPages)
+        morsels.add(new int[] { bucketId, fromPage, Math.min(fromPage + morselPages, totalPages) });
+    }
+
+    if (countAlias == null && limit != null && limit.getValue(context) > -1)
+      maxResults = limit.getValue(context) + (skip != null ? Math.max(0, skip.getValue(context)) : 0);
+
+    if (timeoutMillis > 0)
+      deadline = System.currentTimeMillis() + timeoutMillis;
+
+    final TransactionContext tx = database.getTransactionIfExists();
+    threads = Math.min(morsels.size(), database.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS));
+
+    // THE WORKERS DO NOT SEE THE CHANGES IN THE CURRENT TRANSACTION, NOR THE PAGES ALREADY READ WITH REPEATABLE READ
+    parallel = threads > 1 && (tx == null || !tx.isActive() || (!tx.hasChanges()
+        && tx.getIsolationLevel() == Database.TRANSACTION_ISOLATION_LEVEL.READ_COMMITTED));
+
+    if (!parallel) {
+      threads = 1;
+      return;
+    }
+
+    final DatabaseContext.DatabaseContextTL callerContext = DatabaseContext.INSTANCE.getContextIfExists(database.getDatabasePath());
+    final SecurityDatabaseUser user = callerContext != null ? callerContext.getCurrentUser() : null;
+
+    queue = new ArrayBlockingQueue<>(threads * 4);
+    runningWorkers.set(threads);
+
+    final ThreadPoolExecutor executor = ((EmbeddedDatabase) database.getEmbedded()).getParallelScanExecutor();
+    for (int i = 0; i < threads; i++) {
+      // EVERY WORKER EVALUATES ITS OWN COPY OF THE CONDITION, BECAUSE THE PARSED NODES CACHE STATE WHILE EVALUATING (LIKE THE FUNCTIONS)
+      final WhereClause workerWhereClause = whereClause != null ? whereClause.copy() : null;
+      final CommandContext workerContext = newWorkerContext(context, database);
+      try {
+        executor.execute(() -> scan(database, user, workerWhereClause, workerContext));
+      } catch (final RejectedExecutionException e) {
+        // THE DATABASE IS CLOSING
+        error = e;
+        if (runningWorkers.addAndGet(i - threads) == 0)
+          queue.offer(END_OF_SCAN);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Creates the context of a worker in the query thread. The variables and the parameters of the query are copied, because the
+   * query context is not thread safe and the query thread keeps updating it while the workers run.
+   */
+  private static CommandContext newWorkerContext(final CommandContext context, final DatabaseInternal database) {
+    final List<CommandContext> hierarchy = new ArrayList<>();
+    for (CommandContext c = context; c != null; c = c.getParent())
+      hierarchy.add(c);
+
+    final BasicCommandContext workerContext = new BasicCommandContext();
+    workerContext.setDatabase(database);
+    workerContext.setConfiguration(context.getConfiguration());
+
+    final Map<String, Object> inputParameters = context.getInputParameters();
+    if (inputParameters != null)
+      workerContext.setInputParameters(new HashMap<>(inputParameters));
+
+    // FROM THE ROOT, SO THE VARIABLES OF THE NEAREST CONTEXTS WIN
+    for (int i = hierarchy.size() - 1; i > -1; --i)
+      for (final Map.Entry<String, Object> entry : hierarchy.get(i).getVariables().entrySet())
+        workerContext.setVariable(entry.getKey(), entry.getValue());
+
+    return workerContext;
+  }
+
+  /**
+   * Executed by the worker threads.
+   */
+  private void scan(final DatabaseInternal database, final SecurityDatabaseUser user, final WhereClause whereClause,
+      final CommandContext workerContext) {
+    DatabaseContext.INSTANCE.init(database).setCurrentUser(user);
+    try {
+      long scanned = 0;
+      long matching = 0;
+      List<Result> batch = new ArrayList<>(BATCH_SIZE);
+
+      for (int m; !stopScan && (m = nextMorsel.getAndIncrement()) < morsels.size(); ) {
+        final int[] morsel = morsels.get(m);
+        final Iterator<Record> iterator = ((EmbeddedBucket) database.getSchema().getBucketById(morsel[0])).iterator(morsel[1],
+            morsel[2]);
+
+        while (!stopScan && iterator.hasNext()) {
+          final ResultInternal result = newResult(iterator.next());
+          workerContext.setVariable("current", result);
+          ++scanned;
+
+          if (whereClause != null && !whereClause.matchesFilters(result, workerContext))
+            continue;
+
+          ++matching;
+          if (countAlias != null)
+            continue;
+
+          batch.add(result);
+          if (maxResults > -1 && sentResults.incrementAndGet() >= maxResults)
+            // ENOUGH RESULTS FOR THE LIMIT: THE OTHER WORKERS STOP TOO
+            stopScan = true;
+
+          if (batch.size() >= BATCH_SIZE) {
+            send(batch);
+            batch = new ArrayList<>(BATCH_SIZE);
+          }
+        }
+
+        if (deadline > 0 && System.currentTimeMillis() > deadline)
+          stopScan = true;
+      }
+
+      if (!batch.isEmpty())
+        send(batch);
+
+      scannedRecords.addAndGet(scanned);
+      matchingRecords.addAndGet(matching);
+
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopScan = true;
+    } catch (final Throwable e) {
+      error = e;
+      stopScan = true;
+    } finally {
+      DatabaseContext.INSTANCE.removeContext(database.getDatabasePath());
+
+      if (runningWorkers.decrementAndGet() == 0)
+        try {
+          send(END_OF_SCAN);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+    }
+  }
+
+  /**
+   * Sends the batch to the query thread, waiting if the queue is full. The results are discarded if the step has been closed.
+   */
+  private void send(final List<Result> batch) throws InterruptedException {
+    while (!closed)
+      if (queue.offer(batch, 100, TimeUnit.MILLISECONDS))
+        return;
+  }
+
+  /**
+   * Moves to the next result to return. Returns false if there are no more results.
+   */
+  private boolean fetchNext(final CommandContext context) {
+    if (currentBatch != null && currentBatch.hasNext())
+      return true;
+
+    if (parallel) {
+      while (!finished) {
+        final List<Result> batch = poll();
+        if (batch == END_OF_SCAN) {
+          finished = true;
+          checkForError();
+          break;
+        }
+        currentBatch = batch.iterator();
+        if (currentBatch.hasNext())
+          return true;
+      }
+      return false;
+    }
+
+    // SEQUENTIAL SCAN IN THE CURRENT THREAD
+    final Result next = fetchNextSequential(context);
+    if (next == null)
+      return false;
+    currentBatch = List.of(next).iterator();
+    return true;
+  }
+
+  private Result fetchNextSequential(final CommandContext context) {
+    while (!finished) {
+      if (currentMorsel == null || !currentMorsel.hasNext()) {
+        if (deadline > 0 && System.currentTimeMillis() > deadline)
+          sendTimeout();
+
+        if (timedOut || nextMorsel.get() >= morsels.size()) {
+          finished = true;
+          break;
+        }
+        final int[] morsel = morsels.get(nextMorsel.getAndIncrement());
+        currentMorsel = ((EmbeddedBucket) context.getDatabase().getSchema().getBucketById(morsel[0])).iterator(morsel[1], morsel[2]);
+        continue;
+      }
+
+      final ResultInternal result = newResult(currentMorsel.next());
+      context.setVariable("current", result);
+      scannedRecords.incrementAndGet();
+      if (whereClause == null || whereClause.matchesFilters(result, context)) {
+        matchingRecords.incrementAndGet();
+        return result;
+      }
+    }
+    return null;
+  }
+
+  private ResultInternal newResult(final Record record) {
+    return projectionPushdown != null ? projectionPushdown.newResult(record) : new ResultInternal(record);
+  }
+
+  /**
+   * Decodes only the properties referenced by the query from the scanned records.
+   */
+  public void setProjectionPushdown(final ProjectionPushdown projectionPushdown) {
+    this.projectionPushdown = projectionPushdown;
+  }
+
+  private long count(final CommandContext context) {
+    if (parallel) {
+      while (!finished)
+        if (poll() == END_OF_SCAN)
+          finished = true;
+      checkForError();
+    } else
+      while (fetchNextSequential(context) != null) {
+        // COUNTED BY THE SCAN
+      }
+
+    return matchingRecords.get();
+  }
+
+  /**
+   * Waits for the next batch of results from the workers. If the timeout expires, the workers are stopped and the scan ends.
+   */
+  private List<Result> poll() {
+    try {
+      while (true) {
+        final List<Result> batch = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (batch != null)
+          return batch;
+
+        if (deadline > 0 && System.currentTimeMillis() > deadline) {
+          sendTimeout();
+          return END_OF_SCAN;
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new CommandExecutionException("Parallel scan of type '" + typeName + "' interrupted", e);
+    }
+  }
+
+  private void checkForError() {
+    final Throwable e = error;
+    if (e == null)
+      return;
+    if (e instanceof RuntimeException)
+      throw (RuntimeException) e;
+    throw new CommandExecutionException("Error on scanning type '" + typeName + "' in parallel", e);
+  }
+
+  @Override
+  public void sendTimeout() {
+    stopScan = true;
+    super.sendTimeout();
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      stopScan = true;
+      if (queue != null)
+        // UNBLOCK THE WORKERS WAITING ON THE QUEUE
+        queue.clear();
+    }
+    super.close();
+  }
+
+  @Override
+  public String prettyPrint(final int depth, final int indent) {
+    final String spaces = ExecutionStepInternal.getIndent(depth, indent);
+    final StringBuilder result = new StringBuilder();
+    result.append(spaces).append("+ PARALLEL FETCH FROM TYPE ").append(typeName).append(" (buckets: ").append(bucketIds.length);
+    if (started)
+      result.append(", morsels: ").append(morsels.size()).append(", threads: ").append(threads);
+    result.append(")");
+    if (profilingEnabled)
+      result.append(" (").append(getCostFormatted()).append(")");
+    if (whereClause != null)
+      result.append("\n").append(spaces).append("  WHERE ").append(whereClause);
+    if (countAlias != null)
+      result.append("\n").append(spaces).append("  COUNT AS ").append(countAlias);
+    if (projectionPushdown != null)
+      result.append("\n").append(projectionPushdown.prettyPrint(spaces, profilingEnabled));
+    if (profilingEnabled)
+      result.append("\n").append(spaces).append("  (scanned records: ").append(scannedRecords.get()).append(", matching records: ")
+          .append(matchingRecords.get()).append(")");
+    return result.toString();
+  }
+
+  @Override
+  public boolean canBeCached() {
+    return true;
+  }
+
+  @Override
+  public ExecutionStep copy(final CommandContext context) {
+    final ParallelFetchFromTypeStep result = new ParallelFetchFromTypeStep(typeName, bucketIds,
+        whereClause == null ? null : whereClause.copy(), countAlias, skip == null ? null : skip.copy(),
+        limit == null ? null : limit.copy(), timeoutMillis, context, profilingEnabled);
+    if (projectionPushdown != null)
+      result.setProjectionPushdown(projectionPushdown.copy());
+    return result;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.database.ImmutableDocument;
+import com.arcadedb.database.Record;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Properties referenced by a query, pushed down to the steps that fetch the records, so only these properties are decoded from the
+ * records in a single pass. The other properties are still available, decoded on access. The statistics are thread-safe because the same
+ * instance is used by the workers of a parallel scan.
+ */
+public class ProjectionPushdown {
+  private final String[]    propertyNames;
+  private final Set<String> propertyNameSet;
+  private final LongAdder   decodedBytes = new LongAdder();
+  private final LongAdder   skippedBytes = new LongAdder();
+
+  public ProjectionPushdown(final Collection<String> propertyNames) {
+    this.propertyNames = propertyNames.toArray(new String[0]);
+    this.propertyNameSet = new HashSet<>(propertyNames);
+  }
+
+  /**
+   * Creates the result for a fetched record, decoding the pushed down properties if the record is not modified in the transaction.
+   */
+  public ResultInternal newResult(final Record record) {
+    if (!(record instanceof ImmutableDocument))
+      return new ResultInternal(record);
+
+    final long[] bytes = new long[2];
+    final Map<String, Object> properties = ((ImmutableDocument) record).propertiesAsMap(propertyNames, bytes);
+    decodedBytes.add(bytes[0]);
+    skippedBytes.add(bytes[1]);
+    return new ResultInternal(record, properties, propertyNameSet);
+  }
+
+  public ProjectionPushdown copy() {
+    return new ProjectionPushdown(Arrays.asList(propertyNames));
+  }
+
+  public long getDecodedBytes() {
+    return decodedBytes.sum();
+  }
+
+  public long getSkippedBytes() {
+    return skippedBytes.sum();
+  }
+
+  public String prettyPrint(final String spaces, final boolean profilingEnabled) {
+    final StringBuilder result = new StringBuilder();
+    result.append(spaces).append("  DECODE PROPERTIES ").append(Arrays.toString(propertyNames));
+    if (profilingEnabled)
+      result.append(" (bytes decoded: ").append(getDecodedBytes()).append(", skipped: ").append(getSkippedBytes()).append(")");
+    return result.toString();
+  }
+}
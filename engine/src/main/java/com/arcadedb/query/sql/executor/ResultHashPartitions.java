@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.exception.CommandExecutionException;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Partitions of results spilled to temporary files by hash, used by the hash based steps (DISTINCT, GROUP BY) when their state
+ * does not fit in the heap budget: the results whose key is not in heap are written to the partition of their hash and processed
+ * later, one partition at a time (grace hash). Every level of partitioning uses different bits of the hash, so a partition that
+ * does not fit in heap can be partitioned again up to {@link #MAX_LEVEL}. The results that cannot be written to disk are kept in heap
+ * in their partition, so they are processed together with the spilled results of the same hash.
+ */
+public class ResultHashPartitions implements Closeable {
+  public static final  int                 PARTITIONS      = 16;
+  public static final  int                 MAX_LEVEL       = 7;
+  private static final int                 PARTITION_BITS  = 4;
+  private final        DatabaseInternal    database;
+  private final        int                 level;
+  private final        ResultSpillFile[]   files           = new ResultSpillFile[PARTITIONS];
+  private final        List<Result>[]      heapResults     = new List[PARTITIONS];
+  private              int                 nextPartition   = 0;
+  private              long                spilledElements = 0;
+  private              long                heapElements    = 0;
+
+  public ResultHashPartitions(final DatabaseInternal database, final int level) {
+    if (level > MAX_LEVEL)
+      throw new IllegalArgumentException("Maximum level of partitioning is " + MAX_LEVEL);
+    this.database = database;
+    this.level = level;
+  }
+
+  /**
+   * Writes the result in the partition of the hash. The results that cannot be serialized are kept in heap with their partition.
+   */
+  public void add(final Result result, final int hash) {
+    final int partition = (mix(hash) >>> (level * PARTITION_BITS)) & (PARTITIONS - 1);
+    try {
+      if (files[partition] == null)
+        files[partition] = new ResultSpillFile(database);
+      files[partition].write(result);
+      ++spilledElements;
+    } catch (final ResultSpillFile.NotSpillableException e) {
+      if (heapResults[partition] == null)
+        heapResults[partition] = new ArrayList<>();
+      heapResults[partition].add(result);
+      ++heapElements;
+    } catch (final IOException e) {
+      throw new CommandExecutionException("Error on spilling results to temporary file", e);
+    }
+  }
+
+  /**
+   * Returns the results of the next partition, or null if all the partitions have been returned. The temporary file of the
+   * partition previously returned is deleted.
+   */
+  public Iterator<Result> nextPartition() {
+    closePartition(nextPartition - 1);
+
+    while (nextPartition < PARTITIONS) {
+      final int partition = nextPartition++;
+      final ResultSpillFile file = files[partition];
+      final List<Result> heap = heapResults[partition];
+      if (file == null && heap == null)
+        continue;
+
+      try {
+        final Iterator<Result> fileIterator = file != null ? file.read() : Collections.emptyIterator();
+        final Iterator<Result> heapIterator = heap != null ? heap.iterator() : Collections.emptyIterator();
+        return new Iterator<>() {
+          @Override
+          public boolean hasNext() {
+            return fileIterator.hasNext() || heapIterator.hasNext();
+          }
+
+          @Override
+          public Result next() {
+            return fileIterator.hasNext() ? fileIterator.next() : heapIterator.next();
+          }
+        };
+      } catch (final IOException e) {
+        throw new CommandExecutionException("Error on reading spilled results from temporary file", e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the level of this partitioning. The results of a partition are partitioned again with level + 1.
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  public long getSpilledElements() {
+    return spilledElements;
+  }
+
+  /**
+   * Returns the number of results that could not be written to disk and are kept in heap.
+   */
+  public long getHeapElements() {
+    return heapElements;
+  }
+
+  /**
+   * Deletes the temporary files.
+   */
+  @Override
+  public void close() {
+    for (int i = 0; i < PARTITIONS; i++)
+      closePartition(i);
+  }
+
+  private void closePartition(final int partition) {
+    if (partition < 0)
+      return;
+    if (files[partition] != null) {
+      files[partition].close();
+      files[partition] = null;
+    }
+    heapResults[partition] = null;
+  }
+
+  /**
+   * Spreads the bits of the hash, so all the levels of partitioning use well distributed bits.
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
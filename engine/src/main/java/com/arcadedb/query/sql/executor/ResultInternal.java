@@ -35,6 +35,9 @@ public class ResultInternal implements Result {
   protected Map<String, Object> temporaryContent;
   protected Map<String, Object> metadata;
   protected Document            element;
+  // PROPERTIES OF THE ELEMENT ALREADY DECODED BY THE FETCH STEP. A NAME IN THE SET BUT NOT IN THE MAP IS NOT PRESENT IN THE ELEMENT
+  protected Map<String, Object> decodedProperties;
+  protected Set<String>         decodedPropertyNames;
 
   public ResultInternal() {
     content = new LinkedHashMap<>();
@@ -48,6 +51,15 @@ public class ResultInternal implements Result {
     this.element = (Document) ident.getRecord();
   }
 
+  /**
+   * Creates a result for an element whose properties in `decodedPropertyNames` have been already decoded in `decodedProperties`.
+   */
+  public ResultInternal(final Identifiable ident, final Map<String, Object> decodedProperties, final Set<String> decodedPropertyNames) {
+    this.element = (Document) ident.getRecord();
+    this.decodedProperties = decodedProperties;
+    this.decodedPropertyNames = decodedPropertyNames;
+  }
+
   public void setTemporaryProperty(final String name, Object value) {
     if (temporaryContent == null)
       temporaryContent = new HashMap<>();
@@ -97,7 +109,7 @@ public class ResultInternal implements Result {
       // IF CONTENT IS PRESENT SKIP CHECKING FOR ELEMENT (PROJECTIONS USED)
       result = (T) wrap(content.get(name));
     else if (element != null)
-      result = (T) wrap(element.get(name));
+      result = (T) wrap(getElementPropertyValue(name));
     else
       result = null;
 
@@ -111,8 +123,8 @@ public class ResultInternal implements Result {
     T result;
     if (content != null && content.containsKey(name))
       result = (T) wrap(content.get(name));
-    else if (element != null && element.has(name))
-      result = (T) wrap(element.get(name));
+    else if (element != null && hasElementProperty(name))
+      result = (T) wrap(getElementPropertyValue(name));
     else
       result = (T) defaultValue;
 
@@ -127,7 +139,7 @@ public class ResultInternal implements Result {
     if (content != null && content.containsKey(name))
       result = content.get(name);
     else if (element != null)
-      result = element.get(name);
+      result = getElementPropertyValue(name);
 
     if (result instanceof Result)
       result = ((Result) result).getRecord().orElse(null);
@@ -138,6 +150,18 @@ public class ResultInternal implements Result {
     return result instanceof Record ? (Record) result : null;
   }
 
+  private Object getElementPropertyValue(final String name) {
+    if (decodedPropertyNames != null && decodedPropertyNames.contains(name))
+      return decodedProperties.get(name);
+    return element.get(name);
+  }
+
+  private boolean hasElementProperty(final String name) {
+    if (decodedPropertyNames != null && decodedPropertyNames.contains(name))
+      return decodedProperties.containsKey(name);
+    return element.has(name);
+  }
+
   private Object wrap(final Object input) {
     if (input instanceof Document && ((Document) input).getIdentity() == null && !(input instanceof EmbeddedDocument)) {
       final Document elem = ((Document) input);
@@ -220,7 +244,7 @@ public class ResultInternal implements Result {
   }
 
   public boolean hasProperty(final String propName) {
-    if (element != null && element.has(propName))
+    if (element != null && hasElementProperty(propName))
       return true;
 
     return content != null && content.containsKey(propName);
@@ -295,6 +319,8 @@ public class ResultInternal implements Result {
 
   public ResultInternal setElement(final Document element) {
     this.element = element;
+    this.decodedProperties = null;
+    this.decodedPropertyNames = null;
     return this;
   }
 
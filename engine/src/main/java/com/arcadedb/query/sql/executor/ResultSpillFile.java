@@ -0,0 +1,385 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.RID;
+import com.arcadedb.exception.CommandExecutionException;
+
+import java.io.*;
+import java.math.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Temporary file of results written and read sequentially, used by the query steps that spill to disk the results that do not
+ * fit in heap. Records are written as RIDs and loaded again on reading. Only {@link ResultInternal} instances containing
+ * records, collections and simple values (strings, numbers, booleans, dates, binaries, UUIDs) can be written: any other content
+ * is rejected with {@link NotSpillableException} and must be kept in heap by the caller.
+ * <br>
+ * FORMAT = [size(int:4),result(bytes:size)]*
+ */
+public class ResultSpillFile implements Closeable {
+  private static final byte T_NULL          = 0;
+  private static final byte T_STRING        = 1;
+  private static final byte T_INT           = 2;
+  private static final byte T_LONG          = 3;
+  private static final byte T_SHORT         = 4;
+  private static final byte T_BYTE          = 5;
+  private static final byte T_FLOAT         = 6;
+  private static final byte T_DOUBLE        = 7;
+  private static final byte T_BOOLEAN       = 8;
+  private static final byte T_DECIMAL       = 9;
+  private static final byte T_BINARY        = 10;
+  private static final byte T_RID           = 11;
+  private static final byte T_RECORD        = 12;
+  private static final byte T_RESULT        = 13;
+  private static final byte T_MAP           = 14;
+  private static final byte T_LIST          = 15;
+  private static final byte T_SET           = 16;
+  private static final byte T_DATE          = 17;
+  private static final byte T_LOCALDATE     = 18;
+  private static final byte T_LOCALDATETIME = 19;
+  private static final byte T_UUID          = 20;
+
+  private static final byte FLAG_ELEMENT   = 1;
+  private static final byte FLAG_CONTENT   = 2;
+  private static final byte FLAG_TEMPORARY = 4;
+  private static final byte FLAG_METADATA  = 8;
+
+  private final DatabaseInternal database;
+  private final File             file;
+  private final Binary           buffer = new Binary(8192);
+  private       DataOutputStream out;
+  private       Reader           reader;
+  private       long             size   = 0;
+
+  /**
+   * Thrown when a result contains values that cannot be written to the file.
+   */
+  public static class NotSpillableException extends RuntimeException {
+    public NotSpillableException(final String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  public ResultSpillFile(final DatabaseInternal database) throws IOException {
+    this.database = database;
+    // THE DATABASE NAME CAN CONTAIN CHARACTERS NOT ALLOWED IN A FILE NAME, LIKE THE PATH SEPARATORS
+    final String prefix = "arcadedb-" + database.getName().replaceAll("[^a-zA-Z0-9_.-]", "_") + "-";
+    this.file = Files.createTempFile(prefix, ".spill").toFile();
+    this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+  }
+
+  /**
+   * Appends a result to the file. If the result cannot be serialized, nothing is written and {@link NotSpillableException} is thrown.
+   */
+  public void write(final Result result) throws IOException {
+    buffer.clear();
+    writeResult(result);
+    out.writeInt(buffer.size());
+    out.write(buffer.getContent(), 0, buffer.size());
+    ++size;
+  }
+
+  /**
+   * Terminates the writing. The results can be read only after this call.
+   */
+  public void flush() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns a new iterator that reads the results in the same order they were written, closing the iterator previously returned.
+   * The iterator closes its stream when the last result has been read.
+   */
+  public Reader read() throws IOException {
+    flush();
+    if (reader != null)
+      reader.close();
+    reader = new Reader();
+    return reader;
+  }
+
+  /**
+   * Closes the open streams and deletes the file.
+   */
+  @Override
+  public void close() {
+    try {
+      flush();
+    } catch (final IOException e) {
+      // IGNORE IT: THE FILE IS DELETED ANYWAY
+    }
+    if (reader != null)
+      reader.close();
+    file.delete();
+  }
+
+  public class Reader implements Iterator<Result>, Closeable {
+    private final DataInputStream in;
+    private       long            remaining = size;
+
+    private Reader() throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public Result next() {
+      if (remaining <= 0)
+        throw new NoSuchElementException();
+
+      try {
+        final byte[] content = new byte[in.readInt()];
+        in.readFully(content);
+        if (--remaining == 0)
+          close();
+        return readResult(new Binary(content));
+      } catch (final IOException e) {
+        throw new CommandExecutionException("Error on reading results from temporary file " + file, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      remaining = 0;
+      try {
+        in.close();
+      } catch (final IOException e) {
+        // IGNORE IT
+      }
+    }
+  }
+
+  private void writeResult(final Result result) {
+    if (result.getClass() != ResultInternal.class)
+      throw new NotSpillableException("Result of type " + result.getClass().getSimpleName() + " cannot be spilled");
+
+    final ResultInternal r = (ResultInternal) result;
+    if (r.element != null && r.element.getIdentity() == null)
+      throw new NotSpillableException("Result with a not persistent element cannot be spilled");
+
+    byte flags = 0;
+    if (r.element != null)
+      flags |= FLAG_ELEMENT;
+    if (r.content != null)
+      flags |= FLAG_CONTENT;
+    if (r.temporaryContent != null)
+      flags |= FLAG_TEMPORARY;
+    if (r.metadata != null)
+      flags |= FLAG_METADATA;
+    buffer.putByte(flags);
+
+    if (r.element != null)
+      writeRID(r.element.getIdentity());
+    if (r.content != null)
+      writeMap(r.content);
+    if (r.temporaryContent != null)
+      writeMap(r.temporaryContent);
+    if (r.metadata != null)
+      writeMap(r.metadata);
+  }
+
+  private ResultInternal readResult(final Binary content) {
+    final ResultInternal r = new ResultInternal();
+    final byte flags = content.getByte();
+    if ((flags & FLAG_ELEMENT) != 0)
+      r.element = (Document) readRID(content).getRecord();
+    r.content = (flags & FLAG_CONTENT) != 0 ? readMap(content, new LinkedHashMap<>()) : null;
+    if ((flags & FLAG_TEMPORARY) != 0)
+      r.temporaryContent = readMap(content, new HashMap<>());
+    if ((flags & FLAG_METADATA) != 0)
+      r.metadata = readMap(content, new HashMap<>());
+    return r;
+  }
+
+  private void writeMap(final Map<String, Object> map) {
+    buffer.putUnsignedNumber(map.size());
+    for (final Map.Entry<String, Object> entry : map.entrySet()) {
+      buffer.putString(entry.getKey());
+      writeValue(entry.getValue());
+    }
+  }
+
+  private Map<String, Object> readMap(final Binary content, final Map<String, Object> map) {
+    final int entries = (int) content.getUnsignedNumber();
+    for (int i = 0; i < entries; ++i)
+      map.put(content.getString(), readValue(content));
+    return map;
+  }
+
+  private void writeRID(final RID rid) {
+    buffer.putUnsignedNumber(rid.getBucketId());
+    buffer.putNumber(rid.getPosition());
+  }
+
+  private RID readRID(final Binary content) {
+    final int bucketId = (int) content.getUnsignedNumber();
+    return new RID(database, bucketId, content.getNumber());
+  }
+
+  private void writeValue(final Object value) {
+    if (value == null)
+      buffer.putByte(T_NULL);
+    else if (value instanceof String) {
+      buffer.putByte(T_STRING);
+      buffer.putString((String) value);
+    } else if (value instanceof Integer) {
+      buffer.putByte(T_INT);
+      buffer.putNumber((Integer) value);
+    } else if (value instanceof Long) {
+      buffer.putByte(T_LONG);
+      buffer.putNumber((Long) value);
+    } else if (value instanceof Short) {
+      buffer.putByte(T_SHORT);
+      buffer.putNumber((Short) value);
+    } else if (value instanceof Byte) {
+      buffer.putByte(T_BYTE);
+      buffer.putByte((Byte) value);
+    } else if (value instanceof Float) {
+      buffer.putByte(T_FLOAT);
+      buffer.putInt(Float.floatToIntBits((Float) value));
+    } else if (value instanceof Double) {
+      buffer.putByte(T_DOUBLE);
+      buffer.putLong(Double.doubleToLongBits((Double) value));
+    } else if (value instanceof Boolean) {
+      buffer.putByte(T_BOOLEAN);
+      buffer.putByte((byte) ((Boolean) value ? 1 : 0));
+    } else if (value instanceof BigDecimal) {
+      buffer.putByte(T_DECIMAL);
+      buffer.putString(value.toString());
+    } else if (value instanceof byte[]) {
+      buffer.putByte(T_BINARY);
+      buffer.putBytes((byte[]) value);
+    } else if (value.getClass() == RID.class) {
+      buffer.putByte(T_RID);
+      writeRID((RID) value);
+    } else if (value instanceof Document) {
+      if (((Document) value).getIdentity() == null)
+        throw new NotSpillableException("Embedded document cannot be spilled");
+      buffer.putByte(T_RECORD);
+      writeRID(((Document) value).getIdentity());
+    } else if (value instanceof Result) {
+      buffer.putByte(T_RESULT);
+      writeResult((Result) value);
+    } else if (value instanceof Map) {
+      buffer.putByte(T_MAP);
+      final Map<?, ?> map = (Map<?, ?>) value;
+      buffer.putUnsignedNumber(map.size());
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        writeValue(entry.getKey());
+        writeValue(entry.getValue());
+      }
+    } else if (value instanceof List || value instanceof Set) {
+      buffer.putByte(value instanceof List ? T_LIST : T_SET);
+      final Collection<?> collection = (Collection<?>) value;
+      buffer.putUnsignedNumber(collection.size());
+      for (final Object item : collection)
+        writeValue(item);
+    } else if (value.getClass() == Date.class) {
+      buffer.putByte(T_DATE);
+      buffer.putNumber(((Date) value).getTime());
+    } else if (value instanceof LocalDate) {
+      buffer.putByte(T_LOCALDATE);
+      buffer.putNumber(((LocalDate) value).toEpochDay());
+    } else if (value instanceof LocalDateTime) {
+      buffer.putByte(T_LOCALDATETIME);
+      buffer.putString(value.toString());
+    } else if (value instanceof UUID) {
+      buffer.putByte(T_UUID);
+      buffer.putLong(((UUID) value).getMostSignificantBits());
+      buffer.putLong(((UUID) value).getLeastSignificantBits());
+    } else
+      throw new NotSpillableException("Value of type " + value.getClass().getSimpleName() + " cannot be spilled");
+  }
+
+  private Object readValue(final Binary content) {
+    final byte type = content.getByte();
+    switch (type) {
+    case T_NULL:
+      return null;
+    case T_STRING:
+      return content.getString();
+    case T_INT:
+      return (int) content.getNumber();
+    case T_LONG:
+      return content.getNumber();
+    case T_SHORT:
+      return (short) content.getNumber();
+    case T_BYTE:
+      return content.getByte();
+    case T_FLOAT:
+      return Float.intBitsToFloat(content.getInt());
+    case T_DOUBLE:
+      return Double.longBitsToDouble(content.getLong());
+    case T_BOOLEAN:
+      return content.getByte() == 1;
+    case T_DECIMAL:
+      return new BigDecimal(content.getString());
+    case T_BINARY:
+      return content.getBytes();
+    case T_RID:
+      return readRID(content);
+    case T_RECORD:
+      return readRID(content).getRecord();
+    case T_RESULT:
+      return readResult(content);
+    case T_MAP: {
+      final int entries = (int) content.getUnsignedNumber();
+      final Map<Object, Object> map = new LinkedHashMap<>(entries);
+      for (int i = 0; i < entries; ++i)
+        map.put(readValue(content), readValue(content));
+      return map;
+    }
+    case T_LIST:
+    case T_SET: {
+      final int entries = (int) content.getUnsignedNumber();
+      final Collection<Object> collection = type == T_LIST ? new ArrayList<>(entries) : new LinkedHashSet<>(entries);
+      for (int i = 0; i < entries; ++i)
+        collection.add(readValue(content));
+      return collection;
+    }
+    case T_DATE:
+      return new Date(content.getNumber());
+    case T_LOCALDATE:
+      return LocalDate.ofEpochDay(content.getNumber());
+    case T_LOCALDATETIME:
+      return LocalDateTime.parse(content.getString());
+    case T_UUID:
+      return new UUID(content.getLong(), content.getLong());
+    default:
+      throw new IllegalStateException("Unknown type " + type + " in temporary file " + file);
+    }
+  }
+}
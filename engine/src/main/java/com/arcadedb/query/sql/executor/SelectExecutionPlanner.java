@@ -31,6 +31,8 @@ import com.arcadedb.index.TypeIndex;
 import com.arcadedb.query.sql.parser.AggregateProjectionSplit;
 import com.arcadedb.query.sql.parser.AndBlock;
 import com.arcadedb.query.sql.parser.BaseExpression;
+import com.arcadedb.query.sql.parser.BaseIdentifier;
+import com.arcadedb.query.sql.parser.BetweenCondition;
 import com.arcadedb.query.sql.parser.BinaryCompareOperator;
 import com.arcadedb.query.sql.parser.BinaryCondition;
 import com.arcadedb.query.sql.parser.BooleanExpression;
@@ -49,15 +51,19 @@ import com.arcadedb.query.sql.parser.Identifier;
 import com.arcadedb.query.sql.parser.InCondition;
 import com.arcadedb.query.sql.parser.IndexIdentifier;
 import com.arcadedb.query.sql.parser.InputParameter;
+import com.arcadedb.query.sql.parser.IsNullCondition;
 import com.arcadedb.query.sql.parser.LeOperator;
 import com.arcadedb.query.sql.parser.LetClause;
 import com.arcadedb.query.sql.parser.LetItem;
 import com.arcadedb.query.sql.parser.LtOperator;
+import com.arcadedb.query.sql.parser.MathExpression;
 import com.arcadedb.query.sql.parser.Node;
+import com.arcadedb.query.sql.parser.NotBlock;
 import com.arcadedb.query.sql.parser.OrBlock;
 import com.arcadedb.query.sql.parser.OrderBy;
 import com.arcadedb.query.sql.parser.OrderByItem;
 import com.arcadedb.query.sql.parser.PInteger;
+import com.arcadedb.query.sql.parser.ParenthesisBlock;
 import com.arcadedb.query.sql.parser.Projection;
 import com.arcadedb.query.sql.parser.ProjectionItem;
 import com.arcadedb.query.sql.parser.RecordAttribute;
@@ -152,6 +158,10 @@ public class SelectExecutionPlanner {
 
     handleWhere(result, info, context, enableProfiling);
 
+    handleParallelScan(info, context, enableProfiling);
+
+    handleProjectionPushdown(info, context);
+
     // TODO optimization: in most cases the projections can be calculated on remote nodes
     buildExecutionPlan(result, info);
 
@@ -1216,6 +1226,158 @@ public class SelectExecutionPlanner {
     }
   }
 
+  /**
+   * Replaces the scan of a type, and the filter on its records, with a parallel scan if the type is big enough. If the query only
+   * counts the matching records, the records are counted by the worker threads too.
+   */
+  private void handleParallelScan(final QueryPlanningInfo info, final CommandContext context, final boolean profilingEnabled) {
+    if (info.planCreated || info.fetchExecutionPlan == null)
+      return;
+
+    final List<ExecutionStep> steps = info.fetchExecutionPlan.getSteps();
+    if (steps.isEmpty() || steps.size() > 2 || steps.get(0).getClass() != FetchFromClassExecutionStep.class)
+      return;
+
+    final FetchFromClassExecutionStep fetcher = (FetchFromClassExecutionStep) steps.get(0);
+    if (fetcher.isOrdered())
+      return;
+
+    if (steps.size() == 2 && !(steps.get(1) instanceof FilterStep && info.whereClause != null))
+      return;
+
+    final DatabaseInternal database = context.getDatabase();
+    final int threads = database.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS);
+    final int morselPages = database.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_PARALLEL_SCAN_MORSEL_PAGES);
+    if (threads < 2 || morselPages < 1)
+      return;
+
+    final int[] bucketIds = fetcher.getBucketIds();
+    long totalPages = 0;
+    for (final int bucketId : bucketIds)
+      totalPages += ((EmbeddedBucket) database.getSchema().getBucketById(bucketId)).getTotalPages();
+
+    if (totalPages < 2L * morselPages)
+      // NOT WORTH IT
+      return;
+
+    final boolean onlyFilter = !info.distinct && !info.expand && info.groupBy == null && info.orderBy == null && info.unwind == null
+        && info.projectionAfterOrderBy == null;
+
+    String countAlias = null;
+    if (onlyFilter && isCountStar(info) && info.preAggregateProjection == null && info.skip == null && info.limit == null) {
+      countAlias = info.aggregateProjection.getItems().get(0).getProjectionAliasAsString();
+      // THE COUNT IS CALCULATED BY THE SCAN, ONLY THE FINAL PROJECTION IS LEFT
+      info.aggregateProjection = null;
+    }
+
+    // WITHOUT SORTING AND AGGREGATIONS THE SCAN CAN STOP AS SOON AS THE LIMIT IS REACHED
+    final boolean applyLimit = onlyFilter && info.aggregateProjection == null && countAlias == null;
+
+    info.fetchExecutionPlan = new SelectExecutionPlan(context);
+    info.fetchExecutionPlan.chain(
+        new ParallelFetchFromTypeStep(fetcher.getClassName(), bucketIds, steps.size() == 2 ? info.whereClause : null, countAlias,
+            applyLimit ? info.skip : null, applyLimit ? info.limit : null, info.timeout != null ? info.timeout.getVal().longValue() : -1,
+            context, profilingEnabled));
+  }
+
+  /**
+   * Pushes the properties referenced by the projections, the conditions, the grouping and the sorting down to the steps scanning a type, so
+   * only these properties are decoded from the records, in a single pass. The properties accessed by the query and not recognized here
+   * are still decoded on access, so the set does not need to be complete.
+   */
+  private void handleProjectionPushdown(final QueryPlanningInfo info, final CommandContext context) {
+    if (info.planCreated || info.fetchExecutionPlan == null || info.expand || info.projection == null)
+      return;
+
+    if (!context.getDatabase().getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN))
+      return;
+
+    final Set<String> properties = new LinkedHashSet<>();
+    for (final Projection projection : new Projection[] { info.preAggregateProjection, info.aggregateProjection, info.projection,
+        info.projectionAfterOrderBy }) {
+      if (projection == null || projection.getItems() == null)
+        continue;
+
+      for (final ProjectionItem item : projection.getItems()) {
+        if (item.isAll())
+          // ALL THE PROPERTIES ARE RETURNED
+          return;
+        addReferencedProperties(item.getExpression(), properties);
+      }
+    }
+
+    if (info.whereClause != null)
+      addReferencedProperties(info.whereClause.getBaseExpression(), properties);
+
+    if (info.groupBy != null && info.groupBy.getItems() != null)
+      for (final Expression item : info.groupBy.getItems())
+        addReferencedProperties(item, properties);
+
+    if (info.orderBy != null && info.orderBy.getItems() != null)
+      for (final OrderByItem item : info.orderBy.getItems())
+        if (item.getAlias() != null)
+          properties.add(item.getAlias());
+
+    if (properties.isEmpty())
+      return;
+
+    for (final ExecutionStep step : info.fetchExecutionPlan.getSteps())
+      if (step instanceof FetchFromClassExecutionStep)
+        ((FetchFromClassExecutionStep) step).setProjectionPushdown(new ProjectionPushdown(properties));
+      else if (step instanceof ParallelFetchFromTypeStep)
+        ((ParallelFetchFromTypeStep) step).setProjectionPushdown(new ProjectionPushdown(properties));
+  }
+
+  private static void addReferencedProperties(final BooleanExpression condition, final Set<String> properties) {
+    if (condition instanceof AndBlock) {
+      for (final BooleanExpression sub : ((AndBlock) condition).getSubBlocks())
+        addReferencedProperties(sub, properties);
+    } else if (condition instanceof OrBlock) {
+      for (final BooleanExpression sub : ((OrBlock) condition).getSubBlocks())
+        addReferencedProperties(sub, properties);
+    } else if (condition instanceof NotBlock)
+      addReferencedProperties(((NotBlock) condition).getSub(), properties);
+    else if (condition instanceof ParenthesisBlock)
+      addReferencedProperties(((ParenthesisBlock) condition).getSubElement(), properties);
+    else if (condition instanceof BinaryCondition) {
+      addReferencedProperties(((BinaryCondition) condition).getLeft(), properties);
+      addReferencedProperties(((BinaryCondition) condition).getRight(), properties);
+    } else if (condition instanceof InCondition)
+      addReferencedProperties(((InCondition) condition).getLeft(), properties);
+    else if (condition instanceof IsNullCondition)
+      addReferencedProperties(((IsNullCondition) condition).getExpression(), properties);
+    else if (condition instanceof ContainsAnyCondition)
+      addReferencedProperties(((ContainsAnyCondition) condition).getLeft(), properties);
+    else if (condition instanceof ContainsTextCondition)
+      addReferencedProperties(((ContainsTextCondition) condition).getLeft(), properties);
+    else if (condition instanceof BetweenCondition)
+      addReferencedProperties(((BetweenCondition) condition).getFirst(), properties);
+  }
+
+  private static void addReferencedProperties(final Expression expression, final Set<String> properties) {
+    if (expression != null)
+      addReferencedProperties(expression.getMathExpression(), properties);
+  }
+
+  private static void addReferencedProperties(final MathExpression expression, final Set<String> properties) {
+    if (expression instanceof BaseExpression) {
+      final BaseIdentifier identifier = ((BaseExpression) expression).getIdentifier();
+      if (identifier == null)
+        return;
+
+      if (identifier.getSuffix() != null && identifier.getSuffix().getIdentifier() != null)
+        // PROPERTY, EVENTUALLY FOLLOWED BY MODIFIERS LIKE METHOD CALLS AND ARRAY SELECTORS
+        properties.add(identifier.getSuffix().getIdentifier().getStringValue());
+      else if (identifier.getLevelZero() != null && identifier.getLevelZero().getFunctionCall() != null
+          && identifier.getLevelZero().getFunctionCall().getParams() != null)
+        for (final Expression param : identifier.getLevelZero().getFunctionCall().getParams())
+          addReferencedProperties(param, properties);
+
+    } else if (expression != null && expression.getChildExpressions() != null)
+      for (final MathExpression child : expression.getChildExpressions())
+        addReferencedProperties(child, properties);
+  }
+
   public static void handleOrderBy(final SelectExecutionPlan plan, final QueryPlanningInfo info, final CommandContext context,
       final boolean profilingEnabled) {
     final int skipSize = info.skip == null ? 0 : info.skip.getValue(context);
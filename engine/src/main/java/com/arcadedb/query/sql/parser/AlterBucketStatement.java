@@ -20,8 +20,15 @@
 /* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=true,NODE_PREFIX=O,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_USERTYPE_VISIBILITY_PUBLIC=true */
 package com.arcadedb.query.sql.parser;
 
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.engine.Bucket;
+import com.arcadedb.engine.EmbeddedBucket;
+import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.InternalResultSet;
+import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.schema.Schema;
 
 import java.util.*;
 
@@ -61,60 +68,54 @@ public class AlterBucketStatement extends DDLStatement {
 
   @Override
   public ResultSet executeDDL(final CommandContext context) {
-//    InternalResultSet result = new InternalResultSet();
-//    List<com.orientechnologies.orient.core.storage.OCluster> clustersToUpdate = getClusters(context);
-//    Object finalValue = attributeValue.execute((PIdentifiable) null, context);
-//
-//    com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES attribute;
-//    try {
-//      attribute = OCluster.ATTRIBUTES.valueOf(attributeName.getStringValue());
-//    } catch (IllegalArgumentException e) {
-//      throw OException.wrapException(new PCommandExecutionException(
-//          "Unknown class attribute '" + attributeName + "'. Supported attributes are: " + Arrays
-//              .toString(OCluster.ATTRIBUTES.values())), e);
-//    }
-//
-//    for (com.orientechnologies.orient.core.storage.OCluster bucket : clustersToUpdate) {
-//      if (attributeName.getStringValue().equalsIgnoreCase("status") || attributeName.getStringValue().equalsIgnoreCase("name"))
-//        // REMOVE CACHE OF COMMAND RESULTS IF ACTIVE
-//        getDatabase().getMetadata().getCommandCache().invalidateResultsOfCluster(bucket.getName());
-//      try {
-//        bucket.set(attribute, finalValue);
-//      } catch (IOException e) {
-//        OException.wrapException(new PCommandExecutionException("Cannot execute alter cluster"), e);
-//      }
-//      OResultInternal resultItem = new OResultInternal();
-//      resultItem.setProperty("cluster", bucket.getName());
-//      result.add(resultItem);
-//    }
-
-//    return result;
-    throw new UnsupportedOperationException();
+    final InternalResultSet resultSet = new InternalResultSet();
+
+    final Object finalValue = attributeValue.execute((Identifiable) null, context);
+
+    for (final Bucket bucket : getBuckets(context)) {
+      final ResultInternal result = new ResultInternal();
+
+      switch (attributeName.getStringValue().toLowerCase(Locale.ENGLISH)) {
+      case "compactpages": {
+        // COMPACT THE PAGES WITH AT LEAST THE PERCENTAGE OF SPACE LEFT BY DELETED AND SHRUNK RECORDS
+        if (!(finalValue instanceof Number))
+          throw new CommandExecutionException("Invalid minimum free space percentage '" + finalValue + "' to compact the pages");
+
+        if (!(bucket instanceof EmbeddedBucket))
+          throw new CommandExecutionException("Cannot compact the pages of bucket '" + bucket.getName() + "'");
+
+        result.setProperty("compactedPages", ((EmbeddedBucket) bucket).compactPages(((Number) finalValue).intValue()));
+        break;
+      }
+
+      default:
+        throw new CommandExecutionException("Error on alter bucket: attribute '" + attributeName + "' not valid");
+      }
+
+      result.setProperty("operation", "ALTER BUCKET");
+      result.setProperty("bucketName", bucket.getName());
+      result.setProperty("result", "OK");
+      resultSet.add(result);
+    }
+
+    return resultSet;
+  }
+
+  private List<Bucket> getBuckets(final CommandContext context) {
+    final Schema schema = context.getDatabase().getSchema();
+    if (starred) {
+      final List<Bucket> result = new ArrayList<>();
+      for (final Bucket bucket : schema.getBuckets())
+        if (bucket.getName().startsWith(name.getStringValue()))
+          result.add(bucket);
+      return result;
+    }
+
+    if (!schema.existsBucket(name.getStringValue()))
+      throw new CommandExecutionException("Cannot find bucket " + name);
+    return Collections.singletonList(schema.getBucketByName(name.getStringValue()));
   }
 
-  //  private OCluster.ATTRIBUTES getClusterAttribute(OIdentifier attributeName) {
-//    return null;
-//  }
-//
-//  private List<com.orientechnologies.orient.core.storage.OCluster> getClusters(OCommandContext context) {
-//    OStorage storage = ((ODatabaseDocumentInternal) context.getDatabase()).getStorage();
-//    if (starred) {
-//      List<com.orientechnologies.orient.core.storage.OCluster> result = new ArrayList<>();
-//      for (String bucketName : storage.getClusterNames()) {
-//        if (bucketName.startsWith(name.getStringValue())) {
-//          result.add(storage.getClusterByName(bucketName));
-//        }
-//      }
-//      return result;
-//    } else {
-//      int bucketId = context.getDatabase().getClusterIdByName(name.getStringValue());
-//      if (bucketId <= 0) {
-//        throw new PCommandExecutionException("Cannot find bucket " + name);
-//      }
-//      com.orientechnologies.orient.core.storage.OCluster bucket = storage.getClusterById(bucketId);
-//      return Collections.singletonList(bucket);
-//    }
-//  }
   @Override
   protected Object[] getIdentityElements() {
     return new Object[] { name, attributeName, starred, attributeValue };
@@ -43,6 +43,10 @@ public class ParenthesisBlock extends BooleanExpression {
     return subElement.evaluate(currentRecord, context);
   }
 
+  public BooleanExpression getSubElement() {
+    return subElement;
+  }
+
   public void toString(final Map<String, Object> params, final StringBuilder builder) {
     builder.append("(");
     subElement.toString(params, builder);
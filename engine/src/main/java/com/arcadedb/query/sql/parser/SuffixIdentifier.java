@@ -234,6 +234,10 @@ public class SuffixIdentifier extends SimpleNode {
     return identifier != null;
   }
 
+  public Identifier getIdentifier() {
+    return identifier;
+  }
+
   public boolean isAggregate(final CommandContext context) {
     return false;
   }
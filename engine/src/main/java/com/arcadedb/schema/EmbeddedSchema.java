@@ -34,6 +34,7 @@ import com.arcadedb.engine.ComponentFactory;
 import com.arcadedb.engine.ComponentFile;
 import com.arcadedb.engine.Dictionary;
 import com.arcadedb.engine.EmbeddedBucket;
+import com.arcadedb.engine.WALFile;
 import com.arcadedb.exception.ConfigurationException;
 import com.arcadedb.exception.DatabaseMetadataException;
 import com.arcadedb.exception.DatabaseOperationException;
@@ -77,6 +78,7 @@ public class EmbeddedSchema implements Schema {
   public static final String                                 SCHEMA_FILE_NAME         = "schema.json";
   public static final String                                 SCHEMA_PREV_FILE_NAME    = "schema.prev.json";
   public static final String                                 CACHED_COUNT_FILE_NAME   = "cached-count.json";
+  public static final String                                 FREE_SPACE_MAP_FILE_NAME = "free-space-map.json";
   public static final int                                    BUILD_TX_BATCH_SIZE      = 100_000;
   final               IndexFactory                           indexFactory             = new IndexFactory();
   final               Map<String, EmbeddedDocumentType>      types                    = new HashMap<>();
@@ -85,6 +87,8 @@ public class EmbeddedSchema implements Schema {
   private final       SecurityManager                        security;
   private final       List<Component>                        files                    = new ArrayList<>();
   private final       Map<String, EmbeddedBucket>            bucketMap                = new HashMap<>();
+  // WAL FILES WHOSE RECORDS ARE ALREADY IN THE COUNTS OF THE CACHED COUNT FILE
+  private final       Set<String>                            walFilesInCachedCount    = ConcurrentHashMap.newKeySet();
   private             Map<Integer, EmbeddedDocumentType>     bucketId2TypeMap         = new HashMap<>();
   private             Map<Integer, EmbeddedDocumentType>     bucketId2InvolvedTypeMap = new HashMap<>();
   protected final     Map<String, IndexInternal>             indexMap                 = new HashMap<>();
@@ -582,7 +586,10 @@ public class EmbeddedSchema implements Schema {
   }
 
   public void close() {
-    writeCachedCountFile();
+    synchronized (bucketMap) {
+      writeCachedCountFile(true);
+    }
+    writeFreeSpaceMapFile();
     files.clear();
     types.clear();
     bucketMap.clear();
@@ -603,36 +610,210 @@ public class EmbeddedSchema implements Schema {
         json = new JSONObject(fileContent);
       }
 
-      for (Map.Entry<String, Object> entry : json.toMap().entrySet()) {
+      // THE COUNTS SAVED BY THE PREVIOUS VERSIONS ARE NOT UPDATED WHEN THE BUCKETS CHANGE, SO THEY ARE NOT VALID AFTER A CRASH
+      final boolean persisted = json.has("counts") && json.get("counts") instanceof JSONObject;
+      final JSONObject counts = persisted ? json.getJSONObject("counts") : json;
+
+      for (Map.Entry<String, Object> entry : counts.toMap().entrySet()) {
         final EmbeddedBucket bucket = bucketMap.get(entry.getKey());
-        if (bucket != null)
-          bucket.setCachedRecordCount(((Number) entry.getValue()).longValue());
+        if (bucket != null) {
+          final long count = ((Number) entry.getValue()).longValue();
+          bucket.setCachedRecordCount(count);
+          bucket.setPersistedRecordCount(persisted ? count : -1);
+        }
+      }
+
+      if (persisted && json.has("walFiles")) {
+        final JSONArray walFiles = json.getJSONArray("walFiles");
+        for (int i = 0; i < walFiles.length(); i++)
+          walFilesInCachedCount.add(walFiles.getString(i));
       }
 
     } catch (Throwable e) {
-      LogManager.instance().log(this, Level.WARNING, "Error on saving cached count file", e);
+      LogManager.instance().log(this, Level.WARNING, "Error on loading cached count file", e);
+    }
+  }
+
+  /**
+   * Returns true if the records added and removed by the transactions in the WAL file are already in the counts of the cached count
+   * file, so they must not be applied again in case of recovery.
+   */
+  public boolean isWALFileInCachedCount(final String walFileName) {
+    return walFilesInCachedCount.contains(walFileName);
+  }
+
+  /**
+   * Adds the records added and removed by the transactions of the WAL files to the counts of the cached count file before the WAL
+   * files are dropped. This keeps the counts in the file exact also when the database is not closed properly: at the next open the
+   * records of the transactions in the WAL files left are added to them.
+   */
+  public void onBeforeWALFilesDrop(final Collection<WALFile> walFiles) {
+    synchronized (bucketMap) {
+      for (final WALFile walFile : walFiles) {
+        for (final Map.Entry<Integer, Long> entry : walFile.getBucketRecordDelta().entrySet()) {
+          final Component file = getFileByIdIfExists(entry.getKey());
+          if (file instanceof EmbeddedBucket)
+            ((EmbeddedBucket) file).incrementPersistedRecordCount(entry.getValue());
+        }
+        walFile.getBucketRecordDelta().clear();
+        walFilesInCachedCount.add(walFile.getFileName());
+      }
+      writeCachedCountFile(false);
     }
   }
 
-  private void writeCachedCountFile() {
+  /**
+   * Called after the database is open and recovered. The names of the WAL files are reused by the new WAL files, so the WAL files
+   * already in the counts are removed from the cached count file.
+   */
+  public void onAfterWALRecovery() {
+    synchronized (bucketMap) {
+      if (walFilesInCachedCount.isEmpty())
+        return;
+
+      walFilesInCachedCount.clear();
+      writeCachedCountFile(false);
+    }
+  }
+
+  /**
+   * Called when the record count of a bucket is computed by scanning it. The count to persist does not include the records of the
+   * transactions in the WAL files, because they are added at the drop of the WAL files or at the recovery.
+   */
+  public void onBucketRecordCountComputed(final EmbeddedBucket bucket, final long count) {
+    synchronized (bucketMap) {
+      bucket.initPersistedRecordCount(count - database.getTransactionManager().getBucketRecordDeltaInWAL(bucket.getFileId()));
+    }
+  }
+
+  /**
+   * Removes the record count of the buckets from the cached count file before their changes are applied without being written in
+   * the WAL, like the transactions replicated from the leader or executed with the WAL disabled. The counts of these buckets are
+   * computed again at the next open if the database is not closed properly.
+   */
+  public void onBeforeBucketRecordCountChange(final Collection<Integer> bucketIds) {
+    boolean changed = false;
+    for (final Integer bucketId : bucketIds) {
+      final Component file = getFileByIdIfExists(bucketId);
+      if (file instanceof EmbeddedBucket && ((EmbeddedBucket) file).getPersistedRecordCount() > -1) {
+        changed = true;
+        break;
+      }
+    }
+
+    if (!changed)
+      // FAST PATH: THE COUNTS OF THE BUCKETS ARE NOT IN THE FILE ANYMORE
+      return;
+
+    synchronized (bucketMap) {
+      for (final Integer bucketId : bucketIds) {
+        final Component file = getFileByIdIfExists(bucketId);
+        if (file instanceof EmbeddedBucket)
+          ((EmbeddedBucket) file).setPersistedRecordCount(-1);
+      }
+      writeCachedCountFile(false);
+    }
+  }
+
+  private void writeCachedCountFile(final boolean closing) {
     final File directory = new File(databasePath);
     if (!directory.exists())
       // DATABASE DIRECTORY WAS DELETED
       return;
 
     try {
-      final JSONObject json = new JSONObject();
+      // AT CLOSING THE COUNTS INCLUDE THE RECORDS OF ALL THE TRANSACTIONS IN THE WAL FILES, THAT ARE DROPPED RIGHT AFTER
+      final Set<String> walFiles = new TreeSet<>(walFilesInCachedCount);
+      if (closing)
+        walFiles.addAll(database.getTransactionManager().getWALFileNames());
+
+      final JSONObject counts = new JSONObject();
       for (Map.Entry<String, EmbeddedBucket> b : bucketMap.entrySet()) {
-        final long cachedCount = b.getValue().getCachedRecordCount();
-        if (cachedCount > -1)
-          json.put(b.getKey(), cachedCount);
+        final EmbeddedBucket bucket = b.getValue();
+        long count = bucket.getPersistedRecordCount();
+        if (closing)
+          // THE TRANSACTIONS FAILED AFTER WRITING THE WAL ARE NOT IN THE CURRENT COUNT, BUT THEY ARE RESTORED IF THE WAL IS NOT DROPPED
+          count = count > -1 ?
+              count + database.getTransactionManager().getBucketRecordDeltaInWAL(bucket.getFileId()) :
+              bucket.getCachedRecordCount();
+
+        if (count > -1)
+          counts.put(b.getKey(), count);
       }
 
-      try (final FileWriter file = new FileWriter(new File(directory, CACHED_COUNT_FILE_NAME))) {
-        file.write(json.toString());
+      try (final FileOutputStream file = new FileOutputStream(new File(directory, CACHED_COUNT_FILE_NAME))) {
+        file.write(new JSONObject().put("counts", counts).put("walFiles", new JSONArray(walFiles)).toString().getBytes(encoding));
+        // THE FILE MUST BE ON DISK BEFORE THE WAL FILES ARE DROPPED OR THE CHANGES OUT OF THE WAL ARE WRITTEN
+        file.getFD().sync();
       }
     } catch (Throwable e) {
       LogManager.instance().log(this, Level.WARNING, "Error on saving cached count file", e);
+      if (!closing)
+        // THE COUNTS IN THE FILE COULD BE NOT VALID ANYMORE
+        new File(directory, CACHED_COUNT_FILE_NAME).delete();
+    }
+  }
+
+  private void readFreeSpaceMapFile() {
+    try {
+      final File file = new File(databasePath + File.separator + FREE_SPACE_MAP_FILE_NAME);
+      if (!file.exists() || file.length() == 0)
+        return;
+
+      final JSONObject json;
+      try (final FileInputStream fis = new FileInputStream(file)) {
+        final String fileContent = FileUtils.readStreamAsString(fis, encoding);
+        json = new JSONObject(fileContent);
+      }
+
+      for (final String bucketName : json.keySet()) {
+        final EmbeddedBucket bucket = bucketMap.get(bucketName);
+        if (bucket == null)
+          continue;
+
+        final JSONObject bucketJSON = json.getJSONObject(bucketName);
+        if (bucketJSON.getInt("pageSize") != bucket.getPageSize())
+          // THE BUCKET WAS RECREATED WITH A DIFFERENT PAGE SIZE
+          continue;
+
+        final JSONArray pages = bucketJSON.getJSONArray("pages");
+        final int[] array = new int[pages.length()];
+        for (int i = 0; i < array.length; i++)
+          array[i] = pages.getInt(i);
+
+        bucket.getFreeSpaceMap().fromArray(array);
+      }
+
+    } catch (final Throwable e) {
+      LogManager.instance().log(this, Level.WARNING, "Error on loading free space map file", e);
+    }
+  }
+
+  private void writeFreeSpaceMapFile() {
+    final File directory = new File(databasePath);
+    if (!directory.exists())
+      // DATABASE DIRECTORY WAS DELETED
+      return;
+
+    try {
+      final JSONObject json = new JSONObject();
+      for (final Map.Entry<String, EmbeddedBucket> b : bucketMap.entrySet()) {
+        final int[] pages = b.getValue().getFreeSpaceMap().toArray();
+        if (pages.length == 0)
+          continue;
+
+        final JSONArray array = new JSONArray();
+        for (final int value : pages)
+          array.put(value);
+
+        json.put(b.getKey(), new JSONObject().put("pageSize", b.getValue().getPageSize()).put("pages", array));
+      }
+
+      try (final FileWriter file = new FileWriter(new File(directory, FREE_SPACE_MAP_FILE_NAME))) {
+        file.write(json.toString());
+      }
+    } catch (final Throwable e) {
+      LogManager.instance().log(this, Level.WARNING, "Error on saving free space map file", e);
     }
   }
 
@@ -1136,6 +1317,7 @@ public class EmbeddedSchema implements Schema {
 
       rebuildBucketTypeMap();
       readCachedCountFile();
+      readFreeSpaceMapFile();
     }
   }
 
@@ -56,16 +56,24 @@ import java.util.logging.*;
 /**
  * Default serializer implementation.
  * <p>
- * TODO: check on storing all the property ids at the beginning of the buffer, so to partial deserialize values is much more
- * <p>
- * TODO: efficient, because it doesn't need to unmarshall all the values first.
+ * The properties of a record are stored with a header of (property name id, content position) pairs followed by the content. The header is
+ * sequential (varint pairs in property order) or, for the records with many properties, indexed: the size of the header is stored as a
+ * negative number and the pairs are stored with a fixed size and sorted by name id, so a single property is found with a binary search:
+ * <pre>
+ * sequential: [header end offset:int][properties:varint]([name id:varint][content position:varint])*[content]
+ * indexed:    [-header end offset:int][properties:varint][layout:byte]([name id:fixed][content position:fixed])*[content]
+ * </pre>
+ * The layout byte contains the bytes used by the name ids (high 4 bits) and by the content positions (low 4 bits). The content is always
+ * in property order, so the original order of the properties is preserved also with the indexed header.
  */
 public class BinarySerializer {
   private final BinaryComparator comparator = new BinaryComparator();
   private       Class            dateImplementation;
   private       Class            dateTimeImplementation;
+  private final int              indexedHeaderThreshold;
 
   public BinarySerializer(final ContextConfiguration configuration) throws ClassNotFoundException {
+    indexedHeaderThreshold = configuration.getValueAsInteger(GlobalConfiguration.RECORD_INDEXED_HEADER_THRESHOLD);
     setDateImplementation(configuration.getValue(GlobalConfiguration.DATE_IMPLEMENTATION));
     setDateTimeImplementation(configuration.getValue(GlobalConfiguration.DATE_TIME_IMPLEMENTATION));
   }
@@ -183,14 +191,22 @@ public class BinarySerializer {
   }
 
   public Set<String> getPropertyNames(final Database database, final Binary buffer) {
-    buffer.getInt(); // HEADER-SIZE
+    final boolean indexedHeader = buffer.getInt() < 0; // HEADER-SIZE
     final int properties = (int) buffer.getUnsignedNumber();
     final Set<String> result = new LinkedHashSet<>(properties);
 
+    final Dictionary dictionary = database.getSchema().getDictionary();
+
+    if (indexedHeader) {
+      for (final long entry : readIndexedHeaderInContentOrder(buffer, properties))
+        result.add(dictionary.getNameById((int) entry));
+      return result;
+    }
+
     for (int i = 0; i < properties; ++i) {
       final int nameId = (int) buffer.getUnsignedNumber();
       buffer.getUnsignedNumber(); //contentPosition
-      final String name = database.getSchema().getDictionary().getNameById(nameId);
+      final String name = dictionary.getNameById(nameId);
       result.add(name);
     }
 
@@ -199,7 +215,17 @@ public class BinarySerializer {
 
   public Map<String, Object> deserializeProperties(final Database database, final Binary buffer,
       final EmbeddedModifier embeddedModifier, final DocumentType documentType, final String... fieldNames) {
-    final int headerEndOffset = buffer.getInt();
+    return deserializeProperties(database, buffer, embeddedModifier, documentType, null, fieldNames);
+  }
+
+  /**
+   * Deserializes the requested properties only (all if `fieldNames` is empty). If `decodedBytes` is not null, the bytes of the decoded
+   * values are added to `decodedBytes[0]` and the bytes of the values skipped to `decodedBytes[1]`.
+   */
+  public Map<String, Object> deserializeProperties(final Database database, final Binary buffer,
+      final EmbeddedModifier embeddedModifier, final DocumentType documentType, final long[] decodedBytes, final String... fieldNames) {
+    final int headerSize = buffer.getInt();
+    final int headerEndOffset = Math.abs(headerSize);
     final int properties = (int) buffer.getUnsignedNumber();
 
     if (properties < 0)
@@ -215,8 +241,52 @@ public class BinarySerializer {
     final int[] fieldIds = new int[fieldNames.length];
 
     final Dictionary dictionary = database.getSchema().getDictionary();
-    for (int i = 0; i < fieldNames.length; ++i)
+    int requestedFields = 0;
+    for (int i = 0; i < fieldNames.length; ++i) {
       fieldIds[i] = dictionary.getIdByName(fieldNames[i], false);
+      if (fieldIds[i] > -1)
+        ++requestedFields;
+    }
+
+    final int contentSize = buffer.size() - headerEndOffset;
+    long decoded = 0;
+
+    if (fieldIds.length > 0 && requestedFields == 0) {
+      // NONE OF THE REQUESTED PROPERTIES IS IN THE DICTIONARY
+      if (decodedBytes != null)
+        decodedBytes[1] += contentSize;
+      return values;
+    }
+
+    if (headerSize < 0) {
+      // INDEXED HEADER: LOOKUP THE REQUESTED PROPERTIES ONLY, OR READ ALL THE PROPERTIES IN THE ORIGINAL ORDER
+      if (fieldIds.length > 0) {
+        final int layoutPosition = buffer.position();
+        for (int i = 0; i < fieldIds.length; ++i) {
+          if (fieldIds[i] < 0 || values.containsKey(fieldNames[i]))
+            continue;
+
+          final int contentPosition = findIndexedProperty(buffer, layoutPosition, properties, fieldIds[i]);
+          if (contentPosition > -1) {
+            values.put(fieldNames[i], deserializePropertyValue(database, buffer, embeddedModifier, fieldNames[i],
+                headerEndOffset + contentPosition));
+            decoded += buffer.position() - headerEndOffset - contentPosition;
+          }
+        }
+      } else
+        for (final long entry : readIndexedHeaderInContentOrder(buffer, properties)) {
+          final String propertyName = dictionary.getNameById((int) entry);
+          values.put(propertyName,
+              deserializePropertyValue(database, buffer, embeddedModifier, propertyName, headerEndOffset + (int) (entry >>> 32)));
+          decoded += buffer.position() - headerEndOffset - (int) (entry >>> 32);
+        }
+
+      if (decodedBytes != null) {
+        decodedBytes[0] += decoded;
+        decodedBytes[1] += contentSize - decoded;
+      }
+      return values;
+    }
 
     for (int i = 0; i < properties; ++i) {
       final int nameId = (int) buffer.getUnsignedNumber();
@@ -247,21 +317,26 @@ public class BinarySerializer {
           embeddedModifier != null ? new EmbeddedModifierProperty(embeddedModifier.getOwner(), propertyName) : null;
 
       final Object propertyValue = deserializeValue(database, buffer, type, propertyModifier);
+      decoded += buffer.position() - headerEndOffset - contentPosition;
 
       values.put(propertyName, propertyValue);
 
       buffer.position(lastHeaderPosition);
 
-      if (fieldIds.length > 0 && values.size() >= fieldIds.length)
+      if (fieldIds.length > 0 && values.size() >= requestedFields)
         // ALL REQUESTED PROPERTIES ALREADY FOUND
         break;
     }
 
+    if (decodedBytes != null) {
+      decodedBytes[0] += decoded;
+      decodedBytes[1] += contentSize - decoded;
+    }
     return values;
   }
 
   public boolean hasProperty(final Database database, final Binary buffer, final String fieldName) {
-    buffer.getInt(); // headerEndOffset
+    final int headerSize = buffer.getInt();
     final int properties = (int) buffer.getUnsignedNumber();
     if (properties < 0)
       throw new SerializationException("Error on deserialize record. It may be corrupted (properties=" + properties + ")");
@@ -271,6 +346,9 @@ public class BinarySerializer {
 
     final int fieldId = database.getSchema().getDictionary().getIdByName(fieldName, false);
 
+    if (headerSize < 0)
+      return fieldId > -1 && findIndexedProperty(buffer, buffer.position(), properties, fieldId) > -1;
+
     for (int i = 0; i < properties; ++i) {
       if (fieldId == (int) buffer.getUnsignedNumber())
         return true;
@@ -282,7 +360,8 @@ public class BinarySerializer {
 
   public Object deserializeProperty(final Database database, final Binary buffer, final EmbeddedModifier embeddedModifier,
       final String fieldName, final DocumentType documentType) {
-    final int headerEndOffset = buffer.getInt();
+    final int headerSize = buffer.getInt();
+    final int headerEndOffset = Math.abs(headerSize);
     final int properties = (int) buffer.getUnsignedNumber();
 
     if (properties < 0)
@@ -294,6 +373,14 @@ public class BinarySerializer {
     final Dictionary dictionary = database.getSchema().getDictionary();
     final int fieldId = dictionary.getIdByName(fieldName, false);
 
+    if (headerSize < 0) {
+      // INDEXED HEADER: BINARY SEARCH
+      final int contentPosition = fieldId > -1 ? findIndexedProperty(buffer, buffer.position(), properties, fieldId) : -1;
+      return contentPosition > -1 ?
+          deserializePropertyValue(database, buffer, embeddedModifier, fieldName, headerEndOffset + contentPosition) :
+          null;
+    }
+
     for (int i = 0; i < properties; ++i) {
       final int nameId = (int) buffer.getUnsignedNumber();
       final int contentPosition = (int) buffer.getUnsignedNumber();
@@ -696,11 +783,18 @@ public class BinarySerializer {
 
     final DocumentType documentType = record.getType();
 
+    // WITH THE INDEXED HEADER THE PAIRS ARE COLLECTED AND WRITTEN SORTED AT THE END
+    final boolean indexedHeader = indexedHeaderThreshold > 0 && properties.size() >= indexedHeaderThreshold;
+    final long[] indexedEntries = indexedHeader ? new long[properties.size()] : null;
+    int indexedEntryCount = 0;
+
     for (final Map.Entry<String, Object> entry : properties.entrySet()) {
       final String propertyName = entry.getKey();
 
       // WRITE PROPERTY ID FROM THE DICTIONARY
-      header.putUnsignedNumber(dictionary.getIdByName(propertyName, true));
+      final int nameId = dictionary.getIdByName(propertyName, true);
+      if (!indexedHeader)
+        header.putUnsignedNumber(nameId);
 
       Object value = entry.getValue();
 
@@ -721,15 +815,21 @@ public class BinarySerializer {
       serializeValue(database, content, type, value);
 
       // WRITE PROPERTY CONTENT POSITION
-      header.putUnsignedNumber(startContentPosition);
+      if (indexedHeader)
+        indexedEntries[indexedEntryCount++] = ((long) nameId << 32) | startContentPosition;
+      else
+        header.putUnsignedNumber(startContentPosition);
     }
 
     content.flip();
 
+    if (indexedHeader)
+      writeIndexedHeader(header, indexedEntries);
+
     final int headerEndOffset = header.position();
 
-    // UPDATE HEADER SIZE
-    header.putInt(headerSizePosition, headerEndOffset);
+    // UPDATE HEADER SIZE. A NEGATIVE SIZE MARKS THE INDEXED HEADER
+    header.putInt(headerSizePosition, indexedHeader ? -headerEndOffset : headerEndOffset);
 
     header.append(content);
     header.flip();
@@ -760,6 +860,113 @@ public class BinarySerializer {
     return comparator;
   }
 
+  private Object deserializePropertyValue(final Database database, final Binary buffer, final EmbeddedModifier embeddedModifier,
+      final String propertyName, final int position) {
+    buffer.position(position);
+
+    final byte type = buffer.getByte();
+
+    final EmbeddedModifierProperty propertyModifier =
+        embeddedModifier != null ? new EmbeddedModifierProperty(embeddedModifier.getOwner(), propertyName) : null;
+
+    return deserializeValue(database, buffer, type, propertyModifier);
+  }
+
+  /**
+   * Writes the layout byte and the (name id, content position) pairs sorted by name id. Every entry is packed as name id in the high 32
+   * bits and content position in the low 32 bits.
+   */
+  private void writeIndexedHeader(final Binary header, final long[] entries) {
+    Arrays.sort(entries);
+
+    int maxContentPosition = 0;
+    for (final long entry : entries)
+      maxContentPosition = Math.max(maxContentPosition, (int) entry);
+
+    final int nameIdSize = getFixedSize((int) (entries[entries.length - 1] >>> 32));
+    final int contentPositionSize = getFixedSize(maxContentPosition);
+
+    header.putByte((byte) ((nameIdSize << 4) | contentPositionSize));
+    for (final long entry : entries) {
+      putFixed(header, (int) (entry >>> 32), nameIdSize);
+      putFixed(header, (int) entry, contentPositionSize);
+    }
+  }
+
+  /**
+   * Finds a property in the indexed header with a binary search. Returns the content position of the property or -1 if not found.
+   */
+  private int findIndexedProperty(final Binary buffer, final int layoutPosition, final int properties, final int nameId) {
+    final int layout = buffer.getByte(layoutPosition);
+    final int nameIdSize = (layout >> 4) & 0x0F;
+    final int contentPositionSize = layout & 0x0F;
+    final int entrySize = nameIdSize + contentPositionSize;
+    final int entriesPosition = layoutPosition + 1;
+
+    int low = 0;
+    int high = properties - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int entryPosition = entriesPosition + mid * entrySize;
+      final int midNameId = getFixed(buffer, entryPosition, nameIdSize);
+
+      if (midNameId < nameId)
+        low = mid + 1;
+      else if (midNameId > nameId)
+        high = mid - 1;
+      else
+        return getFixed(buffer, entryPosition + nameIdSize, contentPositionSize);
+    }
+    return -1;
+  }
+
+  /**
+   * Reads all the entries of the indexed header from the current position and returns them in the original order of the properties, packed
+   * as content position in the high 32 bits and name id in the low 32 bits.
+   */
+  private long[] readIndexedHeaderInContentOrder(final Binary buffer, final int properties) {
+    final int layout = buffer.getByte();
+    final int nameIdSize = (layout >> 4) & 0x0F;
+    final int contentPositionSize = layout & 0x0F;
+    final int entrySize = nameIdSize + contentPositionSize;
+
+    final int entriesPosition = buffer.position();
+    final long[] entries = new long[properties];
+    for (int i = 0; i < properties; ++i) {
+      final int entryPosition = entriesPosition + i * entrySize;
+      final int nameId = getFixed(buffer, entryPosition, nameIdSize);
+      final int contentPosition = getFixed(buffer, entryPosition + nameIdSize, contentPositionSize);
+      entries[i] = ((long) contentPosition << 32) | nameId;
+    }
+    buffer.position(entriesPosition + properties * entrySize);
+
+    // THE CONTENT IS WRITTEN IN THE ORIGINAL ORDER OF THE PROPERTIES
+    Arrays.sort(entries);
+    return entries;
+  }
+
+  private static int getFixedSize(final int value) {
+    if (value < (1 << 8))
+      return 1;
+    else if (value < (1 << 16))
+      return 2;
+    else if (value < (1 << 24))
+      return 3;
+    return 4;
+  }
+
+  private static void putFixed(final Binary buffer, final int value, final int size) {
+    for (int i = size - 1; i >= 0; --i)
+      buffer.putByte((byte) (value >>> (i * 8)));
+  }
+
+  private static int getFixed(final Binary buffer, final int position, final int size) {
+    int value = 0;
+    for (int i = 0; i < size; ++i)
+      value = (value << 8) | (buffer.getByte(position + i) & 0xFF);
+    return value;
+  }
+
   private void serializeDateTime(final Binary content, final Object value, final byte type) {
     content.putUnsignedNumber(DateUtils.dateTimeToTimestamp(value, DateUtils.getPrecisionFromBinaryType(type)));
   }
@@ -42,4 +42,31 @@ public class CompressionTest {
 
     Assertions.assertEquals(buffer, decompressed);
   }
+
+  @Test
+  public void testRunLengthCompression() {
+    final byte[] content = new byte[65536];
+    for (int i = 0; i < 300; i++)
+      content[i] = (byte) i;
+    content[40000] = 7;
+
+    final Compression compression = CompressionFactory.getCompression(RunLengthCompression.NAME);
+    final Binary buffer = new Binary(content);
+
+    final Binary compressed = compression.compress(buffer);
+    Assertions.assertTrue(compressed.size() < 1024);
+
+    final Binary decompressed = compression.decompress(compressed, buffer.size());
+    Assertions.assertEquals(buffer, decompressed);
+  }
+
+  @Test
+  public void testCodecsById() {
+    Assertions.assertNull(CompressionFactory.getCompression(CompressionFactory.NONE));
+    Assertions.assertNull(CompressionFactory.getCompression((byte) 0));
+    for (final String name : new String[] { LZ4Compression.NAME, RunLengthCompression.NAME }) {
+      final Compression compression = CompressionFactory.getCompression(name);
+      Assertions.assertSame(compression, CompressionFactory.getCompression(compression.getId()));
+    }
+  }
 }
@@ -30,6 +30,55 @@ public class BloomFilterTest {
     testValidity(new BufferBloomFilter(new Binary(1024 * 1024), 8 * 8, 23), 100000);
   }
 
+  @Test
+  public void testMultipleHashFunctions() {
+    final int slots = 8 * 1024 * 8;
+    final int entries = 5_000;
+    final int hashFunctions = BufferBloomFilter.getOptimalHashFunctions(slots, entries, 0.01);
+    Assertions.assertTrue(hashFunctions > 1);
+
+    final BufferBloomFilter single = new BufferBloomFilter(new Binary(slots / 8), slots, 23);
+    final BufferBloomFilter multi = new BufferBloomFilter(new Binary(slots / 8), 0, slots, 23, hashFunctions);
+    testValidity(multi, entries);
+
+    for (int i = 0; i < entries; i++)
+      single.add(i);
+
+    int singleFalsePositives = 0;
+    int multiFalsePositives = 0;
+    for (int i = entries; i < entries * 21; i++) {
+      if (single.mightContain(i))
+        ++singleFalsePositives;
+      if (multi.mightContain(i))
+        ++multiFalsePositives;
+    }
+
+    Assertions.assertTrue(multiFalsePositives < singleFalsePositives, multiFalsePositives + " >= " + singleFalsePositives);
+    Assertions.assertTrue(multiFalsePositives < entries * 20 * 0.02, "False positives: " + multiFalsePositives);
+  }
+
+  @Test
+  public void testCompatibilityWithSingleHashFunction() {
+    // THE FIRST PROBE SETS THE SAME BIT OF THE FILTERS WRITTEN WITH 1 HASH FUNCTION
+    final Binary buffer = new Binary(1024);
+    final BufferBloomFilter single = new BufferBloomFilter(buffer, 1024 * 8, 23);
+    for (int i = 0; i < 100; i++)
+      single.add(i * 7);
+
+    final BufferBloomFilter reader = new BufferBloomFilter(buffer, 0, 1024 * 8, 23, 1);
+    for (int i = 0; i < 100; i++)
+      Assertions.assertTrue(reader.mightContain(i * 7));
+
+    final Binary multiBuffer = new Binary(1024);
+    final BufferBloomFilter multi = new BufferBloomFilter(multiBuffer, 0, 1024 * 8, 23, 4);
+    for (int i = 0; i < 100; i++)
+      multi.add(i * 7);
+
+    for (int i = 0; i < 1024; i++)
+      if (buffer.getByte(i) != 0)
+        Assertions.assertEquals(buffer.getByte(i), (byte) (buffer.getByte(i) & multiBuffer.getByte(i)));
+  }
+
   private void testValidity(final BufferBloomFilter bf, final int count) {
     int might = 0;
     for (int i = 0; i < count; i++)
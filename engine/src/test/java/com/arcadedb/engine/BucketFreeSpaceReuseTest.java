@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.RID;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Checks the space left by deleted records is reused by the new records instead of allocating new pages.
+ */
+public class BucketFreeSpaceReuseTest extends TestHelper {
+  private static final int    TOT       = 5_000;
+  private static final String TYPE_NAME = "Item";
+  private static final String PAYLOAD   = "x".repeat(200);
+
+  @Test
+  public void testReuseDeletedSpace() {
+    final List<RID> rids = populate();
+    final EmbeddedBucket bucket = getBucket();
+    final int pagesBefore = bucket.getTotalPages();
+
+    deleteEvery(rids, 2);
+    Assertions.assertTrue(bucket.getFreeSpaceMap().getPagesWithFreeSpace() > 0);
+
+    // HALF OF THE DELETED RECORDS, SO THEY FIT IN THE FREED SPACE REGARDLESS OF THE FRAGMENTATION
+    insert(TOT / 4, TOT);
+
+    Assertions.assertEquals(pagesBefore, bucket.getTotalPages());
+    Assertions.assertEquals(TOT / 2 + TOT / 4, database.countType(TYPE_NAME, false));
+    checkRecords(rids);
+  }
+
+  @Test
+  public void testFreeSpaceTrackedAtCommit() throws Exception {
+    final List<RID> rids = populate();
+    deleteEvery(rids, 3);
+
+    // SHRINK SOME RECORDS AND CREATE NEW ONES IN THE FREED SPACE
+    database.transaction(() -> {
+      for (int i = 1; i < rids.size(); i += 5)
+        if (rids.get(i) != null)
+          rids.get(i).asDocument().modify().set("payload", "y").save();
+    });
+    insert(TOT / 10, TOT);
+
+    // THE FREE SPACE TRACKED BY THE TRANSACTIONS IS THE SAME AS THE ONE COMPUTED BY SCANNING THE PAGES
+    final EmbeddedBucket bucket = getBucket();
+    for (int pageNumber = 0; pageNumber < bucket.getTotalPages(); pageNumber++) {
+      final int tracked = bucket.getFreeSpaceMap().getFreeSpace(pageNumber);
+      bucket.updateFreeSpace(
+          ((DatabaseInternal) database).getPageManager().getImmutablePage(new PageId(bucket.getFileId(), pageNumber), bucket.getPageSize(), false, true));
+      Assertions.assertEquals(bucket.getFreeSpaceMap().getFreeSpace(pageNumber), tracked, "Page " + pageNumber);
+    }
+  }
+
+  @Test
+  public void testReuseDisabled() {
+    GlobalConfiguration.BUCKET_REUSE_FREE_SPACE.setValue(false);
+    try {
+      final List<RID> rids = populate();
+      final EmbeddedBucket bucket = getBucket();
+      final int pagesBefore = bucket.getTotalPages();
+
+      deleteEvery(rids, 2);
+      insert(TOT / 4, TOT);
+
+      Assertions.assertTrue(bucket.getTotalPages() > pagesBefore);
+      Assertions.assertEquals(TOT / 2 + TOT / 4, database.countType(TYPE_NAME, false));
+    } finally {
+      GlobalConfiguration.BUCKET_REUSE_FREE_SPACE.reset();
+    }
+  }
+
+  @Test
+  public void testCompactPages() {
+    final List<RID> rids = populate();
+    deleteEvery(rids, 3);
+
+    try (final ResultSet rs = database.command("sql", "alter bucket " + getBucket().getName() + " compactPages 10")) {
+      final Result result = rs.next();
+      Assertions.assertEquals("OK", result.getProperty("result"));
+      Assertions.assertTrue((int) result.getProperty("compactedPages") > 0);
+    }
+
+    // THE RECORDS KEEP THEIR RID
+    checkRecords(rids);
+
+    // NOTHING LEFT TO COMPACT
+    Assertions.assertEquals(0, getBucket().compactPages(10));
+
+    reopenDatabase();
+
+    Assertions.assertTrue(getBucket().getFreeSpaceMap().getPagesWithFreeSpace() > 0);
+    checkRecords(rids);
+  }
+
+  private List<RID> populate() {
+    database.transaction(() -> database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create());
+
+    final List<RID> rids = new ArrayList<>(TOT);
+    database.transaction(() -> {
+      for (int i = 0; i < TOT; i++)
+        rids.add(database.newDocument(TYPE_NAME).set("id", i, "payload", PAYLOAD).save().getIdentity());
+    });
+    return rids;
+  }
+
+  private void insert(final int total, final int fromId) {
+    database.transaction(() -> {
+      for (int i = fromId; i < fromId + total; i++)
+        database.newDocument(TYPE_NAME).set("id", i, "payload", PAYLOAD).save();
+    });
+  }
+
+  private void deleteEvery(final List<RID> rids, final int step) {
+    database.transaction(() -> {
+      for (int i = 0; i < rids.size(); i += step)
+        rids.get(i).asDocument().delete();
+    });
+
+    for (int i = 0; i < rids.size(); i += step)
+      rids.set(i, null);
+  }
+
+  private void checkRecords(final List<RID> rids) {
+    database.transaction(() -> {
+      for (int i = 0; i < rids.size(); i++) {
+        final RID rid = rids.get(i);
+        if (rid == null)
+          continue;
+
+        // REBUILD THE RID ON THE CURRENT DATABASE INSTANCE, THAT COULD HAVE BEEN REOPENED
+        final Document doc = new RID(database, rid.getBucketId(), rid.getPosition()).asDocument();
+        Assertions.assertEquals(i, (int) doc.getInteger("id"));
+        Assertions.assertEquals(PAYLOAD, doc.getString("payload"));
+      }
+    });
+  }
+
+  private EmbeddedBucket getBucket() {
+    return (EmbeddedBucket) database.getSchema().getType(TYPE_NAME).getBuckets(false).get(0);
+  }
+}
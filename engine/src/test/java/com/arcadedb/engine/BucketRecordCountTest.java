@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.schema.EmbeddedSchema;
+import com.arcadedb.serializer.json.JSONObject;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+/**
+ * Checks the record counts of the buckets are available after a restart without scanning the buckets, also when the database was not
+ * closed properly.
+ */
+public class BucketRecordCountTest {
+  private static final String DATABASE_PATH = "target/databases/BucketRecordCountTest";
+  private static final int    TOT           = 1_000;
+
+  @Test
+  public void testCountsAfterRestartAndCrash() throws IOException {
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      final Database created = factory.create();
+      for (int i = 0; i < 2; i++) {
+        final String typeName = "Doc" + i;
+        created.getSchema().buildDocumentType().withName(typeName).withTotalBuckets(1).create();
+        created.transaction(() -> {
+          for (int k = 0; k < TOT; k++)
+            created.newDocument(typeName).set("id", k).save();
+        });
+      }
+      created.close();
+
+      final Database reopened = factory.open();
+
+      // THE COUNTS ARE LOADED AT OPEN
+      for (int i = 0; i < 2; i++) {
+        final EmbeddedBucket bucket = getBucket(reopened, "Doc" + i);
+        Assertions.assertEquals(TOT, bucket.getPersistedRecordCount());
+        Assertions.assertEquals(TOT, bucket.getCachedRecordCount());
+      }
+
+      reopened.transaction(() -> {
+        for (int k = 0; k < 100; k++)
+          reopened.newDocument("Doc1").set("id", TOT + k).save();
+      });
+      reopened.transaction(() -> reopened.command("sql", "delete from Doc1 where id < 10"));
+
+      Assertions.assertEquals(TOT + 90, reopened.countType("Doc1", false));
+
+      // THE COMMITS DO NOT REWRITE THE FILE: THE RECORDS ADDED AND REMOVED ARE IN THE WAL
+      final JSONObject counts = readCachedCountFile().getJSONObject("counts");
+      Assertions.assertEquals(TOT, counts.getLong(getBucket(reopened, "Doc0").getName()));
+      Assertions.assertEquals(TOT, counts.getLong(getBucket(reopened, "Doc1").getName()));
+
+      crash(reopened);
+
+      final Database recovered = factory.open();
+
+      // THE COUNTS ARE RESTORED BY THE RECOVERY WITHOUT SCANNING THE BUCKETS
+      Assertions.assertEquals(TOT, getBucket(recovered, "Doc0").getCachedRecordCount());
+      Assertions.assertEquals(TOT + 90, getBucket(recovered, "Doc1").getCachedRecordCount());
+      Assertions.assertEquals(TOT + 90, readCachedCountFile().getJSONObject("counts").getLong(getBucket(recovered, "Doc1").getName()));
+
+      recovered.transaction(() -> recovered.command("sql", "delete from Doc0 where id < 50"));
+
+      // ANOTHER CRASH: THE NEW WAL FILES REUSE THE NAMES OF THE RECOVERED ONES
+      crash(recovered);
+
+      final Database recoveredAgain = factory.open();
+      try {
+        Assertions.assertEquals(TOT - 50, getBucket(recoveredAgain, "Doc0").getCachedRecordCount());
+        Assertions.assertEquals(TOT + 90, getBucket(recoveredAgain, "Doc1").getCachedRecordCount());
+        Assertions.assertEquals(TOT - 50, recoveredAgain.countType("Doc0", false));
+        Assertions.assertEquals(TOT + 90, recoveredAgain.countType("Doc1", false));
+      } finally {
+        recoveredAgain.drop();
+      }
+    }
+  }
+
+  /**
+   * Simulates a crash. The kill of the database saves the current counts like at closing, so the file is restored as it was before.
+   */
+  private void crash(final Database database) throws IOException {
+    final File file = new File(DATABASE_PATH, EmbeddedSchema.CACHED_COUNT_FILE_NAME);
+    final String content = FileUtils.readFileAsString(file);
+
+    ((DatabaseInternal) database).kill();
+    database.close();
+
+    FileUtils.writeFile(file, content);
+  }
+
+  private JSONObject readCachedCountFile() throws IOException {
+    try (final FileInputStream fis = new FileInputStream(DATABASE_PATH + File.separator + EmbeddedSchema.CACHED_COUNT_FILE_NAME)) {
+      return new JSONObject(FileUtils.readStreamAsString(fis, "UTF-8"));
+    }
+  }
+
+  private EmbeddedBucket getBucket(final Database database, final String typeName) {
+    return (EmbeddedBucket) database.getSchema().getType(typeName).getBuckets(false).get(0);
+  }
+}
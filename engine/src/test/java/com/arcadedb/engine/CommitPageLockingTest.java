@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import com.arcadedb.exception.ConcurrentModificationException;
+import com.arcadedb.exception.TimeoutException;
+import com.arcadedb.utility.LockManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Checks the buckets are locked by page at commit time, so transactions modifying different pages of the same bucket commit concurrently.
+ */
+public class CommitPageLockingTest extends TestHelper {
+  private static final int    TOT       = 10_000;
+  private static final String TYPE_NAME = "Counter";
+
+  @Test
+  public void testSharedFileLocks() throws Exception {
+    final TransactionManager txManager = ((DatabaseInternal) database).getTransactionManager();
+    final int fileId = getBucket().getFileId();
+    final PageId page0 = new PageId(fileId, 0);
+    final PageId page1 = new PageId(fileId, 1);
+
+    final List<Integer> lockedFiles = txManager.tryLockFiles(Collections.emptySet(), Set.of(fileId), 1000);
+    final List<PageId> lockedPages = txManager.tryLockPages(List.of(page0), 1000);
+    try {
+      Assertions.assertEquals(List.of(fileId), lockedFiles);
+      Assertions.assertEquals(LockManager.LOCK_STATUS.ALREADY_ACQUIRED, txManager.tryLockFile(fileId, false, 1000));
+
+      final ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        // ANOTHER THREAD CAN LOCK THE SAME FILE IN SHARED MODE AND ANOTHER PAGE, BUT NOT THE SAME PAGE OR THE WHOLE FILE
+        executor.submit(() -> {
+          final List<Integer> otherFiles = txManager.tryLockFiles(Collections.emptySet(), Set.of(fileId), 1000);
+          final List<PageId> otherPages = txManager.tryLockPages(List.of(page1), 1000);
+          txManager.unlockPages(otherPages);
+          txManager.unlockFilesInOrder(otherFiles);
+
+          Assertions.assertThrows(TimeoutException.class, () -> txManager.tryLockPages(List.of(page0), 100));
+          Assertions.assertEquals(LockManager.LOCK_STATUS.NO, txManager.tryLockFile(fileId, 100));
+        }).get();
+      } finally {
+        executor.shutdown();
+      }
+    } finally {
+      txManager.unlockPages(lockedPages);
+      txManager.unlockFilesInOrder(lockedFiles);
+    }
+
+    Assertions.assertEquals(LockManager.LOCK_STATUS.YES, txManager.tryLockFile(fileId, 1000));
+    txManager.unlockFile(fileId);
+  }
+
+  @Test
+  public void testConcurrentUpdatesOnSameBucket() throws Exception {
+    final List<RID> rids = new ArrayList<>(TOT);
+    database.transaction(() -> {
+      database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+      for (int i = 0; i < TOT; i++)
+        rids.add(database.newDocument(TYPE_NAME).set("id", i, "counter", 0).save().getIdentity());
+    });
+
+    final int threads = 4;
+    final int updatesPerThread = 500;
+    final AtomicInteger committed = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < updatesPerThread; i++) {
+            // EVERY THREAD UPDATES ITS OWN RECORDS, SPREAD ON ALL THE PAGES OF THE BUCKET
+            final RID rid = rids.get((i * threads + thread) % TOT);
+            try {
+              database.transaction(() -> {
+                final MutableDocument doc = rid.asDocument().modify();
+                doc.set("counter", doc.getInteger("counter") + 1).save();
+              }, false, 1);
+              committed.incrementAndGet();
+            } catch (final ConcurrentModificationException e) {
+              // CONFLICT ON THE SAME PAGE, IGNORE IT
+            }
+          }
+        }));
+      }
+      for (final Future<?> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assertions.assertTrue(committed.get() > 0);
+    Assertions.assertEquals(TOT, database.countType(TYPE_NAME, false));
+
+    final long total = database.query("sql", "select sum(counter) as total from " + TYPE_NAME).next().<Number>getProperty("total").longValue();
+    Assertions.assertEquals(committed.get(), total);
+  }
+
+  private EmbeddedBucket getBucket() {
+    if (!database.getSchema().existsType(TYPE_NAME))
+      database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+    return (EmbeddedBucket) database.getSchema().getType(TYPE_NAME).getBuckets(false).get(0);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+public class MemoryMappedReadTest {
+  private static final String DATABASE_PATH = "target/databases/MemoryMappedReadTest";
+  private static final int    TOT           = 20_000;
+
+  @Test
+  public void testReadThroughMappedSegments() {
+    executeWithMemoryMappedReads(false);
+  }
+
+  @Test
+  public void testReadThroughMappedSegmentsBypassingCache() {
+    executeWithMemoryMappedReads(true);
+  }
+
+  private void executeWithMemoryMappedReads(final boolean bypassCache) {
+    GlobalConfiguration.PAGE_READ_MMAP.setValue(true);
+    GlobalConfiguration.PAGE_READ_MMAP_BYPASS_CACHE.setValue(bypassCache);
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      try (final Database database = factory.create()) {
+        database.getSchema().createDocumentType("Doc");
+        database.transaction(() -> {
+          for (int i = 0; i < TOT; i++) {
+            final MutableDocument doc = database.newDocument("Doc");
+            doc.set("id", i);
+            doc.set("name", "doc" + i);
+            doc.save();
+          }
+        });
+      }
+
+      final Database database = factory.open();
+      try {
+        for (final ComponentFile file : ((DatabaseInternal) database).getFileManager().getFiles())
+          if (file instanceof PaginatedComponentFile)
+            Assertions.assertTrue(((PaginatedComponentFile) file).isMemoryMapped());
+
+        // READ TWICE: THE SECOND SCAN IS SERVED BY THE READ CACHE OR, IF BYPASSED, BY THE MAPPED SEGMENTS AGAIN
+        for (int loop = 0; loop < 2; loop++) {
+          final long[] total = new long[1];
+          database.iterateType("Doc", true).forEachRemaining(record -> {
+            final int id = record.asDocument().getInteger("id");
+            Assertions.assertEquals("doc" + id, record.asDocument().getString("name"));
+            total[0] += id;
+          });
+          Assertions.assertEquals((long) TOT * (TOT - 1) / 2, total[0]);
+        }
+
+        // UPDATES ARE WRITTEN THROUGH THE CHANNEL AND MUST BE VISIBLE FROM THE MAPPED SEGMENTS
+        database.transaction(() -> database.scanType("Doc", true, record -> {
+          final MutableDocument doc = record.modify();
+          doc.set("name", "updated" + doc.getInteger("id"));
+          doc.save();
+          return true;
+        }));
+
+        ((DatabaseInternal) database).getPageManager().clear();
+
+        database.iterateType("Doc", true).forEachRemaining(record -> Assertions.assertEquals(
+            "updated" + record.asDocument().getInteger("id"), record.asDocument().getString("name")));
+
+        if (bypassCache)
+          Assertions.assertEquals(0, ((DatabaseInternal) database).getPageManager().getStats().readCachePages);
+
+      } finally {
+        database.drop();
+      }
+    } finally {
+      GlobalConfiguration.PAGE_READ_MMAP.reset();
+      GlobalConfiguration.PAGE_READ_MMAP_BYPASS_CACHE.reset();
+    }
+  }
+}
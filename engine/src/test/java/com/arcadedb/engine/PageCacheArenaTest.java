@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.*;
+
+public class PageCacheArenaTest {
+  private static final String DATABASE_PATH = "target/databases/PageCacheArenaTest";
+
+  @Test
+  public void testFramesAreReused() {
+    final PageCacheArena arena = new PageCacheArena(PageCacheArena.CHUNK_SIZE);
+
+    final ByteBuffer frame = arena.allocate(1024);
+    Assertions.assertNotNull(frame);
+    Assertions.assertEquals(1024, frame.capacity());
+    frame.putLong(0, 1234L);
+
+    PageCacheArena.PageCacheArenaStats stats = arena.getStats();
+    Assertions.assertEquals(PageCacheArena.CHUNK_SIZE, stats.allocated);
+    Assertions.assertEquals(1024, stats.used);
+
+    arena.free(frame);
+    stats = arena.getStats();
+    Assertions.assertEquals(0, stats.used);
+    Assertions.assertTrue(stats.fragmentation >= 0);
+
+    // THE SAME FRAME IS RETURNED, WITH THE CONTENT RESET
+    final ByteBuffer reused = arena.allocate(1024);
+    Assertions.assertSame(frame, reused);
+    Assertions.assertEquals(0L, reused.getLong(0));
+  }
+
+  @Test
+  public void testArenaFull() {
+    final PageCacheArena arena = new PageCacheArena(PageCacheArena.CHUNK_SIZE);
+
+    final int frameSize = PageCacheArena.CHUNK_SIZE / 4;
+    for (int i = 0; i < 4; i++)
+      Assertions.assertNotNull(arena.allocate(frameSize));
+
+    Assertions.assertNull(arena.allocate(frameSize));
+    Assertions.assertEquals(1, arena.getStats().overflows);
+  }
+
+  @Test
+  public void testCloseWithPinnedFrames() {
+    final PageCacheArena arena = new PageCacheArena(PageCacheArena.CHUNK_SIZE);
+
+    final ByteBuffer free = arena.allocate(1024);
+    final ByteBuffer pinned = arena.allocate(1024);
+    arena.free(free);
+
+    arena.close();
+    Assertions.assertEquals(1024, arena.getStats().used);
+    Assertions.assertNull(arena.allocate(1024));
+
+    // THE FRAME RELEASED AFTER THE CLOSE IS DISCARDED
+    arena.free(pinned);
+    Assertions.assertEquals(0, arena.getStats().used);
+  }
+
+  @Test
+  public void testDatabaseWithOffHeapPageCache() {
+    GlobalConfiguration.PAGE_CACHE_OFF_HEAP.setValue(true);
+    GlobalConfiguration.MAX_PAGE_RAM.setValue(16);
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      final Database database = factory.create();
+      try {
+        database.getSchema().createDocumentType("Doc");
+
+        final String payload = "x".repeat(1024);
+        database.transaction(() -> {
+          for (int i = 0; i < 50_000; i++) {
+            final MutableDocument doc = database.newDocument("Doc");
+            doc.set("id", i);
+            doc.set("payload", payload);
+            doc.save();
+          }
+        });
+
+        final long[] total = new long[1];
+        database.iterateType("Doc", true).forEachRemaining(record -> {
+          Assertions.assertEquals(payload, record.asDocument().getString("payload"));
+          total[0] += record.asDocument().getInteger("id");
+        });
+        Assertions.assertEquals(50_000L * 49_999L / 2, total[0]);
+
+        // INDEX LOOKUPS READ THE PAGES IN PLACE FROM THE OFF-HEAP FRAMES
+        database.getSchema().getType("Doc").createProperty("id", Integer.class);
+        database.getSchema().getType("Doc").createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, true, "id");
+        for (int i = 0; i < 50_000; i += 997)
+          Assertions.assertEquals(payload, database.lookupByKey("Doc", "id", i).next().asDocument().getString("payload"));
+
+        final PageManager.PPageManagerStats stats = ((DatabaseInternal) database).getPageManager().getStats();
+        Assertions.assertTrue(stats.offHeap);
+        Assertions.assertTrue(stats.offHeapAllocated > 0);
+        Assertions.assertTrue(stats.offHeapUsed > 0);
+        Assertions.assertTrue(stats.pagesEvicted > 0);
+      } finally {
+        database.drop();
+      }
+    } finally {
+      GlobalConfiguration.PAGE_CACHE_OFF_HEAP.reset();
+      GlobalConfiguration.MAX_PAGE_RAM.reset();
+    }
+  }
+}
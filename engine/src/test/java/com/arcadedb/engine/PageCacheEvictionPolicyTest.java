@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class PageCacheEvictionPolicyTest {
+  private static final int PAGE_SIZE = 1024;
+
+  @Test
+  public void testClockEvictsUnreferencedPagesFirst() {
+    final ConcurrentMap<PageId, CachedPage> cache = new ConcurrentHashMap<>();
+    final ClockPageCacheEvictionPolicy policy = new ClockPageCacheEvictionPolicy(cache, 4);
+
+    // HOT PAGES ARE LOADED AND ACCESSED AGAIN
+    for (int i = 0; i < 10; i++)
+      policy.onPageAccessed(addPage(cache, policy, new PageId(1, i)));
+
+    // A SCAN LOADS MANY PAGES ONLY ONCE
+    for (int i = 0; i < 100; i++)
+      addPage(cache, policy, new PageId(2, i));
+
+    final long freed = policy.evict(50L * PAGE_SIZE, page -> cache.remove(page.getPageId(), page));
+    Assertions.assertTrue(freed > 50L * PAGE_SIZE);
+
+    for (int i = 0; i < 10; i++)
+      Assertions.assertTrue(cache.containsKey(new PageId(1, i)));
+  }
+
+  @Test
+  public void testClockSkipsRemovedPages() {
+    final ConcurrentMap<PageId, CachedPage> cache = new ConcurrentHashMap<>();
+    final ClockPageCacheEvictionPolicy policy = new ClockPageCacheEvictionPolicy(cache, 2);
+
+    for (int i = 0; i < 10; i++)
+      addPage(cache, policy, new PageId(1, i));
+
+    for (int i = 0; i < 5; i++) {
+      cache.remove(new PageId(1, i));
+      policy.onPageRemoved(new PageId(1, i));
+    }
+
+    final List<PageId> evicted = new ArrayList<>();
+    final long freed = policy.evict(100L * PAGE_SIZE, page -> {
+      evicted.add(page.getPageId());
+      return cache.remove(page.getPageId(), page);
+    });
+
+    Assertions.assertEquals(5L * PAGE_SIZE, freed);
+    Assertions.assertEquals(5, evicted.size());
+    Assertions.assertTrue(cache.isEmpty());
+  }
+
+  @Test
+  public void testLRUEvictsOldestPages() {
+    final ConcurrentMap<PageId, CachedPage> cache = new ConcurrentHashMap<>();
+    final LRUPageCacheEvictionPolicy policy = new LRUPageCacheEvictionPolicy(cache);
+
+    for (int i = 0; i < 10; i++)
+      addPage(cache, policy, new PageId(1, i));
+
+    final long freed = policy.evict(5L * PAGE_SIZE, page -> cache.remove(page.getPageId(), page));
+    Assertions.assertTrue(freed > 5L * PAGE_SIZE);
+    Assertions.assertTrue(cache.size() < 5);
+  }
+
+  private CachedPage addPage(final Map<PageId, CachedPage> cache, final PageCacheEvictionPolicy policy, final PageId pageId) {
+    final CachedPage page = new CachedPage(null, pageId, PAGE_SIZE);
+    cache.put(pageId, page);
+    policy.onPageAdded(pageId);
+    return page;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Checks the transactions written compressed in the WAL are restored after a crash.
+ */
+public class WALCompressionTest {
+  private static final String DATABASE_PATH = "target/databases/WALCompressionTest";
+  private static final int    TX            = 300;
+  private static final int    TX_SIZE       = 10;
+
+  @Test
+  public void testRunLengthCompression() {
+    executeRecovery("rle");
+  }
+
+  @Test
+  public void testLZ4Compression() {
+    executeRecovery("lz4");
+  }
+
+  private void executeRecovery(final String compression) {
+    GlobalConfiguration.TX_WAL_COMPRESSION.setValue(compression);
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      final Database database = factory.create();
+      database.getSchema().createDocumentType("Doc");
+
+      for (int tx = 0; tx < TX; tx++) {
+        final int txNumber = tx;
+        database.transaction(() -> {
+          for (int i = 0; i < TX_SIZE; i++)
+            database.newDocument("Doc").set("id", txNumber * TX_SIZE + i, "name", "Doc-" + txNumber).save();
+        });
+      }
+
+      final Map<String, Object> stats = ((DatabaseInternal) database).getTransactionManager().getStats();
+      Assertions.assertEquals(compression, stats.get("compression"));
+      Assertions.assertTrue((Long) stats.get("compressedTransactions") > 0);
+      Assertions.assertTrue((Double) stats.get("compressionRatio") > 1D);
+
+      // SIMULATE A CRASH: THE PAGES NOT FLUSHED YET ARE RESTORED FROM THE COMPRESSED WAL
+      ((DatabaseInternal) database).kill();
+      database.close();
+
+      final AtomicBoolean recovered = new AtomicBoolean(false);
+      factory.registerCallback(DatabaseInternal.CALLBACK_EVENT.DB_NOT_CLOSED, () -> {
+        recovered.set(true);
+        return null;
+      });
+
+      final Database reopened = factory.open();
+      try {
+        Assertions.assertTrue(recovered.get());
+        Assertions.assertEquals(TX * TX_SIZE, reopened.countType("Doc", false));
+
+        final long[] sum = new long[1];
+        reopened.iterateType("Doc", false).forEachRemaining(record -> sum[0] += record.asDocument().getInteger("id"));
+
+        final long records = (long) TX * TX_SIZE;
+        Assertions.assertEquals(records * (records - 1) / 2, sum[0]);
+      } finally {
+        reopened.drop();
+      }
+    } finally {
+      GlobalConfiguration.TX_WAL_COMPRESSION.reset();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+public class WALGroupCommitTest {
+  private static final String DATABASE_PATH = "target/databases/WALGroupCommitTest";
+  private static final int    THREADS       = Runtime.getRuntime().availableProcessors() * 2;
+  private static final int    TX_PER_THREAD = 100;
+
+  @Test
+  public void testConcurrentCommitsWithFullFlush() throws InterruptedException {
+    GlobalConfiguration.TX_WAL_FLUSH.setValue(2);
+    GlobalConfiguration.TX_WAL_GROUP_COMMIT_WINDOW.setValue(500);
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      try (final Database database = factory.create()) {
+        for (int i = 0; i < THREADS; i++)
+          database.getSchema().createDocumentType("Doc" + i);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+          final String typeName = "Doc" + i;
+          final Thread thread = new Thread(() -> {
+            for (int tx = 0; tx < TX_PER_THREAD; tx++) {
+              final int id = tx;
+              database.transaction(() -> database.newDocument(typeName).set("id", id).save());
+            }
+          });
+          threads.add(thread);
+          thread.start();
+        }
+
+        for (final Thread thread : threads)
+          thread.join();
+
+        final Map<String, Object> stats = ((DatabaseInternal) database).getTransactionManager().getStats();
+        final long groupCommits = (Long) stats.get("groupCommits");
+        final long groupCommitTransactions = (Long) stats.get("groupCommitTransactions");
+        final long syncs = (Long) stats.get("syncs");
+
+        Assertions.assertTrue(groupCommitTransactions >= THREADS * TX_PER_THREAD);
+        Assertions.assertTrue(groupCommits > 0 && groupCommits <= groupCommitTransactions);
+        Assertions.assertTrue(syncs > 0 && syncs <= groupCommits);
+        Assertions.assertTrue((Double) stats.get("groupCommitAvgBatchSize") >= 1D);
+      }
+
+      final Database database = factory.open();
+      try {
+        for (int i = 0; i < THREADS; i++)
+          Assertions.assertEquals(TX_PER_THREAD, database.countType("Doc" + i, false));
+      } finally {
+        database.drop();
+      }
+    } finally {
+      GlobalConfiguration.TX_WAL_FLUSH.reset();
+      GlobalConfiguration.TX_WAL_GROUP_COMMIT_WINDOW.reset();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+public class WALRecoveryTest {
+  private static final String DATABASE_PATH = "target/databases/WALRecoveryTest";
+  private static final int    TYPES         = 4;
+  private static final int    TX            = 500;
+  private static final int    TX_SIZE       = 10;
+
+  @Test
+  public void testSequentialRecovery() {
+    executeRecovery(1);
+  }
+
+  @Test
+  public void testParallelRecovery() {
+    executeRecovery(4);
+  }
+
+  private void executeRecovery(final int recoveryThreads) {
+    GlobalConfiguration.TX_WAL_RECOVERY_THREADS.setValue(recoveryThreads);
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(DATABASE_PATH)) {
+      final Database database = factory.create();
+      for (int i = 0; i < TYPES; i++)
+        database.getSchema().createDocumentType("Doc" + i);
+
+      for (int tx = 0; tx < TX; tx++) {
+        final int txNumber = tx;
+        database.transaction(() -> {
+          for (int i = 0; i < TX_SIZE; i++)
+            database.newDocument("Doc" + (txNumber % TYPES)).set("id", txNumber * TX_SIZE + i).save();
+        });
+      }
+
+      // SIMULATE A CRASH: THE PAGES NOT FLUSHED YET ARE RESTORED FROM THE WAL
+      ((DatabaseInternal) database).kill();
+      database.close();
+
+      final AtomicBoolean recovered = new AtomicBoolean(false);
+      factory.registerCallback(DatabaseInternal.CALLBACK_EVENT.DB_NOT_CLOSED, () -> {
+        recovered.set(true);
+        return null;
+      });
+
+      final Database reopened = factory.open();
+      try {
+        Assertions.assertTrue(recovered.get());
+
+        long total = 0;
+        for (int i = 0; i < TYPES; i++) {
+          Assertions.assertEquals(TX / TYPES * TX_SIZE, reopened.countType("Doc" + i, false));
+
+          final long[] sum = new long[1];
+          reopened.iterateType("Doc" + i, false).forEachRemaining(record -> sum[0] += record.asDocument().getInteger("id"));
+          total += sum[0];
+        }
+
+        final long records = (long) TX * TX_SIZE;
+        Assertions.assertEquals(records * (records - 1) / 2, total);
+      } finally {
+        reopened.drop();
+      }
+    } finally {
+      GlobalConfiguration.TX_WAL_RECOVERY_THREADS.reset();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.index.lsm.LSMTreeIndex;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the Bloom filters stored in the LSM-Tree index pages skip the pages that cannot contain the key.
+ */
+public class LSMTreeIndexBloomFilterTest extends TestHelper {
+  private static final int    TOT             = 20_000;
+  private static final int    BATCH           = 1_000;
+  private static final int    INDEX_PAGE_SIZE = 16 * 1024;
+  private static final String TYPE_NAME       = "Item";
+
+  @Test
+  public void testLookupsSkipPages() throws Exception {
+    GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.setValue(0);
+    GlobalConfiguration.INDEX_BLOOM_FILTER_PAGE_PERCENTAGE.setValue(10);
+    try {
+      final LSMTreeIndex index = createAndPopulate("id");
+
+      checkLookups(index);
+
+      final long avoidedReads = index.getStats().get("bloomFilterAvoidedPageReads");
+      final long avoidedSearches = index.getStats().get("bloomFilterAvoidedPageSearches");
+      Assertions.assertTrue(avoidedReads > 0, "Avoided page reads: " + avoidedReads);
+      Assertions.assertTrue(avoidedSearches > 0, "Avoided page searches: " + avoidedSearches);
+
+      // THE FILTERS ARE WRITTEN ALSO IN THE COMPACTED PAGES
+      index.scheduleCompaction();
+      Assertions.assertTrue(index.compact());
+
+      checkLookups(index);
+
+    } finally {
+      GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.reset();
+      GlobalConfiguration.INDEX_BLOOM_FILTER_PAGE_PERCENTAGE.reset();
+    }
+  }
+
+  @Test
+  public void testPagesWithoutFilter() throws Exception {
+    GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.setValue(0);
+    GlobalConfiguration.INDEX_BLOOM_FILTER_PAGE_PERCENTAGE.setValue(0);
+    try {
+      final LSMTreeIndex index = createAndPopulate("id");
+
+      checkLookups(index);
+
+      Assertions.assertEquals(0L, index.getStats().get("bloomFilterAvoidedPageReads"));
+      Assertions.assertEquals(0L, index.getStats().get("bloomFilterAvoidedPageSearches"));
+
+    } finally {
+      GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.reset();
+      GlobalConfiguration.INDEX_BLOOM_FILTER_PAGE_PERCENTAGE.reset();
+    }
+  }
+
+  private LSMTreeIndex createAndPopulate(final String propertyName) {
+    database.transaction(() -> {
+      final DocumentType type = database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+      type.createProperty(propertyName, Integer.class);
+      database.getSchema().createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, true, TYPE_NAME, new String[] { propertyName }, INDEX_PAGE_SIZE);
+    });
+
+    for (int i = 0; i < TOT; i += BATCH) {
+      final int from = i;
+      database.transaction(() -> {
+        for (int k = from; k < from + BATCH; ++k)
+          database.newDocument(TYPE_NAME).set(propertyName, k * 2).save();
+      });
+    }
+
+    return (LSMTreeIndex) ((TypeIndex) database.getSchema().getIndexByName(TYPE_NAME + "[" + propertyName + "]")).getIndexesOnBuckets()[0];
+  }
+
+  private void checkLookups(final LSMTreeIndex index) {
+    database.transaction(() -> {
+      for (int k = 0; k < TOT; ++k) {
+        // EVEN KEYS ARE PRESENT
+        final IndexCursor found = index.get(new Object[] { k * 2 });
+        Assertions.assertTrue(found.hasNext(), "Key " + (k * 2) + " not found");
+        found.next();
+        Assertions.assertFalse(found.hasNext());
+
+        // ODD KEYS ARE MISSING
+        Assertions.assertFalse(index.get(new Object[] { k * 2 + 1 }).hasNext());
+      }
+    });
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.EmbeddedDatabase;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.index.lsm.LSMTreeIndex;
+import com.arcadedb.index.lsm.LSMTreeIndexCompactionScheduler;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Checks the background compaction of LSM-Tree indexes runs in bounded increments on the dedicated scheduler.
+ */
+public class LSMTreeIndexCompactionSchedulerTest extends TestHelper {
+  private static final int    TOT             = 20_000;
+  private static final int    BATCH           = 1_000;
+  private static final int    INDEX_PAGE_SIZE = 8 * 1024;
+  private static final String TYPE_NAME       = "Item";
+
+  @Test
+  public void testIncrementalCompaction() throws Exception {
+    GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.setValue(2);
+    GlobalConfiguration.INDEX_COMPACTION_MAX_PAGES_PER_RUN.setValue(2);
+    try {
+      database.transaction(() -> {
+        final DocumentType type = database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+        type.createProperty("id", Integer.class);
+        database.getSchema().createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, true, TYPE_NAME, new String[] { "id" }, INDEX_PAGE_SIZE);
+      });
+
+      for (int i = 0; i < TOT; i += BATCH) {
+        final int from = i;
+        database.transaction(() -> {
+          for (int k = from; k < from + BATCH; ++k)
+            database.newDocument(TYPE_NAME).set("id", k).save();
+        });
+      }
+
+      final LSMTreeIndex index = (LSMTreeIndex) ((TypeIndex) database.getSchema().getIndexByName(TYPE_NAME + "[id]")).getIndexesOnBuckets()[0];
+      final LSMTreeIndexCompactionScheduler scheduler = ((EmbeddedDatabase) ((DatabaseInternal) database).getEmbedded()).getIndexCompactionScheduler();
+
+      final long timeout = System.currentTimeMillis() + 60_000;
+      while ((scheduler.isProcessing() || index.isCompacting()) && System.currentTimeMillis() < timeout)
+        Thread.sleep(100);
+
+      Assertions.assertFalse(scheduler.isProcessing());
+
+      final Map<String, Long> stats = index.getStats();
+      // EVERY RUN COMPACTS 2 PAGES AT MOST, SO MORE RUNS ARE NEEDED
+      Assertions.assertTrue(stats.get("compactionRuns") > 1, "Compaction runs: " + stats.get("compactionRuns"));
+      Assertions.assertTrue(stats.get("compactionPagesRead") > 0);
+      Assertions.assertTrue(stats.get("compactionPagesWritten") > 0);
+      Assertions.assertTrue(stats.get("compactionDebt") < 2, "Compaction debt: " + stats.get("compactionDebt"));
+      Assertions.assertTrue(index.getWriteAmplification() >= 1D);
+
+      final Map<String, Object> dbStats = database.getStats();
+      Assertions.assertTrue((long) dbStats.get("indexCompactions") > 1);
+      Assertions.assertTrue((long) dbStats.get("indexCompactionPagesWritten") > 0);
+
+      database.transaction(() -> {
+        for (int k = 0; k < TOT; ++k) {
+          final IndexCursor cursor = index.get(new Object[] { k });
+          Assertions.assertTrue(cursor.hasNext(), "Key " + k + " not found");
+          cursor.next();
+          Assertions.assertFalse(cursor.hasNext());
+        }
+      });
+
+      try (final ResultSet rs = database.query("sql", "select from schema:indexes where name = ?", index.getName())) {
+        final Result r = rs.next();
+        Assertions.assertNotNull(r.getProperty("compactionDebt"));
+        Assertions.assertNotNull(r.getProperty("writeAmplification"));
+      }
+
+      // THE PAGES ALREADY COMPACTED BY THE LAST RUNS ARE STILL SKIPPED AFTER REOPENING THE DATABASE
+      final int compactedPages = index.getMutableIndex().getCompactedPages();
+      reopenDatabase();
+
+      final LSMTreeIndex reopened = (LSMTreeIndex) ((TypeIndex) database.getSchema().getIndexByName(TYPE_NAME + "[id]")).getIndexesOnBuckets()[0];
+      Assertions.assertEquals(compactedPages, reopened.getMutableIndex().getCompactedPages());
+
+      database.transaction(() -> {
+        for (int k = 0; k < TOT; ++k) {
+          final IndexCursor cursor = reopened.get(new Object[] { k });
+          Assertions.assertTrue(cursor.hasNext(), "Key " + k + " not found after reopening");
+          cursor.next();
+          Assertions.assertFalse(cursor.hasNext());
+        }
+        Assertions.assertEquals(TOT, reopened.countEntries());
+      });
+
+    } finally {
+      GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.reset();
+      GlobalConfiguration.INDEX_COMPACTION_MAX_PAGES_PER_RUN.reset();
+    }
+  }
+}
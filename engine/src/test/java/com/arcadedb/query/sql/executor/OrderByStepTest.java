@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks ORDER BY with the bounded top-K heap and with the external merge sort spilling to temporary files.
+ */
+public class OrderByStepTest extends TestHelper {
+  private static final int    TOT       = 5_000;
+  private static final String TYPE_NAME = "Sorted";
+
+  @Test
+  public void testExternalSort() {
+    populate();
+
+    GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.setValue(300);
+    try {
+      final int spillFilesBefore = countSpillFiles();
+
+      try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value, id")) {
+        checkOrder(rs, TOT);
+      }
+
+      // PROJECTIONS ARE SPILLED AS WELL
+      try (final ResultSet rs = database.query("sql", "select id, value, tags from " + TYPE_NAME + " order by value desc, id desc")) {
+        int total = 0;
+        Result last = null;
+        while (rs.hasNext()) {
+          final Result r = rs.next();
+          Assertions.assertEquals(List.of("a", "b"), r.getProperty("tags"));
+          if (last != null) {
+            final int cmp = Integer.compare(last.<Integer>getProperty("value"), r.<Integer>getProperty("value"));
+            Assertions.assertTrue(cmp > 0 || (cmp == 0 && last.<Integer>getProperty("id") > r.<Integer>getProperty("id")));
+          }
+          last = r;
+          ++total;
+        }
+        Assertions.assertEquals(TOT, total);
+      }
+
+      // A LIMIT OVER THE SPILL THRESHOLD USES THE EXTERNAL SORT
+      try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value, id limit 1000")) {
+        checkOrder(rs, 1000);
+      }
+
+      Assertions.assertEquals(spillFilesBefore, countSpillFiles());
+
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.reset();
+    }
+  }
+
+  @Test
+  public void testTopResults() {
+    populate();
+
+    // EQUAL VALUES KEEP THE ORDER OF ARRIVAL, AS WITH THE FULL SORT
+    final List<Integer> expected = new ArrayList<>();
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value")) {
+      while (rs.hasNext() && expected.size() < 25)
+        expected.add(rs.next().getProperty("id"));
+    }
+
+    final List<Integer> top = new ArrayList<>();
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value limit 25")) {
+      while (rs.hasNext())
+        top.add(rs.next().getProperty("id"));
+    }
+    Assertions.assertEquals(expected, top);
+
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value skip 10 limit 5")) {
+      int total = 0;
+      while (rs.hasNext()) {
+        Assertions.assertEquals(expected.get(10 + total), rs.next().<Integer>getProperty("id"));
+        ++total;
+      }
+      Assertions.assertEquals(5, total);
+    }
+
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " order by value limit 0")) {
+      Assertions.assertFalse(rs.hasNext());
+    }
+  }
+
+  private void populate() {
+    database.transaction(() -> {
+      database.getSchema().createDocumentType(TYPE_NAME);
+      final Random random = new Random(7);
+      for (int i = 0; i < TOT; i++)
+        database.newDocument(TYPE_NAME).set("id", i, "value", random.nextInt(100), "tags", List.of("a", "b")).save();
+    });
+  }
+
+  private void checkOrder(final ResultSet rs, final int expected) {
+    int total = 0;
+    Result last = null;
+    while (rs.hasNext()) {
+      final Result r = rs.next();
+      Assertions.assertTrue(r.isElement());
+      if (last != null) {
+        final int cmp = Integer.compare(last.<Integer>getProperty("value"), r.<Integer>getProperty("value"));
+        Assertions.assertTrue(cmp < 0 || (cmp == 0 && last.<Integer>getProperty("id") < r.<Integer>getProperty("id")));
+      }
+      last = r;
+      ++total;
+    }
+    Assertions.assertEquals(expected, total);
+  }
+
+  private int countSpillFiles() {
+    final String[] files = new File(System.getProperty("java.io.tmpdir")).list(
+        (dir, name) -> name.startsWith("arcadedb-" + database.getName() + "-") && name.endsWith(".spill"));
+    return files == null ? 0 : files.length;
+  }
+}
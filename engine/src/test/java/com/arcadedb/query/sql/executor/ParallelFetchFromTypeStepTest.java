@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Checks the scans of big types are executed by multiple threads, returning the same results of a sequential scan.
+ */
+public class ParallelFetchFromTypeStepTest extends TestHelper {
+  private static final int    TOT       = 20_000;
+  private static final String TYPE_NAME = "Scanned";
+
+  @BeforeEach
+  public void enableParallelScan() {
+    // ONE PAGE PER MORSEL, SO ALSO A SMALL TYPE IS SCANNED IN PARALLEL
+    GlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.setValue(4);
+    GlobalConfiguration.QUERY_PARALLEL_SCAN_MORSEL_PAGES.setValue(1);
+
+    database.transaction(() -> {
+      database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(4).create();
+      for (int i = 0; i < TOT; i++)
+        database.newDocument(TYPE_NAME).set("id", i, "name", "item" + i).save();
+    });
+  }
+
+  @AfterEach
+  public void resetParallelScan() {
+    GlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.reset();
+    GlobalConfiguration.QUERY_PARALLEL_SCAN_MORSEL_PAGES.reset();
+  }
+
+  @Test
+  public void testFilter() {
+    final Set<Integer> found = new HashSet<>();
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " where id % 3 = 0")) {
+      while (rs.hasNext()) {
+        final int id = rs.next().getProperty("id");
+        Assertions.assertEquals(0, id % 3);
+        Assertions.assertTrue(found.add(id), "Duplicated record " + id);
+      }
+    }
+    Assertions.assertEquals((TOT + 2) / 3, found.size());
+
+    try (final ResultSet rs = database.query("sql", "profile select from " + TYPE_NAME + " where id % 3 = 0")) {
+      final String plan = rs.getExecutionPlan().get().prettyPrint(0, 2);
+      Assertions.assertTrue(plan.contains("PARALLEL FETCH FROM TYPE " + TYPE_NAME), plan);
+      Assertions.assertTrue(plan.contains("threads: 4"), plan);
+      Assertions.assertTrue(plan.contains("scanned records: " + TOT + ","), plan);
+    }
+  }
+
+  @Test
+  public void testCount() {
+    try (final ResultSet rs = database.query("sql", "select count(*) as total from " + TYPE_NAME + " where id < 1000 or name = 'item19999'")) {
+      Assertions.assertEquals(1001L, (long) rs.next().getProperty("total"));
+      Assertions.assertFalse(rs.hasNext());
+    }
+
+    try (final ResultSet rs = database.query("sql", "select count(*) as total from " + TYPE_NAME + " where id < 0")) {
+      Assertions.assertEquals(0L, (long) rs.next().getProperty("total"));
+      Assertions.assertFalse(rs.hasNext());
+    }
+
+    try (final ResultSet rs = database.query("sql", "explain select count(*) from " + TYPE_NAME + " where id < 1000")) {
+      final String plan = rs.getExecutionPlan().get().prettyPrint(0, 2);
+      Assertions.assertTrue(plan.contains("COUNT AS"), plan);
+      Assertions.assertFalse(plan.contains("CALCULATE AGGREGATE PROJECTIONS"), plan);
+    }
+  }
+
+  @Test
+  public void testFunctionsAndParameters() {
+    // EVERY WORKER EVALUATES ITS OWN COPY OF THE CONDITION AND READS THE PARAMETERS FROM ITS OWN CONTEXT
+    for (int i = 0; i < 10; i++)
+      try (final ResultSet rs = database.query("sql",
+          "select count(*) as total from " + TYPE_NAME + " where abs(id) < :max and name.toUpperCase() like 'ITEM%'", Map.of("max", 5000))) {
+        Assertions.assertEquals(5000L, (long) rs.next().getProperty("total"));
+      }
+  }
+
+  @Test
+  public void testLimit() {
+    try (final ResultSet rs = database.query("sql", "select from " + TYPE_NAME + " where id % 2 = 0 skip 10 limit 50")) {
+      int total = 0;
+      while (rs.hasNext()) {
+        Assertions.assertEquals(0, (int) rs.next().getProperty("id") % 2);
+        ++total;
+      }
+      Assertions.assertEquals(50, total);
+    }
+  }
+
+  @Test
+  public void testChangesInTransaction() {
+    // THE RECORDS CREATED IN THE CURRENT TRANSACTION ARE NOT VISIBLE BY THE WORKERS: THE SCAN IS SEQUENTIAL
+    database.begin();
+    try {
+      for (int i = TOT; i < TOT + 100; i++)
+        database.newDocument(TYPE_NAME).set("id", i).save();
+
+      try (final ResultSet rs = database.query("sql", "select count(*) as total from " + TYPE_NAME + " where id >= " + TOT)) {
+        Assertions.assertEquals(100L, (long) rs.next().getProperty("total"));
+      }
+    } finally {
+      database.rollback();
+    }
+  }
+}
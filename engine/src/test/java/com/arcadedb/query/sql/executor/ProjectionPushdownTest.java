@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Checks only the properties referenced by a query are decoded from the scanned records, returning the same results of a full decoding.
+ */
+public class ProjectionPushdownTest extends TestHelper {
+  private static final int    TOT       = 1_000;
+  private static final String TYPE_NAME = "Wide";
+
+  @BeforeEach
+  public void populate() {
+    database.transaction(() -> {
+      database.getSchema().createDocumentType(TYPE_NAME);
+      for (int i = 0; i < TOT; i++)
+        database.newDocument(TYPE_NAME)
+            .set("id", i, "name", "item" + i, "category", i % 10, "tags", List.of("t" + i % 3), "payload", "x".repeat(500)).save();
+    });
+  }
+
+  @Test
+  public void testSameResults() {
+    final String[] queries = {
+        "select id, name from " + TYPE_NAME + " where category = 3 order by id",
+        "select name.toUpperCase() as upper from " + TYPE_NAME + " where (id between 10 and 20) and not (name is null) order by upper",
+        "select category, count(*) as total, max(id) as maxId from " + TYPE_NAME + " group by category order by category",
+        "select id, payload.length() as len from " + TYPE_NAME + " where tags contains 't1' and id in [1, 4, 7, 8] order by id",
+        "select id, category from " + TYPE_NAME + " where id < 5 or name = 'item999' order by id desc" };
+
+    for (final String query : queries) {
+      final List<Map<String, Object>> expected;
+      GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.setValue(false);
+      try {
+        expected = execute(query);
+      } finally {
+        GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.reset();
+      }
+
+      Assertions.assertFalse(expected.isEmpty(), query);
+      Assertions.assertEquals(expected, execute(query), query);
+    }
+  }
+
+  @Test
+  public void testPlan() {
+    try (final ResultSet rs = database.query("sql", "profile select id, name from " + TYPE_NAME + " where category = 3")) {
+      final String plan = rs.getExecutionPlan().get().prettyPrint(0, 2);
+      Assertions.assertTrue(plan.contains("DECODE PROPERTIES"), plan);
+      Assertions.assertTrue(plan.contains("bytes decoded: "), plan);
+      // THE PAYLOAD IS NEVER DECODED
+      Assertions.assertFalse(plan.contains("skipped: 0)"), plan);
+    }
+
+    // ALL THE PROPERTIES ARE RETURNED
+    try (final ResultSet rs = database.query("sql", "explain select * from " + TYPE_NAME + " where category = 3")) {
+      Assertions.assertFalse(rs.getExecutionPlan().get().prettyPrint(0, 2).contains("DECODE PROPERTIES"));
+    }
+
+    GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.setValue(false);
+    try (final ResultSet rs = database.query("sql", "explain select id from " + TYPE_NAME)) {
+      Assertions.assertFalse(rs.getExecutionPlan().get().prettyPrint(0, 2).contains("DECODE PROPERTIES"));
+    } finally {
+      GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.reset();
+    }
+  }
+
+  @Test
+  public void testPropertyNotPushedDown() {
+    // THE PROPERTIES NOT RECOGNIZED BY THE PLANNER ARE DECODED ON ACCESS
+    try (final ResultSet rs = database.query("sql", "select id, $current.name as name from " + TYPE_NAME + " where id = 5")) {
+      final Result result = rs.next();
+      Assertions.assertEquals(5, (int) result.getProperty("id"));
+      Assertions.assertEquals("item5", result.getProperty("name"));
+      Assertions.assertFalse(rs.hasNext());
+    }
+  }
+
+  private List<Map<String, Object>> execute(final String query) {
+    final List<Map<String, Object>> result = new ArrayList<>();
+    try (final ResultSet rs = database.query("sql", query)) {
+      while (rs.hasNext())
+        result.add(rs.next().toMap());
+    }
+    return result;
+  }
+}
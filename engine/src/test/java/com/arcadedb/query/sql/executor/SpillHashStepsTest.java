@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Checks DISTINCT and GROUP BY spill hash partitions to disk when the heap budget is exceeded, returning the same results.
+ */
+public class SpillHashStepsTest extends TestHelper {
+  private static final int    TOT       = 10_000;
+  private static final int    GROUPS    = 2_000;
+  private static final String TYPE_NAME = "Spilled";
+
+  @Test
+  public void testDistinct() {
+    populate();
+
+    final Set<Integer> expected = queryDistinct();
+
+    GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.setValue(100);
+    try {
+      Assertions.assertEquals(expected, queryDistinct());
+
+      try (final ResultSet rs = database.query("sql", "profile select distinct category from " + TYPE_NAME)) {
+        final String plan = rs.getExecutionPlan().get().prettyPrint(0, 2);
+        Assertions.assertTrue(plan.contains("peak heap elements: 100,"), plan);
+        Assertions.assertFalse(plan.contains("spilled elements: 0)"), plan);
+      }
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.reset();
+    }
+  }
+
+  @Test
+  public void testGroupBy() {
+    populate();
+
+    final Map<Integer, Long> expected = queryGroupBy();
+    Assertions.assertEquals(GROUPS, expected.size());
+
+    // WITH 20 GROUPS IN HEAP THE PARTITIONS ARE PARTITIONED AGAIN
+    GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.setValue(20);
+    try {
+      Assertions.assertEquals(expected, queryGroupBy());
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_HEAP_ELEMENTS.reset();
+    }
+  }
+
+  private void populate() {
+    database.transaction(() -> {
+      database.getSchema().createDocumentType(TYPE_NAME);
+      for (int i = 0; i < TOT; i++)
+        database.newDocument(TYPE_NAME).set("id", i, "category", i % GROUPS).save();
+    });
+  }
+
+  private Set<Integer> queryDistinct() {
+    final Set<Integer> values = new HashSet<>();
+    try (final ResultSet rs = database.query("sql", "select distinct category from " + TYPE_NAME)) {
+      while (rs.hasNext())
+        Assertions.assertTrue(values.add(rs.next().getProperty("category")));
+    }
+    return values;
+  }
+
+  private Map<Integer, Long> queryGroupBy() {
+    final Map<Integer, Long> groups = new HashMap<>();
+    try (final ResultSet rs = database.query("sql", "select category, count(*) as total, sum(id) as ids from " + TYPE_NAME + " group by category")) {
+      while (rs.hasNext()) {
+        final Result r = rs.next();
+        Assertions.assertEquals(TOT / GROUPS, r.<Long>getProperty("total"));
+        Assertions.assertNull(groups.put(r.getProperty("category"), ((Number) r.getProperty("ids")).longValue()));
+      }
+    }
+    return groups;
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.serializer;
 
+import com.arcadedb.ContextConfiguration;
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.TestHelper;
 import com.arcadedb.database.Binary;
@@ -27,6 +28,7 @@ import com.arcadedb.database.EmbeddedDocument;
 import com.arcadedb.database.EmbeddedModifierProperty;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.MutableEmbeddedDocument;
+import com.arcadedb.database.RID;
 import com.arcadedb.schema.DocumentType;
 import com.arcadedb.schema.Type;
 import org.junit.jupiter.api.Assertions;
@@ -562,4 +564,71 @@ public class SerializerTest extends TestHelper {
       }
     });
   }
+
+  @Test
+  public void testIndexedHeader() throws ClassNotFoundException {
+    final int properties = 100;
+
+    final BinarySerializer serializer = new BinarySerializer(database.getConfiguration());
+
+    final ContextConfiguration sequentialConfiguration = new ContextConfiguration();
+    sequentialConfiguration.setValue(GlobalConfiguration.RECORD_INDEXED_HEADER_THRESHOLD, 0);
+    final BinarySerializer sequentialSerializer = new BinarySerializer(sequentialConfiguration);
+
+    database.transaction(() -> {
+      database.getSchema().createDocumentType("Wide");
+
+      final MutableDocument doc = database.newDocument("Wide");
+      // NAMES NOT IN ID ORDER TO CHECK THE ORIGINAL ORDER OF THE PROPERTIES IS PRESERVED
+      for (int i = properties - 1; i >= 0; --i)
+        doc.set("p" + i, i % 2 == 0 ? i : "value" + i);
+
+      for (final BinarySerializer writer : new BinarySerializer[] { serializer, sequentialSerializer }) {
+        final Binary buffer = writer.serialize((DatabaseInternal) database, doc);
+        buffer.getByte(); // SKIP RECORD TYPE
+        final int headerSize = buffer.getInt(buffer.position());
+        Assertions.assertEquals(writer == serializer, headerSize < 0);
+
+        // THE RECORDS WRITTEN WITH BOTH THE HEADERS ARE READABLE
+        final int start = buffer.position();
+        final Map<String, Object> all = serializer.deserializeProperties(database, buffer, null, null);
+        Assertions.assertEquals(new ArrayList<>(doc.getPropertyNames()), new ArrayList<>(all.keySet()));
+        for (int i = 0; i < properties; ++i)
+          Assertions.assertEquals(i % 2 == 0 ? i : "value" + i, all.get("p" + i));
+
+        buffer.position(start);
+        Assertions.assertEquals(new ArrayList<>(doc.getPropertyNames()), new ArrayList<>(serializer.getPropertyNames(database, buffer)));
+
+        buffer.position(start);
+        final Map<String, Object> some = serializer.deserializeProperties(database, buffer, null, null, "p99", "p0", "missing", "p50");
+        Assertions.assertEquals(Set.of("p99", "p0", "p50"), some.keySet());
+        Assertions.assertEquals("value99", some.get("p99"));
+        Assertions.assertEquals(0, some.get("p0"));
+        Assertions.assertEquals(50, some.get("p50"));
+
+        for (int i = 0; i < properties; ++i) {
+          buffer.position(start);
+          Assertions.assertTrue(serializer.hasProperty(database, buffer, "p" + i));
+          buffer.position(start);
+          Assertions.assertEquals(i % 2 == 0 ? i : "value" + i, serializer.deserializeProperty(database, buffer, null, "p" + i, null));
+        }
+
+        buffer.position(start);
+        Assertions.assertFalse(serializer.hasProperty(database, buffer, "missing"));
+        buffer.position(start);
+        Assertions.assertNull(serializer.deserializeProperty(database, buffer, null, "missing", null));
+      }
+
+      doc.save();
+      final RID rid = doc.getIdentity();
+      database.commit();
+      database.begin();
+
+      final Document loaded = rid.asDocument(true);
+      Assertions.assertEquals("value77", loaded.get("p77"));
+      Assertions.assertTrue(loaded.has("p76"));
+      Assertions.assertFalse(loaded.has("missing"));
+      Assertions.assertEquals(properties, loaded.toMap(false).size());
+    });
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.engine.BufferBloomFilter;
+import com.arcadedb.engine.MurmurHash;
+
+import java.util.function.*;
+
+/**
+ * Compares the single hash Bloom filter with the multi-probe one: nanoseconds per operation of add() and mightContain() and the
+ * measured false positive rate with the same amount of memory.
+ */
+public class PerformanceBloomFilter {
+  private static final int    SLOTS               = 8 * 64 * 1024;
+  private static final int    ENTRIES             = 50_000;
+  private static final int    LOOKUPS             = 1_000_000;
+  private static final int    ROUNDS              = 2;
+  private static final int    WARMUP_LOOPS        = 5;
+  private static final int    LOOPS               = 10;
+  private static final int    SEED                = 23;
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+  private static       long   blackHole;
+
+  private interface Filter {
+    void add(int value);
+
+    boolean mightContain(int value);
+  }
+
+  public static void main(final String[] args) {
+    final int hashFunctions = BufferBloomFilter.getOptimalHashFunctions(SLOTS, ENTRIES, FALSE_POSITIVE_RATE);
+
+    System.out.println(
+        String.format("Filter with %d slots and %d entries, target false positive rate %.4f: %d hash functions (expected rate %.4f)", SLOTS,
+            ENTRIES, FALSE_POSITIVE_RATE, hashFunctions, BufferBloomFilter.getExpectedFalsePositiveRate(SLOTS, hashFunctions, ENTRIES)));
+
+    // THE FIRST ROUND WARMS UP ALSO THE SHARED CALL SITES, SO ONLY THE LAST ONE IS MEANINGFUL
+    for (int round = 1; round <= ROUNDS; ++round) {
+      System.out.println("Round " + round + "/" + ROUNDS);
+      run("legacy", () -> new LegacyBloomFilter(new Binary(SLOTS / 8), SLOTS, SEED));
+      run("k=1", () -> wrap(new BufferBloomFilter(new Binary(SLOTS / 8), 0, SLOTS, SEED, 1)));
+      run("k=" + hashFunctions, () -> wrap(new BufferBloomFilter(new Binary(SLOTS / 8), 0, SLOTS, SEED, hashFunctions)));
+    }
+
+    System.out.println("(ignore) " + blackHole);
+  }
+
+  private static void run(final String name, final Supplier<Filter> factory) {
+    for (int i = 0; i < WARMUP_LOOPS; ++i)
+      measure(factory.get());
+
+    long addNanos = 0;
+    long lookupNanos = 0;
+    long falsePositives = 0;
+    for (int i = 0; i < LOOPS; ++i) {
+      final long[] result = measure(factory.get());
+      addNanos += result[0];
+      lookupNanos += result[1];
+      falsePositives += result[2];
+    }
+
+    System.out.println(String.format("%-7s add: %.2f ns/op, mightContain: %.2f ns/op, false positive rate: %.4f", name,
+        (double) addNanos / ((long) LOOPS * ENTRIES), (double) lookupNanos / ((long) LOOPS * LOOKUPS),
+        (double) falsePositives / ((long) LOOPS * LOOKUPS)));
+  }
+
+  /**
+   * Adds the even numbers and looks up the odd ones, so every positive is a false positive.
+   */
+  private static long[] measure(final Filter filter) {
+    long begin = System.nanoTime();
+    for (int i = 0; i < ENTRIES; ++i)
+      filter.add(i * 2);
+    final long addNanos = System.nanoTime() - begin;
+
+    long positives = 0;
+    begin = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; ++i)
+      if (filter.mightContain(i * 2 + 1))
+        ++positives;
+    final long lookupNanos = System.nanoTime() - begin;
+
+    blackHole += positives;
+    return new long[] { addNanos, lookupNanos, positives };
+  }
+
+  private static Filter wrap(final BufferBloomFilter filter) {
+    return new Filter() {
+      @Override
+      public void add(final int value) {
+        filter.add(value);
+      }
+
+      @Override
+      public boolean mightContain(final int value) {
+        return filter.mightContain(value);
+      }
+    };
+  }
+
+  /**
+   * The single hash implementation used before the multi-probe filter, kept as baseline.
+   */
+  private static class LegacyBloomFilter implements Filter {
+    private final Binary buffer;
+    private final int    hashSeed;
+    private final int    capacity;
+
+    private LegacyBloomFilter(final Binary buffer, final int slots, final int hashSeed) {
+      this.buffer = buffer;
+      this.hashSeed = hashSeed;
+      this.capacity = slots;
+    }
+
+    @Override
+    public void add(final int value) {
+      final int[] result = compute(value);
+      final byte v = buffer.getByte(result[0]);
+      buffer.putByte(result[0], (byte) (v | (1 << result[1])));
+    }
+
+    @Override
+    public boolean mightContain(final int value) {
+      final int[] result = compute(value);
+      final byte v = buffer.getByte(result[0]);
+      return ((v >> result[1]) & 1) == 1;
+    }
+
+    private int[] compute(final int value) {
+      final byte[] b = new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+      final int hash = MurmurHash.hash32(b, 4, hashSeed);
+      final int h = hash != Integer.MIN_VALUE ? Math.abs(hash) : Integer.MAX_VALUE;
+      final int bit2change = h >= capacity ? h % capacity : h;
+      return new int[] { bit2change / 8, bit2change % 8 };
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import com.arcadedb.engine.WALFile;
+import com.arcadedb.exception.ConcurrentModificationException;
+import com.arcadedb.utility.FileUtils;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Measures the commit throughput of many threads updating random records of the same bucket (hot bucket), locking the whole bucket or
+ * only the modified pages at commit time.
+ */
+public class PerformanceCommitContention {
+  private static final int    RECORDS       = 200_000;
+  private static final int    TX_PER_THREAD = 20_000;
+  private static final String TYPE_NAME     = "Hot";
+
+  public static void main(final String[] args) throws Exception {
+    PerformanceTest.clean();
+
+    final int cores = Runtime.getRuntime().availableProcessors();
+    try {
+      for (final int threads : new int[] { 1, cores / 2, cores, cores * 2 }) {
+        if (threads < 1)
+          continue;
+        new PerformanceCommitContention().run(false, threads);
+        new PerformanceCommitContention().run(true, threads);
+      }
+    } finally {
+      GlobalConfiguration.COMMIT_PAGE_LOCKING.reset();
+    }
+  }
+
+  private void run(final boolean pageLocking, final int threads) throws Exception {
+    FileUtils.deleteRecursively(new File(PerformanceTest.DATABASE_PATH));
+
+    GlobalConfiguration.COMMIT_PAGE_LOCKING.setValue(pageLocking);
+
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH)) {
+      final Database database = factory.create();
+      try {
+        database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+
+        final RID[] rids = new RID[RECORDS];
+        database.transaction(() -> {
+          for (int i = 0; i < RECORDS; i++)
+            rids[i] = database.newDocument(TYPE_NAME).set("id", i, "counter", 0).save().getIdentity();
+        });
+
+        final AtomicLong commits = new AtomicLong();
+        final AtomicLong conflicts = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+          workers[t] = new Thread(() -> {
+            database.setWALFlush(WALFile.FLUSH_TYPE.NO);
+            final Random random = new Random();
+            try {
+              start.await();
+            } catch (final InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+
+            for (int i = 0; i < TX_PER_THREAD; i++) {
+              final RID rid = rids[random.nextInt(RECORDS)];
+              try {
+                database.transaction(() -> {
+                  final MutableDocument doc = rid.asDocument().modify();
+                  doc.set("counter", doc.getInteger("counter") + 1).save();
+                }, false, 1);
+                commits.incrementAndGet();
+              } catch (final ConcurrentModificationException e) {
+                conflicts.incrementAndGet();
+              }
+            }
+          });
+          workers[t].start();
+        }
+
+        final long begin = System.currentTimeMillis();
+        start.countDown();
+        for (final Thread worker : workers)
+          worker.join();
+        final long elapsed = Math.max(1, System.currentTimeMillis() - begin);
+
+        System.out.printf("%s locking, %d thread(s): %d commits in %dms (%d tx/sec), %d conflicts%n",
+            pageLocking ? "Page" : "File", threads, commits.get(), elapsed, commits.get() * 1000 / elapsed, conflicts.get());
+
+      } finally {
+        database.drop();
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.MutableDocument;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Compares cold (empty read cache) and warm scans reading the pages through the file channel and through memory mapped segments,
+ * with and without the read cache.
+ */
+public class PerformanceMmapScan {
+  private static final String TYPE_NAME  = "Person";
+  private static final int    TOT        = 3_000_000;
+  private static final int    WARM_LOOPS = 3;
+
+  public static void main(final String[] args) {
+    PerformanceTest.clean();
+    new PerformanceMmapScan().run();
+  }
+
+  private void run() {
+    createDatabase();
+
+    try {
+      scan("channel", false, false);
+      scan("mmap", true, false);
+      scan("mmap (bypass cache)", true, true);
+    } finally {
+      GlobalConfiguration.PAGE_READ_MMAP.reset();
+      GlobalConfiguration.PAGE_READ_MMAP_BYPASS_CACHE.reset();
+    }
+  }
+
+  private void createDatabase() {
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH); final Database database = factory.create()) {
+      database.getSchema().createDocumentType(TYPE_NAME);
+
+      database.async().setCommitEvery(10_000);
+      for (int i = 0; i < TOT; i++) {
+        final MutableDocument doc = database.newDocument(TYPE_NAME);
+        doc.set("id", i);
+        doc.set("name", "Jay");
+        doc.set("surname", "Miner" + i);
+        database.async().createRecord(doc, null);
+      }
+      database.async().waitCompletion();
+    }
+  }
+
+  private void scan(final String mode, final boolean mmap, final boolean bypassCache) {
+    GlobalConfiguration.PAGE_READ_MMAP.setValue(mmap);
+    GlobalConfiguration.PAGE_READ_MMAP_BYPASS_CACHE.setValue(bypassCache);
+
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH); final Database database = factory.open()) {
+      for (int i = 0; i < WARM_LOOPS + 1; ++i) {
+        final long begin = System.currentTimeMillis();
+        final AtomicInteger row = new AtomicInteger();
+
+        database.scanType(TYPE_NAME, true, record -> {
+          record.get("id");
+          row.incrementAndGet();
+          return true;
+        });
+
+        System.out.println(
+            String.format("%s %s scan: %d elements in %dms", mode, i == 0 ? "cold" : "warm", row.get(), System.currentTimeMillis() - begin));
+      }
+    }
+  }
+}
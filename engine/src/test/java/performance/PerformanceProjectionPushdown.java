@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.utility.FileUtils;
+
+import java.io.*;
+
+/**
+ * Measures the speed of a query reading few properties from documents with many properties, with and without the projection pushdown.
+ */
+public class PerformanceProjectionPushdown {
+  private static final int    RECORDS    = 100_000;
+  private static final int    PROPERTIES = 50;
+  private static final int    ROUNDS     = 5;
+  private static final String TYPE_NAME  = "Wide";
+
+  public static void main(final String[] args) {
+    PerformanceTest.clean();
+    FileUtils.deleteRecursively(new File(PerformanceTest.DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH)) {
+      final Database database = factory.create();
+      try {
+        database.getSchema().createDocumentType(TYPE_NAME);
+        database.transaction(() -> {
+          for (int i = 0; i < RECORDS; i++) {
+            final MutableDocument doc = database.newDocument(TYPE_NAME);
+            for (int p = 0; p < PROPERTIES; p++)
+              doc.set("p" + p, p % 2 == 0 ? i + p : "value-" + i + "-" + p);
+            doc.save();
+          }
+        });
+
+        final String query = "select p0, p2 from " + TYPE_NAME + " where p4 % 10 = 0";
+
+        for (int round = 0; round < ROUNDS; round++) {
+          for (final boolean pushdown : new boolean[] { false, true }) {
+            GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.setValue(pushdown);
+
+            final long begin = System.currentTimeMillis();
+            long total = 0;
+            try (final ResultSet rs = database.query("sql", query)) {
+              while (rs.hasNext())
+                total += rs.next().<Integer>getProperty("p0");
+            }
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            System.out.printf("round %d, pushdown %s: query on %d records in %dms (checksum=%d)%n", round, pushdown, RECORDS, elapsed,
+                total);
+          }
+        }
+      } finally {
+        GlobalConfiguration.QUERY_PROJECTION_PUSHDOWN.reset();
+        database.drop();
+      }
+    }
+  }
+}
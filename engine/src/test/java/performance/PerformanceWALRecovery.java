@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.utility.FileUtils;
+
+import java.io.*;
+
+/**
+ * Measures the time to recover a database after a crash, replaying the WAL files sequentially and in parallel.
+ */
+public class PerformanceWALRecovery {
+  private static final int TYPES   = 8;
+  private static final int TX      = 20_000;
+  private static final int TX_SIZE = 50;
+
+  public static void main(final String[] args) {
+    PerformanceTest.clean();
+
+    final int cores = Runtime.getRuntime().availableProcessors();
+    try {
+      new PerformanceWALRecovery().run(1);
+      new PerformanceWALRecovery().run(cores);
+    } finally {
+      GlobalConfiguration.TX_WAL_RECOVERY_THREADS.reset();
+    }
+  }
+
+  private void run(final int recoveryThreads) {
+    FileUtils.deleteRecursively(new File(PerformanceTest.DATABASE_PATH));
+
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH)) {
+      final Database database = factory.create();
+      for (int i = 0; i < TYPES; i++)
+        database.getSchema().createDocumentType("Doc" + i);
+
+      for (int tx = 0; tx < TX; tx++) {
+        final int txNumber = tx;
+        database.transaction(() -> {
+          for (int i = 0; i < TX_SIZE; i++)
+            database.newDocument("Doc" + (txNumber % TYPES)).set("id", txNumber * TX_SIZE + i).set("name", "Jay" + i).save();
+        });
+      }
+
+      ((DatabaseInternal) database).kill();
+      database.close();
+
+      GlobalConfiguration.TX_WAL_RECOVERY_THREADS.setValue(recoveryThreads);
+
+      final long begin = System.currentTimeMillis();
+      final Database recovered = factory.open();
+      System.out.println("Recovery with " + recoveryThreads + " thread(s) completed in " + (System.currentTimeMillis() - begin) + "ms");
+
+      recovered.drop();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package performance;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.Record;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.utility.FileUtils;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Measures the speed of reading one property from documents with many properties, written with the sequential and the indexed header.
+ */
+public class PerformanceWideDocument {
+  private static final int    RECORDS    = 50_000;
+  private static final int    PROPERTIES = 200;
+  private static final int    ROUNDS     = 5;
+  private static final String TYPE_NAME  = "Wide";
+
+  public static void main(final String[] args) {
+    PerformanceTest.clean();
+
+    try {
+      new PerformanceWideDocument().run(0);
+      new PerformanceWideDocument().run((int) GlobalConfiguration.RECORD_INDEXED_HEADER_THRESHOLD.getDefValue());
+    } finally {
+      GlobalConfiguration.RECORD_INDEXED_HEADER_THRESHOLD.reset();
+    }
+  }
+
+  private void run(final int indexedHeaderThreshold) {
+    FileUtils.deleteRecursively(new File(PerformanceTest.DATABASE_PATH));
+
+    GlobalConfiguration.RECORD_INDEXED_HEADER_THRESHOLD.setValue(indexedHeaderThreshold);
+
+    try (final DatabaseFactory factory = new DatabaseFactory(PerformanceTest.DATABASE_PATH)) {
+      final Database database = factory.create();
+      try {
+        database.getSchema().createDocumentType(TYPE_NAME);
+        database.transaction(() -> {
+          for (int i = 0; i < RECORDS; i++) {
+            final MutableDocument doc = database.newDocument(TYPE_NAME);
+            for (int p = 0; p < PROPERTIES; p++)
+              doc.set("p" + p, i + p);
+            doc.save();
+          }
+        });
+
+        final String header = indexedHeaderThreshold > 0 ? "indexed" : "sequential";
+        final String lastProperty = "p" + (PROPERTIES - 1);
+
+        for (int round = 0; round < ROUNDS; round++) {
+          long begin = System.currentTimeMillis();
+          long total = 0;
+          for (final Iterator<Record> it = database.iterateType(TYPE_NAME, false); it.hasNext(); )
+            total += ((Document) it.next()).getInteger(lastProperty);
+          final long getElapsed = System.currentTimeMillis() - begin;
+
+          begin = System.currentTimeMillis();
+          try (final ResultSet rs = database.query("sql", "select " + lastProperty + ", p" + (PROPERTIES / 2) + " from " + TYPE_NAME)) {
+            while (rs.hasNext())
+              total += rs.next().<Integer>getProperty(lastProperty);
+          }
+          final long projectionElapsed = System.currentTimeMillis() - begin;
+
+          System.out.printf("%s header, round %d: get(%s) on %d records in %dms, projection in %dms (checksum=%d)%n", header, round,
+              lastProperty, RECORDS, getElapsed, projectionElapsed, total);
+        }
+      } finally {
+        database.drop();
+      }
+    }
+  }
+}
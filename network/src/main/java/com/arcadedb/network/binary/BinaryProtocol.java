@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.network.binary;
+
+/**
+ * Constants of the binary protocol used by the remote clients. After the handshake (magic number, protocol version, user, password
+ * and database), the client sends request frames and the server replies with response frames. Every frame carries the id of the
+ * request, so multiple requests can be pipelined on the same connection and the responses can arrive in any order:
+ * <ul>
+ *   <li>request: `int requestId`, `byte command`, `int sessionId`, `bytes payload`</li>
+ *   <li>response: `int requestId`, `byte status`, `bytes payload`</li>
+ * </ul>
+ * The session id binds a request to a transaction begun with {@link #COMMAND_BEGIN}, 0 means no transaction.
+ */
+public class BinaryProtocol {
+  public static final long  MAGIC_NUMBER     = 20986405762943491L;
+  public static final short PROTOCOL_VERSION = 1;
+
+  // COMMANDS
+  public static final byte COMMAND_QUERY    = 1;
+  public static final byte COMMAND_COMMAND  = 2;
+  public static final byte COMMAND_BEGIN    = 3;
+  public static final byte COMMAND_COMMIT   = 4;
+  public static final byte COMMAND_ROLLBACK = 5;
+
+  // RESPONSE STATUS
+  public static final byte STATUS_OK    = 0;
+  public static final byte STATUS_ERROR = 1;
+
+  public static final int NO_SESSION = 0;
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.network.binary;
+
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.exception.ConfigurationException;
+import com.arcadedb.graph.Edge;
+import com.arcadedb.graph.Vertex;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.serializer.BinarySerializer;
+import com.arcadedb.serializer.BinaryTypes;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Serializes the parameters and the results exchanged with the {@link BinaryProtocol}. The values are written with the engine's
+ * {@link BinarySerializer}, while maps, collections and records are written with the property names in clear, because the client
+ * does not have the dictionary of the database. Records are sent as maps with the same metadata of the JSON API ("@rid", "@type",
+ * "@cat", "@out" and "@in"), linked records as RIDs.
+ */
+public class BinaryProtocolSerializer {
+  private final BinarySerializer serializer;
+
+  public BinaryProtocolSerializer(final ContextConfiguration configuration) {
+    try {
+      this.serializer = new BinarySerializer(configuration);
+    } catch (final ClassNotFoundException e) {
+      throw new ConfigurationException("Error on creating the binary serializer", e);
+    }
+  }
+
+  public void writeResult(final Binary content, final Result result) {
+    if (result.isElement())
+      writeMap(content, record2map(result.getElement().get()));
+    else
+      writeMap(content, result.toMap());
+  }
+
+  public Map<String, Object> readResult(final Binary content) {
+    return readMap(content);
+  }
+
+  public void writeMap(final Binary content, final Map<?, ?> map) {
+    if (map == null) {
+      content.putUnsignedNumber(0);
+      return;
+    }
+
+    content.putUnsignedNumber(map.size());
+    for (final Map.Entry<?, ?> entry : map.entrySet()) {
+      content.putString(entry.getKey().toString());
+      writeValue(content, entry.getValue());
+    }
+  }
+
+  public Map<String, Object> readMap(final Binary content) {
+    final int count = (int) content.getUnsignedNumber();
+    final Map<String, Object> map = new LinkedHashMap<>(count);
+    for (int i = 0; i < count; ++i) {
+      final String key = content.getString();
+      map.put(key, readValue(content));
+    }
+    return map;
+  }
+
+  public void writeValue(final Binary content, Object value) {
+    if (value instanceof Result)
+      value = ((Result) value).isElement() ? ((Result) value).getElement().get() : ((Result) value).toMap();
+
+    if (value instanceof Document) {
+      final Document document = (Document) value;
+      if (document.getIdentity() != null) {
+        // LINKED RECORD
+        content.putByte(BinaryTypes.TYPE_COMPRESSED_RID);
+        serializer.serializeValue(null, content, BinaryTypes.TYPE_COMPRESSED_RID, document.getIdentity());
+      } else {
+        // EMBEDDED DOCUMENT
+        content.putByte(BinaryTypes.TYPE_MAP);
+        writeMap(content, record2map(document));
+      }
+      return;
+    }
+
+    if (value instanceof Identifiable) {
+      content.putByte(BinaryTypes.TYPE_COMPRESSED_RID);
+      serializer.serializeValue(null, content, BinaryTypes.TYPE_COMPRESSED_RID, ((Identifiable) value).getIdentity());
+      return;
+    }
+
+    final byte type = BinaryTypes.getTypeFromValue(value);
+    content.putByte(type);
+
+    switch (type) {
+    case BinaryTypes.TYPE_MAP:
+      writeMap(content, (Map<?, ?>) value);
+      break;
+
+    case BinaryTypes.TYPE_LIST:
+      if (value instanceof Collection) {
+        content.putUnsignedNumber(((Collection<?>) value).size());
+        for (final Object entry : (Collection<?>) value)
+          writeValue(content, entry);
+      } else if (value.getClass().isArray()) {
+        final int length = Array.getLength(value);
+        content.putUnsignedNumber(length);
+        for (int i = 0; i < length; ++i)
+          writeValue(content, Array.get(value, i));
+      } else {
+        final List<Object> list = new ArrayList<>();
+        for (final Object entry : (Iterable<?>) value)
+          list.add(entry);
+        content.putUnsignedNumber(list.size());
+        for (final Object entry : list)
+          writeValue(content, entry);
+      }
+      break;
+
+    default:
+      serializer.serializeValue(null, content, type, value);
+    }
+  }
+
+  public Object readValue(final Binary content) {
+    final byte type = content.getByte();
+    switch (type) {
+    case BinaryTypes.TYPE_MAP:
+      return readMap(content);
+
+    case BinaryTypes.TYPE_LIST: {
+      final int count = (int) content.getUnsignedNumber();
+      final List<Object> list = new ArrayList<>(count);
+      for (int i = 0; i < count; ++i)
+        list.add(readValue(content));
+      return list;
+    }
+
+    default:
+      return serializer.deserializeValue(null, content, type, null);
+    }
+  }
+
+  private static Map<String, Object> record2map(final Document document) {
+    final Map<String, Object> map = new LinkedHashMap<>(document.propertiesAsMap());
+    if (document.getIdentity() != null)
+      map.put("@rid", document.getIdentity().toString());
+    map.put("@type", document.getTypeName());
+
+    if (document instanceof Vertex)
+      map.put("@cat", "v");
+    else if (document instanceof Edge) {
+      map.put("@cat", "e");
+      map.put("@out", ((Edge) document).getOut().toString());
+      map.put("@in", ((Edge) document).getIn().toString());
+    } else
+      map.put("@cat", "d");
+
+    return map;
+  }
+}
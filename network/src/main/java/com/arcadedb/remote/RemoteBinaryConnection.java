@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.remote;
+
+import com.arcadedb.Constants;
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.database.Binary;
+import com.arcadedb.exception.TimeoutException;
+import com.arcadedb.log.LogManager;
+import com.arcadedb.network.binary.BinaryProtocol;
+import com.arcadedb.network.binary.BinaryProtocolSerializer;
+import com.arcadedb.network.binary.ChannelBinaryClient;
+import com.arcadedb.network.binary.ConnectionException;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+
+/**
+ * Persistent connection to the binary protocol of a server. The connection is shared by all the remote databases connected to the
+ * same server and database with the same user, so the requests of multiple threads are pipelined on the same socket: every request
+ * is written with a new id and the responses, read by a dedicated thread, complete the pending request with the same id.
+ */
+public class RemoteBinaryConnection {
+  private static final Map<String, RemoteBinaryConnection> CONNECTIONS = new HashMap<>();
+
+  private final    String                                      key;
+  private final    ChannelBinaryClient                         channel;
+  private final    BinaryProtocolSerializer                    serializer;
+  private final    Map<Integer, CompletableFuture<Binary>>     pending       = new ConcurrentHashMap<>();
+  private final    AtomicInteger                               lastRequestId = new AtomicInteger();
+  private final    Thread                                      reader;
+  private          int                                         references    = 0;
+  private volatile boolean                                     closed        = false;
+
+  private RemoteBinaryConnection(final String key, final String host, final int port, final String databaseName,
+      final String userName, final String userPassword, final ContextConfiguration configuration) throws IOException {
+    this.key = key;
+    this.serializer = new BinaryProtocolSerializer(configuration);
+    this.channel = new ChannelBinaryClient(host, port, configuration);
+
+    try {
+      channel.writeLong(BinaryProtocol.MAGIC_NUMBER);
+      channel.writeShort(BinaryProtocol.PROTOCOL_VERSION);
+      channel.writeString(userName);
+      channel.writeString(userPassword);
+      channel.writeString(databaseName);
+      channel.flush();
+
+      if (!channel.readBoolean()) {
+        final String reason = channel.readString();
+        if (reason.startsWith("Credentials"))
+          throw new SecurityException(reason);
+        throw new ConnectionException(channel.getURL(), reason);
+      }
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+
+    this.reader = new Thread(this::readResponses, Constants.PRODUCT + "-binary-client/" + channel.getURL());
+    this.reader.setDaemon(true);
+    this.reader.start();
+  }
+
+  /**
+   * Returns the connection to the server and database for the user, creating it if it is not open yet. Every call must be paired
+   * with a call to {@link #release()}.
+   */
+  static RemoteBinaryConnection acquire(final String host, final int port, final String databaseName, final String userName,
+      final String userPassword, final ContextConfiguration configuration) {
+    final String key = host + ":" + port + "/" + databaseName + "/" + userName;
+    synchronized (CONNECTIONS) {
+      RemoteBinaryConnection connection = CONNECTIONS.get(key);
+      if (connection == null || connection.closed) {
+        try {
+          connection = new RemoteBinaryConnection(key, host, port, databaseName, userName, userPassword, configuration);
+        } catch (final IOException e) {
+          throw new ConnectionException(host + ":" + port, e);
+        }
+        CONNECTIONS.put(key, connection);
+      }
+      ++connection.references;
+      return connection;
+    }
+  }
+
+  /**
+   * Releases the connection, closing it when it is not used anymore.
+   */
+  void release() {
+    synchronized (CONNECTIONS) {
+      if (--references > 0)
+        return;
+
+      if (CONNECTIONS.get(key) == this)
+        CONNECTIONS.remove(key);
+    }
+    close(null);
+  }
+
+  BinaryProtocolSerializer getSerializer() {
+    return serializer;
+  }
+
+  /**
+   * Sends a request without waiting for the response.
+   *
+   * @return The future completed with the payload of the response, or with the exception thrown by the server
+   */
+  CompletableFuture<Binary> submit(final byte command, final int sessionId, final Binary payload) {
+    final CompletableFuture<Binary> future = new CompletableFuture<>();
+    if (closed) {
+      future.completeExceptionally(new RemoteException("Binary connection to " + channel.getURL() + " is closed"));
+      return future;
+    }
+
+    final int requestId = lastRequestId.incrementAndGet();
+    pending.put(requestId, future);
+    if (closed) {
+      // CLOSED IN THE MEANTIME
+      pending.remove(requestId);
+      future.completeExceptionally(new RemoteException("Binary connection to " + channel.getURL() + " is closed"));
+      return future;
+    }
+
+    synchronized (channel) {
+      try {
+        channel.writeInt(requestId);
+        channel.writeByte(command);
+        channel.writeInt(sessionId);
+        channel.writeVarLengthBytes(payload.getContent(), payload.size());
+        channel.flush();
+      } catch (final IOException e) {
+        close(e);
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Sends a request and waits for its response.
+   */
+  Binary execute(final byte command, final int sessionId, final Binary payload, final int timeout) {
+    final CompletableFuture<Binary> future = submit(command, sessionId, payload);
+    try {
+      return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new RemoteException("Error on executing remote operation", e.getCause());
+    } catch (final java.util.concurrent.TimeoutException e) {
+      throw new TimeoutException("Timeout on waiting for the response from the server " + channel.getURL());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RemoteException("Remote operation interrupted", e);
+    }
+  }
+
+  private void readResponses() {
+    while (!closed) {
+      try {
+        final int requestId = channel.readInt();
+        final byte status = channel.readByte();
+        final Binary response = new Binary(channel.readBytes());
+
+        final CompletableFuture<Binary> future = pending.remove(requestId);
+        if (future == null)
+          // REQUEST ALREADY TIMED OUT ON THE CLIENT SIDE
+          continue;
+
+        if (status == BinaryProtocol.STATUS_OK)
+          future.complete(response);
+        else {
+          final String exception = response.getString();
+          final String detail = response.getString();
+          final String exceptionArgs = response.getString();
+          future.completeExceptionally(
+              RemoteHttpComponent.createException(exception, detail, exceptionArgs.isEmpty() ? null : exceptionArgs,
+                  "binary request"));
+        }
+
+      } catch (final SocketTimeoutException e) {
+        // IDLE CONNECTION, KEEP WAITING
+      } catch (final IOException e) {
+        if (!closed)
+          LogManager.instance().log(this, Level.FINE, "Binary connection to %s closed", e, channel.getURL());
+        close(e);
+      }
+    }
+  }
+
+  private void close(final IOException cause) {
+    synchronized (CONNECTIONS) {
+      if (closed)
+        return;
+      closed = true;
+
+      if (CONNECTIONS.get(key) == this)
+        CONNECTIONS.remove(key);
+    }
+
+    channel.close();
+
+    // FAIL THE REQUESTS STILL WAITING FOR A RESPONSE
+    for (final CompletableFuture<Binary> future : pending.values())
+      future.completeExceptionally(new RemoteException("Binary connection to " + channel.getURL() + " closed", cause));
+    pending.clear();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.remote;
+
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+
+import java.util.*;
+
+/**
+ * Lazy result set backed by a server-side cursor. Only one page of rows at a time is kept in memory: the next page is fetched from
+ * the server when the current one has been consumed. Close the result set to release the cursor on the server when it is not fully
+ * consumed, otherwise the cursor is closed by the server after the idle timeout.
+ */
+public class RemoteCursorResultSet implements ResultSet {
+  private final RemoteDatabase   database;
+  private final String           url;
+  private final int              fetchSize;
+  private final String           sessionId;
+  private       String           cursorId;
+  private       Iterator<Result> page;
+
+  RemoteCursorResultSet(final RemoteDatabase database, final String url, final int fetchSize, final String sessionId,
+      final JSONObject response) {
+    this.database = database;
+    this.url = url;
+    this.fetchSize = fetchSize;
+    this.sessionId = sessionId;
+    setPage(response);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!page.hasNext() && cursorId != null)
+      setPage(database.fetchCursor(url, sessionId, new JSONObject().put("cursor", cursorId).put("fetchSize", fetchSize)));
+    return page.hasNext();
+  }
+
+  @Override
+  public Result next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    return page.next();
+  }
+
+  @Override
+  public void close() {
+    if (cursorId != null) {
+      final String toClose = cursorId;
+      cursorId = null;
+      database.fetchCursor(url, sessionId, new JSONObject().put("cursor", toClose).put("close", true));
+    }
+    page = Collections.emptyIterator();
+  }
+
+  /**
+   * Returns the id of the cursor on the server, null if all the rows have been already fetched.
+   */
+  public String getCursorId() {
+    return cursorId;
+  }
+
+  private void setPage(final JSONObject response) {
+    final JSONArray resultArray = response.getJSONArray("result");
+    final List<Result> rows = new ArrayList<>(resultArray.length());
+    for (int i = 0; i < resultArray.length(); ++i)
+      rows.add(database.json2Result(resultArray.getJSONObject(i)));
+
+    page = rows.iterator();
+    cursorId = response.has("cursor") ? response.getString("cursor") : null;
+  }
+}
@@ -21,6 +21,7 @@ package com.arcadedb.remote;
 import com.arcadedb.ContextConfiguration;
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.BasicDatabase;
+import com.arcadedb.database.Binary;
 import com.arcadedb.database.Database;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.RID;
@@ -35,16 +36,21 @@ import com.arcadedb.exception.DuplicatedKeyException;
 import com.arcadedb.exception.NeedRetryException;
 import com.arcadedb.exception.RecordNotFoundException;
 import com.arcadedb.exception.TransactionException;
+import com.arcadedb.network.binary.BinaryProtocol;
+import com.arcadedb.network.binary.BinaryProtocolSerializer;
 import com.arcadedb.query.sql.executor.InternalResultSet;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.ResultSet;
 import com.arcadedb.serializer.json.JSONArray;
 import com.arcadedb.serializer.json.JSONObject;
+import com.arcadedb.utility.FileUtils;
 
 import java.io.*;
 import java.net.*;
+import java.net.http.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Remote Database implementation. It's not thread safe. For multi-thread usage create one instance of RemoteDatabase per thread.
@@ -52,13 +58,20 @@ import java.util.*;
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
 public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase {
-  public static final String ARCADEDB_SESSION_ID = "arcadedb-session-id";
-
-  private final String                               databaseName;
-  private       String                               sessionId;
-  private       Database.TRANSACTION_ISOLATION_LEVEL transactionIsolationLevel = Database.TRANSACTION_ISOLATION_LEVEL.READ_COMMITTED;
-  private final RemoteSchema                         schema                    = new RemoteSchema(this);
-  private       boolean                              open                      = true;
+  public static final String ARCADEDB_SESSION_ID           = "arcadedb-session-id";
+  public static final String ARCADEDB_REPLICATION_POSITION = "arcadedb-replication-position";
+  public static final int    DEFAULT_FETCH_SIZE            = 1_000;
+
+  private final    String                               databaseName;
+  private          String                               sessionId;
+  private          Database.TRANSACTION_ISOLATION_LEVEL transactionIsolationLevel = Database.TRANSACTION_ISOLATION_LEVEL.READ_COMMITTED;
+  private final    RemoteSchema                         schema                    = new RemoteSchema(this);
+  private          boolean                              open                      = true;
+  private volatile long                                 replicationPosition       = -1;
+  private          int                                  fetchSize                 = 0;
+  private          RemoteBinaryConnection               binaryConnection;
+  private          int                                  binarySessionId           = BinaryProtocol.NO_SESSION;
+  private          RemoteDatabaseAsync                  async;
 
   public RemoteDatabase(final String server, final int port, final String databaseName, final String userName,
       final String userPassword) {
@@ -69,6 +82,12 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
       final String userPassword, final ContextConfiguration configuration) {
     super(server, port, userName, userPassword, configuration);
     this.databaseName = databaseName;
+
+    if ("binary".equals(configuration.getValueAsString(GlobalConfiguration.NETWORK_REMOTE_TRANSPORT)))
+      // QUERIES, COMMANDS AND TRANSACTIONS GO THROUGH THE PERSISTENT CONNECTION OF THE BINARY PROTOCOL
+      binaryConnection = RemoteBinaryConnection.acquire(currentServer,
+          configuration.getValueAsInteger(GlobalConfiguration.NETWORK_REMOTE_BINARY_PORT), databaseName, getUserName(),
+          getUserPassword(), configuration);
   }
 
   @Override
@@ -94,6 +113,10 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
   @Override
   public void close() {
     setSessionId(null);
+    if (binaryConnection != null) {
+      binaryConnection.release();
+      binaryConnection = null;
+    }
     open = false;
   }
 
@@ -202,7 +225,7 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
   }
 
   public boolean isTransactionActive() {
-    return getSessionId() != null;
+    return getSessionId() != null || binarySessionId != BinaryProtocol.NO_SESSION;
   }
 
   @Override
@@ -213,10 +236,18 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
   @Override
   public void begin(final Database.TRANSACTION_ISOLATION_LEVEL isolationLevel) {
     checkDatabaseIsOpen();
-    if (getSessionId() != null)
+    if (isTransactionActive())
       throw new TransactionException("Transaction already begun");
 
     try {
+      if (binaryConnection != null) {
+        final Binary request = new Binary(32);
+        request.putString(isolationLevel.name());
+        binarySessionId = (int) binaryConnection.execute(BinaryProtocol.COMMAND_BEGIN, BinaryProtocol.NO_SESSION, request,
+            getTimeout()).getUnsignedNumber();
+        return;
+      }
+
       final HttpURLConnection connection = createConnection("POST", getUrl("begin", databaseName));
       setRequestPayload(connection, new JSONObject().put("isolationLevel", isolationLevel));
       connection.connect();
@@ -234,10 +265,20 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     checkDatabaseIsOpen();
     stats.txCommits.incrementAndGet();
 
-    if (getSessionId() == null)
+    if (!isTransactionActive())
       throw new TransactionException("Transaction not begun");
 
     try {
+      if (binaryConnection != null) {
+        try {
+          binaryConnection.execute(BinaryProtocol.COMMAND_COMMIT, binarySessionId, new Binary(0), getTimeout());
+        } finally {
+          // THE SERVER ENDS THE TRANSACTION ALSO IN CASE OF ERROR
+          binarySessionId = BinaryProtocol.NO_SESSION;
+        }
+        return;
+      }
+
       final HttpURLConnection connection = createConnection("POST", getUrl("commit", databaseName));
       connection.connect();
       if (connection.getResponseCode() != 204) {
@@ -249,6 +290,7 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
 
         throw new TransactionException("Error on transaction commit", detail);
       }
+      onResponse(connection);
     } catch (final DuplicatedKeyException | ConcurrentModificationException e) {
       throw e;
     } catch (final Exception e) {
@@ -262,10 +304,20 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     checkDatabaseIsOpen();
     stats.txRollbacks.incrementAndGet();
 
-    if (getSessionId() == null)
+    if (!isTransactionActive())
       throw new TransactionException("Transaction not begun");
 
     try {
+      if (binaryConnection != null) {
+        try {
+          binaryConnection.execute(BinaryProtocol.COMMAND_ROLLBACK, binarySessionId, new Binary(0), getTimeout());
+        } finally {
+          // THE SERVER ENDS THE TRANSACTION ALSO IN CASE OF ERROR
+          binarySessionId = BinaryProtocol.NO_SESSION;
+        }
+        return;
+      }
+
       final HttpURLConnection connection = createConnection("POST", getUrl("rollback", databaseName));
       connection.connect();
       if (connection.getResponseCode() != 204) {
@@ -283,8 +335,8 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
   public long countBucket(final String bucketName) {
     checkDatabaseIsOpen();
     stats.countBucket.incrementAndGet();
-    return ((Number) ((ResultSet) databaseCommand("query", "sql", "select count(*) as count from bucket:" + bucketName, null, false,
-        (connection, response) -> createResultSet(response))).nextIfAvailable().getProperty("count")).longValue();
+    return ((Number) countQuery("select count(*) as count from bucket:" + bucketName).nextIfAvailable()
+        .getProperty("count")).longValue();
   }
 
   @Override
@@ -292,8 +344,15 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     checkDatabaseIsOpen();
     stats.countType.incrementAndGet();
     final String appendix = polymorphic ? "" : " where @type = '" + typeName + "'";
-    return ((Number) ((ResultSet) databaseCommand("query", "sql", "select count(*) as count from " + typeName + appendix, null,
-        false, (connection, response) -> createResultSet(response))).nextIfAvailable().getProperty("count")).longValue();
+    return ((Number) countQuery("select count(*) as count from " + typeName + appendix).nextIfAvailable()
+        .getProperty("count")).longValue();
+  }
+
+  private ResultSet countQuery(final String query) {
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_QUERY, "sql", query, null);
+
+    return (ResultSet) databaseCommand("query", "sql", query, null, false, (connection, response) -> createResultSet(response));
   }
 
   public Record lookupByRID(final RID rid) {
@@ -348,34 +407,12 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     if (!polymorphic)
       query += " where @type = '" + typeName + "'";
 
-    final ResultSet resultSet = query("sql", query);
-    return new Iterator<>() {
-      @Override
-      public boolean hasNext() {
-        return resultSet.hasNext();
-      }
-
-      @Override
-      public Record next() {
-        return resultSet.next().getElement().get();
-      }
-    };
+    return iterateRecords(query);
   }
 
   @Override
   public Iterator<Record> iterateBucket(final String bucketName) {
-    final ResultSet resultSet = query("sql", "select from bucket:`" + bucketName + "`");
-    return new Iterator<>() {
-      @Override
-      public boolean hasNext() {
-        return resultSet.hasNext();
-      }
-
-      @Override
-      public Record next() {
-        return resultSet.next().getElement().get();
-      }
-    };
+    return iterateRecords("select from bucket:`" + bucketName + "`");
   }
 
   @Override
@@ -383,6 +420,9 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     checkDatabaseIsOpen();
     stats.commands.incrementAndGet();
 
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_COMMAND, language, command, params);
+
     return (ResultSet) databaseCommand("command", language, command, params, true,
         (connection, response) -> createResultSet(response));
   }
@@ -399,6 +439,9 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     stats.commands.incrementAndGet();
 
     final Map<String, Object> params = mapArgs(args);
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_COMMAND, language, command, params);
+
     return (ResultSet) databaseCommand("command", language, command, params, true,
         (connection, response) -> createResultSet(response));
   }
@@ -409,6 +452,13 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     stats.queries.incrementAndGet();
 
     final Map<String, Object> params = mapArgs(args);
+    if (fetchSize > 0 && binarySessionId == BinaryProtocol.NO_SESSION)
+      // THE CURSORS CANNOT SEE THE TRANSACTIONS BEGUN THROUGH THE BINARY PROTOCOL
+      return openCursor(language, query, params, fetchSize);
+
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_QUERY, language, query, params);
+
     return (ResultSet) databaseCommand("query", language, query, params, false,
         (connection, response) -> createResultSet(response));
   }
@@ -418,6 +468,13 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     checkDatabaseIsOpen();
     stats.commands.incrementAndGet();
 
+    if (fetchSize > 0 && binarySessionId == BinaryProtocol.NO_SESSION)
+      // THE CURSORS CANNOT SEE THE TRANSACTIONS BEGUN THROUGH THE BINARY PROTOCOL
+      return openCursor(language, query, params, fetchSize);
+
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_QUERY, language, query, params);
+
     return (ResultSet) databaseCommand("query", language, query, params, false,
         (connection, response) -> createResultSet(response));
   }
@@ -432,10 +489,42 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     stats.commands.incrementAndGet();
 
     final Map<String, Object> params = mapArgs(args);
+    if (binaryConnection != null)
+      return binaryCommand(BinaryProtocol.COMMAND_COMMAND, language, command, params);
+
     return (ResultSet) databaseCommand("command", language, command, params, false,
         (connection, response) -> createResultSet(response));
   }
 
+  /**
+   * Returns the number of rows fetched in each page by the queries, 0 if the queries return all the rows in one response.
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Sets the number of rows to fetch in each page. With a value greater than 0, the queries open a cursor on the server and return
+   * a lazy result set that fetches the next page when the current one has been consumed, so the results are not limited by the
+   * default limit of the server and are never loaded entirely in memory. 0 (default) returns all the rows in one response.
+   */
+  public void setFetchSize(final int fetchSize) {
+    if (fetchSize < 0)
+      throw new IllegalArgumentException("Invalid fetch size " + fetchSize);
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Returns the asynchronous API of the database. Its requests are sent through a pooled transport shared by the remote databases,
+   * without blocking the caller, and are executed in the current transaction, if any.
+   */
+  public synchronized RemoteDatabaseAsync async() {
+    checkDatabaseIsOpen();
+    if (async == null)
+      async = new RemoteDatabaseAsync(this, RemoteHttpTransport.getInstance(configuration));
+    return async;
+  }
+
   public Database.TRANSACTION_ISOLATION_LEVEL getTransactionIsolationLevel() {
     return transactionIsolationLevel;
   }
@@ -449,18 +538,162 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     return databaseName;
   }
 
+  private Iterator<Record> iterateRecords(final String query) {
+    checkDatabaseIsOpen();
+    stats.queries.incrementAndGet();
+
+    final ResultSet resultSet = openCursor("sql", query, null, fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return resultSet.hasNext();
+      }
+
+      @Override
+      public Record next() {
+        return resultSet.next().getElement().get();
+      }
+    };
+  }
+
+  /**
+   * Executes the query opening a cursor on the server. The cursor is bound to the current transaction if any, otherwise the server
+   * creates a session just for the cursor. All the following fetches are sent to the same server.
+   */
+  private RemoteCursorResultSet openCursor(final String language, final String query, final Map<String, Object> params,
+      final int fetchSize) {
+    final JSONObject request = new JSONObject().put("language", language).put("command", query).put("fetchSize", fetchSize);
+    if (params != null)
+      request.put("params", new JSONObject(params));
+
+    final String url = getUrl("cursor", databaseName);
+    try {
+      final HttpURLConnection connection = createConnection("POST", url);
+      try {
+        final JSONObject response = cursorRequest(connection, request);
+        return new RemoteCursorResultSet(this, url, fetchSize, connection.getHeaderField(ARCADEDB_SESSION_ID), response);
+      } finally {
+        connection.disconnect();
+      }
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RemoteException("Error on opening cursor for query '" + query + "'", e);
+    }
+  }
+
+  /**
+   * Sends a request to an open cursor, to fetch the next page or to close it.
+   *
+   * @return The response with the page of rows, null if the cursor has been closed
+   */
+  JSONObject fetchCursor(final String url, final String cursorSessionId, final JSONObject request) {
+    checkDatabaseIsOpen();
+    try {
+      final HttpURLConnection connection = createConnection("POST", url);
+      try {
+        if (cursorSessionId != null)
+          connection.setRequestProperty(ARCADEDB_SESSION_ID, cursorSessionId);
+        return cursorRequest(connection, request);
+      } finally {
+        connection.disconnect();
+      }
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RemoteException("Error on fetching from cursor " + request.getString("cursor"), e);
+    }
+  }
+
+  private JSONObject cursorRequest(final HttpURLConnection connection, final JSONObject request) throws Exception {
+    setRequestPayload(connection, request);
+    connection.connect();
+
+    final int responseCode = connection.getResponseCode();
+    if (responseCode == 204)
+      return null;
+
+    if (responseCode != 200)
+      throw manageException(connection, "cursor");
+
+    onResponse(connection);
+    return new JSONObject(FileUtils.readStreamAsString(connection.getInputStream(), "UTF-8"));
+  }
+
+  /**
+   * Executes a query or a command through the binary protocol, in the current transaction if any.
+   */
+  private ResultSet binaryCommand(final byte command, final String language, final String text, final Map<String, Object> params) {
+    return binaryResultSet(
+        binaryConnection.execute(command, binarySessionId, binaryRequest(language, text, params), getTimeout()));
+  }
+
+  /**
+   * Submits a query or a command through the binary protocol without waiting for the response.
+   */
+  CompletableFuture<ResultSet> binaryCommandAsync(final byte command, final String language, final String text,
+      final Map<String, Object> params) {
+    return binaryConnection.submit(command, binarySessionId, binaryRequest(language, text, params)).thenApply(this::binaryResultSet);
+  }
+
+  boolean isBinaryTransport() {
+    return binaryConnection != null;
+  }
+
+  private Binary binaryRequest(final String language, final String text, final Map<String, Object> params) {
+    final Binary request = new Binary(256);
+    request.putString(language);
+    request.putString(text);
+    binaryConnection.getSerializer().writeMap(request, params);
+    return request;
+  }
+
+  private ResultSet binaryResultSet(final Binary response) {
+    final BinaryProtocolSerializer serializer = binaryConnection.getSerializer();
+
+    final InternalResultSet resultSet = new InternalResultSet();
+    while (response.getByte() == 1)
+      resultSet.add(map2Result(serializer.readResult(response)));
+    return resultSet;
+  }
+
   private Object databaseCommand(final String operation, final String language, final String payloadCommand,
       final Map<String, Object> params, final boolean requiresLeader, final Callback callback) {
     checkDatabaseIsOpen();
     return httpCommand("POST", databaseName, operation, language, payloadCommand, params, requiresLeader, true, callback);
   }
 
+  /**
+   * Returns the highest replication position returned by the servers, -1 if not connected to a replicated server.
+   */
+  public long getReplicationPosition() {
+    return replicationPosition;
+  }
+
+  @Override
+  void onResponse(final HttpURLConnection connection) {
+    updateReplicationPosition(connection.getHeaderField(ARCADEDB_REPLICATION_POSITION));
+  }
+
+  /**
+   * Keeps the highest position, the responses of the asynchronous API can arrive in any order and from other threads.
+   */
+  synchronized void updateReplicationPosition(final String position) {
+    if (position != null)
+      replicationPosition = Math.max(replicationPosition, Long.parseLong(position));
+  }
+
   String getSessionId() {
     return sessionId;
   }
 
   void setSessionId(String sessionId) {
     this.sessionId = sessionId;
+    if (sessionId == null && binarySessionId != BinaryProtocol.NO_SESSION) {
+      // DISCARD THE TRANSACTION BEGUN THROUGH THE BINARY PROTOCOL, WITHOUT WAITING FOR THE SERVER
+      binaryConnection.submit(BinaryProtocol.COMMAND_ROLLBACK, binarySessionId, new Binary(0));
+      binarySessionId = BinaryProtocol.NO_SESSION;
+    }
   }
 
   HttpURLConnection createConnection(final String httpMethod, final String url) throws IOException {
@@ -469,9 +702,27 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
     if (getSessionId() != null)
       connection.setRequestProperty(ARCADEDB_SESSION_ID, getSessionId());
 
+    if (replicationPosition > -1)
+      // ANY SERVER OF THE CLUSTER RETURNS RESULTS THAT INCLUDE THE CHANGES ALREADY COMMITTED BY THIS CLIENT
+      connection.setRequestProperty(ARCADEDB_REPLICATION_POSITION, Long.toString(replicationPosition));
+
     return connection;
   }
 
+  @Override
+  HttpRequest.Builder createRequest(final String url) {
+    final HttpRequest.Builder request = super.createRequest(url);
+
+    if (getSessionId() != null)
+      request.header(ARCADEDB_SESSION_ID, getSessionId());
+
+    final long position = replicationPosition;
+    if (position > -1)
+      request.header(ARCADEDB_REPLICATION_POSITION, Long.toString(position));
+
+    return request;
+  }
+
   private String getUrl(final String command, final String databaseName) {
     return getUrl(command) + "/" + databaseName;
   }
@@ -488,18 +739,24 @@ public class RemoteDatabase extends RemoteHttpComponent implements BasicDatabase
   }
 
   protected Result json2Result(final JSONObject result) {
-    final Record record = json2Record(result);
+    return map2Result(result.toMap());
+  }
+
+  protected Record json2Record(final JSONObject result) {
+    return map2Record(result.toMap());
+  }
+
+  protected Result map2Result(final Map<String, Object> map) {
+    final Record record = map2Record(map);
     if (record == null)
-      return new ResultInternal(result.toMap());
+      return new ResultInternal(map);
 
     return new ResultInternal(record);
   }
 
-  protected Record json2Record(final JSONObject result) {
-    final Map<String, Object> map = result.toMap();
-
+  protected Record map2Record(final Map<String, Object> map) {
     if (map.containsKey("@cat")) {
-      final String cat = result.getString("@cat");
+      final String cat = (String) map.get("@cat");
       switch (cat) {
       case "d":
         return new RemoteImmutableDocument(this, map);
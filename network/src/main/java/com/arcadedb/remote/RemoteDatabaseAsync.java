@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.remote;
+
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import com.arcadedb.exception.RecordNotFoundException;
+import com.arcadedb.network.binary.BinaryProtocol;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.serializer.json.JSONObject;
+
+import java.net.http.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Asynchronous API of the remote database. The methods send the request and return immediately a future completed with the
+ * result, so a single thread can have many requests in flight. The requests are sent through the pooled {@link RemoteHttpTransport},
+ * or through the shared binary connection if the database uses the 'binary' transport. In case of error, the future is completed
+ * with the same exception thrown by the synchronous API.
+ *
+ * @see RemoteDatabase#async()
+ */
+public class RemoteDatabaseAsync {
+  private final RemoteDatabase      database;
+  private final RemoteHttpTransport transport;
+
+  RemoteDatabaseAsync(final RemoteDatabase database, final RemoteHttpTransport transport) {
+    this.database = database;
+    this.transport = transport;
+  }
+
+  public CompletableFuture<ResultSet> query(final String language, final String query, final Object... args) {
+    return query(language, query, database.mapArgs(args));
+  }
+
+  public CompletableFuture<ResultSet> query(final String language, final String query, final Map<String, Object> params) {
+    database.stats.queries.incrementAndGet();
+    return execute("query", BinaryProtocol.COMMAND_QUERY, language, query, params, false);
+  }
+
+  public CompletableFuture<ResultSet> command(final String language, final String command, final Object... args) {
+    return command(language, command, database.mapArgs(args));
+  }
+
+  public CompletableFuture<ResultSet> command(final String language, final String command, final Map<String, Object> params) {
+    database.stats.commands.incrementAndGet();
+    return execute("command", BinaryProtocol.COMMAND_COMMAND, language, command, params, true);
+  }
+
+  public CompletableFuture<Record> lookupByRID(final RID rid) {
+    if (rid == null)
+      throw new IllegalArgumentException("Record is null");
+
+    database.stats.readRecord.incrementAndGet();
+    return execute("query", BinaryProtocol.COMMAND_QUERY, "sql", "select from " + rid, null, false).thenApply((resultSet) -> {
+      if (!resultSet.hasNext())
+        throw new RecordNotFoundException("Record " + rid + " not found", rid);
+      return resultSet.next().getRecord().get();
+    });
+  }
+
+  /**
+   * Submits multiple SQL statements in one request. The statements are executed in order as a SQL script, in the current
+   * transaction or, if there is no transaction, in a transaction for the whole batch.
+   *
+   * @return The future completed with the result of the last statement
+   */
+  public CompletableFuture<ResultSet> batch(final List<String> statements, final Map<String, Object> params) {
+    if (statements == null || statements.isEmpty())
+      throw new IllegalArgumentException("Batch is empty");
+
+    database.stats.commands.incrementAndGet();
+    return execute("command", BinaryProtocol.COMMAND_COMMAND, "sqlscript", String.join(";\n", statements), params, true);
+  }
+
+  /**
+   * Returns the metrics of the pooled transport shared with the other remote databases.
+   */
+  public Map<String, Object> getStats() {
+    return transport.getStats();
+  }
+
+  private CompletableFuture<ResultSet> execute(final String operation, final byte binaryCommand, final String language,
+      final String text, final Map<String, Object> params, final boolean leaderIsPreferable) {
+    database.checkDatabaseIsOpen();
+
+    if (database.isBinaryTransport())
+      return database.binaryCommandAsync(binaryCommand, language, text, params);
+
+    final JSONObject jsonRequest = new JSONObject();
+    jsonRequest.put("language", language);
+    jsonRequest.put("command", text);
+    jsonRequest.put("serializer", "record");
+    if (params != null)
+      jsonRequest.put("params", new JSONObject(params));
+
+    final HttpRequest request = database.createRequest(database.getUrl(operation, leaderIsPreferable) + "/" + database.getName())//
+        .header("Content-Type", "application/json")//
+        .POST(HttpRequest.BodyPublishers.ofString(jsonRequest.toString()))//
+        .build();
+
+    return transport.send(request).thenApply((response) -> database.createResultSet(parseResponse(response, text)));
+  }
+
+  private JSONObject parseResponse(final HttpResponse<String> response, final String operation) {
+    database.updateReplicationPosition(response.headers().firstValue(RemoteDatabase.ARCADEDB_REPLICATION_POSITION).orElse(null));
+
+    if (response.statusCode() == 200)
+      return new JSONObject(response.body());
+
+    String exception = null;
+    String detail = null;
+    String exceptionArgs = null;
+    try {
+      final JSONObject error = new JSONObject(response.body());
+      detail = error.has("detail") ? error.getString("detail") : error.has("error") ? error.getString("error") : null;
+      exception = error.has("exception") ? error.getString("exception") : null;
+      exceptionArgs = error.has("exceptionArgs") ? error.getString("exceptionArgs") : null;
+    } catch (final Exception e) {
+      // NOT A JSON PAYLOAD
+    }
+
+    if (exception != null)
+      throw RemoteHttpComponent.createException(exception, detail, exceptionArgs, operation);
+
+    throw new RemoteException(
+        "Error on executing remote command '" + operation + "' (httpErrorCode=" + response.statusCode() + " detail=" + detail
+            + ")");
+  }
+}
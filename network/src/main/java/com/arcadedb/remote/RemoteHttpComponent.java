@@ -41,7 +41,9 @@ import com.arcadedb.utility.RWLockContext;
 
 import java.io.*;
 import java.net.*;
+import java.net.http.*;
 import java.nio.charset.*;
+import java.time.*;
 import java.util.*;
 import java.util.logging.*;
 import java.util.stream.*;
@@ -107,6 +109,14 @@ public class RemoteHttpComponent extends RWLockContext {
     this.timeout = timeout;
   }
 
+  String getUserName() {
+    return userName;
+  }
+
+  String getUserPassword() {
+    return userPassword;
+  }
+
   List<Pair<String, Integer>> getReplicaServerList() {
     return replicaServerList;
   }
@@ -167,6 +177,8 @@ public class RemoteHttpComponent extends RWLockContext {
             continue;
           }
 
+          onResponse(connection);
+
           final JSONObject response = new JSONObject(FileUtils.readStreamAsString(connection.getInputStream(), charset));
 
           if (callback == null)
@@ -215,6 +227,13 @@ public class RemoteHttpComponent extends RWLockContext {
         "Error on executing remote operation '" + operation + "' (server=" + server + " retry=" + maxRetry + ")", lastException);
   }
 
+  /**
+   * Called after a successful response has been received, before reading its payload.
+   */
+  void onResponse(final HttpURLConnection connection) {
+    // NO ACTIONS
+  }
+
   public int getApiVersion() {
     return apiVersion;
   }
@@ -236,9 +255,7 @@ public class RemoteHttpComponent extends RWLockContext {
     connection.setRequestProperty("charset", "utf-8");
     connection.setRequestMethod(httpMethod);
 
-    final String authorization = userName + ":" + userPassword;
-    connection.setRequestProperty("Authorization",
-        "Basic " + Base64.getEncoder().encodeToString(authorization.getBytes(DatabaseFactory.getDefaultCharset())));
+    connection.setRequestProperty("Authorization", getAuthorization());
 
     connection.setConnectTimeout(timeout);
     connection.setReadTimeout(timeout);
@@ -246,6 +263,23 @@ public class RemoteHttpComponent extends RWLockContext {
     return connection;
   }
 
+  /**
+   * Creates a request for the pooled transport, with the same headers and timeout of the connections.
+   */
+  HttpRequest.Builder createRequest(final String url) {
+    final HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))//
+        .header("charset", "utf-8")//
+        .header("Authorization", getAuthorization());
+    if (timeout > 0)
+      request.timeout(Duration.ofMillis(timeout));
+    return request;
+  }
+
+  private String getAuthorization() {
+    final String authorization = userName + ":" + userPassword;
+    return "Basic " + Base64.getEncoder().encodeToString(authorization.getBytes(DatabaseFactory.getDefaultCharset()));
+  }
+
   void requestClusterConfiguration() {
     final JSONObject response;
     try {
@@ -367,6 +401,15 @@ public class RemoteHttpComponent extends RWLockContext {
     return protocol + "://" + currentServer + ":" + currentPort + "/api/v" + apiVersion + "/" + command;
   }
 
+  /**
+   * Returns the URL of the command on the leader, if preferable and known, otherwise on the current server.
+   */
+  String getUrl(final String command, final boolean leaderIsPreferable) {
+    final Pair<String, Integer> server =
+        leaderIsPreferable && leaderServer != null ? leaderServer : new Pair<>(currentServer, currentPort);
+    return protocol + "://" + server.getFirst() + ":" + server.getSecond() + "/api/v" + apiVersion + "/" + command;
+  }
+
   void setRequestPayload(final HttpURLConnection connection, final JSONObject jsonRequest) throws IOException {
     connection.setDoOutput(true);
     final byte[] postData = jsonRequest.toString().getBytes(StandardCharsets.UTF_8);
@@ -400,45 +443,8 @@ public class RemoteHttpComponent extends RWLockContext {
       }
     }
 
-    if (exception != null) {
-      if (detail == null)
-        detail = "Unknown";
-
-      if (exception.equals(ServerIsNotTheLeaderException.class.getName())) {
-        final int sep = detail.lastIndexOf('.');
-        return new ServerIsNotTheLeaderException(sep > -1 ? detail.substring(0, sep) : detail, exceptionArgs);
-      } else if (exception.equals(RecordNotFoundException.class.getName())) {
-        final int begin = detail.indexOf("#");
-        final int end = detail.indexOf(" ", begin);
-        return new RecordNotFoundException(detail, new RID(null, detail.substring(begin, end)));
-      } else if (exception.equals(QuorumNotReachedException.class.getName())) {
-        return new QuorumNotReachedException(detail);
-      } else if (exception.equals(DuplicatedKeyException.class.getName()) && exceptionArgs != null) {
-        final String[] exceptionArgsParts = exceptionArgs.split("\\|");
-        return new DuplicatedKeyException(exceptionArgsParts[0], exceptionArgsParts[1], new RID(null, exceptionArgsParts[2]));
-      } else if (exception.equals(ConcurrentModificationException.class.getName())) {
-        return new ConcurrentModificationException(detail);
-      } else if (exception.equals(TransactionException.class.getName())) {
-        return new TransactionException(detail);
-      } else if (exception.equals(TimeoutException.class.getName())) {
-        return new TimeoutException(detail);
-      } else if (exception.equals(SchemaException.class.getName())) {
-        return new SchemaException(detail);
-      } else if (exception.equals(NoSuchElementException.class.getName())) {
-        return new NoSuchElementException(detail);
-      } else if (exception.equals(SecurityException.class.getName())) {
-        return new SecurityException(detail);
-      } else if (exception.equals("com.arcadedb.server.security.ServerSecurityException")) {
-        return new SecurityException(detail);
-      } else if (exception.equals(ConnectException.class.getName())) {
-        return new NeedRetryException(detail);
-      } else if (exception.equals("com.arcadedb.server.ha.ReplicationException")) {
-        return new NeedRetryException(detail);
-      } else
-        // ELSE
-        return new RemoteException(
-            "Error on executing remote operation " + operation + " (cause:" + exception + " detail:" + detail + ")");
-    }
+    if (exception != null)
+      return createException(exception, detail, exceptionArgs, operation);
 
     final String httpErrorDescription = connection.getResponseMessage();
 
@@ -454,4 +460,48 @@ public class RemoteHttpComponent extends RWLockContext {
             + " httpErrorDescription=" + httpErrorDescription + " reason=" + reason + " detail=" + detail + " exception="
             + exception + ")");
   }
+
+  /**
+   * Recreates on the client side the exception thrown by the server, from its class name, detail and arguments.
+   */
+  static RuntimeException createException(final String exception, String detail, final String exceptionArgs,
+      final String operation) {
+    if (detail == null)
+      detail = "Unknown";
+
+    if (exception.equals(ServerIsNotTheLeaderException.class.getName())) {
+      final int sep = detail.lastIndexOf('.');
+      return new ServerIsNotTheLeaderException(sep > -1 ? detail.substring(0, sep) : detail, exceptionArgs);
+    } else if (exception.equals(RecordNotFoundException.class.getName())) {
+      final int begin = detail.indexOf("#");
+      final int end = detail.indexOf(" ", begin);
+      return new RecordNotFoundException(detail, new RID(null, detail.substring(begin, end)));
+    } else if (exception.equals(QuorumNotReachedException.class.getName())) {
+      return new QuorumNotReachedException(detail);
+    } else if (exception.equals(DuplicatedKeyException.class.getName()) && exceptionArgs != null) {
+      final String[] exceptionArgsParts = exceptionArgs.split("\\|");
+      return new DuplicatedKeyException(exceptionArgsParts[0], exceptionArgsParts[1], new RID(null, exceptionArgsParts[2]));
+    } else if (exception.equals(ConcurrentModificationException.class.getName())) {
+      return new ConcurrentModificationException(detail);
+    } else if (exception.equals(TransactionException.class.getName())) {
+      return new TransactionException(detail);
+    } else if (exception.equals(TimeoutException.class.getName())) {
+      return new TimeoutException(detail);
+    } else if (exception.equals(SchemaException.class.getName())) {
+      return new SchemaException(detail);
+    } else if (exception.equals(NoSuchElementException.class.getName())) {
+      return new NoSuchElementException(detail);
+    } else if (exception.equals(SecurityException.class.getName())) {
+      return new SecurityException(detail);
+    } else if (exception.equals("com.arcadedb.server.security.ServerSecurityException")) {
+      return new SecurityException(detail);
+    } else if (exception.equals(ConnectException.class.getName())) {
+      return new NeedRetryException(detail);
+    } else if (exception.equals("com.arcadedb.server.ha.ReplicationException")) {
+      return new NeedRetryException(detail);
+    } else
+      // ELSE
+      return new RemoteException(
+          "Error on executing remote operation " + operation + " (cause:" + exception + " detail:" + detail + ")");
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.remote;
+
+import com.arcadedb.Constants;
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.GlobalConfiguration;
+
+import java.net.http.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Pooled HTTP transport used by the asynchronous API of the remote databases. It is shared by all the remote databases with the
+ * same settings, so the connections are kept alive and reused across the databases (or multiplexed with HTTP/2) instead of opening
+ * a new connection for each operation. The number of requests in flight is limited by a pool of slots: when all the slots are
+ * taken, the caller waits for a response to free one.
+ */
+public class RemoteHttpTransport {
+  private static final Map<String, RemoteHttpTransport> TRANSPORTS = new ConcurrentHashMap<>();
+
+  private final HttpClient client;
+  private final int        maxConcurrentRequests;
+  private final Semaphore  slots;
+  private final AtomicLong requests     = new AtomicLong();
+  private final AtomicLong errors       = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private final AtomicLong maxLatency   = new AtomicLong();
+
+  private RemoteHttpTransport(final HttpClient.Version version, final int maxConcurrentRequests, final int threads,
+      final int connectTimeout) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.slots = new Semaphore(maxConcurrentRequests);
+
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads, (r) -> {
+      final Thread thread = new Thread(r, Constants.PRODUCT + "-http-client-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    this.client = HttpClient.newBuilder()//
+        .version(version)//
+        .connectTimeout(Duration.ofMillis(connectTimeout))//
+        .executor(executor)//
+        .build();
+  }
+
+  /**
+   * Returns the transport for the settings of the configuration, creating it the first time.
+   */
+  static RemoteHttpTransport getInstance(final ContextConfiguration configuration) {
+    final HttpClient.Version version = HttpClient.Version.valueOf(
+        configuration.getValueAsString(GlobalConfiguration.NETWORK_REMOTE_HTTP_VERSION));
+    final int maxConcurrentRequests = configuration.getValueAsInteger(GlobalConfiguration.NETWORK_REMOTE_MAX_CONCURRENT_REQUESTS);
+    final int threads = configuration.getValueAsInteger(GlobalConfiguration.NETWORK_REMOTE_ASYNC_THREADS);
+    final int connectTimeout = configuration.getValueAsInteger(GlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
+
+    final String key = version + "/" + maxConcurrentRequests + "/" + threads + "/" + connectTimeout;
+    return TRANSPORTS.computeIfAbsent(key, (k) -> new RemoteHttpTransport(version, maxConcurrentRequests, threads, connectTimeout));
+  }
+
+  /**
+   * Sends the request without blocking the caller, unless all the slots are taken.
+   *
+   * @return The future completed with the response, also in case of HTTP error status
+   */
+  CompletableFuture<HttpResponse<String>> send(final HttpRequest request) {
+    try {
+      slots.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(new RemoteException("Remote operation interrupted", e));
+    }
+
+    final long beginTime = System.nanoTime();
+    final CompletableFuture<HttpResponse<String>> future;
+    try {
+      future = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    } catch (final RuntimeException e) {
+      slots.release();
+      throw e;
+    }
+
+    return future.whenComplete((response, error) -> {
+      slots.release();
+
+      final long latency = System.nanoTime() - beginTime;
+      requests.incrementAndGet();
+      totalLatency.addAndGet(latency);
+      maxLatency.accumulateAndGet(latency, Math::max);
+      if (error != null || response.statusCode() >= 400)
+        errors.incrementAndGet();
+    });
+  }
+
+  /**
+   * Returns the metrics of the transport: total requests completed, errors, requests in flight and latency in milliseconds.
+   */
+  public Map<String, Object> getStats() {
+    final long completed = requests.get();
+
+    final Map<String, Object> map = new HashMap<>();
+    map.put("requests", completed);
+    map.put("errors", errors.get());
+    map.put("inFlight", (long) (maxConcurrentRequests - slots.availablePermits()));
+    map.put("avgLatencyMs", completed > 0 ? totalLatency.get() / completed / 1_000_000F : 0F);
+    map.put("maxLatencyMs", maxLatency.get() / 1_000_000F);
+    return map;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.binary;
+
+import com.arcadedb.Constants;
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseContext;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.TransactionContext;
+import com.arcadedb.exception.DatabaseOperationException;
+import com.arcadedb.exception.DuplicatedKeyException;
+import com.arcadedb.exception.TransactionException;
+import com.arcadedb.log.LogManager;
+import com.arcadedb.network.binary.BinaryProtocol;
+import com.arcadedb.network.binary.BinaryProtocolSerializer;
+import com.arcadedb.network.binary.ChannelBinaryServer;
+import com.arcadedb.network.binary.ConnectionException;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.server.ArcadeDBServer;
+import com.arcadedb.server.security.ServerSecurityException;
+import com.arcadedb.server.security.ServerSecurityUser;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+/**
+ * Serves a client connection of the binary protocol. This thread only reads the request frames and hands them to the workers, the
+ * responses are written by the workers as soon as they are ready, tagged with the id of the request. The transactions begun by the
+ * client are kept with the connection and bound to the worker thread only for the time of each request, like the HTTP sessions.
+ */
+public class BinaryNetworkExecutor extends Thread {
+  private final    ArcadeDBServer                       server;
+  private final    ChannelBinaryServer                  channel;
+  private final    ExecutorService                      workers;
+  private final    Consumer<BinaryNetworkExecutor>      onClose;
+  private final    BinaryProtocolSerializer             serializer;
+  private final    Map<Integer, TransactionContext>     sessions      = new ConcurrentHashMap<>();
+  private final    AtomicInteger                        lastSessionId = new AtomicInteger();
+  private          DatabaseInternal                     database;
+  private          ServerSecurityUser                   user;
+  private volatile boolean                              shutdown      = false;
+
+  public BinaryNetworkExecutor(final ArcadeDBServer server, final Socket socket, final ExecutorService workers,
+      final Consumer<BinaryNetworkExecutor> onClose) throws IOException {
+    setName(Constants.PRODUCT + "-binary/" + socket.getInetAddress());
+    this.server = server;
+    this.workers = workers;
+    this.onClose = onClose;
+    this.channel = new ChannelBinaryServer(socket, server.getConfiguration());
+    this.serializer = new BinaryProtocolSerializer(server.getConfiguration());
+  }
+
+  @Override
+  public void run() {
+    LogManager.instance().setContext(server.getServerName());
+
+    try {
+      if (!handshake()) {
+        close();
+        return;
+      }
+    } catch (final IOException e) {
+      LogManager.instance().log(this, Level.FINE, "Binary protocol: error on connection handshake", e);
+      close();
+      return;
+    }
+
+    while (!shutdown) {
+      try {
+        final int requestId = channel.readInt();
+        final byte command = channel.readByte();
+        final int sessionId = channel.readInt();
+        final byte[] payload = channel.readBytes();
+
+        workers.execute(() -> execute(requestId, command, sessionId, payload));
+
+      } catch (final EOFException | SocketException e) {
+        LogManager.instance().log(this, Level.FINE, "Binary protocol: connection closed by the client", e);
+        close();
+      } catch (final SocketTimeoutException e) {
+        // IGNORE IT
+      } catch (final RejectedExecutionException e) {
+        // SERVER SHUTTING DOWN
+        close();
+      } catch (final IOException e) {
+        LogManager.instance().log(this, Level.SEVERE, "Binary protocol: error on reading request", e);
+        close();
+      }
+    }
+  }
+
+  public void close() {
+    if (shutdown)
+      return;
+
+    shutdown = true;
+
+    // ROLLBACK THE TRANSACTIONS LEFT OPEN BY THE CLIENT
+    for (final TransactionContext tx : sessions.values())
+      try {
+        if (tx.isActive())
+          tx.rollback();
+      } catch (final Exception e) {
+        // IGNORE ANY ERROR DURING ROLLBACK
+      }
+    sessions.clear();
+
+    channel.close();
+    onClose.accept(this);
+  }
+
+  private boolean handshake() throws IOException {
+    long mn = 0;
+    try {
+      mn = channel.readLong();
+    } catch (final EOFException e) {
+      // IGNORE IT, TREAT IT AS BAD PROTOCOL
+    }
+
+    if (mn != BinaryProtocol.MAGIC_NUMBER) {
+      // INVALID PROTOCOL, WAIT (TO AVOID SPOOFING) AND CLOSE THE SOCKET
+      try {
+        Thread.sleep(500);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new ConnectionException(channel.socket.getInetAddress().toString(),
+          "Bad binary protocol. The connected client is not an ArcadeDB client");
+    }
+
+    final short remoteProtocolVersion = channel.readShort();
+    final String userName = channel.readString();
+    final String userPassword = channel.readString();
+    final String databaseName = channel.readString();
+
+    if (remoteProtocolVersion != BinaryProtocol.PROTOCOL_VERSION)
+      return refuse("Binary protocol version " + remoteProtocolVersion + " is different than the server's "
+          + BinaryProtocol.PROTOCOL_VERSION);
+
+    try {
+      user = server.getSecurity().authenticate(userName, userPassword, databaseName);
+      database = server.getDatabase(databaseName);
+    } catch (final ServerSecurityException e) {
+      return refuse("Credentials not valid");
+    } catch (final DatabaseOperationException e) {
+      return refuse("Database '" + databaseName + "' is not available");
+    }
+
+    channel.writeBoolean(true);
+    channel.flush();
+    return true;
+  }
+
+  private boolean refuse(final String reason) throws IOException {
+    channel.writeBoolean(false);
+    channel.writeString(reason);
+    channel.flush();
+    return false;
+  }
+
+  private void execute(final int requestId, final byte command, final int sessionId, final byte[] payload) {
+    LogManager.instance().setContext(server.getServerName());
+
+    final Binary request = new Binary(payload);
+    final Binary response = new Binary(8192);
+
+    try {
+      final TransactionContext tx = sessionId != BinaryProtocol.NO_SESSION ? sessions.get(sessionId) : null;
+      if (sessionId != BinaryProtocol.NO_SESSION && tx == null)
+        throw new TransactionException("Remote transaction not found or expired");
+
+      if (tx != null)
+        // THE REQUESTS OF THE SAME SESSION ARE EXECUTED ONE AT A TIME, LIKE WITH THE HTTP SESSIONS
+        synchronized (tx) {
+          executeCommand(command, sessionId, tx, request, response);
+        }
+      else
+        executeCommand(command, sessionId, null, request, response);
+
+      server.getServerMetrics().meter("binary.request").hit();
+      sendResponse(requestId, BinaryProtocol.STATUS_OK, response);
+
+    } catch (final Throwable e) {
+      LogManager.instance().log(this, Level.FINE, "Binary protocol: error on executing request %d", e, requestId);
+
+      final Binary error = new Binary(256);
+      error.putString(e.getClass().getName());
+      error.putString(e.getMessage() != null ? e.getMessage() : "");
+      error.putString(e instanceof DuplicatedKeyException ?
+          ((DuplicatedKeyException) e).getIndexName() + "|" + ((DuplicatedKeyException) e).getKeys() + "|"
+              + ((DuplicatedKeyException) e).getCurrentIndexedRID() :
+          "");
+      sendResponse(requestId, BinaryProtocol.STATUS_ERROR, error);
+    }
+  }
+
+  private void executeCommand(final byte command, final int sessionId, final TransactionContext tx, final Binary request,
+      final Binary response) {
+    // BIND THE DATABASE AND THE TRANSACTION OF THE SESSION, IF ANY, TO THE WORKER THREAD
+    DatabaseContext.INSTANCE.init(database, tx).setCurrentUser(user.getDatabaseUser(database));
+    try {
+      switch (command) {
+      case BinaryProtocol.COMMAND_QUERY:
+        query(request, response);
+        break;
+
+      case BinaryProtocol.COMMAND_COMMAND:
+        command(request, response, tx == null);
+        break;
+
+      case BinaryProtocol.COMMAND_BEGIN:
+        response.putUnsignedNumber(begin(request));
+        break;
+
+      case BinaryProtocol.COMMAND_COMMIT:
+        checkSession(sessionId);
+        try {
+          database.commit();
+        } finally {
+          sessions.remove(sessionId);
+        }
+        break;
+
+      case BinaryProtocol.COMMAND_ROLLBACK:
+        checkSession(sessionId);
+        try {
+          database.rollback();
+        } finally {
+          sessions.remove(sessionId);
+        }
+        break;
+
+      default:
+        throw new IllegalArgumentException("Binary protocol command " + command + " not supported");
+      }
+    } finally {
+      if (tx == null && command != BinaryProtocol.COMMAND_BEGIN)
+        // NO TRANSACTION, ROLLBACK TO MAKE SURE ANY PENDING OPERATION IS REMOVED
+        database.rollbackAllNested();
+
+      // DETACH CURRENT CONTEXT/TRANSACTIONS FROM CURRENT THREAD
+      DatabaseContext.INSTANCE.removeContext(database.getDatabasePath());
+    }
+  }
+
+  private void query(final Binary request, final Binary response) {
+    final String language = request.getString();
+    final String text = request.getString();
+    final Map<String, Object> params = serializer.readMap(request);
+
+    try (final ResultSet resultSet = database.query(language, text, params)) {
+      writeResultSet(resultSet, response);
+    }
+  }
+
+  private void command(final Binary request, final Binary response, final boolean atomicTransaction) {
+    final String language = request.getString();
+    final String text = request.getString();
+    final Map<String, Object> params = serializer.readMap(request);
+
+    if (atomicTransaction)
+      database.begin();
+
+    try (final ResultSet resultSet = database.command(language, text, server.getConfiguration(), params)) {
+      writeResultSet(resultSet, response);
+    }
+
+    if (atomicTransaction && database.isTransactionActive())
+      database.commit();
+  }
+
+  private int begin(final Binary request) {
+    final String isolationLevel = request.getString();
+    database.begin(Database.TRANSACTION_ISOLATION_LEVEL.valueOf(isolationLevel));
+
+    final int sessionId = lastSessionId.incrementAndGet();
+    sessions.put(sessionId, database.getTransaction());
+    return sessionId;
+  }
+
+  private void checkSession(final int sessionId) {
+    if (sessionId == BinaryProtocol.NO_SESSION)
+      throw new TransactionException("Transaction not begun");
+  }
+
+  private void writeResultSet(final ResultSet resultSet, final Binary response) {
+    if (resultSet != null)
+      while (resultSet.hasNext()) {
+        response.putByte((byte) 1);
+        serializer.writeResult(response, resultSet.next());
+      }
+    response.putByte((byte) 0);
+  }
+
+  private void sendResponse(final int requestId, final byte status, final Binary response) {
+    // THE RESPONSES OF THE REQUESTS EXECUTED IN PARALLEL ARE WRITTEN ONE AT A TIME
+    synchronized (channel) {
+      try {
+        channel.writeInt(requestId);
+        channel.writeByte(status);
+        channel.writeVarLengthBytes(response.getContent(), response.size());
+        channel.flush();
+      } catch (final IOException e) {
+        LogManager.instance().log(this, Level.FINE, "Binary protocol: error on sending response %d", e, requestId);
+        close();
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.binary;
+
+import com.arcadedb.Constants;
+import com.arcadedb.exception.ArcadeDBException;
+import com.arcadedb.log.LogManager;
+import com.arcadedb.network.binary.BinaryProtocol;
+import com.arcadedb.server.ArcadeDBServer;
+import com.arcadedb.server.ServerException;
+import com.arcadedb.server.ha.network.ServerSocketFactory;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+
+/**
+ * Accepts the connections of the binary protocol. Every connection has its own thread reading the requests, while the requests are
+ * executed by a pool of workers shared by all the connections, so the requests pipelined on the same connection run in parallel.
+ */
+public class BinaryNetworkListener extends Thread {
+  private final    ArcadeDBServer             server;
+  private final    ServerSocketFactory        socketFactory;
+  private final    ExecutorService            workers;
+  private final    Set<BinaryNetworkExecutor> connections = ConcurrentHashMap.newKeySet();
+  private          ServerSocket               serverSocket;
+  private volatile boolean                    active      = true;
+  private          int                        port;
+
+  public BinaryNetworkListener(final ArcadeDBServer server, final ServerSocketFactory iSocketFactory, final String iHostName,
+      final String iHostPortRange, final int workerThreads) {
+    super(server.getServerName() + " binary protocol listening at " + iHostName + ":" + iHostPortRange);
+
+    this.server = server;
+    this.socketFactory = iSocketFactory;
+
+    final AtomicInteger workerCounter = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerThreads, (r) -> {
+      final Thread t = new Thread(r, Constants.PRODUCT + "-binary-worker-" + workerCounter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+
+    listen(iHostName, iHostPortRange);
+
+    start();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (active) {
+        try {
+          final Socket socket = serverSocket.accept();
+
+          socket.setPerformancePreferences(0, 2, 1);
+
+          // CREATE A NEW PROTOCOL INSTANCE
+          final BinaryNetworkExecutor connection = new BinaryNetworkExecutor(server, socket, workers, connections::remove);
+          connections.add(connection);
+          connection.start();
+
+        } catch (final Exception e) {
+          if (active)
+            LogManager.instance().log(this, Level.WARNING, "Error on client connection", e);
+        }
+      }
+    } finally {
+      try {
+        if (serverSocket != null && !serverSocket.isClosed())
+          serverSocket.close();
+      } catch (final IOException ignored) {
+      }
+    }
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public void close() {
+    this.active = false;
+
+    if (serverSocket != null)
+      try {
+        serverSocket.close();
+      } catch (final IOException e) {
+        // IGNORE IT
+      }
+
+    for (final BinaryNetworkExecutor connection : connections)
+      connection.close();
+    connections.clear();
+
+    workers.shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return serverSocket.getLocalSocketAddress().toString();
+  }
+
+  /**
+   * Initialize a server socket for communicating with the client.
+   */
+  private void listen(final String hostName, final String hostPortRange) {
+    for (final int tryPort : getPorts(hostPortRange)) {
+      final InetSocketAddress inboundAddr = new InetSocketAddress(hostName, tryPort);
+      try {
+        serverSocket = socketFactory.createServerSocket(tryPort, 0, InetAddress.getByName(hostName));
+
+        if (serverSocket.isBound()) {
+          LogManager.instance().log(this, Level.INFO,
+              "Listening for binary protocol connections on $ANSI{green " + inboundAddr.getAddress().getHostAddress() + ":"
+                  + inboundAddr.getPort() + "} (protocol v." + BinaryProtocol.PROTOCOL_VERSION + ")");
+
+          port = tryPort;
+
+          // UPDATE THE NAME WITH THE ACTUAL PORT BOUND
+          setName(server.getServerName() + " binary protocol listening at " + hostName + ":" + port);
+
+          return;
+        }
+      } catch (final BindException be) {
+        LogManager.instance().log(this, Level.WARNING, "Port %s:%d busy, trying the next available...", hostName, tryPort);
+      } catch (final SocketException se) {
+        LogManager.instance().log(this, Level.SEVERE, "Unable to create socket", se);
+        throw new ArcadeDBException(se);
+      } catch (final IOException ioe) {
+        LogManager.instance().log(this, Level.SEVERE, "Unable to read data from an open socket", ioe);
+        throw new ArcadeDBException(ioe);
+      }
+    }
+
+    LogManager.instance()
+        .log(this, Level.SEVERE, "Unable to listen for connections using the configured ports '%s' on host '%s'", null,
+            hostPortRange, hostName);
+
+    throw new ServerException(
+        "Unable to listen for connections using the configured ports '" + hostPortRange + "' on host '" + hostName + "'");
+  }
+
+  private static int[] getPorts(final String iHostPortRange) {
+    final int[] ports;
+
+    if (iHostPortRange.contains(",")) {
+      // MULTIPLE ENUMERATED PORTS
+      final String[] portValues = iHostPortRange.split(",");
+      ports = new int[portValues.length];
+      for (int i = 0; i < portValues.length; ++i)
+        ports[i] = Integer.parseInt(portValues[i]);
+
+    } else if (iHostPortRange.contains("-")) {
+      // MULTIPLE RANGE PORTS
+      final String[] limits = iHostPortRange.split("-");
+      final int lowerLimit = Integer.parseInt(limits[0]);
+      final int upperLimit = Integer.parseInt(limits[1]);
+      ports = new int[upperLimit - lowerLimit + 1];
+      for (int i = 0; i < upperLimit - lowerLimit + 1; ++i)
+        ports[i] = lowerLimit + i;
+
+    } else
+      // SINGLE PORT SPECIFIED
+      ports = new int[] { Integer.parseInt(iHostPortRange) };
+
+    return ports;
+  }
+}
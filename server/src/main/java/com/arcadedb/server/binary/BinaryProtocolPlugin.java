@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.binary;
+
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.server.ArcadeDBServer;
+import com.arcadedb.server.ServerPlugin;
+import com.arcadedb.server.ha.network.DefaultServerSocketFactory;
+
+/**
+ * Server plugin that serves the binary protocol used by the remote clients with the 'binary' transport. To enable it, add
+ * `binary:com.arcadedb.server.binary.BinaryProtocolPlugin` to the `arcadedb.server.plugins` setting.
+ */
+public class BinaryProtocolPlugin implements ServerPlugin {
+  private ArcadeDBServer        server;
+  private ContextConfiguration  configuration;
+  private BinaryNetworkListener listener;
+
+  @Override
+  public void configure(final ArcadeDBServer arcadeDBServer, final ContextConfiguration configuration) {
+    this.server = arcadeDBServer;
+    this.configuration = configuration;
+  }
+
+  @Override
+  public void startService() {
+    listener = new BinaryNetworkListener(server, new DefaultServerSocketFactory(),
+        configuration.getValueAsString(GlobalConfiguration.SERVER_BINARY_INCOMING_HOST),
+        configuration.getValueAsString(GlobalConfiguration.SERVER_BINARY_INCOMING_PORT),
+        configuration.getValueAsInteger(GlobalConfiguration.SERVER_BINARY_WORKER_THREADS));
+  }
+
+  @Override
+  public void stopService() {
+    if (listener != null)
+      listener.close();
+  }
+
+  public int getPort() {
+    return listener != null ? listener.getPort() : -1;
+  }
+}
@@ -41,6 +41,8 @@ import com.arcadedb.server.ReplicationCallback;
 import com.arcadedb.server.ha.message.ErrorResponse;
 import com.arcadedb.server.ha.message.HACommand;
 import com.arcadedb.server.ha.message.HAMessageFactory;
+import com.arcadedb.server.ha.message.TxBatchRequest;
+import com.arcadedb.server.ha.message.TxRequest;
 import com.arcadedb.server.ha.message.UpdateClusterConfiguration;
 import com.arcadedb.server.ha.network.DefaultServerSocketFactory;
 import com.arcadedb.utility.Callable;
@@ -67,12 +69,14 @@ public class HAServer implements ServerPlugin {
   private final       Map<String, Leader2ReplicaNetworkExecutor>     replicaConnections                = new ConcurrentHashMap<>();
   private final       AtomicLong                                     lastDistributedOperationNumber    = new AtomicLong(-1);
   private final       AtomicLong                                     lastForwardOperationNumber        = new AtomicLong(0);
+  private final       AtomicLong                                     lastForwardedReplicationPosition  = new AtomicLong(-1);
+  private final       Object                                         replicationPositionLock           = new Object();
+  private final       AtomicInteger                                  replicationPositionWaiters        = new AtomicInteger();
   protected final     String                                         replicationPath;
   protected           ReplicationLogFile                             replicationLogFile;
   private final       AtomicReference<Replica2LeaderNetworkExecutor> leaderConnection                  = new AtomicReference<>();
   private             LeaderNetworkListener                          listener;
-  private final       Map<Long, QuorumMessage>                       messagesWaitingForQuorum          = new ConcurrentHashMap<>(
-      1024);
+  private final       ConcurrentNavigableMap<Long, QuorumMessage>    messagesWaitingForQuorum          = new ConcurrentSkipListMap<>();
   private final       Map<Long, ForwardedMessage>                    forwardMessagesWaitingForResponse = new ConcurrentHashMap<>(
       1024);
   private             long                                           lastConfigurationOutputHash       = 0;
@@ -85,6 +89,9 @@ public class HAServer implements ServerPlugin {
   private             boolean                                        started;
   private final       SERVER_ROLE                                    serverRole;
   private             Thread                                         electionThread;
+  private final       Queue<PendingTx>                               txBatchQueue                      = new ConcurrentLinkedQueue<>();
+  private final       Semaphore                                      txBatchesInFlight;
+  private final       int                                            txBatchMaxSize;
 
   public enum QUORUM {
     NONE, ONE, TWO, THREE, MAJORITY, ALL
@@ -99,12 +106,28 @@ public class HAServer implements ServerPlugin {
   }
 
   private static class QuorumMessage {
-    public final long           sentOn = System.currentTimeMillis();
+    public final long           sentOn  = System.nanoTime();
     public final CountDownLatch semaphore;
+    public final boolean        txAck;
+    public final Set<String>    ackedBy = ConcurrentHashMap.newKeySet();
     public       List<Object>   payloads;
 
-    public QuorumMessage(final CountDownLatch quorumSemaphore) {
+    public QuorumMessage(final CountDownLatch quorumSemaphore, final boolean txAck) {
       this.semaphore = quorumSemaphore;
+      this.txAck = txAck;
+    }
+  }
+
+  private static class PendingTx {
+    public final    TxRequest        request;
+    public final    int              quorum;
+    public final    CountDownLatch   done = new CountDownLatch(1);
+    public volatile boolean          taken;
+    public volatile RuntimeException error;
+
+    public PendingTx(final TxRequest request, final int quorum) {
+      this.request = request;
+      this.quorum = quorum;
     }
   }
 
@@ -142,6 +165,8 @@ public class HAServer implements ServerPlugin {
     this.replicationPath = server.getRootPath() + "/replication";
     this.serverRole = SERVER_ROLE.valueOf(
         configuration.getValueAsString(GlobalConfiguration.HA_SERVER_ROLE).toUpperCase(Locale.ENGLISH));
+    this.txBatchMaxSize = configuration.getValueAsInteger(GlobalConfiguration.HA_REPLICATION_BATCH_MAX_SIZE);
+    this.txBatchesInFlight = new Semaphore(Math.max(1, configuration.getValueAsInteger(GlobalConfiguration.HA_REPLICATION_BATCHES_IN_FLIGHT)));
   }
 
   @Override
@@ -360,13 +385,17 @@ public class HAServer implements ServerPlugin {
   }
 
   public void receivedResponse(final String remoteServerName, final long messageNumber, final Object payload) {
-    final long receivedOn = System.currentTimeMillis();
+    final long receivedOn = System.nanoTime();
 
     final QuorumMessage msg = messagesWaitingForQuorum.get(messageNumber);
     if (msg == null)
       // QUORUM ALREADY REACHED OR TIMEOUT
       return;
 
+    if (!msg.ackedBy.add(remoteServerName))
+      // ALREADY ACKNOWLEDGED
+      return;
+
     if (payload != null) {
       synchronized (msg) {
         if (msg.payloads == null)
@@ -383,6 +412,24 @@ public class HAServer implements ServerPlugin {
       c.updateStats(msg.sentOn, receivedOn);
   }
 
+  /**
+   * Acknowledges all the transactions sent to the replica up to the message number. The replica applies the messages in order, so
+   * the transactions with a lower number have been applied too.
+   */
+  public void receivedTxAck(final String remoteServerName, final long messageNumber) {
+    final long receivedOn = System.nanoTime();
+    final Leader2ReplicaNetworkExecutor c = replicaConnections.get(remoteServerName);
+
+    for (final QuorumMessage msg : messagesWaitingForQuorum.headMap(messageNumber, true).values())
+      if (msg.txAck && msg.ackedBy.add(remoteServerName)) {
+        msg.semaphore.countDown();
+
+        // UPDATE LATENCY
+        if (c != null)
+          c.updateStats(msg.sentOn, receivedOn);
+      }
+  }
+
   public void receivedResponseFromForward(final long messageNumber, final Object result, final ErrorResponse error) {
     final ForwardedMessage msg = forwardMessagesWaitingForResponse.get(messageNumber);
     if (msg == null)
@@ -400,6 +447,60 @@ public class HAServer implements ServerPlugin {
     return replicationLogFile;
   }
 
+  /**
+   * Returns the position in the replication log that includes all the changes committed by this server, also the ones forwarded to the
+   * leader. Clients pass it back to read their own writes on any server of the cluster.
+   */
+  public long getReplicationPosition() {
+    return Math.max(replicationLogFile.getLastMessageNumber(), lastForwardedReplicationPosition.get());
+  }
+
+  /**
+   * Called when the leader has executed a command forwarded by this server. The position returned by the leader covers the forwarded
+   * changes.
+   */
+  public void receivedReplicationPositionFromLeader(final long position) {
+    lastForwardedReplicationPosition.accumulateAndGet(position, Math::max);
+  }
+
+  /**
+   * Waits until the messages up to the position in the replication log have been applied on this server.
+   *
+   * @return false if the position has not been reached before the timeout
+   */
+  public boolean waitForReplicationPosition(final long position, final long timeoutMs) throws InterruptedException {
+    if (isLeader() || replicationLogFile.getLastMessageNumber() >= position)
+      return true;
+
+    final long deadline = System.currentTimeMillis() + timeoutMs;
+
+    // THE WAITER IS REGISTERED BEFORE CHECKING THE POSITION AGAIN, SO THE REPLICA THREAD CANNOT MISS IT
+    replicationPositionWaiters.incrementAndGet();
+    try {
+      synchronized (replicationPositionLock) {
+        while (replicationLogFile.getLastMessageNumber() < position && !isLeader()) {
+          final long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0)
+            return false;
+          replicationPositionLock.wait(remaining);
+        }
+      }
+      return true;
+    } finally {
+      replicationPositionWaiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Called by the replica after a message from the leader has been applied and appended to the replication log.
+   */
+  public void notifyReplicationPosition() {
+    if (replicationPositionWaiters.get() > 0)
+      synchronized (replicationPositionLock) {
+        replicationPositionLock.notifyAll();
+      }
+  }
+
   public ArcadeDBServer getServer() {
     return server;
   }
@@ -595,7 +696,8 @@ public class HAServer implements ServerPlugin {
 
           if (quorum > 1) {
             // REGISTER THE REQUEST TO WAIT FOR THE QUORUM
-            quorumMessage = new QuorumMessage(new CountDownLatch(quorum - 1));
+            quorumMessage = new QuorumMessage(new CountDownLatch(quorum - 1),
+                command instanceof TxRequest || command instanceof TxBatchRequest);
             messagesWaitingForQuorum.put(opNumber, quorumMessage);
           }
 
@@ -677,6 +779,79 @@ public class HAServer implements ServerPlugin {
     return responsePayloads;
   }
 
+  /**
+   * Replicates a transaction, sending with one message the transactions committed concurrently. When one of the batches in flight is
+   * available, the thread sends all the transactions waiting, including the ones of other threads. The other threads wait for the
+   * quorum of the batch containing their transaction. The quorum of a batch is the highest quorum of its transactions.
+   */
+  public void sendTxToReplicasWithQuorum(final TxRequest request, final int quorum, final long timeout) {
+    if (txBatchMaxSize < 2) {
+      sendCommandToReplicasWithQuorum(request, quorum, timeout);
+      return;
+    }
+
+    final PendingTx pending = new PendingTx(request, quorum);
+    txBatchQueue.add(pending);
+
+    try {
+      while (!pending.taken) {
+        if (!txBatchesInFlight.tryAcquire(1, TimeUnit.MILLISECONDS))
+          continue;
+
+        try {
+          sendTxBatch(timeout);
+        } finally {
+          txBatchesInFlight.release();
+        }
+      }
+
+      // THE THREAD SENDING THE BATCH ALWAYS RELEASES THE TRANSACTIONS, ALSO IN CASE OF ERROR
+      pending.done.await();
+
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      txBatchQueue.remove(pending);
+      throw new QuorumNotReachedException("Quorum not reached for the transaction because the thread was interrupted");
+    }
+
+    if (pending.error != null)
+      throw pending.error;
+  }
+
+  private void sendTxBatch(final long timeout) {
+    final List<PendingTx> batch = new ArrayList<>();
+    int quorum = 0;
+    for (PendingTx pending; batch.size() < txBatchMaxSize && (pending = txBatchQueue.poll()) != null; ) {
+      pending.taken = true;
+      batch.add(pending);
+      quorum = Math.max(quorum, pending.quorum);
+    }
+
+    if (batch.isEmpty())
+      return;
+
+    try {
+      final HACommand command;
+      if (batch.size() == 1)
+        command = batch.get(0).request;
+      else {
+        final List<TxRequest> transactions = new ArrayList<>(batch.size());
+        for (final PendingTx pending : batch)
+          transactions.add(pending.request);
+        command = new TxBatchRequest(transactions);
+      }
+
+      sendCommandToReplicasWithQuorum(command, quorum, timeout);
+
+    } catch (final RuntimeException e) {
+      for (final PendingTx pending : batch)
+        pending.error = e;
+    } finally {
+      for (final PendingTx pending : batch)
+        pending.done.countDown();
+    }
+  }
+
   public int getMessagesInQueue() {
     int total = 0;
     for (Leader2ReplicaNetworkExecutor r : replicaConnections.values())
@@ -874,6 +1049,7 @@ public class HAServer implements ServerPlugin {
         replica.put("leftOn", dateFormatted);
         replica.put("throughput", c.getThroughputStats());
         replica.put("latency", c.getLatencyStats());
+        replica.put("latencyHistogram", new JSONObject(c.getLatencyHistogram()));
       }
 
       result.put("replicas", replicas);
@@ -36,7 +36,9 @@ import com.arcadedb.utility.Pair;
 import com.conversantmedia.util.concurrent.PushPullBlockingQueue;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 /**
@@ -67,12 +69,18 @@ public class Leader2ReplicaNetworkExecutor extends Thread {
   private final    Object                                             channelInputLock      = new Object();
   private volatile boolean                                            shutdownCommunication = false;
 
+  // MESSAGES WRITTEN WITH A SINGLE FLUSH OF THE CHANNEL
+  private static final int MAX_MESSAGES_PER_FLUSH = 64;
+  // BUCKET N COUNTS THE LATENCIES BETWEEN 2^(N-1) AND 2^N MICROSECONDS
+  private static final int LATENCY_BUCKETS        = 26;
+
   // STATS
-  private long totalMessages;
-  private long totalBytes;
-  private long latencyMin;
-  private long latencyMax;
-  private long latencyTotalTime;
+  private       long            totalMessages;
+  private       long            totalBytes;
+  private       long            latencyMin       = -1;
+  private       long            latencyMax;
+  private       long            latencyTotalTime;
+  private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
 
   public Leader2ReplicaNetworkExecutor(final HAServer ha, final ChannelBinaryServer channel, final String remoteServerName,
       final String remoteServerAddress, final String remoteServerHTTPAddress) throws IOException {
@@ -178,7 +186,12 @@ public class Leader2ReplicaNetworkExecutor extends Thread {
                   .log(this, Level.FINE, "Sending message to replica '%s' (msgSize=%d buffered=%d)...", remoteServerName,
                       lastMessage.size(), senderQueue.size());
 
-              sendMessage(lastMessage);
+              // SEND ALSO THE MESSAGES ALREADY QUEUED WITH A SINGLE FLUSH
+              final List<Binary> messages = new ArrayList<>();
+              messages.add(lastMessage);
+              senderQueue.drainTo(messages, MAX_MESSAGES_PER_FLUSH - 1);
+
+              sendMessages(messages);
               lastMessage = null;
               break;
 
@@ -468,6 +481,9 @@ public class Leader2ReplicaNetworkExecutor extends Thread {
     return leftOn;
   }
 
+  /**
+   * Updates the latency statistics with the time in nanoseconds between the sending of a message and its acknowledgement.
+   */
   public void updateStats(final long sentOn, final long receivedOn) {
     totalMessages++;
 
@@ -478,16 +494,58 @@ public class Leader2ReplicaNetworkExecutor extends Thread {
       latencyMin = delta;
     if (delta > latencyMax)
       latencyMax = delta;
+
+    final long micros = Math.max(0, delta / 1_000);
+    latencyHistogram.incrementAndGet(Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
   }
 
   public STATUS getStatus() {
     return status;
   }
 
+  /**
+   * Returns the latency statistics in milliseconds. The percentiles are the upper bounds of the buckets of the histogram.
+   */
   public String getLatencyStats() {
     if (totalMessages == 0)
       return "";
-    return "avg=" + (latencyTotalTime / totalMessages) + " (min=" + latencyMin + " max=" + latencyMax + ")";
+    return "avg=" + toMillis(latencyTotalTime / totalMessages) + " (min=" + toMillis(latencyMin) + " max=" + toMillis(latencyMax)
+        + " p50=" + toMillis(getLatencyPercentile(50) * 1_000) + " p99=" + toMillis(getLatencyPercentile(99) * 1_000) + ")";
+  }
+
+  /**
+   * Returns the number of acknowledged messages by latency, where the key is the upper bound of the latency in microseconds.
+   */
+  public Map<String, Long> getLatencyHistogram() {
+    final Map<String, Long> result = new LinkedHashMap<>();
+    for (int i = 0; i < LATENCY_BUCKETS; i++) {
+      final long count = latencyHistogram.get(i);
+      if (count > 0)
+        result.put(i < LATENCY_BUCKETS - 1 ? "<" + (1L << i) + "us" : ">=" + (1L << (i - 1)) + "us", count);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the upper bound in microseconds of the latency of the requested percentile of the acknowledged messages.
+   */
+  public long getLatencyPercentile(final int percentile) {
+    long total = 0;
+    for (int i = 0; i < LATENCY_BUCKETS; i++)
+      total += latencyHistogram.get(i);
+
+    final long threshold = (total * percentile + 99) / 100;
+    long count = 0;
+    for (int i = 0; i < LATENCY_BUCKETS; i++) {
+      count += latencyHistogram.get(i);
+      if (count >= threshold && count > 0)
+        return 1L << i;
+    }
+    return 0;
+  }
+
+  private static String toMillis(final long nanos) {
+    return String.format(Locale.ENGLISH, "%.2f", nanos / 1_000_000D);
   }
 
   public String getThroughputStats() {
@@ -510,6 +568,20 @@ public class Leader2ReplicaNetworkExecutor extends Thread {
     }
   }
 
+  private void sendMessages(final List<Binary> messages) throws IOException {
+    synchronized (channelOutputLock) {
+      final ChannelBinaryServer c = channel;
+      if (c == null) {
+        close();
+        throw new IOException("Channel closed");
+      }
+
+      for (final Binary msg : messages)
+        c.writeVarLengthBytes(msg.getContent(), msg.size());
+      c.flush();
+    }
+  }
+
   @Override
   public String toString() {
     return remoteServerName;
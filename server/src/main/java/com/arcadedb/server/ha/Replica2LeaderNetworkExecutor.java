@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.ha;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseContext;
 import com.arcadedb.database.DatabaseFactory;
@@ -39,6 +40,8 @@ import com.arcadedb.server.ha.message.HACommand;
 import com.arcadedb.server.ha.message.ReplicaConnectFullResyncResponse;
 import com.arcadedb.server.ha.message.ReplicaConnectRequest;
 import com.arcadedb.server.ha.message.ReplicaReadyRequest;
+import com.arcadedb.server.ha.message.TxAckResponse;
+import com.arcadedb.server.ha.message.TxBatchRequest;
 import com.arcadedb.server.ha.message.TxRequest;
 import com.arcadedb.utility.FileUtils;
 import com.arcadedb.utility.Pair;
@@ -49,6 +52,10 @@ import java.util.*;
 import java.util.logging.*;
 
 public class Replica2LeaderNetworkExecutor extends Thread {
+  private static final int MAX_CHUNK_RETRIES     = 3;
+  // MAXIMUM NUMBER OF TRANSACTIONS APPLIED BEFORE SENDING THE ACKNOWLEDGEMENT TO THE LEADER
+  private static final int MAX_POSTPONED_TX_ACKS = 32;
+
   private final    HAServer            server;
   private          String              host;
   private          int                 port;
@@ -59,6 +66,32 @@ public class Replica2LeaderNetworkExecutor extends Thread {
   private final    Object              channelOutputLock            = new Object();
   private final    Object              channelInputLock             = new Object();
   private          long                installDatabaseLastLogNumber = -1;
+  private          FullResyncProgress  fullResyncProgress;
+
+  /**
+   * Progress of a full resync, kept across the reconnections to the same leader to resume the installation of the databases from
+   * the chunks not received yet.
+   */
+  private static class FullResyncProgress {
+    private final String                    leaderServerName;
+    private final Set<String>               installedDatabases = new HashSet<>();
+    private final Map<String, Long>         startLogNumbers    = new HashMap<>();
+    private final Map<String, FileProgress> files              = new HashMap<>();
+
+    private FullResyncProgress(final String leaderServerName) {
+      this.leaderServerName = leaderServerName;
+    }
+
+    private FileProgress getFile(final String databaseName, final int fileId) {
+      return files.computeIfAbsent(databaseName + "/" + fileId, k -> new FileProgress());
+    }
+  }
+
+  private static class FileProgress {
+    private       int     chunkPages; // 0 = NOT KNOWN YET
+    private final BitSet  installedChunks = new BitSet();
+    private       boolean installed;
+  }
 
   public Replica2LeaderNetworkExecutor(final HAServer ha, final String host, final int port) {
     this.server = ha;
@@ -76,10 +109,19 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     buffer.setAllocationChunkSize(1024);
 
     long lastReqId = -1;
+    long pendingTxAck = -1;
+    int postponedTxAcks = 0;
 
     while (!shutdown) {
       long reqId = -1;
       try {
+        if (pendingTxAck > -1 && (postponedTxAcks >= MAX_POSTPONED_TX_ACKS || !channelHasInput())) {
+          // NO OTHER MESSAGES TO APPLY RIGHT NOW: ACKNOWLEDGE ALL THE TRANSACTIONS APPLIED SO FAR
+          sendCommandToLeader(buffer, new TxAckResponse(), pendingTxAck);
+          pendingTxAck = -1;
+          postponedTxAcks = 0;
+        }
+
         final byte[] requestBytes = receiveResponse();
 
         if (shutdown)
@@ -129,6 +171,8 @@ public class Replica2LeaderNetworkExecutor extends Thread {
 
         if (installDatabaseLastLogNumber > -1 && request.getSecond() instanceof TxRequest)
           ((TxRequest) request.getSecond()).installDatabaseLastLogNumber = installDatabaseLastLogNumber;
+        else if (installDatabaseLastLogNumber > -1 && request.getSecond() instanceof TxBatchRequest)
+          ((TxBatchRequest) request.getSecond()).installDatabaseLastLogNumber = installDatabaseLastLogNumber;
 
         // TODO: LOG THE TX BEFORE EXECUTING TO RECOVER THE DB IN CASE OF CRASH
 
@@ -142,11 +186,16 @@ public class Replica2LeaderNetworkExecutor extends Thread {
             startup();
             continue;
           }
+          server.notifyReplicationPosition();
         }
 
         server.getServer().lifecycleEvent(ReplicationCallback.TYPE.REPLICA_MSG_RECEIVED, request);
 
-        if (response != null)
+        if (response instanceof TxAckResponse) {
+          // THE ACKNOWLEDGEMENT OF A TRANSACTION COVERS ALSO THE PREVIOUS ONES: POSTPONE IT IF OTHER MESSAGES ARE WAITING
+          pendingTxAck = reqId;
+          ++postponedTxAcks;
+        } else if (response != null)
           sendCommandToLeader(buffer, response, reqId);
         reqId = -1;
 
@@ -301,6 +350,11 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     return leaderServerName;
   }
 
+  private boolean channelHasInput() {
+    final ChannelBinaryClient c = channel;
+    return c != null && c.inputHasData();
+  }
+
   private byte[] receiveResponse() throws IOException {
     synchronized (channelInputLock) {
       return channel.readBytes();
@@ -401,7 +455,15 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     final Binary buffer = new Binary(8192);
     buffer.setAllocationChunkSize(1024);
 
-    final long lastLogNumber = server.getReplicationLogFile().getLastMessageNumber();
+    if (fullResyncProgress != null && !fullResyncProgress.leaderServerName.equals(leaderServerName)) {
+      LogManager.instance()
+          .log(this, Level.INFO, "Leader changed during the full resync (previous=%s), restarting it from the beginning",
+              fullResyncProgress.leaderServerName);
+      fullResyncProgress = new FullResyncProgress(leaderServerName);
+    }
+
+    // AN INTERRUPTED FULL RESYNC LEFT THE DATABASES PARTIALLY INSTALLED: ASK FOR A FULL RESYNC AGAIN
+    final long lastLogNumber = fullResyncProgress != null ? -1 : server.getReplicationLogFile().getLastMessageNumber();
 
     LogManager.instance().log(this, Level.INFO, "Requesting install of databases up to log %d...", lastLogNumber);
 
@@ -418,8 +480,14 @@ public class Replica2LeaderNetworkExecutor extends Thread {
 
         final Set<String> databases = fullSync.getDatabases();
 
+        if (fullResyncProgress == null)
+          fullResyncProgress = new FullResyncProgress(leaderServerName);
+
         for (final String db : databases)
-          requestInstallDatabase(buffer, db);
+          if (!fullResyncProgress.installedDatabases.contains(db))
+            requestInstallDatabase(buffer, db);
+          else
+            LogManager.instance().log(this, Level.INFO, "Database '%s' already installed before the reconnection, skip it", db);
 
       } else {
         LogManager.instance().log(this, Level.INFO, "Receiving hot resync (from=%d)...", lastLogNumber);
@@ -428,6 +496,8 @@ public class Replica2LeaderNetworkExecutor extends Thread {
 
       sendCommandToLeader(buffer, new ReplicaReadyRequest(), -1);
 
+      fullResyncProgress = null;
+
     } catch (final Exception e) {
       shutdown();
       LogManager.instance().log(this, Level.SEVERE, "Error starting HA service (error=%s)", e, e.getMessage());
@@ -439,8 +509,11 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     sendCommandToLeader(buffer, new DatabaseStructureRequest(db), -1);
     final DatabaseStructureResponse dbStructure = (DatabaseStructureResponse) receiveCommandFromLeaderDuringJoin(buffer);
 
-    // REQUEST A DELTA BACKUP FROM THE LAST LOG NUMBER
-    server.getReplicationLogFile().setLastMessageNumber(dbStructure.getCurrentLogNumber());
+    final FullResyncProgress progress = fullResyncProgress != null ? fullResyncProgress : new FullResyncProgress(leaderServerName);
+
+    // REQUEST A DELTA BACKUP FROM THE LAST LOG NUMBER. IN CASE OF RESUME, THE CHANGES SINCE THE FIRST CHUNKS RECEIVED ARE NEEDED
+    final long startLogNumber = progress.startLogNumbers.computeIfAbsent(db, k -> dbStructure.getCurrentLogNumber());
+    server.getReplicationLogFile().setLastMessageNumber(startLogNumber);
 
     final DatabaseInternal database = server.getServer().getOrCreateDatabase(db);
 
@@ -456,10 +529,18 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     for (int i = 0; i < list.size(); i++) {
       final Map.Entry<Integer, String> f = list.get(i);
       try {
-        databaseSize += installFile(buffer, db, f.getKey(), f.getValue(), 0, -1);
-      } catch (Exception e) {
+        databaseSize += installFile(buffer, db, f.getKey(), f.getValue(), progress.getFile(db, f.getKey()));
+      } catch (final IOException e) {
+        // CONNECTION LOST: KEEP THE CHUNKS ALREADY INSTALLED TO RESUME AFTER THE RECONNECTION
+        LogManager.instance()
+            .log(this, Level.SEVERE, "Error on installing file '%s' (%s %d/%d files), the install will be resumed", e, f.getKey(),
+                FileUtils.getSizeAsString(databaseSize), i, list.size());
+        throw e;
+      } catch (final Exception e) {
         LogManager.instance().log(this, Level.SEVERE, "Error on installing file '%s' (%s %d/%d files)", e, f.getKey(),
             FileUtils.getSizeAsString(databaseSize), i, list.size());
+        progress.files.keySet().removeIf(k -> k.startsWith(db + "/"));
+        progress.startLogNumbers.remove(db);
         database.getEmbedded().drop();
         throw new ReplicationException("Error on installing database '" + db + "'", e);
       }
@@ -475,39 +556,80 @@ public class Replica2LeaderNetworkExecutor extends Thread {
     DatabaseContext.INSTANCE.init(database);
     database.getSchema().getEmbedded().load(ComponentFile.MODE.READ_WRITE, true);
 
+    progress.installedDatabases.add(db);
+    progress.files.keySet().removeIf(k -> k.startsWith(db + "/"));
+
     LogManager.instance()
         .log(this, Level.INFO, "Database '%s' installed from the cluster (%s - %d files lastLogNumber=%d)", null, db,
             FileUtils.getSizeAsString(databaseSize), list.size(), installDatabaseLastLogNumber);
   }
 
+  /**
+   * Installs a file by requesting its chunks in sequence. Multiple chunks are requested before receiving the first one, so the leader
+   * reads the next chunks while the previous ones are transferred. A chunk with an invalid checksum is requested again. The chunks
+   * installed are tracked in the progress to resume from the missing ones after a reconnection.
+   */
   private long installFile(final Binary buffer, final String db, final int fileId, final String fileName,
-      final int pageFromInclusive, final int pageToInclusive) throws IOException {
+      final FileProgress progress) throws IOException {
+    if (progress.installed)
+      return 0;
 
-    int from = pageFromInclusive;
+    final int chunkSize = server.getServer().getConfiguration().getValueAsInteger(GlobalConfiguration.HA_RESYNC_CHUNK_SIZE);
+    final int maxInFlightChunks = Math.max(1,
+        server.getServer().getConfiguration().getValueAsInteger(GlobalConfiguration.HA_RESYNC_IN_FLIGHT_CHUNKS));
 
     LogManager.instance().log(this, Level.FINE, "Installing file '%s'...", fileName);
 
+    final Deque<Integer> inFlightChunks = new ArrayDeque<>();
+    int nextChunk = progress.installedChunks.nextClearBit(0);
+    boolean lastReceived = false;
+    int retries = 0;
     int pagesWritten = 0;
     long fileSize = 0;
+
     while (true) {
-      sendCommandToLeader(buffer, new FileContentRequest(db, fileId, from, pageToInclusive), -1);
+      // THE PAGES PER CHUNK ARE KNOWN ONLY AFTER THE FIRST CHUNK: UNTIL THEN, ASK ONE CHUNK AT A TIME
+      final int window = progress.chunkPages > 0 ? maxInFlightChunks : 1;
+      while (!lastReceived && inFlightChunks.size() < window) {
+        sendCommandToLeader(buffer, new FileContentRequest(db, fileId, nextChunk * progress.chunkPages, -1, chunkSize), -1);
+        inFlightChunks.add(nextChunk);
+        nextChunk = progress.installedChunks.nextClearBit(nextChunk + 1);
+      }
+
+      if (inFlightChunks.isEmpty())
+        break;
+
+      final int chunk = inFlightChunks.poll();
       final FileContentResponse fileChunk = (FileContentResponse) receiveCommandFromLeaderDuringJoin(buffer);
 
-      fileSize += fileChunk.getPagesContent().size();
+      if (!fileChunk.isChecksumValid()) {
+        if (++retries > MAX_CHUNK_RETRIES)
+          throw new ReplicationException("Invalid checksum on chunk " + chunk + " of file '" + fileName + "' after " + MAX_CHUNK_RETRIES + " retries");
+
+        LogManager.instance().log(this, Level.WARNING, "Invalid checksum on chunk %d of file '%s', requesting it again", chunk, fileName);
+
+        // THE CHUNKS ARE INDEPENDENT: ASK IT AGAIN AFTER THE ONES ALREADY IN FLIGHT
+        sendCommandToLeader(buffer, new FileContentRequest(db, fileId, chunk * progress.chunkPages, -1, chunkSize), -1);
+        inFlightChunks.add(chunk);
+        continue;
+      }
 
       fileChunk.execute(server, null, -1);
 
-      if (fileChunk.getPages() == 0)
-        break;
+      if (progress.chunkPages == 0)
+        progress.chunkPages = Math.max(1, fileChunk.getPages());
 
+      progress.installedChunks.set(chunk);
+      fileSize += fileChunk.getPagesContent().size();
       pagesWritten += fileChunk.getPages();
 
       if (fileChunk.isLast())
-        break;
-
-      from += fileChunk.getPages();
+        // THE CHUNKS ALREADY IN FLIGHT AFTER THE LAST ONE ARE EMPTY
+        lastReceived = true;
     }
 
+    progress.installed = true;
+
     LogManager.instance().log(this, Level.FINE, "File '%s' installed (pagesWritten=%d size=%s)", fileName, pagesWritten,
         FileUtils.getSizeAsString(fileSize));
 
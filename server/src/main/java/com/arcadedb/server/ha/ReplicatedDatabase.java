@@ -20,6 +20,8 @@ package com.arcadedb.server.ha;
 
 import com.arcadedb.ContextConfiguration;
 import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.compression.Compression;
+import com.arcadedb.compression.CompressionFactory;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseContext;
@@ -83,6 +85,7 @@ public class ReplicatedDatabase implements DatabaseInternal {
   private final EmbeddedDatabase proxied;
   private final HAServer.QUORUM  quorum;
   private final long             timeout;
+  private final Compression      compression;
 
   public ReplicatedDatabase(final ArcadeDBServer server, final EmbeddedDatabase proxied) {
     if (!server.getConfiguration().getValueAsBoolean(GlobalConfiguration.TX_WAL))
@@ -92,6 +95,8 @@ public class ReplicatedDatabase implements DatabaseInternal {
     this.proxied = proxied;
     this.quorum = HAServer.QUORUM.valueOf(proxied.getConfiguration().getValueAsString(GlobalConfiguration.HA_QUORUM).toUpperCase(Locale.ENGLISH));
     this.timeout = proxied.getConfiguration().getValueAsLong(GlobalConfiguration.HA_QUORUM_TIMEOUT);
+    this.compression = CompressionFactory.getCompression(
+        proxied.getConfiguration().getValueAsString(GlobalConfiguration.HA_REPLICATION_COMPRESSION));
     this.proxied.setWrappedDatabaseInstance(this);
   }
 
@@ -119,7 +124,7 @@ public class ReplicatedDatabase implements DatabaseInternal {
             else {
               // USE A BIGGER TIMEOUT CONSIDERING THE DOUBLE LATENCY
               final TxForwardRequest command = new TxForwardRequest(ReplicatedDatabase.this, getTransactionIsolationLevel(),
-                  tx.getBucketRecordDelta(), bufferChanges, tx.getIndexChanges().toMap());
+                  tx.getBucketRecordDelta(), bufferChanges, tx.getIndexChanges().toMap(), compression);
               server.getHA().forwardCommandToLeader(command, timeout * 2);
               tx.reset();
             }
@@ -173,7 +178,7 @@ public class ReplicatedDatabase implements DatabaseInternal {
       throw new IllegalArgumentException("Quorum " + quorum + " not managed");
     }
 
-    final TxRequest req = new TxRequest(getName(), tx.getBucketRecordDelta(), bufferChanges, reqQuorum > 1);
+    final TxRequest req = new TxRequest(getName(), tx.getBucketRecordDelta(), bufferChanges, reqQuorum > 1, compression);
 
     final DatabaseChangeStructureRequest changeStructureRequest = getChangeStructure(-1);
     if (changeStructureRequest != null) {
@@ -183,7 +188,11 @@ public class ReplicatedDatabase implements DatabaseInternal {
       req.changeStructure = changeStructureRequest;
     }
 
-    server.getHA().sendCommandToReplicasWithQuorum(req, reqQuorum, timeout);
+    if (req.changeStructure != null)
+      // CHANGES OF STRUCTURE ARE NEVER BATCHED WITH OTHER TRANSACTIONS
+      server.getHA().sendCommandToReplicasWithQuorum(req, reqQuorum, timeout);
+    else
+      server.getHA().sendTxToReplicasWithQuorum(req, reqQuorum, timeout);
 
     // COMMIT 2ND PHASE ONLY IF THE QUORUM HAS BEEN REACHED
     tx.commit2ndPhase(phase1);
@@ -52,7 +52,7 @@ public class ReplicationLogFile extends LockContext {
       Binary.INT_SERIALIZED_SIZE + Binary.LONG_SERIALIZED_SIZE;
   private final        ByteBuffer                    bufferFooter         = ByteBuffer.allocate(BUFFER_FOOTER_SIZE);
   private static final long                          MAGIC_NUMBER         = 93719829258702L;
-  private              long                          lastMessageNumber    = -1L;
+  private volatile     long                          lastMessageNumber    = -1L;
   private final static long                          CHUNK_SIZE           = 64L * 1024L * 1024L;
   private              long                          chunkNumber          = 0L;
   private              WALFile.FLUSH_TYPE            flushPolicy          = WALFile.FLUSH_TYPE.NO;
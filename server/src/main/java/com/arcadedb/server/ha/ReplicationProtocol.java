@@ -20,7 +20,7 @@ package com.arcadedb.server.ha;
 
 public class ReplicationProtocol extends Thread {
   public static final long  MAGIC_NUMBER     = 20986405762943483L;
-  public static final short PROTOCOL_VERSION = 0;
+  public static final short PROTOCOL_VERSION = 4;
 
   // MESSAGES
   public static final short COMMAND_CONNECT            = 0;
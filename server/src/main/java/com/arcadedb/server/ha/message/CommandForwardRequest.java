@@ -129,7 +129,7 @@ public class CommandForwardRequest extends HAAbstractCommand {
     else
       result = db.command(language, command, server.getServer().getConfiguration(), ordinalParameters);
 
-    return new CommandForwardResponse(database, result);
+    return new CommandForwardResponse(server, database, result);
   }
 
   @Override
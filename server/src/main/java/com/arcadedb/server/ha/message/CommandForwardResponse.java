@@ -39,11 +39,14 @@ import java.util.*;
 public class CommandForwardResponse extends HAAbstractCommand {
   private ResultSet        resultset;
   private DatabaseInternal database;
+  private HAServer         server;
+  private long             replicationPosition = -1;
 
   public CommandForwardResponse() {
   }
 
-  public CommandForwardResponse(final DatabaseInternal database, final ResultSet resultset) {
+  public CommandForwardResponse(final HAServer server, final DatabaseInternal database, final ResultSet resultset) {
+    this.server = server;
     this.database = database;
     this.resultset = resultset;
   }
@@ -76,6 +79,9 @@ public class CommandForwardResponse extends HAAbstractCommand {
 
     }
     stream.putByte((byte) 0); // NO MORE RECORDS
+
+    // READ THE POSITION AFTER THE RESULTSET HAS BEEN CONSUMED, SO IT COVERS THE CHANGES OF LAZY COMMANDS TOO
+    stream.putLong(server.getReplicationPosition());
   }
 
   @Override
@@ -110,10 +116,12 @@ public class CommandForwardResponse extends HAAbstractCommand {
     }
 
     resultset = new IteratorResultSet(list.iterator());
+    replicationPosition = stream.getLong();
   }
 
   @Override
   public HACommand execute(final HAServer server, final String remoteServerName, final long messageNumber) {
+    server.receivedReplicationPositionFromLeader(replicationPosition);
     server.receivedResponseFromForward(messageNumber, resultset, null);
     return null;
   }
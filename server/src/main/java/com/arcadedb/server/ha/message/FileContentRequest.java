@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.ha.message;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.engine.ComponentFile;
@@ -30,24 +31,35 @@ import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.ha.HAServer;
 
 import java.io.*;
-import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
+/**
+ * Requests a chunk of pages of a file to the leader. The pages are read without passing through the page cache of the leader, so the
+ * transfer of a database does not evict the pages used by the queries.
+ */
 public class FileContentRequest extends HAAbstractCommand {
+  // RESERVED FOR THE OTHER FIELDS OF THE RESPONSE
+  private static final int    RESPONSE_HEADER_SIZE = 1024;
   private              String databaseName;
   private              int    fileId;
   private              int    fromPageInclusive; //  INCLUSIVE
   private              int    toPageInclusive; //  INCLUSIVE
-  private static final int    CHUNK_MAX_PAGES = 10;
+  private              int    chunkSize; // 0 = USE THE SETTING OF THE LEADER
 
   public FileContentRequest() {
   }
 
   public FileContentRequest(final String dbName, final int fileId, final int pageFromInclusive, final int pageToInclusive) {
+    this(dbName, fileId, pageFromInclusive, pageToInclusive, 0);
+  }
+
+  public FileContentRequest(final String dbName, final int fileId, final int pageFromInclusive, final int pageToInclusive,
+      final int chunkSize) {
     this.databaseName = dbName;
     this.fileId = fileId;
     this.fromPageInclusive = pageFromInclusive;
     this.toPageInclusive = pageToInclusive;
+    this.chunkSize = chunkSize;
   }
 
   @Override
@@ -61,35 +73,33 @@ public class FileContentRequest extends HAAbstractCommand {
       try {
         final int totalPages = (int) (file.getSize() / pageSize);
 
-        final Binary pagesContent = new Binary();
-
-        final AtomicInteger pages = new AtomicInteger(0);
+        final int lastPage = toPageInclusive == -1 ? totalPages - 1 : Math.min(toPageInclusive, totalPages - 1);
 
-        if (toPageInclusive == -1)
-          toPageInclusive = totalPages - 1;
+        final int maxChunkSize = server.getServer().getConfiguration().getValueAsInteger(GlobalConfiguration.HA_REPLICATION_CHUNK_MAXSIZE)
+            - RESPONSE_HEADER_SIZE;
+        final int requestedChunkSize = chunkSize > 0 ?
+            chunkSize :
+            server.getServer().getConfiguration().getValueAsInteger(GlobalConfiguration.HA_RESYNC_CHUNK_SIZE);
+        final int chunkPages = Math.max(1, Math.min(requestedChunkSize, maxChunkSize) / pageSize);
 
-//        db.getPageManager().suspendFlushAndExecute(() -> {
-          for (int i = fromPageInclusive; i <= toPageInclusive && pages.get() < CHUNK_MAX_PAGES; ++i) {
-            final PageId pageId = new PageId(fileId, i);
-            final ImmutablePage page = db.getPageManager().getImmutablePage(pageId, pageSize, false, false);
-            pagesContent.putByteArray(page.getContent().array(), pageSize);
+        final int pages = Math.max(0, Math.min(chunkPages, lastPage - fromPageInclusive + 1));
 
-            pages.incrementAndGet();
-          }
-//        });
+        final Binary pagesContent = new Binary(pages * pageSize);
+        for (int i = fromPageInclusive; i < fromPageInclusive + pages; ++i) {
+          final ImmutablePage page = db.getPageManager().getImmutablePageWithoutCaching(new PageId(fileId, i), pageSize);
+          if (page == null)
+            throw new NetworkProtocolException("Cannot load page " + i + " of file " + file.getFileName());
+          pagesContent.putByteArray(page.getContent().array(), pageSize);
+        }
 
-        final boolean last = pages.get() > toPageInclusive;
+        final boolean last = fromPageInclusive + pages > lastPage;
 
         pagesContent.flip();
 
-        return new FileContentResponse(databaseName, fileId, file.getFileName(), fromPageInclusive, pagesContent, pages.get(),
-            last);
+        return new FileContentResponse(databaseName, fileId, file.getFileName(), fromPageInclusive, pagesContent, pages, last);
 
       } catch (final IOException e) {
         throw new NetworkProtocolException("Cannot load pages", e);
-//      } catch (InterruptedException e) {
-//        Thread.currentThread().interrupt();
-//        throw new NetworkProtocolException("Cannot load pages", e);
       }
     }
     LogManager.instance().log(this, Level.SEVERE, "Cannot read not paginated file %s from the leader", file.getFileName());
@@ -102,6 +112,7 @@ public class FileContentRequest extends HAAbstractCommand {
     stream.putInt(fileId);
     stream.putInt(fromPageInclusive);
     stream.putInt(toPageInclusive);
+    stream.putInt(chunkSize);
   }
 
   @Override
@@ -110,11 +121,12 @@ public class FileContentRequest extends HAAbstractCommand {
     fileId = stream.getInt();
     fromPageInclusive = stream.getInt();
     toPageInclusive = stream.getInt();
+    chunkSize = stream.getInt();
   }
 
   @Override
   public String toString() {
-    return "file(" + databaseName + " fileId=" + fileId + " fromPageInclusive=" + fromPageInclusive + " fromPageInclusive"
-        + toPageInclusive + ")";
+    return "file(" + databaseName + " fileId=" + fileId + " fromPageInclusive=" + fromPageInclusive + " toPageInclusive="
+        + toPageInclusive + " chunkSize=" + chunkSize + ")";
   }
 }
@@ -35,7 +35,11 @@ import com.arcadedb.utility.FileUtils;
 
 import java.io.*;
 import java.util.logging.*;
+import java.util.zip.*;
 
+/**
+ * Chunk of pages of a file sent by the leader, with the checksum of the content to detect the chunks corrupted during the transfer.
+ */
 public class FileContentResponse extends HAAbstractCommand {
   private String databaseName;
   private int    fileId;
@@ -45,6 +49,8 @@ public class FileContentResponse extends HAAbstractCommand {
   private Binary  pagesContent;
   private int     totalPages;
   private boolean last;
+  private long    checksum;
+  private Boolean checksumValid;
 
   public FileContentResponse() {
   }
@@ -59,6 +65,7 @@ public class FileContentResponse extends HAAbstractCommand {
     this.pagesContent = pagesContent;
     this.totalPages = totalPages;
     this.last = last;
+    this.checksum = calculateChecksum(pagesContent);
   }
 
   public Binary getPagesContent() {
@@ -73,6 +80,15 @@ public class FileContentResponse extends HAAbstractCommand {
     return last;
   }
 
+  /**
+   * Returns true if the content received matches the checksum computed by the leader.
+   */
+  public boolean isChecksumValid() {
+    if (checksumValid == null)
+      checksumValid = calculateChecksum(pagesContent) == checksum;
+    return checksumValid;
+  }
+
   @Override
   public HACommand execute(final HAServer server, final String remoteServerName, final long messageNumber) {
     final DatabaseInternal database = server.getServer().getDatabase(databaseName);
@@ -85,6 +101,9 @@ public class FileContentResponse extends HAAbstractCommand {
       if (totalPages == 0)
         return null;
 
+      if (!isChecksumValid())
+        throw new ReplicationException("Invalid checksum of the chunk of file '" + fileName + "' from page " + pageFromInclusive);
+
       if (file instanceof PaginatedComponentFile) {
         final PaginatedComponentFile pFile = (PaginatedComponentFile) file;
         final int pageSize = pFile.getPageSize();
@@ -143,6 +162,7 @@ public class FileContentResponse extends HAAbstractCommand {
     stream.putUnsignedNumber(totalPages);
     stream.putBytes(pagesContent.getContent(), pagesContent.size());
     stream.putByte((byte) (last ? 1 : 0));
+    stream.putLong(checksum);
   }
 
   @Override
@@ -154,6 +174,13 @@ public class FileContentResponse extends HAAbstractCommand {
     totalPages = (int) stream.getUnsignedNumber();
     pagesContent = new Binary(stream.getBytes());
     last = stream.getByte() == 1;
+    checksum = stream.getLong();
+  }
+
+  private static long calculateChecksum(final Binary content) {
+    final CRC32 crc = new CRC32();
+    crc.update(content.getContent(), content.getContentBeginOffset(), content.size());
+    return crc.getValue();
   }
 
   @Override
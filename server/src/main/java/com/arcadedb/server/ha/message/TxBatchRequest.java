@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.ha.message;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.server.ArcadeDBServer;
+import com.arcadedb.server.ha.HAServer;
+
+import java.util.*;
+
+/**
+ * Replicates with one message the transactions committed concurrently on the leader. The transactions are applied in order and a single
+ * acknowledgement is returned for all of them.
+ */
+public class TxBatchRequest extends HAAbstractCommand {
+  private List<TxRequest> transactions;
+  public  long            installDatabaseLastLogNumber = -1;
+
+  public TxBatchRequest() {
+  }
+
+  public TxBatchRequest(final List<TxRequest> transactions) {
+    this.transactions = transactions;
+  }
+
+  public List<TxRequest> getTransactions() {
+    return transactions;
+  }
+
+  @Override
+  public HACommand execute(final HAServer server, final String remoteServerName, final long messageNumber) {
+    HACommand response = null;
+    for (final TxRequest tx : transactions) {
+      tx.installDatabaseLastLogNumber = installDatabaseLastLogNumber;
+      final HACommand txResponse = tx.execute(server, remoteServerName, messageNumber);
+      if (txResponse != null)
+        response = txResponse;
+    }
+    return response;
+  }
+
+  @Override
+  public void toStream(final Binary stream) {
+    stream.putUnsignedNumber(transactions.size());
+    for (final TxRequest tx : transactions)
+      tx.toStream(stream);
+  }
+
+  @Override
+  public void fromStream(final ArcadeDBServer server, final Binary stream) {
+    final int total = (int) stream.getUnsignedNumber();
+    transactions = new ArrayList<>(total);
+    for (int i = 0; i < total; i++) {
+      final TxRequest tx = new TxRequest();
+      tx.fromStream(server, stream);
+      transactions.add(tx);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "txBatch(" + transactions.size() + ")";
+  }
+}
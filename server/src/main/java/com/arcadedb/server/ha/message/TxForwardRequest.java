@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.ha.message;
 
+import com.arcadedb.compression.Compression;
 import com.arcadedb.compression.CompressionFactory;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.Database;
@@ -52,8 +53,9 @@ public class TxForwardRequest extends TxRequestAbstract {
 
   public TxForwardRequest(final DatabaseInternal database, Database.TRANSACTION_ISOLATION_LEVEL transactionIsolationLevel,
       final Map<Integer, Integer> bucketRecordDelta, final Binary bufferChanges,
-      final Map<String, TreeMap<TransactionIndexContext.ComparableKey, Map<TransactionIndexContext.IndexKey, TransactionIndexContext.IndexKey>>> keysTx) {
-    super(database.getName(), bucketRecordDelta, bufferChanges);
+      final Map<String, TreeMap<TransactionIndexContext.ComparableKey, Map<TransactionIndexContext.IndexKey, TransactionIndexContext.IndexKey>>> keysTx,
+      final Compression compression) {
+    super(database.getName(), bucketRecordDelta, bufferChanges, compression);
     this.isolationLevelIndex = transactionIsolationLevel.ordinal();
     writeIndexKeysToBuffer(database, keysTx);
   }
@@ -104,7 +106,7 @@ public class TxForwardRequest extends TxRequestAbstract {
       return new ErrorResponse(e);
     }
 
-    return new TxForwardResponse();
+    return new TxForwardResponse(server.getReplicationPosition());
   }
 
   @Override
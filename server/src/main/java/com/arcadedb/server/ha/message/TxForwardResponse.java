@@ -18,14 +18,36 @@
  */
 package com.arcadedb.server.ha.message;
 
+import com.arcadedb.database.Binary;
+import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.ha.HAServer;
 
 /**
  * Response for forwarded transaction.
  */
 public class TxForwardResponse extends HAAbstractCommand {
+  private long replicationPosition = -1;
+
+  public TxForwardResponse() {
+  }
+
+  public TxForwardResponse(final long replicationPosition) {
+    this.replicationPosition = replicationPosition;
+  }
+
+  @Override
+  public void toStream(final Binary stream) {
+    stream.putLong(replicationPosition);
+  }
+
+  @Override
+  public void fromStream(final ArcadeDBServer server, final Binary stream) {
+    replicationPosition = stream.getLong();
+  }
+
   @Override
   public HACommand execute(final HAServer server, final String remoteServerName, final long messageNumber) {
+    server.receivedReplicationPositionFromLeader(replicationPosition);
     server.receivedResponseFromForward(messageNumber, null, null);
     return null;
   }
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.ha.message;
 
+import com.arcadedb.compression.Compression;
 import com.arcadedb.database.Binary;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.engine.ComponentFile;
@@ -33,7 +34,7 @@ import java.util.*;
 import java.util.logging.*;
 
 /**
- * Replicate a transaction. No response is expected.
+ * Replicate a transaction. A response is expected only if the leader waits for the quorum.
  */
 public class TxRequest extends TxRequestAbstract {
   private boolean                        waitForResponse;
@@ -44,8 +45,8 @@ public class TxRequest extends TxRequestAbstract {
   }
 
   public TxRequest(final String dbName, final Map<Integer, Integer> bucketRecordDelta, final Binary bufferChanges,
-      final boolean waitForResponse) {
-    super(dbName, bucketRecordDelta, bufferChanges);
+      final boolean waitForResponse, final Compression compression) {
+    super(dbName, bucketRecordDelta, bufferChanges, compression);
     this.waitForResponse = waitForResponse;
   }
 
@@ -116,7 +117,7 @@ public class TxRequest extends TxRequestAbstract {
       db.getSchema().getEmbedded().initComponents();
 
     if (waitForResponse)
-      return new OkResponse();
+      return new TxAckResponse();
 
     return null;
   }
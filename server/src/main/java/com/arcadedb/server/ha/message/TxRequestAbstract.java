@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.ha.message;
 
+import com.arcadedb.compression.Compression;
 import com.arcadedb.compression.CompressionFactory;
 import com.arcadedb.database.Binary;
 import com.arcadedb.engine.WALFile;
@@ -28,6 +29,7 @@ import java.util.*;
 
 public abstract class TxRequestAbstract extends HAAbstractCommand {
   protected String                databaseName;
+  protected byte                  changesCompressionId;
   protected int                   changesUncompressedLength;
   protected Binary                changesBuffer;
   protected Map<Integer, Integer> bucketRecordDelta;    // @SINCE 23.7.1
@@ -35,18 +37,24 @@ public abstract class TxRequestAbstract extends HAAbstractCommand {
   protected TxRequestAbstract() {
   }
 
-  protected TxRequestAbstract(final String dbName, final Map<Integer, Integer> bucketRecordDelta, final Binary changesBuffer) {
+  /**
+   * @param compression codec to compress the changes sent to the other servers, null to send them uncompressed
+   */
+  protected TxRequestAbstract(final String dbName, final Map<Integer, Integer> bucketRecordDelta, final Binary changesBuffer,
+      final Compression compression) {
     this.databaseName = dbName;
 
     changesBuffer.rewind();
     this.changesUncompressedLength = changesBuffer.size();
-    this.changesBuffer = CompressionFactory.getDefault().compress(changesBuffer);
+    this.changesCompressionId = compression != null ? compression.getId() : 0;
+    this.changesBuffer = compression != null ? compression.compress(changesBuffer) : changesBuffer;
     this.bucketRecordDelta = bucketRecordDelta;
   }
 
   @Override
   public void toStream(final Binary stream) {
     stream.putString(databaseName);
+    stream.putByte(changesCompressionId);
     stream.putInt(changesUncompressedLength);
     stream.putBytes(changesBuffer.getContent(), changesBuffer.size());
 
@@ -61,8 +69,12 @@ public abstract class TxRequestAbstract extends HAAbstractCommand {
   @Override
   public void fromStream(final ArcadeDBServer server, final Binary stream) {
     databaseName = stream.getString();
+    changesCompressionId = stream.getByte();
     changesUncompressedLength = stream.getInt();
-    changesBuffer = CompressionFactory.getDefault().decompress(new Binary(stream.getBytes()), changesUncompressedLength);
+
+    final Compression compression = CompressionFactory.getCompression(changesCompressionId);
+    final Binary changes = new Binary(stream.getBytes());
+    changesBuffer = compression != null ? compression.decompress(changes, changesUncompressedLength) : changes;
 
     // @SINCE 23.7.1
     final int deltaSize = stream.getInt();
@@ -94,6 +106,8 @@ public abstract class TxRequestAbstract extends HAAbstractCommand {
       // TRUNCATED FILE
       throw new ReplicationException("Replicated transaction buffer is corrupted");
 
+    final int segmentEnd = pos + segmentSize;
+
     tx.pages = new WALFile.WALPage[pages];
 
     for (int i = 0; i < pages; ++i) {
@@ -131,6 +145,18 @@ public abstract class TxRequestAbstract extends HAAbstractCommand {
       pos += deltaSize;
     }
 
+    if (pos < segmentEnd) {
+      // BUCKET RECORD DELTAS
+      final int buckets = bufferChange.getInt(pos);
+      pos += Binary.INT_SERIALIZED_SIZE;
+
+      tx.bucketRecordDelta = new HashMap<>(buckets);
+      for (int i = 0; i < buckets; ++i) {
+        tx.bucketRecordDelta.put(bufferChange.getInt(pos), bufferChange.getInt(pos + Binary.INT_SERIALIZED_SIZE));
+        pos += Binary.INT_SERIALIZED_SIZE * 2;
+      }
+    }
+
     final long mn = bufferChange.getLong(pos + Binary.INT_SERIALIZED_SIZE);
     if (mn != WALFile.MAGIC_NUMBER)
       // INVALID
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.http;
+
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+
+import java.util.*;
+
+/**
+ * Server-side cursor of a result set, bound to a {@link HttpSession}. The client fetches the rows in pages, so the result set is
+ * never loaded entirely in memory, neither on the server nor on the client. The cursor is not thread safe, it is always used under
+ * the lock of the owner session.
+ */
+public class HttpCursor {
+  public final     String    id;
+  private final    ResultSet resultSet;
+  private volatile long      lastUsed;
+  private          long      fetched = 0L;
+
+  public HttpCursor(final String id, final ResultSet resultSet) {
+    this.id = id;
+    this.resultSet = resultSet;
+    this.lastUsed = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the next page of rows, at most `fetchSize`.
+   */
+  public List<Result> fetch(final int fetchSize) {
+    lastUsed = System.currentTimeMillis();
+
+    final List<Result> page = new ArrayList<>(Math.min(fetchSize, 1_000));
+    while (page.size() < fetchSize && resultSet.hasNext())
+      page.add(resultSet.next());
+
+    fetched += page.size();
+    lastUsed = System.currentTimeMillis();
+    return page;
+  }
+
+  public boolean hasNext() {
+    return resultSet.hasNext();
+  }
+
+  public long getFetched() {
+    return fetched;
+  }
+
+  public long elapsedFromLastUse() {
+    return System.currentTimeMillis() - lastUsed;
+  }
+
+  public void close() {
+    resultSet.close();
+  }
+}
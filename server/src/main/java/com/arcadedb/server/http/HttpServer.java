@@ -32,9 +32,11 @@ import com.arcadedb.server.http.handler.GetExistsDatabaseHandler;
 import com.arcadedb.server.http.handler.GetQueryHandler;
 import com.arcadedb.server.http.handler.GetReadyHandler;
 import com.arcadedb.server.http.handler.GetServerHandler;
+import com.arcadedb.server.http.handler.PostBatchHandler;
 import com.arcadedb.server.http.handler.PostBeginHandler;
 import com.arcadedb.server.http.handler.PostCommandHandler;
 import com.arcadedb.server.http.handler.PostCommitHandler;
+import com.arcadedb.server.http.handler.PostCursorHandler;
 import com.arcadedb.server.http.handler.PostQueryHandler;
 import com.arcadedb.server.http.handler.PostRollbackHandler;
 import com.arcadedb.server.http.handler.PostServerCommandHandler;
@@ -80,7 +82,8 @@ public class HttpServer implements ServerPlugin {
   public HttpServer(final ArcadeDBServer server) {
     this.server = server;
     this.sessionManager = new HttpSessionManager(
-        server.getConfiguration().getValueAsInteger(GlobalConfiguration.SERVER_HTTP_TX_EXPIRE_TIMEOUT) * 1000L);
+        server.getConfiguration().getValueAsInteger(GlobalConfiguration.SERVER_HTTP_TX_EXPIRE_TIMEOUT) * 1000L,
+        server.getConfiguration().getValueAsInteger(GlobalConfiguration.SERVER_HTTP_CURSOR_EXPIRE_TIMEOUT) * 1000L);
     this.webSocketEventBus = new WebSocketEventBus(this.server);
   }
 
@@ -124,9 +127,11 @@ public class HttpServer implements ServerPlugin {
 
     routes.addPrefixPath("/api/v1",//
         basicRoutes//
+            .post("/batch/{database}", new PostBatchHandler(this))//
             .post("/begin/{database}", new PostBeginHandler(this))//
             .post("/command/{database}", new PostCommandHandler(this))//
             .post("/commit/{database}", new PostCommitHandler(this))//
+            .post("/cursor/{database}", new PostCursorHandler(this))//
             .get("/databases", new GetDatabasesHandler(this))//
             .get("/exists/{database}", new GetExistsDatabaseHandler(this))//
             .get("/query/{database}/{language}/{command}", new GetQueryHandler(this))//
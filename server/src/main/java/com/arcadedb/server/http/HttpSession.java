@@ -19,10 +19,14 @@
 package com.arcadedb.server.http;
 
 import com.arcadedb.database.TransactionContext;
+import com.arcadedb.log.LogManager;
+import com.arcadedb.query.sql.executor.ResultSet;
 import com.arcadedb.server.security.ServerSecurityUser;
 
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
+import java.util.logging.*;
 
 /**
  * Manage a transaction on the HTTP protocol.
@@ -30,17 +34,19 @@ import java.util.concurrent.locks.*;
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
 public class HttpSession {
-  private static final long               DEFAULT_TIMEOUT = 5_000;
-  public final         String             id;
-  public final         TransactionContext transaction;
-  public final         ServerSecurityUser user;
-  private final        ReentrantLock      lock            = new ReentrantLock();
-  private volatile     long               lastUpdate      = 0L;
+  private static final long                    DEFAULT_TIMEOUT = 5_000;
+  public final         String                  id;
+  public final         TransactionContext      transaction;
+  public final         ServerSecurityUser      user;
+  private final        ReentrantLock           lock            = new ReentrantLock();
+  private volatile     long                    lastUpdate      = 0L;
+  private final        Map<String, HttpCursor> cursors         = new ConcurrentHashMap<>();
 
   public HttpSession(final ServerSecurityUser user, final String id, final TransactionContext dbTx) {
     this.user = user;
     this.id = id;
     this.transaction = dbTx;
+    this.lastUpdate = System.currentTimeMillis();
   }
 
   public long elapsedFromLastUpdate() {
@@ -65,4 +71,82 @@ public class HttpSession {
     lastUpdate = System.currentTimeMillis();
     return this;
   }
+
+  public HttpCursor openCursor(final ResultSet resultSet) {
+    final HttpCursor cursor = new HttpCursor("AC-" + UUID.randomUUID(), resultSet);
+    cursors.put(cursor.id, cursor);
+    return cursor;
+  }
+
+  public HttpCursor getCursor(final String cursorId) {
+    return cursors.get(cursorId);
+  }
+
+  public boolean closeCursor(final String cursorId) {
+    final HttpCursor cursor = cursors.remove(cursorId);
+    if (cursor == null)
+      return false;
+
+    cursor.close();
+    return true;
+  }
+
+  public boolean hasCursors() {
+    return !cursors.isEmpty();
+  }
+
+  /**
+   * Closes the cursors not used in the last `timeoutInMs`. A session in use is skipped, its cursors are checked at the next round.
+   *
+   * @return The number of cursors closed
+   */
+  public int closeExpiredCursors(final long timeoutInMs) {
+    if (cursors.isEmpty() || !lock.tryLock())
+      return 0;
+
+    try {
+      int expired = 0;
+      for (final Iterator<HttpCursor> it = cursors.values().iterator(); it.hasNext(); ) {
+        final HttpCursor cursor = it.next();
+        if (cursor.elapsedFromLastUse() > timeoutInMs) {
+          it.remove();
+          closeSilently(cursor);
+          expired++;
+        }
+      }
+      return expired;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Closes all the cursors, called when the session expires.
+   */
+  public void closeCursors() {
+    if (cursors.isEmpty())
+      return;
+
+    if (!lock.tryLock()) {
+      // IN USE: THE CURSORS ARE JUST DISCARDED, THE REQUEST IN PROGRESS WILL NOT FIND THEM ANYMORE
+      cursors.clear();
+      return;
+    }
+
+    try {
+      for (final HttpCursor cursor : cursors.values())
+        closeSilently(cursor);
+      cursors.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void closeSilently(final HttpCursor cursor) {
+    try {
+      cursor.close();
+    } catch (final Exception e) {
+      LogManager.instance().log(this, Level.FINE, "Error on closing cursor %s", e, cursor.id);
+    }
+  }
 }
@@ -36,10 +36,18 @@ public class HttpSessionManager extends RWLockContext {
   public static final String                   ARCADEDB_SESSION_ID = "arcadedb-session-id";
   private final       Map<String, HttpSession> sessions            = new HashMap<>();
   private final       long                     expirationTimeInMs;
+  private final       long                     cursorExpirationTimeInMs;
   private final       Timer                    timer;
 
   public HttpSessionManager(final long expirationTimeInMs) {
+    this(expirationTimeInMs, expirationTimeInMs);
+  }
+
+  public HttpSessionManager(final long expirationTimeInMs, final long cursorExpirationTimeInMs) {
     this.expirationTimeInMs = expirationTimeInMs;
+    this.cursorExpirationTimeInMs = cursorExpirationTimeInMs;
+
+    final long checkEvery = Math.min(expirationTimeInMs, cursorExpirationTimeInMs);
 
     timer = new Timer();
     timer.schedule(new TimerTask() {
@@ -48,13 +56,22 @@ public class HttpSessionManager extends RWLockContext {
         final int expired = checkSessionsValidity();
         if (expired > 0)
           LogManager.instance().log(this, Level.FINE, "Removed %d expired sessions", null, expired);
+
+        final int expiredCursors = checkCursorsValidity();
+        if (expiredCursors > 0)
+          LogManager.instance().log(this, Level.FINE, "Closed %d idle cursors", null, expiredCursors);
       }
-    }, expirationTimeInMs, expirationTimeInMs);
+    }, checkEvery, checkEvery);
   }
 
   public void close() {
     timer.cancel();
-    sessions.clear();
+    executeInWriteLock(() -> {
+      for (final HttpSession session : sessions.values())
+        session.closeCursors();
+      sessions.clear();
+      return null;
+    });
   }
 
   public int checkSessionsValidity() {
@@ -67,6 +84,7 @@ public class HttpSessionManager extends RWLockContext {
         if (s.getValue().elapsedFromLastUpdate() > expirationTimeInMs) {
           // REMOVE THE SESSION
           it.remove();
+          s.getValue().closeCursors();
           expired++;
         }
       }
@@ -74,6 +92,20 @@ public class HttpSessionManager extends RWLockContext {
     });
   }
 
+  /**
+   * Closes the cursors left idle for more than the cursor expiration time, also in the sessions still in use.
+   *
+   * @return The number of cursors closed
+   */
+  public int checkCursorsValidity() {
+    final List<HttpSession> active = executeInReadLock(() -> new ArrayList<>(sessions.values()));
+
+    int expired = 0;
+    for (final HttpSession session : active)
+      expired += session.closeExpiredCursors(cursorExpirationTimeInMs);
+    return expired;
+  }
+
   public HttpSession getSessionById(final ServerSecurityUser user, final String txId) {
     return executeInReadLock(() -> sessions.get(txId));
   }
@@ -87,6 +119,13 @@ public class HttpSessionManager extends RWLockContext {
     });
   }
 
+  public HttpSession removeSession(final String sessionId) {
+    final HttpSession session = executeInWriteLock(() -> sessions.remove(sessionId));
+    if (session != null)
+      session.closeCursors();
+    return session;
+  }
+
   public int getActiveSessions() {
     return sessions.size();
   }
@@ -156,19 +156,8 @@ public abstract class AbstractQueryHandler extends DatabaseAbstractHandler {
       break;
     }
 
-    case "record": {
-      final JsonSerializer serializerImpl = new JsonSerializer().setIncludeVertexEdges(false).setUseCollectionSize(false)
-          .setUseCollectionSizeForEdges(false);
-      final JSONArray result = new JSONArray(limit > -1 ?
-          qResult.stream().limit(limit + 1).map(r -> serializerImpl.serializeResult(database, r)).collect(Collectors.toList()) :
-          qResult.stream().map(r -> serializerImpl.serializeResult(database, r)).collect(Collectors.toList()));
-      response.put("result", result);
-      break;
-    }
-
     default: {
-      final JsonSerializer serializerImpl = new JsonSerializer().setIncludeVertexEdges(true).setUseCollectionSize(false)
-          .setUseCollectionSizeForEdges(false);
+      final JsonSerializer serializerImpl = createRowSerializer(serializer);
       final JSONArray result = new JSONArray(limit > -1 ?
           qResult.stream().limit(limit + 1).map(r -> serializerImpl.serializeResult(database, r)).collect(Collectors.toList()) :
           qResult.stream().map(r -> serializerImpl.serializeResult(database, r)).collect(Collectors.toList()));
@@ -177,6 +166,40 @@ public abstract class AbstractQueryHandler extends DatabaseAbstractHandler {
     }
   }
 
+  /**
+   * Creates the response that sends the rows while they are read from the result set, as a JSON array in the "result" field or as
+   * newline delimited JSON.
+   */
+  protected ExecutionResponse createStreamingResponse(final Database database, final JSONObject response, final String serializer,
+      final StreamingExecutionResponse.FORMAT format, final int limit, final ResultSet qResult) {
+    return new StreamingExecutionResponse(database, qResult, createRowSerializer(serializer), response, format, limit);
+  }
+
+  /**
+   * Parses the streaming format requested by the client, null if the results must be sent all together.
+   */
+  protected static StreamingExecutionResponse.FORMAT getStreamingFormat(final String stream, final String serializer) {
+    if (stream == null)
+      return null;
+
+    if ("graph".equals(serializer) || "studio".equals(serializer))
+      throw new IllegalArgumentException("Streaming is not supported with the '" + serializer + "' serializer");
+
+    try {
+      return StreamingExecutionResponse.FORMAT.valueOf(stream.toUpperCase(Locale.ENGLISH));
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid streaming format '" + stream + "'. Supported formats are 'json' and 'ndjson'");
+    }
+  }
+
+  /**
+   * Returns the serializer of the single rows for the serializers that do not aggregate the rows in graph elements.
+   */
+  protected JsonSerializer createRowSerializer(final String serializer) {
+    return new JsonSerializer().setIncludeVertexEdges(!"record".equals(serializer)).setUseCollectionSize(false)
+        .setUseCollectionSizeForEdges(false);
+  }
+
   protected void analyzeResultContent(final Database database, final JsonGraphSerializer serializerImpl,
       final Set<Identifiable> includedVertices, final JSONArray vertices, final JSONArray edges, final Result row) {
     for (final String prop : row.getPropertyNames()) {
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.server.http.handler;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseContext;
 import com.arcadedb.database.DatabaseInternal;
@@ -25,6 +26,7 @@ import com.arcadedb.database.TransactionContext;
 import com.arcadedb.exception.TransactionException;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.security.SecurityDatabaseUser;
+import com.arcadedb.server.ha.HAServer;
 import com.arcadedb.server.http.HttpServer;
 import com.arcadedb.server.http.HttpSession;
 import com.arcadedb.server.http.HttpSessionManager;
@@ -39,7 +41,9 @@ import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler {
-  private static final HttpString SESSION_ID_HEADER = new HttpString(HttpSessionManager.ARCADEDB_SESSION_ID);
+  public static final  String     ARCADEDB_REPLICATION_POSITION = "arcadedb-replication-position";
+  private static final HttpString SESSION_ID_HEADER             = new HttpString(HttpSessionManager.ARCADEDB_SESSION_ID);
+  private static final HttpString REPLICATION_POSITION_HEADER   = new HttpString(ARCADEDB_REPLICATION_POSITION);
 
   protected DatabaseAbstractHandler(final HttpServer httpServer) {
     super(httpServer);
@@ -60,6 +64,10 @@ public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler
       if (databaseName.isEmpty())
         return new ExecutionResponse(400, "{ \"error\" : \"Database parameter is null\"}");
 
+      final ExecutionResponse notReached = waitForReplicationPosition(exchange);
+      if (notReached != null)
+        return notReached;
+
       database = httpServer.getServer().getDatabase(databaseName.getFirst(), false, false);
 
       current = DatabaseContext.INSTANCE.getContextIfExists(database.getDatabasePath());
@@ -93,6 +101,7 @@ public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler
         // EXECUTE THE CODE LOCKING THE CURRENT SESSION. THIS AVOIDS USING THE SAME SESSION FROM MULTIPLE THREADS AT THE SAME TIME
         activeSession.execute(user, () -> {
           response.set(execute(exchange, user, database));
+          sendStreamingResponse(exchange, response);
           return null;
         });
       else
@@ -102,6 +111,13 @@ public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler
         // STARTED ATOMIC TRANSACTION, COMMIT
         database.commit();
 
+      final HAServer ha = httpServer.getServer().getHA();
+      if (database != null && ha != null)
+        // RETURN THE POSITION COVERING THE CHANGES COMMITTED SO FAR, THE CLIENT CAN PASS IT TO A REPLICA TO READ ITS OWN WRITES
+        exchange.getResponseHeaders().put(REPLICATION_POSITION_HEADER, ha.getReplicationPosition());
+
+      sendStreamingResponse(exchange, response);
+
     } finally {
 
       if (activeSession != null)
@@ -122,6 +138,17 @@ public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler
     return response.get();
   }
 
+  /**
+   * The rows of a streaming response are read from the result set while they are sent, so the response is sent here, while the
+   * database is still bound to the current thread.
+   */
+  private static void sendStreamingResponse(final HttpServerExchange exchange, final AtomicReference<ExecutionResponse> response) {
+    if (response.get() instanceof StreamingExecutionResponse) {
+      response.get().send(exchange);
+      response.set(null);
+    }
+  }
+
   private void cleanTL(final Database database, DatabaseContext.DatabaseContextTL current) {
     if (current == null)
       current = DatabaseContext.INSTANCE.getContextIfExists(database.getDatabasePath());
@@ -139,6 +166,35 @@ public abstract class DatabaseAbstractHandler extends AbstractServerHttpHandler
     }
   }
 
+  /**
+   * Waits until this server has applied the replication position requested by the client with the
+   * `arcadedb-replication-position` header, so the client reads its own writes also from a replica.
+   */
+  private ExecutionResponse waitForReplicationPosition(final HttpServerExchange exchange) throws InterruptedException {
+    final HAServer ha = httpServer.getServer().getHA();
+    if (ha == null)
+      return null;
+
+    final HeaderValues position = exchange.getRequestHeaders().get(REPLICATION_POSITION_HEADER);
+    if (position == null || position.isEmpty())
+      return null;
+
+    final long requested;
+    try {
+      requested = Long.parseLong(position.getFirst());
+    } catch (final NumberFormatException e) {
+      return new ExecutionResponse(400, "{ \"error\" : \"Invalid replication position '" + position.getFirst() + "'\"}");
+    }
+
+    final long timeout = httpServer.getServer().getConfiguration().getValueAsLong(GlobalConfiguration.HA_READ_YOUR_WRITES_TIMEOUT);
+    if (!ha.waitForReplicationPosition(requested, timeout))
+      return new ExecutionResponse(503,
+          "{ \"error\" : \"Replication position " + requested + " not reached on server '" + ha.getServerName() + "' (current="
+              + ha.getReplicationLogFile().getLastMessageNumber() + ")\"}");
+
+    return null;
+  }
+
   protected boolean requiresDatabase() {
     return true;
   }
@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.http.handler;
+
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.JSONSerializer;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import com.arcadedb.graph.Vertex;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.EdgeType;
+import com.arcadedb.schema.VertexType;
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+import com.arcadedb.server.http.HttpServer;
+import com.arcadedb.server.security.ServerSecurityUser;
+import io.undertow.server.HttpServerExchange;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Imports a batch of records sent as NDJSON, one JSON object per line. The request payload is parsed while it is received, so the
+ * batch is never loaded entirely in memory. Every line is a record to create, or to update if it has a "@rid" or if the key
+ * properties passed with the "upsertKey" parameter match an existing record. The "@type" of the line decides if the record is a
+ * document, a vertex or an edge. Edges need the "@out" and "@in" vertices. Supported parameters:
+ * <ul>
+ *   <li>commitEvery: number of records per transaction (default is `arcadedb.server.httpBatchCommitEvery`). It is ignored in a
+ *   session with an open transaction, where the records are committed with the transaction</li>
+ *   <li>mode: 'tx' (default) to save the records in the current thread, 'async' to hand them to the asynchronous executor of the
+ *   database, with its parallel level and commit size</li>
+ *   <li>upsertKey: comma separated list of the properties, indexed, used to look up the record to update</li>
+ * </ul>
+ * The response reports the number of records created and updated, the edges created, the transactions committed and the errors.
+ * An invalid line is skipped, while an error on commit discards all the records of the transaction.
+ */
+public class PostBatchHandler extends DatabaseAbstractHandler {
+  public PostBatchHandler(final HttpServer httpServer) {
+    super(httpServer);
+  }
+
+  @Override
+  protected boolean mustExecuteOnWorkerThread() {
+    return true;
+  }
+
+  @Override
+  protected boolean requiresTransaction() {
+    // THE TRANSACTIONS ARE COMMITTED EVERY `commitEvery` RECORDS
+    return false;
+  }
+
+  @Override
+  public ExecutionResponse execute(final HttpServerExchange exchange, final ServerSecurityUser user, final Database database)
+      throws IOException {
+    final ContextConfiguration configuration = httpServer.getServer().getConfiguration();
+
+    final String commitEveryParameter = getQueryParameter(exchange, "commitEvery");
+    final int commitEvery = commitEveryParameter != null ?
+        Integer.parseInt(commitEveryParameter) :
+        configuration.getValueAsInteger(GlobalConfiguration.SERVER_HTTP_BATCH_COMMIT_EVERY);
+    if (commitEvery < 1)
+      throw new IllegalArgumentException("Invalid commitEvery " + commitEvery);
+
+    final String mode = getQueryParameter(exchange, "mode", "tx");
+    if (!mode.equalsIgnoreCase("tx") && !mode.equalsIgnoreCase("async"))
+      throw new IllegalArgumentException("Invalid mode '" + mode + "'. Supported modes are 'tx' and 'async'");
+
+    final String upsertKey = getQueryParameter(exchange, "upsertKey");
+
+    final Batch batch = new Batch(database, "async".equalsIgnoreCase(mode), commitEvery,
+        upsertKey != null && !upsertKey.isBlank() ? upsertKey.split(",") : null,
+        configuration.getValueAsInteger(GlobalConfiguration.SERVER_HTTP_BATCH_MAX_ERRORS));
+
+    if (!exchange.isBlocking())
+      exchange.startBlocking();
+
+    try (final BufferedReader reader = new BufferedReader(
+        new InputStreamReader(exchange.getInputStream(), DatabaseFactory.getDefaultCharset()))) {
+      String line;
+      while ((line = reader.readLine()) != null)
+        batch.process(line);
+    }
+    batch.complete();
+
+    httpServer.getServer().getServerMetrics().meter("http.batch").hit();
+
+    final JSONObject response = createResult(user, database);
+    response.put("result", batch.toJSON());
+    return new ExecutionResponse(200, response.toString());
+  }
+
+  private static class Batch {
+    private final Database       database;
+    private final JSONSerializer serializer;
+    private final boolean        async;
+    private final boolean        sessionTransaction;
+    private final int            commitEvery;
+    private final String[]       upsertKeys;
+    private final int            maxErrors;
+    private final JSONArray      errorDetails = new JSONArray();
+    private final long           beginTime    = System.currentTimeMillis();
+    private       long           lines        = 0;
+    private       long           created      = 0;
+    private       long           updated      = 0;
+    private       long           edges        = 0;
+    private       long           errors       = 0;
+    private       long           commits      = 0;
+
+    // RECORDS OF THE CURRENT TRANSACTION, COUNTED ONLY AFTER THE COMMIT
+    private long pendingFirstLine = 1;
+    private long pendingCreated   = 0;
+    private long pendingUpdated   = 0;
+    private long pendingEdges     = 0;
+
+    // RECORDS SCHEDULED ON THE ASYNCHRONOUS EXECUTOR, COUNTED BY THE CALLBACKS
+    private final AtomicLong asyncScheduled = new AtomicLong();
+    private final AtomicLong asyncCreated   = new AtomicLong();
+    private final AtomicLong asyncUpdated   = new AtomicLong();
+    private final AtomicLong asyncEdges     = new AtomicLong();
+    private final AtomicLong asyncFailed    = new AtomicLong();
+
+    private Batch(final Database database, final boolean async, final int commitEvery, final String[] upsertKeys,
+        final int maxErrors) {
+      this.database = database;
+      this.serializer = new JSONSerializer(database);
+      this.async = async;
+      this.sessionTransaction = database.isTransactionActive();
+      this.commitEvery = commitEvery;
+      this.upsertKeys = upsertKeys;
+      this.maxErrors = maxErrors;
+    }
+
+    private void process(final String line) {
+      ++lines;
+      if (line.isBlank())
+        return;
+
+      if (!async && !database.isTransactionActive())
+        database.begin();
+
+      try {
+        processRecord(new JSONObject(line));
+      } catch (final Exception e) {
+        addError(Long.toString(lines), e, 1);
+      }
+
+      if (!async && !sessionTransaction && pendingCreated + pendingUpdated + pendingEdges >= commitEvery)
+        commit();
+    }
+
+    private void processRecord(final JSONObject json) {
+      final Map<String, Object> properties = serializer.json2map(json);
+
+      if (json.has("@rid")) {
+        // UPDATE BY RID
+        update(new RID(database, json.getString("@rid")).asDocument(true), properties);
+        return;
+      }
+
+      if (!json.has("@type"))
+        throw new IllegalArgumentException("Missing @type");
+
+      final String typeName = json.getString("@type");
+      final DocumentType type = database.getSchema().getType(typeName);
+
+      if (type instanceof EdgeType) {
+        createEdge(json, typeName, properties);
+        return;
+      }
+
+      if (upsertKeys != null) {
+        final Object[] keyValues = new Object[upsertKeys.length];
+        for (int i = 0; i < upsertKeys.length; i++) {
+          if (!properties.containsKey(upsertKeys[i]))
+            throw new IllegalArgumentException("Missing upsert key property '" + upsertKeys[i] + "'");
+          keyValues[i] = properties.get(upsertKeys[i]);
+        }
+
+        final IndexCursor cursor = database.lookupByKey(typeName, upsertKeys, keyValues);
+        if (cursor.hasNext()) {
+          update(cursor.next().asDocument(true), properties);
+          return;
+        }
+      }
+
+      final MutableDocument record = type instanceof VertexType ? database.newVertex(typeName) : database.newDocument(typeName);
+      record.set(properties);
+
+      if (async) {
+        asyncScheduled.incrementAndGet();
+        database.async().createRecord(record, (newRecord) -> asyncCreated.incrementAndGet(), this::asyncError);
+      } else {
+        record.save();
+        ++pendingCreated;
+      }
+    }
+
+    private void update(final Document existent, final Map<String, Object> properties) {
+      final MutableDocument record = existent.modify();
+      record.set(properties);
+
+      if (async) {
+        asyncScheduled.incrementAndGet();
+        database.async().updateRecord(record, (updatedRecord) -> asyncUpdated.incrementAndGet(), this::asyncError);
+      } else {
+        record.save();
+        ++pendingUpdated;
+      }
+    }
+
+    private void createEdge(final JSONObject json, final String typeName, final Map<String, Object> properties) {
+      if (!json.has("@out") || !json.has("@in"))
+        throw new IllegalArgumentException("Edge needs @out and @in vertices");
+
+      final Vertex source = new RID(database, json.getString("@out")).asVertex(true);
+      final RID destination = new RID(database, json.getString("@in"));
+
+      final List<Object> edgeProperties = new ArrayList<>(properties.size() * 2);
+      for (final Map.Entry<String, Object> entry : properties.entrySet())
+        if (!entry.getKey().startsWith("@")) {
+          edgeProperties.add(entry.getKey());
+          edgeProperties.add(entry.getValue());
+        }
+
+      if (async) {
+        asyncScheduled.incrementAndGet();
+        database.async().newEdge(source, typeName, destination, true, false,
+            (newEdge, createdSourceVertex, createdDestinationVertex) -> asyncEdges.incrementAndGet(), edgeProperties.toArray());
+      } else {
+        source.newEdge(typeName, destination, true, edgeProperties.toArray());
+        ++pendingEdges;
+      }
+    }
+
+    private void commit() {
+      try {
+        database.commit();
+        ++commits;
+        created += pendingCreated;
+        updated += pendingUpdated;
+        edges += pendingEdges;
+      } catch (final Exception e) {
+        if (database.isTransactionActive())
+          database.rollback();
+
+        // ALL THE RECORDS OF THE TRANSACTION ARE LOST
+        addError(pendingFirstLine + "-" + lines, e, pendingCreated + pendingUpdated + pendingEdges);
+      } finally {
+        pendingFirstLine = lines + 1;
+        pendingCreated = 0;
+        pendingUpdated = 0;
+        pendingEdges = 0;
+      }
+    }
+
+    private void complete() {
+      if (async) {
+        database.async().waitCompletion();
+        created = asyncCreated.get();
+        updated = asyncUpdated.get();
+        edges = asyncEdges.get();
+
+        // THE EXECUTOR DOES NOT NOTIFY THE EDGES IN ERROR, THEY ARE COUNTED AS THE RECORDS NEITHER COMPLETED NOR FAILED
+        final long notNotified = asyncScheduled.get() - created - updated - edges - asyncFailed.get();
+        if (notNotified > 0)
+          addError("async", new IllegalStateException(notNotified + " edges not created"), notNotified);
+      } else if (sessionTransaction) {
+        // COMMITTED WITH THE TRANSACTION OF THE SESSION
+        created += pendingCreated;
+        updated += pendingUpdated;
+        edges += pendingEdges;
+      } else if (database.isTransactionActive())
+        commit();
+    }
+
+    private void asyncError(final Throwable e) {
+      asyncFailed.incrementAndGet();
+      addError("async", e, 1);
+    }
+
+    private synchronized void addError(final String lines, final Throwable e, final long count) {
+      errors += count;
+      if (errorDetails.length() < maxErrors)
+        errorDetails.put(new JSONObject().put("lines", lines).put("error", e.getClass().getSimpleName() + ": " + e.getMessage()));
+    }
+
+    private synchronized JSONObject toJSON() {
+      return new JSONObject()//
+          .put("lines", lines)//
+          .put("created", created)//
+          .put("updated", updated)//
+          .put("edges", edges)//
+          .put("commits", commits)//
+          .put("errors", errors)//
+          .put("errorDetails", errorDetails)//
+          .put("elapsedMs", System.currentTimeMillis() - beginTime);
+    }
+  }
+}
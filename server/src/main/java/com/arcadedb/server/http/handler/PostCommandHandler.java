@@ -62,6 +62,7 @@ public class PostCommandHandler extends AbstractQueryHandler {
     final int limit = (int) requestMap.getOrDefault("limit", DEFAULT_LIMIT);
     final String serializer = (String) requestMap.getOrDefault("serializer", "record");
     final String profileExecution = (String) requestMap.getOrDefault("profileExecution", null);
+    final StreamingExecutionResponse.FORMAT streamingFormat = getStreamingFormat((String) requestMap.get("stream"), serializer);
 
     if (command == null || command.isEmpty())
       return new ExecutionResponse(400, "{ \"error\" : \"Command text is null\"}");
@@ -112,6 +113,11 @@ public class PostCommandHandler extends AbstractQueryHandler {
 
       final JSONObject response = createResult(user, database);
 
+      if (streamingFormat != null) {
+        httpServer.getServer().getServerMetrics().meter("http.command").hit();
+        return createStreamingResponse(database, response, serializer, streamingFormat, limit, qResult);
+      }
+
       serializeResultSet(database, serializer, limit, response, qResult);
 
       if (qResult != null && profileExecution != null && qResult.getExecutionPlan().isPresent())
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.http.handler;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.serializer.JsonSerializer;
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+import com.arcadedb.server.http.HttpCursor;
+import com.arcadedb.server.http.HttpServer;
+import com.arcadedb.server.http.HttpSession;
+import com.arcadedb.server.http.HttpSessionManager;
+import com.arcadedb.server.security.ServerSecurityUser;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.HttpString;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Manages the server-side cursors to fetch large results in pages. The same endpoint opens, fetches and closes a cursor depending on
+ * the payload:
+ * <ul>
+ *   <li>`{"language": "sql", "command": "select from V", "params": {}, "fetchSize": 1000}` executes the query and opens a cursor</li>
+ *   <li>`{"cursor": "AC-...", "fetchSize": 1000}` fetches the next page of the cursor</li>
+ *   <li>`{"cursor": "AC-...", "close": true}` closes the cursor</li>
+ * </ul>
+ * The response contains the page of rows in the "result" field and the cursor id in the "cursor" field as long as more rows are
+ * available. The cursor is closed automatically when the last page is fetched.
+ * <p>
+ * The cursor is bound to the session of the request. If the request has no session, a new session is created without a
+ * transaction, so the pages read while scanning the result are not retained by the server. The session id is returned in the
+ * `arcadedb-session-id` header and must be sent with the following fetches. Idle cursors are closed by the {@link HttpSessionManager}.
+ */
+public class PostCursorHandler extends AbstractQueryHandler {
+  public static final int DEFAULT_FETCH_SIZE = 1_000;
+
+  public PostCursorHandler(final HttpServer httpServer) {
+    super(httpServer);
+  }
+
+  @Override
+  protected boolean mustExecuteOnWorkerThread() {
+    return true;
+  }
+
+  @Override
+  protected boolean requiresTransaction() {
+    return false;
+  }
+
+  @Override
+  public ExecutionResponse execute(final HttpServerExchange exchange, final ServerSecurityUser user, final Database database)
+      throws IOException {
+    final String payload = parseRequestPayload(exchange);
+    if (payload == null || payload.isEmpty())
+      return new ExecutionResponse(400, "{ \"error\" : \"Cursor request is null\"}");
+
+    final Map<String, Object> requestMap = new JSONObject(payload).toMap();
+
+    final int fetchSize = ((Number) requestMap.getOrDefault("fetchSize", DEFAULT_FETCH_SIZE)).intValue();
+    if (fetchSize < 1)
+      return new ExecutionResponse(400, "{ \"error\" : \"Invalid fetch size " + fetchSize + "\"}");
+
+    HttpSession session = getSession(exchange, user);
+
+    final String cursorId = (String) requestMap.get("cursor");
+    final HttpCursor cursor;
+
+    if (cursorId != null) {
+      if (session == null)
+        return new ExecutionResponse(400, "{ \"error\" : \"Session id is required to use a cursor\"}");
+
+      if (Boolean.TRUE.equals(requestMap.get("close"))) {
+        session.closeCursor(cursorId);
+        removeSessionIfUnused(exchange, session);
+        httpServer.getServer().getServerMetrics().meter("http.cursor").hit();
+        return new ExecutionResponse(204, "");
+      }
+
+      cursor = session.getCursor(cursorId);
+      if (cursor == null)
+        return new ExecutionResponse(404, "{ \"error\" : \"Cursor not found or expired\"}");
+
+    } else {
+      final String language = (String) requestMap.get("language");
+      final String command = decode((String) requestMap.get("command"));
+      if (language == null || command == null || command.isEmpty())
+        return new ExecutionResponse(400, "{ \"error\" : \"Command text is null\"}");
+
+      if (session == null) {
+        // NO TRANSACTION IS BEGUN: THE RESULT SET IS SCANNED WITHOUT KEEPING THE READ PAGES IN THE TRANSACTION CONTEXT
+        session = httpServer.getSessionManager().createSession(user, ((DatabaseInternal) database).getTransaction());
+        exchange.getResponseHeaders().put(new HttpString(HttpSessionManager.ARCADEDB_SESSION_ID), session.id);
+      }
+
+      final Object params = mapParams((Map<String, Object>) requestMap.get("params"));
+      final ResultSet resultSet = params instanceof Object[] ?
+          database.query(language, command.trim(), (Object[]) params) :
+          database.query(language, command.trim(), (Map<String, Object>) params);
+
+      cursor = session.openCursor(resultSet);
+    }
+
+    final JsonSerializer serializer = createRowSerializer("record");
+    final JSONArray result = new JSONArray();
+    for (final Result row : cursor.fetch(fetchSize))
+      result.put(serializer.serializeResult(database, row));
+
+    final JSONObject response = createResult(user, database).put("result", result);
+
+    if (cursor.hasNext())
+      response.put("cursor", cursor.id);
+    else {
+      // LAST PAGE
+      session.closeCursor(cursor.id);
+      removeSessionIfUnused(exchange, session);
+    }
+
+    httpServer.getServer().getServerMetrics().meter("http.cursor").hit();
+
+    return new ExecutionResponse(200, response.toString());
+  }
+
+  private HttpSession getSession(final HttpServerExchange exchange, final ServerSecurityUser user) {
+    final HeaderValues sessionId = exchange.getRequestHeaders().get(HttpSessionManager.ARCADEDB_SESSION_ID);
+    if (sessionId == null || sessionId.isEmpty())
+      return null;
+    return httpServer.getSessionManager().getSessionById(user, sessionId.getFirst());
+  }
+
+  /**
+   * Removes the session created only to hold cursors once the last cursor is closed. Sessions with a transaction are left to the
+   * commit or rollback of the client.
+   */
+  private void removeSessionIfUnused(final HttpServerExchange exchange, final HttpSession session) {
+    if (!session.hasCursors() && !session.transaction.isActive()) {
+      httpServer.getSessionManager().removeSession(session.id);
+      exchange.getResponseHeaders().remove(HttpSessionManager.ARCADEDB_SESSION_ID);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.http.handler;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.log.LogManager;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.serializer.JsonSerializer;
+import com.arcadedb.serializer.json.JSONObject;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.logging.*;
+
+/**
+ * Response that sends the rows while they are read from the result set, with the chunked transfer encoding. The server memory and
+ * the time to receive the first row do not depend on the number of rows. The writes on the blocking output stream wait for the client
+ * to receive the data already sent, so a slow client slows down the reading of the result set instead of filling the heap.
+ * <p>
+ * With the JSON format the response has the same structure as the non streaming one. With the NDJSON format every row is a JSON
+ * object on its own line. If an error occurs after the first bytes have been sent, it is reported at the end of the stream.
+ */
+public class StreamingExecutionResponse extends ExecutionResponse {
+  public enum FORMAT {JSON, NDJSON}
+
+  private static final int            BUFFER_SIZE = 64 * 1024;
+  private final        Database       database;
+  private final        ResultSet      resultSet;
+  private final        JsonSerializer serializer;
+  private final        JSONObject     header;
+  private final        FORMAT         format;
+  private final        int            limit;
+
+  public StreamingExecutionResponse(final Database database, final ResultSet resultSet, final JsonSerializer serializer,
+      final JSONObject header, final FORMAT format, final int limit) {
+    super(200, (String) null);
+    this.database = database;
+    this.resultSet = resultSet;
+    this.serializer = serializer;
+    this.header = header;
+    this.format = format;
+    this.limit = limit;
+  }
+
+  @Override
+  public void send(final HttpServerExchange exchange) {
+    exchange.setStatusCode(code);
+    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, format == FORMAT.NDJSON ? "application/x-ndjson" : "application/json");
+
+    if (!exchange.isBlocking())
+      exchange.startBlocking();
+
+    // NO CONTENT LENGTH: UNDERTOW SENDS THE RESPONSE IN CHUNKS
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+    try {
+      if (format == FORMAT.JSON) {
+        // SAME FIELDS OF THE NON STREAMING RESPONSE, WITH THE ROWS IN THE "result" ARRAY
+        final String headerAsString = header.toString();
+        writer.write(headerAsString, 0, headerAsString.length() - 1);
+        writer.write(headerAsString.length() > 2 ? ",\"result\":[" : "\"result\":[");
+      }
+
+      long rows = 0;
+      try {
+        if (resultSet != null)
+          while ((limit < 0 || rows < limit) && resultSet.hasNext()) {
+            final String row = serializer.serializeResult(database, resultSet.next()).toString();
+            if (format == FORMAT.JSON) {
+              if (rows > 0)
+                writer.write(',');
+              writer.write(row);
+            } else {
+              writer.write(row);
+              writer.write('\n');
+            }
+
+            if (++rows == 1)
+              // SEND THE FIRST ROW IMMEDIATELY, THEN THE ROWS ARE SENT EVERY TIME THE BUFFER IS FULL
+              writer.flush();
+          }
+
+        if (format == FORMAT.JSON)
+          writer.write("]}");
+
+      } catch (final IOException e) {
+        throw e;
+      } catch (final Exception e) {
+        // THE STATUS CODE HAS BEEN ALREADY SENT: REPORT THE ERROR AT THE END OF THE STREAM
+        LogManager.instance().log(this, Level.WARNING, "Error on streaming the results after %d rows", e, rows);
+
+        final String error = new JSONObject().put("error", "Error on streaming the results").put("detail", String.valueOf(e.getMessage()))
+            .put("exception", e.getClass().getName()).toString();
+        if (format == FORMAT.JSON) {
+          writer.write("],");
+          writer.write(error, 1, error.length() - 1);
+        } else {
+          writer.write(error);
+          writer.write('\n');
+        }
+      }
+
+      writer.close();
+
+    } catch (final IOException e) {
+      // THE CLIENT CLOSED THE CONNECTION: STOP READING THE RESULT SET
+      LogManager.instance().log(this, Level.FINE, "Client disconnected while streaming the results", e);
+    } finally {
+      if (resultSet != null)
+        resultSet.close();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.arcadedb.server;
+
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.exception.DuplicatedKeyException;
+import com.arcadedb.network.binary.ConnectionException;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.remote.RemoteDatabase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class BinaryProtocolIT extends BaseGraphServerTest {
+  @Override
+  public void setTestConfiguration() {
+    super.setTestConfiguration();
+    GlobalConfiguration.SERVER_PLUGINS.setValue("binary:com.arcadedb.server.binary.BinaryProtocolPlugin");
+  }
+
+  @Test
+  public void queryAndCommand() {
+    final RemoteDatabase database = connect();
+    try {
+      database.command("sql", "create document type Item");
+      database.command("sql", "create property Item.id integer");
+      database.command("sql", "create index on Item (id) unique");
+
+      for (int i = 0; i < 100; i++)
+        database.command("sql", "insert into Item set id = ?, name = ?, tags = ?", i, "item" + i, List.of("a", "b"));
+
+      try (final ResultSet resultSet = database.query("sql", "select from Item where id < :max order by id", Map.of("max", 10))) {
+        int expected = 0;
+        while (resultSet.hasNext()) {
+          final Result result = resultSet.next();
+          Assertions.assertTrue(result.isElement());
+          Assertions.assertEquals(expected, (int) result.getProperty("id"));
+          Assertions.assertEquals("item" + expected, result.getProperty("name"));
+          Assertions.assertEquals(List.of("a", "b"), result.getProperty("tags"));
+          ++expected;
+        }
+        Assertions.assertEquals(10, expected);
+      }
+
+      // PROJECTIONS ARE RETURNED AS PLAIN RESULTS
+      final Result count = database.query("sql", "select count(*) as count from Item").next();
+      Assertions.assertFalse(count.isElement());
+      Assertions.assertEquals(100L, ((Number) count.getProperty("count")).longValue());
+
+      // THE ERRORS OF THE SERVER ARE RECREATED ON THE CLIENT
+      Assertions.assertThrows(DuplicatedKeyException.class, () -> database.command("sql", "insert into Item set id = 0"));
+
+      // GRAPH ELEMENTS
+      final Result vertex = database.query("sql", "select from " + VERTEX1_TYPE_NAME + " limit 1").next();
+      Assertions.assertTrue(vertex.getElement().get().asVertex() != null);
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void transactions() {
+    final Database serverDatabase = getServerDatabase(0, getDatabaseName());
+    serverDatabase.getSchema().createDocumentType("Tx");
+
+    final RemoteDatabase database = connect();
+    try {
+      database.begin();
+      database.command("sql", "insert into Tx set id = 1");
+
+      // THE CHANGES ARE VISIBLE ONLY INSIDE THE TRANSACTION
+      Assertions.assertEquals(1L, database.countType("Tx", false));
+      Assertions.assertEquals(0L, serverDatabase.countType("Tx", false));
+
+      database.rollback();
+      Assertions.assertFalse(database.isTransactionActive());
+      Assertions.assertEquals(0L, database.countType("Tx", false));
+
+      database.transaction(() -> {
+        for (int i = 0; i < 10; i++)
+          database.command("sql", "insert into Tx set id = ?", i);
+      });
+      Assertions.assertEquals(10L, serverDatabase.countType("Tx", false));
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void pipelinedRequestsFromMultipleThreads() throws Exception {
+    final Database serverDatabase = getServerDatabase(0, getDatabaseName());
+    serverDatabase.getSchema().createDocumentType("Concurrent");
+
+    final int threads = 8;
+    final int perThread = 200;
+    final AtomicInteger errors = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      final int threadId = t;
+      executor.submit(() -> {
+        // THE DATABASES SHARE THE SAME CONNECTION
+        final RemoteDatabase database = connect();
+        try {
+          for (int i = 0; i < perThread; i++) {
+            database.command("sql", "insert into Concurrent set thread = ?, id = ?", threadId, i);
+            final Result result = database.query("sql", "select count(*) as count from Concurrent where thread = ?", threadId).next();
+            Assertions.assertEquals(i + 1L, ((Number) result.getProperty("count")).longValue());
+          }
+        } catch (final Throwable e) {
+          e.printStackTrace();
+          errors.incrementAndGet();
+        } finally {
+          database.close();
+        }
+      });
+    }
+    executor.shutdown();
+    Assertions.assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+    Assertions.assertEquals(0, errors.get());
+    Assertions.assertEquals(threads * perThread, serverDatabase.countType("Concurrent", false));
+  }
+
+  @Test
+  public void refusedHandshake() {
+    final ContextConfiguration configuration = new ContextConfiguration();
+    configuration.setValue(GlobalConfiguration.NETWORK_REMOTE_TRANSPORT, "binary");
+    Assertions.assertThrows(ConnectionException.class,
+        () -> new RemoteDatabase("127.0.0.1", 2480, "notExistent", "root", BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS,
+            configuration));
+  }
+
+  private RemoteDatabase connect() {
+    final ContextConfiguration configuration = new ContextConfiguration();
+    configuration.setValue(GlobalConfiguration.NETWORK_REMOTE_TRANSPORT, "binary");
+    return new RemoteDatabase("127.0.0.1", 2480, getDatabaseName(), "root", BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS,
+        configuration);
+  }
+}
@@ -0,0 +1,146 @@
+package com.arcadedb.server;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.RID;
+import com.arcadedb.graph.Vertex;
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+public class HTTPBatchIT extends BaseGraphServerTest {
+  private static final int TOTAL = 1_000;
+
+  @Test
+  public void importVerticesAndEdges() throws Exception {
+    createSchema();
+
+    final StringBuilder vertices = new StringBuilder();
+    for (int i = 0; i < TOTAL; i++)
+      vertices.append(new JSONObject().put("@type", "Person").put("id", i).put("name", "Person-" + i)).append("\n");
+
+    JSONObject result = batch("commitEvery=100", vertices.toString());
+    Assertions.assertEquals(TOTAL, result.getLong("created"));
+    Assertions.assertEquals(10, result.getLong("commits"));
+    Assertions.assertEquals(0, result.getLong("errors"));
+
+    final Database database = getServerDatabase(0, getDatabaseName());
+    Assertions.assertEquals(TOTAL, database.countType("Person", false));
+
+    final List<RID> rids = new ArrayList<>();
+    database.iterateType("Person", false).forEachRemaining((r) -> rids.add(r.getIdentity()));
+
+    final StringBuilder edges = new StringBuilder();
+    for (int i = 1; i < rids.size(); i++)
+      edges.append(new JSONObject().put("@type", "Knows").put("@out", rids.get(i - 1).toString()).put("@in", rids.get(i).toString())
+          .put("since", i)).append("\n");
+
+    result = batch(null, edges.toString());
+    Assertions.assertEquals(TOTAL - 1, result.getLong("edges"));
+    Assertions.assertEquals(0, result.getLong("errors"));
+
+    database.transaction(() -> {
+      final Vertex first = rids.get(0).asVertex();
+      Assertions.assertEquals(1, first.countEdges(Vertex.DIRECTION.OUT, "Knows"));
+      Assertions.assertEquals(1, (int) first.getEdges(Vertex.DIRECTION.OUT, "Knows").iterator().next().getInteger("since"));
+    });
+  }
+
+  @Test
+  public void upsertByKey() throws Exception {
+    createSchema();
+
+    final StringBuilder payload = new StringBuilder();
+    for (int i = 0; i < TOTAL; i++)
+      payload.append(new JSONObject().put("@type", "Person").put("id", i).put("name", "Person-" + i)).append("\n");
+    batch(null, payload.toString());
+
+    // HALF UPDATES, HALF NEW RECORDS
+    payload.setLength(0);
+    for (int i = TOTAL / 2; i < TOTAL + TOTAL / 2; i++)
+      payload.append(new JSONObject().put("@type", "Person").put("id", i).put("name", "Updated-" + i)).append("\n");
+
+    final JSONObject result = batch("upsertKey=id", payload.toString());
+    Assertions.assertEquals(TOTAL / 2, result.getLong("created"));
+    Assertions.assertEquals(TOTAL / 2, result.getLong("updated"));
+
+    final Database database = getServerDatabase(0, getDatabaseName());
+    Assertions.assertEquals(TOTAL + TOTAL / 2, database.countType("Person", false));
+    Assertions.assertEquals("Updated-" + TOTAL,
+        database.query("sql", "select from Person where id = ?", TOTAL).next().getProperty("name"));
+    Assertions.assertEquals("Person-0", database.query("sql", "select from Person where id = 0").next().getProperty("name"));
+  }
+
+  @Test
+  public void invalidLinesAreSkipped() throws Exception {
+    createSchema();
+
+    final String payload = "{\"@type\":\"Person\",\"id\":1}\n" + //
+        "not json\n" + //
+        "\n" + //
+        "{\"@type\":\"NotExistent\",\"id\":2}\n" + //
+        "{\"@type\":\"Person\",\"id\":3}\n";
+
+    final JSONObject result = batch(null, payload);
+    Assertions.assertEquals(5, result.getLong("lines"));
+    Assertions.assertEquals(2, result.getLong("created"));
+    Assertions.assertEquals(2, result.getLong("errors"));
+
+    final JSONArray errorDetails = result.getJSONArray("errorDetails");
+    Assertions.assertEquals(2, errorDetails.length());
+    Assertions.assertEquals("2", errorDetails.getJSONObject(0).getString("lines"));
+    Assertions.assertEquals("4", errorDetails.getJSONObject(1).getString("lines"));
+
+    Assertions.assertEquals(2, getServerDatabase(0, getDatabaseName()).countType("Person", false));
+  }
+
+  @Test
+  public void asyncMode() throws Exception {
+    createSchema();
+
+    final StringBuilder payload = new StringBuilder();
+    for (int i = 0; i < TOTAL; i++)
+      payload.append(new JSONObject().put("@type", "Person").put("id", i)).append("\n");
+
+    final JSONObject result = batch("mode=async", payload.toString());
+    Assertions.assertEquals(TOTAL, result.getLong("created"));
+    Assertions.assertEquals(0, result.getLong("errors"));
+    Assertions.assertEquals(TOTAL, getServerDatabase(0, getDatabaseName()).countType("Person", false));
+  }
+
+  private void createSchema() {
+    final Database database = getServerDatabase(0, getDatabaseName());
+    database.command("sql", "create vertex type Person");
+    database.command("sql", "create property Person.id integer");
+    database.command("sql", "create index on Person (id) unique");
+    database.command("sql", "create edge type Knows");
+  }
+
+  private JSONObject batch(final String parameters, final String payload) throws Exception {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://127.0.0.1:2480/api/v1/batch/graph" + (parameters != null ? "?" + parameters : "")).openConnection();
+    try {
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(("root:" + BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS).getBytes()));
+      connection.setRequestProperty("Content-Type", "application/x-ndjson");
+      connection.setDoOutput(true);
+
+      // THE PAYLOAD IS SENT IN CHUNKS, THE SERVER PARSES IT WHILE IT IS RECEIVED
+      connection.setChunkedStreamingMode(4096);
+      try (final OutputStream out = connection.getOutputStream()) {
+        out.write(payload.getBytes(StandardCharsets.UTF_8));
+      }
+
+      Assertions.assertEquals(200, connection.getResponseCode());
+      return new JSONObject(readResponse(connection)).getJSONObject("result");
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.arcadedb.server;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.Record;
+import com.arcadedb.query.sql.executor.InternalResultSet;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.remote.RemoteCursorResultSet;
+import com.arcadedb.remote.RemoteDatabase;
+import com.arcadedb.server.http.HttpSession;
+import com.arcadedb.server.http.HttpSessionManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class HTTPCursorIT extends BaseGraphServerTest {
+  private static final int TOTAL = 25_000;
+
+  @Test
+  public void iterateTypeBeyondDefaultLimit() {
+    populate();
+
+    final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480, getDatabaseName(), "root",
+        BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+
+    int total = 0;
+    for (final Iterator<Record> it = database.iterateType("Paged", false); it.hasNext(); ) {
+      it.next();
+      ++total;
+    }
+    Assertions.assertEquals(TOTAL, total);
+
+    // THE SESSION CREATED FOR THE CURSOR IS REMOVED WITH THE LAST PAGE
+    Assertions.assertEquals(0, getServer(0).getHttpServer().getSessionManager().getActiveSessions());
+  }
+
+  @Test
+  public void queryInPages() {
+    populate();
+
+    final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480, getDatabaseName(), "root",
+        BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+    database.setFetchSize(500);
+
+    try (final ResultSet resultSet = database.query("sql", "select from Paged order by id")) {
+      Assertions.assertTrue(resultSet instanceof RemoteCursorResultSet);
+
+      int expected = 0;
+      while (resultSet.hasNext())
+        Assertions.assertEquals(expected++, (int) resultSet.next().getProperty("id"));
+      Assertions.assertEquals(TOTAL, expected);
+      Assertions.assertNull(((RemoteCursorResultSet) resultSet).getCursorId());
+    }
+
+    // CLOSE BEFORE THE END RELEASES THE CURSOR ON THE SERVER
+    final ResultSet partial = database.query("sql", "select from Paged where id < ?", 2_000);
+    for (int i = 0; i < 700; i++)
+      partial.next();
+    Assertions.assertNotNull(((RemoteCursorResultSet) partial).getCursorId());
+    Assertions.assertEquals(1, getServer(0).getHttpServer().getSessionManager().getActiveSessions());
+
+    partial.close();
+    Assertions.assertFalse(partial.hasNext());
+    Assertions.assertEquals(0, getServer(0).getHttpServer().getSessionManager().getActiveSessions());
+  }
+
+  @Test
+  public void cursorInTransaction() {
+    populate();
+
+    final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480, getDatabaseName(), "root",
+        BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+    database.setFetchSize(100);
+
+    database.begin();
+    database.command("sql", "insert into Paged set id = ?", TOTAL);
+
+    // THE CURSOR SEES THE CHANGES OF THE TRANSACTION NOT COMMITTED YET
+    int total = 0;
+    for (final ResultSet resultSet = database.query("sql", "select from Paged where id >= ?", TOTAL - 250); resultSet.hasNext(); ) {
+      resultSet.next();
+      ++total;
+    }
+    Assertions.assertEquals(251, total);
+
+    database.rollback();
+    Assertions.assertEquals(TOTAL, database.countType("Paged", false));
+  }
+
+  @Test
+  public void idleCursorsExpire() throws Exception {
+    final HttpSessionManager sessionManager = new HttpSessionManager(60_000, 100);
+    try {
+      final HttpSession session = sessionManager.createSession(null, null);
+      session.openCursor(new InternalResultSet());
+      Assertions.assertTrue(session.hasCursors());
+
+      Thread.sleep(300);
+      sessionManager.checkCursorsValidity();
+      Assertions.assertFalse(session.hasCursors());
+    } finally {
+      sessionManager.close();
+    }
+  }
+
+  private void populate() {
+    final Database database = getServerDatabase(0, getDatabaseName());
+    database.getSchema().createDocumentType("Paged");
+    database.transaction(() -> {
+      for (int i = 0; i < TOTAL; i++)
+        database.newDocument("Paged").set("id", i).save();
+    });
+  }
+}
@@ -0,0 +1,103 @@
+package com.arcadedb.server;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+public class HTTPStreamingIT extends BaseGraphServerTest {
+  private static final int TOTAL = 10_000;
+
+  @Test
+  public void streamAsJSON() throws Exception {
+    populate();
+
+    final HttpURLConnection connection = streamQuery("select from Streamed order by id", "json");
+    try {
+      Assertions.assertEquals(200, connection.getResponseCode());
+      Assertions.assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+
+      final JSONObject response = new JSONObject(readResponse(connection));
+      Assertions.assertEquals("root", response.getString("user"));
+
+      final JSONArray result = response.getJSONArray("result");
+      Assertions.assertEquals(TOTAL, result.length());
+      for (int i = 0; i < TOTAL; i++)
+        Assertions.assertEquals(i, result.getJSONObject(i).getInt("id"));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void streamAsNDJSON() throws Exception {
+    populate();
+
+    final HttpURLConnection connection = streamQuery("select from Streamed order by id", "ndjson");
+    try {
+      Assertions.assertEquals(200, connection.getResponseCode());
+      Assertions.assertEquals("application/x-ndjson", connection.getHeaderField("Content-Type"));
+
+      int rows = 0;
+      try (final BufferedReader reader = new BufferedReader(
+          new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          Assertions.assertEquals(rows, new JSONObject(line).getInt("id"));
+          ++rows;
+        }
+      }
+      Assertions.assertEquals(TOTAL, rows);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void streamNotSupported() throws Exception {
+    HttpURLConnection connection = streamQuery("select from V1", "xml");
+    try {
+      Assertions.assertEquals(400, connection.getResponseCode());
+    } finally {
+      connection.disconnect();
+    }
+
+    connection = (HttpURLConnection) new URL("http://127.0.0.1:2480/api/v1/query/graph").openConnection();
+    try {
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(("root:" + BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS).getBytes()));
+      formatPayload(connection, new JSONObject().put("language", "sql").put("command", "select from V1").put("serializer", "graph")
+          .put("stream", "json"));
+      Assertions.assertEquals(400, connection.getResponseCode());
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private void populate() {
+    final Database database = getServerDatabase(0, getDatabaseName());
+    database.getSchema().createDocumentType("Streamed");
+    database.transaction(() -> {
+      for (int i = 0; i < TOTAL; i++)
+        database.newDocument("Streamed").set("id", i, "name", "Streamed-" + i).save();
+    });
+  }
+
+  private HttpURLConnection streamQuery(final String query, final String format) throws Exception {
+    final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:2480/api/v1/query/graph").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setRequestProperty("Authorization",
+        "Basic " + Base64.getEncoder().encodeToString(("root:" + BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS).getBytes()));
+    formatPayload(connection,
+        new JSONObject().put("language", "sql").put("command", query).put("limit", -1).put("stream", format));
+    connection.connect();
+    return connection;
+  }
+}
@@ -0,0 +1,106 @@
+package com.arcadedb.server;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import com.arcadedb.exception.DuplicatedKeyException;
+import com.arcadedb.exception.RecordNotFoundException;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.remote.RemoteDatabase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class RemoteDatabaseAsyncIT extends BaseGraphServerTest {
+  private static final int TOTAL = 1_000;
+
+  @Test
+  public void manyRequestsInFlight() throws Exception {
+    final List<RID> rids = populate();
+
+    final RemoteDatabase database = connect();
+    try {
+      // ALL THE LOOKUPS ARE SUBMITTED FROM THE SAME THREAD BEFORE WAITING FOR ANY RESULT
+      final List<CompletableFuture<Record>> lookups = new ArrayList<>(TOTAL);
+      for (final RID rid : rids)
+        lookups.add(database.async().lookupByRID(rid));
+
+      for (int i = 0; i < TOTAL; i++)
+        Assertions.assertEquals(i, (int) lookups.get(i).get(30, TimeUnit.SECONDS).asDocument().getInteger("id"));
+
+      final List<CompletableFuture<ResultSet>> queries = new ArrayList<>();
+      for (int i = 0; i < 100; i++)
+        queries.add(database.async().query("sql", "select from Async where id = ?", i));
+      for (int i = 0; i < 100; i++)
+        Assertions.assertEquals(i, (int) queries.get(i).get(30, TimeUnit.SECONDS).next().getProperty("id"));
+
+      final Map<String, Object> stats = database.async().getStats();
+      Assertions.assertTrue((Long) stats.get("requests") >= TOTAL + 100);
+      Assertions.assertEquals(0L, stats.get("inFlight"));
+      Assertions.assertTrue((Float) stats.get("maxLatencyMs") > 0F);
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void batchAndErrors() throws Exception {
+    final RID existent = populate().get(0);
+
+    final RemoteDatabase database = connect();
+    try {
+      final ResultSet result = database.async()
+          .batch(List.of("insert into Async set id = " + TOTAL, "insert into Async set id = " + (TOTAL + 1),
+              "select count(*) as count from Async"), null).get(30, TimeUnit.SECONDS);
+      Assertions.assertEquals(TOTAL + 2L, ((Number) result.next().getProperty("count")).longValue());
+
+      // THE FUTURES ARE COMPLETED WITH THE SAME EXCEPTIONS OF THE SYNCHRONOUS API
+      final ExecutionException duplicated = Assertions.assertThrows(ExecutionException.class,
+          () -> database.async().command("sql", "insert into Async set id = 0").get(30, TimeUnit.SECONDS));
+      Assertions.assertTrue(duplicated.getCause() instanceof DuplicatedKeyException);
+
+      final ExecutionException notFound = Assertions.assertThrows(ExecutionException.class,
+          () -> database.async().lookupByRID(new RID(null, existent.getBucketId(), 1_000_000L)).get(30, TimeUnit.SECONDS));
+      Assertions.assertTrue(notFound.getCause() instanceof RecordNotFoundException);
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  public void asyncInTransaction() throws Exception {
+    populate();
+
+    final RemoteDatabase database = connect();
+    try {
+      database.begin();
+      database.async().command("sql", "insert into Async set id = ?", TOTAL).get(30, TimeUnit.SECONDS);
+      Assertions.assertEquals(TOTAL + 1L, database.countType("Async", false));
+      database.rollback();
+
+      Assertions.assertEquals(TOTAL, database.countType("Async", false));
+    } finally {
+      database.close();
+    }
+  }
+
+  private List<RID> populate() {
+    final Database database = getServerDatabase(0, getDatabaseName());
+    database.command("sql", "create document type Async");
+    database.command("sql", "create property Async.id integer");
+    database.command("sql", "create index on Async (id) unique");
+
+    final List<RID> rids = new ArrayList<>(TOTAL);
+    database.transaction(() -> {
+      for (int i = 0; i < TOTAL; i++)
+        rids.add(database.newDocument("Async").set("id", i).save().getIdentity());
+    });
+    return rids;
+  }
+
+  private RemoteDatabase connect() {
+    return new RemoteDatabase("127.0.0.1", 2480, getDatabaseName(), "root", BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.ha;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.remote.RemoteDatabase;
+import com.arcadedb.serializer.json.JSONObject;
+import com.arcadedb.server.BaseGraphServerTest;
+import com.arcadedb.server.http.handler.DatabaseAbstractHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.*;
+import java.util.*;
+
+/**
+ * Checks the replication position returned by the commits lets a client read its own writes from a replica, also when the replicas
+ * are not part of the quorum.
+ */
+public class HTTPReadYourWritesIT extends BaseGraphServerTest {
+  @Override
+  protected int getServerCount() {
+    return 2;
+  }
+
+  @Override
+  public void setTestConfiguration() {
+    super.setTestConfiguration();
+    GlobalConfiguration.HA_QUORUM.setValue("NONE");
+    GlobalConfiguration.HA_READ_YOUR_WRITES_TIMEOUT.setValue(1000);
+  }
+
+  @Test
+  public void testReadYourWritesOnReplica() throws Exception {
+    final int leader = getServerNumber(getLeaderServer().getServerName());
+    final int replica = 1 - leader;
+
+    final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480 + leader, getDatabaseName(), "root",
+        BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+
+    for (int i = 0; i < 100; i++) {
+      final String rid = database.command("sql", "create vertex V1 set id = ?", i).next().getIdentity().get().toString();
+
+      final long position = database.getReplicationPosition();
+      Assertions.assertTrue(position > -1);
+
+      // THE REPLICA WAITS FOR THE TRANSACTION BEFORE EXECUTING THE QUERY
+      final JSONObject response = query(replica, "select from " + rid, position, 200);
+      Assertions.assertEquals(1, response.getJSONArray("result").length());
+    }
+
+    // A POSITION NEVER REACHED RETURNS AN ERROR AFTER THE TIMEOUT
+    query(replica, "select from V1 limit 1", database.getReplicationPosition() + 1_000_000, 503);
+  }
+
+  @Test
+  public void testPositionAfterCommandForwardedByReplica() throws Exception {
+    final int leader = getServerNumber(getLeaderServer().getServerName());
+    final int replica = 1 - leader;
+
+    // THE COMMAND IS EXECUTED BY THE LEADER: THE POSITION RETURNED COVERS IT ALSO WHEN THE CLIENT IS CONNECTED TO THE REPLICA
+    final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480 + replica, getDatabaseName(), "root",
+        BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS);
+    database.command("sql", "create vertex V1 set id = 1000000");
+
+    Assertions.assertEquals(getServer(leader).getHA().getReplicationLogFile().getLastMessageNumber(), database.getReplicationPosition());
+
+    final JSONObject response = query(replica, "select from V1 where id = 1000000", database.getReplicationPosition(), 200);
+    Assertions.assertEquals(1, response.getJSONArray("result").length());
+  }
+
+  private JSONObject query(final int serverIndex, final String query, final long position, final int expectedCode) throws Exception {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://127.0.0.1:248" + serverIndex + "/api/v1/query/" + getDatabaseName()).openConnection();
+    try {
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Authorization",
+          "Basic " + Base64.getEncoder().encodeToString(("root:" + BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS).getBytes()));
+      connection.setRequestProperty(DatabaseAbstractHandler.ARCADEDB_REPLICATION_POSITION, Long.toString(position));
+      formatPayload(connection, "sql", query, null, new HashMap<>());
+      connection.connect();
+
+      Assertions.assertEquals(expectedCode, connection.getResponseCode());
+      return new JSONObject(expectedCode == 200 ? readResponse(connection) : readError(connection));
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.ha;
+
+import com.arcadedb.GlobalConfiguration;
+
+/**
+ * Forces the full resync of a replica with chunks of one page and many chunks in flight, so the files are transferred with thousands
+ * of pipelined requests.
+ */
+public class ReplicationServerFullResyncChunksIT extends ReplicationServerReplicaRestartForceDbInstallIT {
+  public ReplicationServerFullResyncChunksIT() {
+    GlobalConfiguration.HA_RESYNC_CHUNK_SIZE.setValue(1);
+    GlobalConfiguration.HA_RESYNC_IN_FLIGHT_CHUNKS.setValue(16);
+  }
+}
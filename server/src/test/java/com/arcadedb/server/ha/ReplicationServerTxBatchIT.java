@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.ha;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.server.ArcadeDBServer;
+import com.arcadedb.server.BaseGraphServerTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Commits transactions from multiple threads with quorum ALL and only one batch in flight, so the transactions committed while a batch
+ * waits for the quorum are replicated together with the next message.
+ */
+public class ReplicationServerTxBatchIT extends BaseGraphServerTest {
+  private static final int THREADS       = 8;
+  private static final int TX_PER_THREAD  = 200;
+
+  public ReplicationServerTxBatchIT() {
+    GlobalConfiguration.HA_QUORUM.setValue("ALL");
+    GlobalConfiguration.HA_REPLICATION_BATCHES_IN_FLIGHT.setValue(1);
+  }
+
+  @Override
+  protected int getServerCount() {
+    return 3;
+  }
+
+  @Test
+  public void testConcurrentTransactions() throws Exception {
+    final ArcadeDBServer leader = getLeaderServer();
+    final Database db = leader.getDatabase(getDatabaseName());
+
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int threadId = t;
+      final Thread thread = new Thread(() -> {
+        try {
+          for (int i = 0; i < TX_PER_THREAD; i++) {
+            final long id = 1_000_000L + threadId * TX_PER_THREAD + i;
+            // THE THREADS INSERT IN THE SAME BUCKETS: RETRY IN CASE OF CONCURRENT MODIFICATION
+            db.transaction(() -> db.newVertex(VERTEX1_TYPE_NAME).set("id", id, "name", "batch-test").save(), false, 100);
+          }
+        } catch (final Throwable e) {
+          errors.add(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (final Thread thread : threads)
+      thread.join();
+
+    Assertions.assertTrue(errors.isEmpty(), "Errors in the threads: " + errors);
+
+    for (int k = 0; k < getServerCount(); k++) System.out.println("DBG lastMsg server "+k+"="+getServer(k).getHA().getReplicationLogFile().getLastMessageNumber());
+    // WITH QUORUM ALL, THE TRANSACTIONS ARE APPLIED ON ALL THE REPLICAS AT COMMIT TIME
+    for (int i = 0; i < getServerCount(); i++) {
+      final Database serverDb = getServerDatabase(i, getDatabaseName());
+      { long c0=serverDb.countType(VERTEX1_TYPE_NAME, true); if (c0 != 1601) { long c=0; var it=serverDb.iterateType(VERTEX1_TYPE_NAME,true); while(it.hasNext()){it.next();c++;} try{Thread.sleep(2000);}catch(Exception e){} System.out.println("DBG server "+i+" before="+c0+" scan="+c+" after="+serverDb.countType(VERTEX1_TYPE_NAME, true)); } }
+      Assertions.assertEquals(1 + THREADS * TX_PER_THREAD, serverDb.countType(VERTEX1_TYPE_NAME, true), "Server " + i);
+    }
+
+    for (final ArcadeDBServer server : getServers())
+      if (server != leader) {
+        final Leader2ReplicaNetworkExecutor replica = leader.getHA().getReplica(server.getServerName());
+        Assertions.assertFalse(replica.getLatencyHistogram().isEmpty());
+        Assertions.assertTrue(replica.getLatencyPercentile(99) > 0);
+      }
+  }
+}
@@ -20,6 +20,8 @@
  */
 package performance;
 
+import com.arcadedb.ContextConfiguration;
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.exception.ConcurrentModificationException;
 import com.arcadedb.graph.MutableVertex;
 import com.arcadedb.remote.RemoteDatabase;
@@ -37,6 +39,7 @@ public class RemoteDatabaseBenchmark extends BaseGraphServerTest {
   private static final int BUCKETS            = 2;
   private static final int CONCURRENT_THREADS = BUCKETS;
   private static final int TX_RETRY           = CONCURRENT_THREADS * 2;
+  private static final int QUERIES            = 10_000;
 
   private static final String              DATABASE_NAME = "benchmark";
   private final        Map<String, Object> globalStats   = new HashMap<>();
@@ -114,6 +117,49 @@ public class RemoteDatabaseBenchmark extends BaseGraphServerTest {
     Assertions.assertEquals(TOTAL * CONCURRENT_THREADS, database.countType("User", true));
 
     database.close();
+
+    compareTransports();
+  }
+
+  /**
+   * Executes the same short queries with the HTTP and the binary transport, to compare the throughput of the two protocols.
+   */
+  private void compareTransports() {
+    for (final String transport : new String[] { "http", "binary" }) {
+      final ContextConfiguration configuration = new ContextConfiguration();
+      configuration.setValue(GlobalConfiguration.NETWORK_REMOTE_TRANSPORT, transport);
+
+      final long beginTime = System.currentTimeMillis();
+
+      final Thread[] threads = new Thread[CONCURRENT_THREADS];
+      for (int i = 0; i < CONCURRENT_THREADS; i++) {
+        threads[i] = new Thread(() -> {
+          final RemoteDatabase database = new RemoteDatabase("127.0.0.1", 2480, DATABASE_NAME, "root",
+              BaseGraphServerTest.DEFAULT_PASSWORD_FOR_TESTS, configuration);
+          try {
+            for (int k = 0; k < QUERIES; k++)
+              database.query("sql", "select from User limit 10").close();
+          } catch (Throwable t) {
+            incrementError(t);
+          } finally {
+            database.close();
+          }
+        });
+        threads[i].start();
+      }
+
+      for (int i = 0; i < CONCURRENT_THREADS; i++)
+        try {
+          threads[i].join();
+        } catch (InterruptedException e) {
+          // IGNORE IT
+        }
+
+      final long elapsed = Math.max(1, System.currentTimeMillis() - beginTime);
+      System.out.println(
+          "TRANSPORT " + transport + ": " + (QUERIES * CONCURRENT_THREADS * 1_000L / elapsed) + " queries/sec (elapsed=" + elapsed
+              + "ms, errors=" + errors.get() + ")");
+    }
   }
 
   private Timer spawnStatThread() {
@@ -188,6 +234,12 @@ public class RemoteDatabaseBenchmark extends BaseGraphServerTest {
     }
   }
 
+  @Override
+  public void setTestConfiguration() {
+    super.setTestConfiguration();
+    GlobalConfiguration.SERVER_PLUGINS.setValue("binary:com.arcadedb.server.binary.BinaryProtocolPlugin");
+  }
+
   @Override
   protected boolean isCreateDatabases() {
     return false;